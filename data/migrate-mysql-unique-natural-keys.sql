@@ -0,0 +1,34 @@
+-- ===============================================
+-- PETCLINIC DATABASE - MIGRATION: UNIQUE NATURAL KEYS
+-- ===============================================
+-- Description: Makes the upsert natural keys unique, so concurrent upserts
+--              of the same new owner or pet can no longer insert it twice.
+--              Upserts do not need it: they look rows up by their key
+--              columns (see UpsertWriter).
+-- Run it only after duplicate owners were merged (GET /api/owner-duplicates,
+-- POST /api/owner-duplicates/merge); pets named twice under one owner are
+-- merged by hand. Both checks below must return no rows, otherwise the
+-- ALTERs fail. Names compare with the table collation, case-insensitive by
+-- default.
+-- ===============================================
+
+USE PETCLINIC_DB;
+
+SELECT first_name, last_name, telephone, COUNT(*)
+FROM owners
+WHERE telephone IS NOT NULL
+GROUP BY first_name, last_name, telephone
+HAVING COUNT(*) > 1;
+
+SELECT owner_id, name, COUNT(*)
+FROM pets
+GROUP BY owner_id, name
+HAVING COUNT(*) > 1;
+
+ALTER TABLE owners
+  DROP INDEX idx_owners_name_telephone,
+  ADD UNIQUE INDEX uq_owners_name_telephone (first_name, last_name, telephone);
+
+ALTER TABLE pets
+  DROP INDEX idx_pets_owner_name,
+  ADD UNIQUE INDEX uq_pets_owner_name (owner_id, name);
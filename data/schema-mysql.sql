@@ -97,7 +97,11 @@ CREATE TABLE IF NOT EXISTS owners (
   city          VARCHAR(80),
   telephone     VARCHAR(20),
   PRIMARY KEY (id),
-  INDEX idx_owners_last_name (last_name)
+  INDEX idx_owners_last_name (last_name),
+  INDEX idx_owners_city_last_name (city, last_name),
+  INDEX idx_owners_telephone (telephone),
+  -- Upsert natural key; made unique by migrate-mysql-unique-natural-keys.sql once duplicates are merged
+  INDEX idx_owners_name_telephone (first_name, last_name, telephone)
 ) ENGINE=InnoDB;
 
 -- ===============================================
@@ -113,6 +117,8 @@ CREATE TABLE IF NOT EXISTS pets (
   age           INT(4),
   PRIMARY KEY (id),
   INDEX idx_pets_name (name),
+  INDEX idx_pets_owner_type (owner_id, type_id),
+  INDEX idx_pets_owner_name (owner_id, name),
   FOREIGN KEY (owner_id) REFERENCES owners(id)
     ON DELETE CASCADE
     ON UPDATE CASCADE,
@@ -133,7 +139,9 @@ CREATE TABLE IF NOT EXISTS visits (
   description     VARCHAR(255),
   cost            DECIMAL(10,2),
   PRIMARY KEY (id),
-  INDEX idx_visits_pet_id (pet_id),
+  -- Visit history by pet and date range (from the index advisor); also serves the pet_id foreign key.
+  -- Databases created with idx_visits_pet_id: migrate-mysql-visits-pet-date-index.sql
+  INDEX idx_visits_pet_id_visit_date (pet_id, visit_date),
   INDEX idx_visits_vet_id (vet_id),
   INDEX idx_visits_date (visit_date),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
@@ -144,6 +152,86 @@ CREATE TABLE IF NOT EXISTS visits (
     ON UPDATE CASCADE
 ) ENGINE=InnoDB;
 
+-- ===============================================
+-- TABLE: outbox_events (Eventos de cambio)
+-- Description: Change events written in the same transaction as the
+--              owner/pet change; relayed to the in-process event bus
+-- ===============================================
+CREATE TABLE IF NOT EXISTS outbox_events (
+  id              BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+  aggregate_type  VARCHAR(20) NOT NULL,
+  aggregate_id    INT(4) UNSIGNED NOT NULL,
+  event_type      VARCHAR(20) NOT NULL,
+  payload         VARCHAR(4000),
+  created_at      TIMESTAMP NOT NULL,
+  published_at    TIMESTAMP NULL,
+  PRIMARY KEY (id),
+  INDEX idx_outbox_published (published_at, id)
+) ENGINE=InnoDB;
+
+-- ===============================================
+-- TABLE: visit_wal_checkpoints (Checkpoint del WAL de visitas)
+-- Description: Last WAL sequence inserted into visits, per WAL file;
+--              updated in the same transaction as each visit batch
+-- ===============================================
+CREATE TABLE IF NOT EXISTS visit_wal_checkpoints (
+  wal_id          VARCHAR(36) NOT NULL,
+  last_seq        BIGINT NOT NULL,
+  PRIMARY KEY (wal_id)
+) ENGINE=InnoDB;
+
+-- ===============================================
+-- TABLE: visits_archive (Visitas históricas)
+-- Description: Visits older than the archive boundary, moved out of
+--              visits in chunks by the archiver; compressed, no FKs
+-- ===============================================
+CREATE TABLE IF NOT EXISTS visits_archive (
+  id              INT(4) UNSIGNED NOT NULL,
+  pet_id          INT(4) UNSIGNED NOT NULL,
+  vet_id          INT(4) UNSIGNED,
+  visit_date      DATE NOT NULL,
+  description     VARCHAR(255),
+  cost            DECIMAL(10,2),
+  archived_at     TIMESTAMP NOT NULL,
+  PRIMARY KEY (id),
+  INDEX idx_visits_archive_pet_date (pet_id, visit_date),
+  INDEX idx_visits_archive_date (visit_date)
+) ENGINE=InnoDB ROW_FORMAT=COMPRESSED;
+
+-- ===============================================
+-- TABLE: visit_archive_state (Frontera del archivo)
+-- Description: Single row; visits dated before boundary may be in
+--              visits_archive, visits on or after it are always in visits
+-- ===============================================
+CREATE TABLE IF NOT EXISTS visit_archive_state (
+  id              INT NOT NULL,
+  boundary        DATE NOT NULL,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+-- ===============================================
+-- TABLE: table_versions / entity_versions (Versiones para coherencia)
+-- Description: Bumped right after each owner/pet/type write commits;
+--              every node polls them to invalidate its local caches.
+--              A crash between the commit and the bump loses that
+--              invalidation: the entry stays stale until a full reload
+-- ===============================================
+CREATE TABLE IF NOT EXISTS table_versions (
+  table_name      VARCHAR(20) NOT NULL,
+  version         BIGINT NOT NULL,
+  PRIMARY KEY (table_name)
+) ENGINE=InnoDB;
+
+INSERT INTO table_versions (table_name, version) VALUES ('OWNER', 0), ('PET', 0), ('TYPE', 0);
+
+CREATE TABLE IF NOT EXISTS entity_versions (
+  entity_type     VARCHAR(20) NOT NULL,
+  entity_id       INT NOT NULL,
+  version         BIGINT NOT NULL,
+  PRIMARY KEY (entity_type, entity_id),
+  INDEX idx_entity_versions_version (entity_type, version)
+) ENGINE=InnoDB;
+
 -- ===============================================
 -- END OF SCHEMA CREATION
 -- ===============================================
\ No newline at end of file
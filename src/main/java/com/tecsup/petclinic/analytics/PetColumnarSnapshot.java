@@ -0,0 +1,521 @@
+package com.tecsup.petclinic.analytics;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.tecsup.petclinic.coherence.CacheInvalidationListener;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.events.PetChangedEvent;
+import com.tecsup.petclinic.events.PetsUpsertedEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Column-oriented copy of the pets table for analytical filters.
+ *
+ * One row per pet in parallel primitive arrays: type id, owner id, birth
+ * date as epoch day (NO_DATE when unknown) and a dictionary code for the
+ * name. Scans are plain loops over int arrays so the JIT can unroll and
+ * vectorize them; large scans are split across the common fork-join pool.
+ *
+ * Rows are kept sorted by id, so an id is located with a binary search
+ * instead of a boxed map. Loaded at startup by streaming the columns over
+ * JDBC, no Pet entity is built, and kept current by PetChangedEvents.
+ * Deleted rows are tombstoned and compacted away once they are a quarter
+ * of the rows. Served by GET /api/stats/pets/filtered.
+ */
+@Component
+@Slf4j
+public class PetColumnarSnapshot implements CacheInvalidationListener {
+
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    /** rows per fork-join leaf */
+    static final int SPLIT_THRESHOLD = 16_384;
+
+    private static final String SELECT_PETS = "SELECT id, name, type_id, owner_id, birth_date FROM pets";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] ids = new int[0];
+    private int[] typeIds = new int[0];
+    private int[] ownerIds = new int[0];
+    private int[] birthDays = new int[0];
+    private int[] nameCodes = new int[0];
+    private boolean[] live = new boolean[0];
+    private int size;
+    private int liveRows;
+
+    private final Map<String, Integer> codeByName = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    public PetColumnarSnapshot(DataSource dataSource,
+                               @Value("${petclinic.analytics.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Replace the whole snapshot from the database, row by row. Writes and
+     * scans wait for it, so no change event is lost in between.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            clear(1024);
+            jdbcTemplate.query(SELECT_PETS + " ORDER BY id", rs -> {
+                append(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4),
+                        rs.getObject(5, LocalDate.class));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Pet columnar snapshot loaded: {} rows, ~{} KB", size(), estimatedBytes() / 1024);
+    }
+
+    /**
+     * Replace the whole snapshot
+     * @param pets
+     */
+    public void load(List<Pet> pets) {
+        lock.writeLock().lock();
+        try {
+            clear(pets.size());
+            List<Pet> sorted = new ArrayList<>(pets);
+            sorted.sort(Comparator.comparing(Pet::getId));
+            for (Pet pet : sorted) {
+                append(pet.getId(), pet.getName(), pet.getTypeId(), pet.getOwnerId(), pet.getBirthDate());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Pet columnar snapshot loaded: {} rows, ~{} KB", pets.size(), estimatedBytes() / 1024);
+    }
+
+    /**
+     * Incremental refresh, after the service transaction commits
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPetChanged(PetChangedEvent event) {
+        if (event.getAfter() != null) {
+            upsert(event.getAfter());
+        } else {
+            remove(event.getPetId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPetsUpserted(PetsUpsertedEvent event) {
+        event.getPets().forEach(this::upsert);
+    }
+
+    /**
+     * Pets changed on other nodes are re-read from the database
+     */
+    @Override
+    public void invalidate(String entityType, Collection<Integer> ids) {
+        if (!ChangeEvent.PET.equals(entityType) || ids.isEmpty()) {
+            return;
+        }
+        Set<Integer> missing = new HashSet<>(ids);
+        String marks = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.query(SELECT_PETS + " WHERE id IN (" + marks + ")", rs -> {
+            missing.remove(rs.getInt(1));
+            upsert(new PetDTO(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4),
+                    rs.getObject(5, LocalDate.class)));
+        }, ids.toArray());
+        missing.forEach(this::remove);
+    }
+
+    @Override
+    public void invalidateAll(String entityType) {
+        if (ChangeEvent.PET.equals(entityType)) {
+            reload();
+        }
+    }
+
+    public void upsert(PetDTO pet) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, pet.getId());
+            if (row < 0) {
+                append(pet.getId(), pet.getName(), pet.getTypeId(), pet.getOwnerId(), pet.getBirthDate());
+            } else {
+                if (!live[row]) {
+                    live[row] = true;
+                    liveRows++;
+                }
+                typeIds[row] = pet.getTypeId();
+                ownerIds[row] = pet.getOwnerId();
+                birthDays[row] = epochDay(pet.getBirthDate());
+                nameCodes[row] = encode(pet.getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, id);
+            if (row >= 0 && live[row]) {
+                live[row] = false;
+                liveRows--;
+                if (4 * (size - liveRows) > size) {
+                    compact();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * @param filter
+     * @return number of pets matching the filter
+     */
+    public long count(PetFilter filter) {
+        return aggregate(filter, Aggregation.COUNT).total;
+    }
+
+    /**
+     *
+     * @param filter
+     * @return matching pets per type id
+     */
+    public Map<Integer, Long> countByType(PetFilter filter) {
+        return aggregate(filter, Aggregation.BY_TYPE).groups();
+    }
+
+    /**
+     *
+     * @param filter
+     * @return matching pets per birth year (pets without a birth date are skipped)
+     */
+    public Map<Integer, Long> countByBirthYear(PetFilter filter) {
+        Map<Integer, Long> byDay = aggregate(filter, Aggregation.BY_BIRTH_DAY).groups();
+        Map<Integer, Long> byYear = new TreeMap<>();
+        byDay.forEach((day, total) -> byYear.merge(LocalDate.ofEpochDay(day).getYear(), total, Long::sum));
+        return byYear;
+    }
+
+    /**
+     *
+     * @param filter
+     * @return ids of the matching pets
+     */
+    public int[] findIds(PetFilter filter) {
+        lock.readLock().lock();
+        try {
+            Predicate p = new Predicate(filter);
+            int[] out = new int[16];
+            int found = 0;
+            for (int i = 0; i < size; i++) {
+                if (p.matches(i)) {
+                    if (found == out.length) {
+                        out = Arrays.copyOf(out, found * 2);
+                    }
+                    out[found++] = ids[i];
+                }
+            }
+            return Arrays.copyOf(out, found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * @param code
+     * @return pet name for a dictionary code
+     */
+    public String name(int code) {
+        lock.readLock().lock();
+        try {
+            return names.get(code);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * @return approximate heap used by the columns and the name dictionary
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long columns = 5L * Integer.BYTES * ids.length + live.length;
+            long dictionary = 0;
+            for (String name : names) {
+                // String header + byte[] header + Latin-1 payload; the list and the map share the instance
+                dictionary += 40 + name.length();
+            }
+            // HashMap entries name -> code
+            return columns + dictionary + 48L * codeByName.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Result aggregate(PetFilter filter, Aggregation aggregation) {
+        lock.readLock().lock();
+        try {
+            Scan scan = new Scan(new Predicate(filter), aggregation, 0, size);
+            return size > SPLIT_THRESHOLD ? ForkJoinPool.commonPool().invoke(scan) : scan.compute();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void append(Integer id, String name, int typeId, int ownerId, LocalDate birthDate) {
+        if (size == ids.length) {
+            allocate(ids.length * 2);
+        }
+        // Ids normally arrive in increasing order; anything else is shifted into place
+        int row = size;
+        if (size > 0 && ids[size - 1] > id) {
+            row = -Arrays.binarySearch(ids, 0, size, id) - 1;
+            for (int[] column : new int[][] {ids, typeIds, ownerIds, birthDays, nameCodes}) {
+                System.arraycopy(column, row, column, row + 1, size - row);
+            }
+            System.arraycopy(live, row, live, row + 1, size - row);
+        }
+        ids[row] = id;
+        typeIds[row] = typeId;
+        ownerIds[row] = ownerId;
+        birthDays[row] = epochDay(birthDate);
+        nameCodes[row] = encode(name);
+        live[row] = true;
+        size++;
+        liveRows++;
+    }
+
+    private void clear(int capacity) {
+        size = 0;
+        liveRows = 0;
+        codeByName.clear();
+        names.clear();
+        ids = new int[0];
+        typeIds = new int[0];
+        ownerIds = new int[0];
+        birthDays = new int[0];
+        nameCodes = new int[0];
+        live = new boolean[0];
+        allocate(Math.max(16, capacity));
+    }
+
+    /**
+     * Drops tombstoned rows and the names only they used, and gives back
+     * capacity no longer needed
+     */
+    private void compact() {
+        int[] remap = new int[names.size()];
+        Arrays.fill(remap, -1);
+        List<String> kept = new ArrayList<>();
+        int rows = 0;
+        for (int i = 0; i < size; i++) {
+            if (!live[i]) {
+                continue;
+            }
+            int code = nameCodes[i];
+            if (remap[code] < 0) {
+                remap[code] = kept.size();
+                kept.add(names.get(code));
+            }
+            ids[rows] = ids[i];
+            typeIds[rows] = typeIds[i];
+            ownerIds[rows] = ownerIds[i];
+            birthDays[rows] = birthDays[i];
+            nameCodes[rows] = remap[code];
+            live[rows] = true;
+            rows++;
+        }
+        Arrays.fill(live, rows, size, false);
+        size = rows;
+        names.clear();
+        names.addAll(kept);
+        codeByName.clear();
+        for (int code = 0; code < names.size(); code++) {
+            codeByName.put(names.get(code), code);
+        }
+        if (ids.length > 2 * Math.max(16, size)) {
+            allocate(Math.max(16, size + size / 2));
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        typeIds = Arrays.copyOf(typeIds, capacity);
+        ownerIds = Arrays.copyOf(ownerIds, capacity);
+        birthDays = Arrays.copyOf(birthDays, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        live = Arrays.copyOf(live, capacity);
+    }
+
+    private int encode(String name) {
+        String key = name != null ? name : "";
+        Integer code = codeByName.get(key);
+        if (code == null) {
+            code = names.size();
+            names.add(key);
+            codeByName.put(key, code);
+        }
+        return code;
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date != null ? (int) date.toEpochDay() : NO_DATE;
+    }
+
+    private enum Aggregation {
+        COUNT, BY_TYPE, BY_BIRTH_DAY
+    }
+
+    /**
+     * Filter compiled to primitive bounds; "no filter" becomes an always-true range
+     */
+    private final class Predicate {
+
+        final int typeId;
+        final boolean anyType;
+        final int ownerId;
+        final boolean anyOwner;
+        final int fromDay;
+        final int toDay;
+        final boolean anyDate;
+
+        Predicate(PetFilter filter) {
+            anyType = filter.getTypeId() == null;
+            typeId = anyType ? 0 : filter.getTypeId();
+            anyOwner = filter.getOwnerId() == null;
+            ownerId = anyOwner ? 0 : filter.getOwnerId();
+            anyDate = filter.getBornFrom() == null && filter.getBornTo() == null;
+            fromDay = filter.getBornFrom() != null ? (int) filter.getBornFrom().toEpochDay() : NO_DATE + 1;
+            toDay = filter.getBornTo() != null ? (int) filter.getBornTo().toEpochDay() : Integer.MAX_VALUE;
+        }
+
+        boolean matches(int i) {
+            int day = birthDays[i];
+            // Non short-circuit operators keep the loop body branch free
+            return live[i]
+                    & (anyType | typeIds[i] == typeId)
+                    & (anyOwner | ownerIds[i] == ownerId)
+                    & (anyDate | (day >= fromDay & day <= toDay));
+        }
+    }
+
+    private static final class Result {
+
+        long total;
+        final Map<Integer, long[]> counts = new HashMap<>();
+
+        void add(int key) {
+            counts.computeIfAbsent(key, k -> new long[1])[0]++;
+        }
+
+        Result merge(Result other) {
+            total += other.total;
+            other.counts.forEach((key, value) -> counts.computeIfAbsent(key, k -> new long[1])[0] += value[0]);
+            return this;
+        }
+
+        Map<Integer, Long> groups() {
+            Map<Integer, Long> result = new TreeMap<>();
+            counts.forEach((key, value) -> result.put(key, value[0]));
+            return result;
+        }
+    }
+
+    private final class Scan extends RecursiveTask<Result> {
+
+        private final Predicate predicate;
+        private final Aggregation aggregation;
+        private final int from;
+        private final int to;
+
+        Scan(Predicate predicate, Aggregation aggregation, int from, int to) {
+            this.predicate = predicate;
+            this.aggregation = aggregation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                Scan left = new Scan(predicate, aggregation, from, middle);
+                left.fork();
+                Result right = new Scan(predicate, aggregation, middle, to).compute();
+                return right.merge(left.join());
+            }
+            Result result = new Result();
+            switch (aggregation) {
+                case COUNT:
+                    long count = 0;
+                    for (int i = from; i < to; i++) {
+                        count += predicate.matches(i) ? 1 : 0;
+                    }
+                    result.total = count;
+                    break;
+                case BY_TYPE:
+                    for (int i = from; i < to; i++) {
+                        if (predicate.matches(i)) {
+                            result.add(typeIds[i]);
+                            result.total++;
+                        }
+                    }
+                    break;
+                case BY_BIRTH_DAY:
+                    for (int i = from; i < to; i++) {
+                        if (predicate.matches(i) && birthDays[i] != NO_DATE) {
+                            result.add(birthDays[i]);
+                            result.total++;
+                        }
+                    }
+                    break;
+            }
+            return result;
+        }
+    }
+}
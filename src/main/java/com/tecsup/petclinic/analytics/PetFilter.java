@@ -0,0 +1,23 @@
+package com.tecsup.petclinic.analytics;
+
+import java.time.LocalDate;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Conjunctive filter for columnar pet scans; null fields match everything
+ */
+@Value
+@Builder
+public class PetFilter {
+
+    public static final PetFilter ALL = PetFilter.builder().build();
+
+    Integer typeId;
+    Integer ownerId;
+    /** inclusive */
+    LocalDate bornFrom;
+    /** inclusive */
+    LocalDate bornTo;
+}
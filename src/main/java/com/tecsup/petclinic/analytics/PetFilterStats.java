@@ -0,0 +1,18 @@
+package com.tecsup.petclinic.analytics;
+
+import java.util.Map;
+
+import lombok.Value;
+
+/**
+ * Counts of the pets matching a PetFilter, from the columnar snapshot
+ */
+@Value
+public class PetFilterStats {
+
+    long count;
+    /** type id to pets */
+    Map<Integer, Long> byType;
+    /** birth year to pets, pets without a birth date left out */
+    Map<Integer, Long> byBirthYear;
+}
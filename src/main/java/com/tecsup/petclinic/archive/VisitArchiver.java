@@ -0,0 +1,132 @@
+package com.tecsup.petclinic.archive;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves visits older than the retention window from visits to visits_archive.
+ *
+ * The boundary in visit_archive_state is advanced before any row moves, so a
+ * visit dated on or after the boundary is always in the hot table. Rows then
+ * move in chunks, each copy + delete in its own transaction: an interrupted
+ * run leaves every visit in exactly one table and the next run picks up the
+ * rest. A pause between chunks keeps the archiver from competing with live
+ * traffic for locks and I/O.
+ */
+@Component
+@Slf4j
+public class VisitArchiver {
+
+    private static final String SELECT_CHUNK =
+            "SELECT id FROM visits WHERE visit_date < ? ORDER BY id LIMIT ?";
+    private static final String COPY_CHUNK =
+            "INSERT INTO visits_archive (id, pet_id, vet_id, visit_date, description, cost, archived_at) "
+            + "SELECT id, pet_id, vet_id, visit_date, description, cost, :archivedAt FROM visits WHERE id IN (:ids)";
+    private static final String DELETE_CHUNK =
+            "DELETE FROM visits WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final Counter archivedCounter;
+
+    public VisitArchiver(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${petclinic.visits.archive.retention-days:730}") int retentionDays,
+                         @Value("${petclinic.visits.archive.chunk-size:500}") int chunkSize,
+                         @Value("${petclinic.visits.archive.pause-ms:200}") long pauseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.retentionDays = retentionDays;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.archivedCounter = meterRegistry.counter("petclinic.visits.archived");
+    }
+
+    @Scheduled(cron = "${petclinic.visits.archive.cron:0 30 2 * * *}")
+    public void archiveExpired() {
+        archive(LocalDate.now().minusDays(retentionDays));
+    }
+
+    /**
+     * Archive every visit dated before the cutoff
+     * @param cutoff first date that stays in the hot table
+     * @return number of visits moved
+     */
+    public synchronized int archive(LocalDate cutoff) {
+        advanceBoundary(cutoff);
+
+        int moved = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            Integer chunk = transactionTemplate.execute(status -> moveChunk(cutoff));
+            moved += chunk;
+            if (chunk < chunkSize) {
+                break;
+            }
+            pause();
+        }
+        log.info("Archived {} visits dated before {}", moved, cutoff);
+        return moved;
+    }
+
+    /**
+     *
+     * @return visits dated before this may be in visits_archive; null if nothing was ever archived
+     */
+    public LocalDate getBoundary() {
+        List<Date> boundary = jdbcTemplate.queryForList(
+                "SELECT boundary FROM visit_archive_state WHERE id = 1", Date.class);
+        return boundary.isEmpty() ? null : boundary.get(0).toLocalDate();
+    }
+
+    private void advanceBoundary(LocalDate cutoff) {
+        LocalDate current = getBoundary();
+        if (current == null) {
+            jdbcTemplate.update("INSERT INTO visit_archive_state (id, boundary) VALUES (1, ?)", Date.valueOf(cutoff));
+        } else if (current.isBefore(cutoff)) {
+            jdbcTemplate.update("UPDATE visit_archive_state SET boundary = ? WHERE id = 1", Date.valueOf(cutoff));
+        }
+    }
+
+    private int moveChunk(LocalDate cutoff) {
+        List<Integer> ids = jdbcTemplate.queryForList(SELECT_CHUNK, Integer.class, Date.valueOf(cutoff), chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> params = Map.of("ids", ids, "archivedAt", Timestamp.valueOf(LocalDateTime.now()));
+        namedJdbcTemplate.update(COPY_CHUNK, params);
+        namedJdbcTemplate.update(DELETE_CHUNK, params);
+        archivedCounter.increment(ids.size());
+        return ids.size();
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.tecsup.petclinic.coalescing;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single-flight coalescing of identical concurrent reads.
+ *
+ * The first caller for a key runs the query; callers arriving while it is in
+ * flight wait for that result instead of issuing their own. Nothing is kept
+ * once the query completes, so this is not a cache: a call that starts after
+ * the query finished always goes to the database.
+ *
+ * Callers inside a transaction are never coalesced, since they must see their
+ * own uncommitted writes. A follower that waits longer than the timeout runs
+ * the query itself. The de-duplication ratio is
+ * petclinic.coalescing.shared / petclinic.coalescing.calls.
+ */
+@Component
+@Slf4j
+public class RequestCoalescer {
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long timeoutMs;
+
+    public RequestCoalescer(MeterRegistry meterRegistry,
+                            @Value("${petclinic.coalescing.enabled:true}") boolean enabled,
+                            @Value("${petclinic.coalescing.timeout-ms:2000}") long timeoutMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     *
+     * @param name  query name, used as metric tag and key prefix
+     * @param args  query arguments; equal arguments share one execution
+     * @param query the database call
+     * @param copy  gives each follower its own copy of a mutable result
+     * @return the query result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Object args, Supplier<T> query, UnaryOperator<T> copy) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return query.get();
+        }
+        counter("petclinic.coalescing.calls", name).increment();
+
+        String key = name + ':' + args;
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+
+        if (leader == null) {
+            try {
+                T result = query.get();
+                mine.complete(result);
+                return result;
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+
+        try {
+            T shared = (T) leader.get(timeoutMs, TimeUnit.MILLISECONDS);
+            counter("petclinic.coalescing.shared", name).increment();
+            return shared == null ? null : copy.apply(shared);
+        } catch (TimeoutException e) {
+            counter("petclinic.coalescing.timeouts", name).increment();
+            log.debug("Coalesced {} timed out after {} ms, querying directly", key, timeoutMs);
+            return query.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + key, e);
+        }
+    }
+
+    private Counter counter(String meter, String name) {
+        return meterRegistry.counter(meter, "query", name);
+    }
+}
@@ -0,0 +1,126 @@
+package com.tecsup.petclinic.coherence;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tecsup.petclinic.events.ChangeEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Polls the version tables and invalidates local caches for owners/pets
+ * changed by any node, this one included.
+ *
+ * Staleness is bounded by petclinic.coherence.poll-interval-ms plus one
+ * query; petclinic.coherence.lag reports the time since the last successful
+ * poll so a stuck poller is visible.
+ */
+@Component
+@Slf4j
+public class CacheCoherencePoller {
+
+    private static final List<String> ENTITY_TYPES = List.of(ChangeEvent.OWNER, ChangeEvent.PET);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectProvider<CacheInvalidationListener> beanListeners;
+    private final List<CacheInvalidationListener> registeredListeners = new CopyOnWriteArrayList<>();
+    private final int maxBatch;
+
+    private final Map<String, Long> seenVersions = new ConcurrentHashMap<>();
+    private volatile long lastPollMillis = System.currentTimeMillis();
+
+    public CacheCoherencePoller(JdbcTemplate jdbcTemplate, ObjectProvider<CacheInvalidationListener> beanListeners,
+                                MeterRegistry meterRegistry,
+                                @Value("${petclinic.coherence.max-batch:1000}") int maxBatch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.beanListeners = beanListeners;
+        this.maxBatch = maxBatch;
+
+        Gauge.builder("petclinic.coherence.lag", this, poller -> System.currentTimeMillis() - poller.lastPollMillis)
+                .description("Time since the last successful coherence poll")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Listeners that are not Spring beans
+     * @param listener
+     */
+    public void register(CacheInvalidationListener listener) {
+        registeredListeners.add(listener);
+    }
+
+    public void unregister(CacheInvalidationListener listener) {
+        registeredListeners.remove(listener);
+    }
+
+    /**
+     * Caches are built from the current state, so only later versions matter
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (String entityType : ENTITY_TYPES) {
+            seenVersions.put(entityType, currentVersion(entityType));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${petclinic.coherence.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        if (seenVersions.isEmpty()) {
+            return;
+        }
+        try {
+            for (String entityType : ENTITY_TYPES) {
+                long seen = seenVersions.get(entityType);
+                long current = currentVersion(entityType);
+                if (current <= seen) {
+                    continue;
+                }
+                if (current - seen > maxBatch) {
+                    dispatchAll(entityType);
+                } else {
+                    List<Integer> ids = jdbcTemplate.queryForList(
+                            "SELECT entity_id FROM entity_versions WHERE entity_type = ? AND version > ? AND version <= ?",
+                            Integer.class, entityType, seen, current);
+                    dispatch(entityType, ids);
+                }
+                seenVersions.put(entityType, current);
+            }
+            lastPollMillis = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.warn("Cache coherence poll failed", e);
+        }
+    }
+
+    private long currentVersion(String entityType) {
+        Long version = jdbcTemplate.queryForObject(
+                "SELECT version FROM table_versions WHERE table_name = ?", Long.class, entityType);
+        return version == null ? 0 : version;
+    }
+
+    private void dispatch(String entityType, List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        beanListeners.orderedStream().forEach(listener -> listener.invalidate(entityType, ids));
+        registeredListeners.forEach(listener -> listener.invalidate(entityType, ids));
+    }
+
+    private void dispatchAll(String entityType) {
+        log.info("More than {} {} changes since the last poll, invalidating all", maxBatch, entityType);
+        beanListeners.orderedStream().forEach(listener -> listener.invalidateAll(entityType));
+        registeredListeners.forEach(listener -> listener.invalidateAll(entityType));
+    }
+}
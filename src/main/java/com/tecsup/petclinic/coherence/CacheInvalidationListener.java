@@ -0,0 +1,22 @@
+package com.tecsup.petclinic.coherence;
+
+import java.util.Collection;
+
+/**
+ * A node-local cache of owners or pets that must drop entries changed by any node
+ */
+public interface CacheInvalidationListener {
+
+    /**
+     *
+     * @param entityType ChangeEvent.OWNER or ChangeEvent.PET
+     * @param ids        entities changed since the previous poll
+     */
+    void invalidate(String entityType, Collection<Integer> ids);
+
+    /**
+     * Too many changes to list, or the poller lost track: drop everything of this type
+     * @param entityType ChangeEvent.OWNER or ChangeEvent.PET
+     */
+    void invalidateAll(String entityType);
+}
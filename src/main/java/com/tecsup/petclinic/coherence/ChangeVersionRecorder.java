@@ -0,0 +1,145 @@
+package com.tecsup.petclinic.coherence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.entities.PetType;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.events.OwnerChangedEvent;
+import com.tecsup.petclinic.events.OwnersUpsertedEvent;
+import com.tecsup.petclinic.events.PetChangedEvent;
+import com.tecsup.petclinic.events.PetsUpsertedEvent;
+
+/**
+ * Bumps table_versions and entity_versions for every owner/pet write, from
+ * the service events and from /api/owners and /api/pets (Data REST), and
+ * for /api/types writes, which only the catalog snapshot reads.
+ *
+ * Each bump runs in its own short transaction once the write has committed,
+ * so the table_versions row is only locked for three statements instead of
+ * the whole writing transaction. Bumps still take that lock in turn, and
+ * the entity row commits with its version: a poller that has seen version N
+ * has seen every entity_versions row up to N. A node that dies between the
+ * commit and the bump loses that one bump. An upsert batch takes a single
+ * version for all its rows.
+ */
+@Component
+@RepositoryEventHandler
+public class ChangeVersionRecorder {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate bumpTransaction;
+
+    // Pets of the owner being deleted through /api/owners, read before the cascade
+    private final ThreadLocal<List<Integer>> cascadedPetIds = new ThreadLocal<>();
+
+    public ChangeVersionRecorder(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bumpTransaction = new TransactionTemplate(transactionManager);
+        // After commit the writing transaction's connection is still bound: never join it
+        this.bumpTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPetChanged(PetChangedEvent event) {
+        bump(ChangeEvent.PET, event.getPetId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOwnerChanged(OwnerChangedEvent event) {
+        bump(ChangeEvent.OWNER, event.getOwnerId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPetsUpserted(PetsUpsertedEvent event) {
+        bump(ChangeEvent.PET, event.getPetIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOwnersUpserted(OwnersUpsertedEvent event) {
+        bump(ChangeEvent.OWNER, event.getOwnerIds());
+    }
+
+    @HandleAfterCreate
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void onPetSaved(Pet pet) {
+        bump(ChangeEvent.PET, pet.getId());
+    }
+
+    @HandleAfterCreate
+    @HandleAfterSave
+    public void onOwnerSaved(Owner owner) {
+        bump(ChangeEvent.OWNER, owner.getId());
+    }
+
+    @HandleAfterCreate
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void onTypeSaved(PetType type) {
+        bump(ChangeEvent.TYPE, type.getId());
+    }
+
+    @HandleBeforeDelete
+    public void onOwnerDeleting(Owner owner) {
+        cascadedPetIds.set(jdbcTemplate.queryForList("SELECT id FROM pets WHERE owner_id = ?", Integer.class,
+                owner.getId()));
+    }
+
+    /**
+     * The owner's pets go with it (ON DELETE CASCADE)
+     */
+    @HandleAfterDelete
+    public void onOwnerDeleted(Owner owner) {
+        List<Integer> petIds = cascadedPetIds.get();
+        cascadedPetIds.remove();
+        if (petIds != null && !petIds.isEmpty()) {
+            bump(ChangeEvent.PET, petIds);
+        }
+        bump(ChangeEvent.OWNER, owner.getId());
+    }
+
+    private void bump(String entityType, Integer id) {
+        bump(entityType, List.of(id));
+    }
+
+    private void bump(String entityType, Collection<Integer> ids) {
+        bumpTransaction.executeWithoutResult(status -> {
+            if (jdbcTemplate.update("UPDATE table_versions SET version = version + 1 WHERE table_name = ?",
+                    entityType) == 0) {
+                // Databases created before the row was seeded (TYPE)
+                jdbcTemplate.update("INSERT INTO table_versions (table_name, version) VALUES (?, 1)", entityType);
+            }
+            Long version = jdbcTemplate.queryForObject(
+                    "SELECT version FROM table_versions WHERE table_name = ?", Long.class, entityType);
+
+            List<Object[]> rows = ids.stream().distinct().map(id -> new Object[] { version, entityType, id }).toList();
+            int[] updated = jdbcTemplate.batchUpdate(
+                    "UPDATE entity_versions SET version = ? WHERE entity_type = ? AND entity_id = ?", rows);
+            List<Object[]> missing = new ArrayList<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    missing.add(rows.get(i));
+                }
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO entity_versions (version, entity_type, entity_id) VALUES (?, ?, ?)",
+                    missing);
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.tecsup.petclinic.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import com.tecsup.petclinic.limits.AdaptiveConcurrencyLimiter;
+import com.tecsup.petclinic.limits.Bulkhead;
+import com.tecsup.petclinic.limits.ConcurrencyLimitFilter;
+import com.tecsup.petclinic.limits.RequestTimeoutDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * One adaptive limiter per bulkhead, configured under petclinic.limits.{read,write,export},
+ * and the per-bulkhead query timeout applied to /api requests
+ */
+@Configuration
+public class ConcurrencyLimitConfig {
+
+    @Bean
+    public Map<Bulkhead, AdaptiveConcurrencyLimiter> concurrencyLimiters(Environment env, MeterRegistry meterRegistry) {
+        Map<Bulkhead, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(Bulkhead.class);
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            String prefix = "petclinic.limits." + bulkhead.name().toLowerCase() + ".";
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(bulkhead.name(),
+                    env.getProperty(prefix + "initial-limit", Integer.class, 20),
+                    env.getProperty(prefix + "min-limit", Integer.class, 2),
+                    env.getProperty(prefix + "max-limit", Integer.class, 200));
+            Gauge.builder("petclinic.limits.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .tag("bulkhead", bulkhead.name()).register(meterRegistry);
+            Gauge.builder("petclinic.limits.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .tag("bulkhead", bulkhead.name()).register(meterRegistry);
+            limiters.put(bulkhead, limiter);
+        }
+        return limiters;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            Map<Bulkhead, AdaptiveConcurrencyLimiter> concurrencyLimiters, Environment env,
+            @Value("${petclinic.limits.enabled:true}") boolean enabled,
+            @Value("${petclinic.limits.retry-after-seconds:1}") int retryAfterSeconds) {
+        Map<Bulkhead, Integer> queryTimeouts = new EnumMap<>(Bulkhead.class);
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            // Exports stream for minutes and set their own timeout
+            queryTimeouts.put(bulkhead, env.getProperty("petclinic.limits." + bulkhead.name().toLowerCase()
+                    + ".query-timeout-seconds", Integer.class, bulkhead == Bulkhead.EXPORT ? 0 : 5));
+        }
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(concurrencyLimiters, queryTimeouts, retryAfterSeconds));
+        registration.setEnabled(enabled);
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    // Static: post-processors are created before regular beans. Ordered, so it runs before the
+    // query log wrapper and the query log stays the outermost DataSource
+    @Bean
+    public static BeanPostProcessor requestTimeoutDataSourcePostProcessor() {
+        return new RequestTimeoutPostProcessor();
+    }
+
+    private static final class RequestTimeoutPostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof RequestTimeoutDataSource)) {
+                return new RequestTimeoutDataSource(dataSource);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.tecsup.petclinic.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.tecsup.petclinic.jsoncache.JsonByteCache;
+import com.tecsup.petclinic.jsoncache.JsonByteCacheFilter;
+
+/**
+ * Cached single owner/pet responses, behind the concurrency limits
+ */
+@Configuration
+public class JsonByteCacheConfig {
+
+    @Bean
+    public FilterRegistrationBean<JsonByteCacheFilter> jsonByteCacheFilter(JsonByteCache jsonByteCache) {
+        FilterRegistrationBean<JsonByteCacheFilter> registration =
+                new FilterRegistrationBean<>(new JsonByteCacheFilter(jsonByteCache));
+        registration.addUrlPatterns("/api/pets/*", "/api/owners/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
@@ -0,0 +1,36 @@
+package com.tecsup.petclinic.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.tecsup.petclinic.querylog.QueryLog;
+import com.tecsup.petclinic.querylog.QueryLogDataSource;
+
+/**
+ * Wraps the application DataSource in a QueryLogDataSource unless
+ * petclinic.query-log.enabled is false
+ */
+@Configuration
+public class QueryLogConfig {
+
+    // Static: post-processors are created before regular beans
+    @Bean
+    public static BeanPostProcessor queryLogDataSourcePostProcessor(Environment env,
+                                                                    ObjectProvider<QueryLog> queryLog) {
+        boolean enabled = env.getProperty("petclinic.query-log.enabled", Boolean.class, true);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && bean instanceof DataSource dataSource && !(bean instanceof QueryLogDataSource)) {
+                    return new QueryLogDataSource(dataSource, queryLog::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.tecsup.petclinic.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.services.VisitIngestionServiceImpl;
+import com.tecsup.petclinic.wal.FsyncPolicy;
+import com.tecsup.petclinic.wal.VisitWriteAheadLog;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Write-behind visit ingestion, enabled with petclinic.visits.write-behind.enabled.
+ *
+ * Only one process may use a WAL directory at a time.
+ */
+@Configuration
+@ConditionalOnProperty(name = "petclinic.visits.write-behind.enabled", havingValue = "true")
+public class VisitIngestionConfig {
+
+    @Bean(destroyMethod = "close")
+    public VisitWriteAheadLog visitWriteAheadLog(
+            @Value("${petclinic.visits.write-behind.wal-dir}") Path walDir,
+            @Value("${petclinic.visits.write-behind.fsync:INTERVAL}") FsyncPolicy fsyncPolicy,
+            @Value("${petclinic.visits.write-behind.fsync-interval-ms:50}") long fsyncIntervalMillis,
+            @Value("${petclinic.visits.write-behind.segment-bytes:67108864}") long segmentBytes) throws IOException {
+        return new VisitWriteAheadLog(walDir, fsyncPolicy, fsyncIntervalMillis, segmentBytes);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @DependsOnDatabaseInitialization
+    public VisitIngestionServiceImpl visitIngestionService(
+            VisitWriteAheadLog visitWriteAheadLog, JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+            @Value("${petclinic.visits.write-behind.batch-size:500}") int batchSize,
+            @Value("${petclinic.visits.write-behind.flush-interval-ms:200}") long flushIntervalMillis,
+            @Value("${petclinic.visits.write-behind.queue-capacity:100000}") int queueCapacity) {
+        return new VisitIngestionServiceImpl(visitWriteAheadLog, jdbcTemplate, transactionTemplate,
+                meterRegistry, batchSize, flushIntervalMillis, queueCapacity);
+    }
+}
@@ -0,0 +1,43 @@
+package com.tecsup.petclinic.controllers;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.tecsup.petclinic.reports.AnnualReportGenerator;
+
+/**
+ * Reporte anual en CSV, escrito directamente en la respuesta
+ */
+@RestController
+@RequestMapping("/api/reports")
+public class AnnualReportController {
+
+    private final AnnualReportGenerator annualReportGenerator;
+
+    public AnnualReportController(AnnualReportGenerator annualReportGenerator) {
+        this.annualReportGenerator = annualReportGenerator;
+    }
+
+    @GetMapping("/annual/{year}")
+    public ResponseEntity<StreamingResponseBody> annual(@PathVariable int year) {
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            annualReportGenerator.write(annualReportGenerator.generate(year), writer);
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=annual-report-" + year + ".csv")
+                .body(body);
+    }
+}
@@ -0,0 +1,50 @@
+package com.tecsup.petclinic.controllers;
+
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.indexadvisor.IndexAdvisor;
+import com.tecsup.petclinic.indexadvisor.IndexRecommendation;
+
+/**
+ * Index recommendations for the SQL recorded since startup (see /api/query-stats).
+ *
+ * The analysis counts rows and distinct keys over whole tables, so it only
+ * runs on POST /analyze, in the export bulkhead; the GETs return its last
+ * result, or 404 before the first one.
+ */
+@RestController
+@RequestMapping("/api/index-advice")
+public class IndexAdviceController {
+
+    private final IndexAdvisor indexAdvisor;
+
+    public IndexAdviceController(IndexAdvisor indexAdvisor) {
+        this.indexAdvisor = indexAdvisor;
+    }
+
+    @PostMapping("/analyze")
+    public List<IndexRecommendation> analyze() {
+        return indexAdvisor.advise();
+    }
+
+    @GetMapping
+    public ResponseEntity<List<IndexRecommendation>> advice() {
+        return ResponseEntity.of(indexAdvisor.lastAdvice());
+    }
+
+    /**
+     *
+     * @return CREATE INDEX patch, ready to review and append to the schema scripts
+     */
+    @GetMapping(value = "/ddl", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> ddl() {
+        return ResponseEntity.of(indexAdvisor.lastAdvice().map(indexAdvisor::ddl));
+    }
+}
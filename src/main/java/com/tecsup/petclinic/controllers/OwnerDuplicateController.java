@@ -0,0 +1,65 @@
+package com.tecsup.petclinic.controllers;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.dedup.DuplicateReport;
+import com.tecsup.petclinic.dedup.OwnerDeduplicator;
+import com.tecsup.petclinic.dtos.OwnerMergeDTO;
+import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.services.OwnerService;
+
+/**
+ * Owners registered more than once, and merging them
+ */
+@RestController
+@RequestMapping("/api/owner-duplicates")
+public class OwnerDuplicateController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final OwnerDeduplicator deduplicator;
+    private final OwnerService ownerService;
+
+    public OwnerDuplicateController(OwnerDeduplicator deduplicator, OwnerService ownerService) {
+        this.deduplicator = deduplicator;
+        this.ownerService = ownerService;
+    }
+
+    /**
+     *
+     * @param minScore defaults to petclinic.dedup.min-score
+     * @param limit
+     * @return merge candidates, most likely first
+     */
+    @GetMapping
+    public DuplicateReport scan(@RequestParam(required = false) Double minScore,
+                                @RequestParam(defaultValue = "100") int limit) {
+        return deduplicator.scan(minScore != null ? minScore : deduplicator.getDefaultMinScore(),
+                Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    /**
+     *
+     * @param survivorId owner kept
+     * @param duplicateIds owners removed, their pets move to survivorId
+     * @return the survivor and what was moved
+     */
+    @PostMapping("/merge")
+    public ResponseEntity<OwnerMergeDTO> merge(@RequestParam Integer survivorId,
+                                               @RequestParam List<Integer> duplicateIds) {
+        try {
+            return ResponseEntity.ok(ownerService.merge(survivorId, duplicateIds));
+        } catch (OwnerNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.tecsup.petclinic.controllers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.dtos.OwnerProfileDTO;
+import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.services.OwnerProfileService;
+
+/**
+ * Perfil completo de un owner en una sola llamada (respuesta asíncrona)
+ */
+@RestController
+@RequestMapping("/api/owner-profiles")
+public class OwnerProfileController {
+
+    private final OwnerProfileService ownerProfileService;
+
+    public OwnerProfileController(OwnerProfileService ownerProfileService) {
+        this.ownerProfileService = ownerProfileService;
+    }
+
+    @GetMapping("/{ownerId}")
+    public CompletableFuture<ResponseEntity<OwnerProfileDTO>> findProfile(@PathVariable Integer ownerId) {
+        return ownerProfileService.findProfile(ownerId)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof OwnerNotFoundException) {
+                        return ResponseEntity.notFound().build();
+                    }
+                    if (cause instanceof TimeoutException) {
+                        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+                    }
+                    if (cause instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+                    }
+                    throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                });
+    }
+}
@@ -0,0 +1,43 @@
+package com.tecsup.petclinic.controllers;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.dtos.OwnerRegistrationDTO;
+import com.tecsup.petclinic.services.OwnerService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registro de una familia (owner + mascotas) en una sola llamada
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/registrations")
+public class OwnerRegistrationController {
+
+    private final OwnerService ownerService;
+
+    public OwnerRegistrationController(OwnerService ownerService) {
+        this.ownerService = ownerService;
+    }
+
+    @PostMapping
+    public ResponseEntity<OwnerRegistrationDTO> register(@RequestBody OwnerRegistrationDTO registration) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(ownerService.register(registration));
+    }
+
+    /**
+     * Owner ausente, mascota sin tipo o con un tipo inactivo: error del cliente
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalidRegistration(IllegalArgumentException e) {
+        log.info("Registro rechazado: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -0,0 +1,39 @@
+package com.tecsup.petclinic.controllers;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.services.OwnerService;
+import com.tecsup.petclinic.services.PetService;
+
+/**
+ * Envíos de clínicas asociadas: idempotentes, reenviar los mismos registros no crea duplicados
+ */
+@RestController
+@RequestMapping("/api/sync")
+public class PartnerSyncController {
+
+    private final OwnerService ownerService;
+    private final PetService petService;
+
+    public PartnerSyncController(OwnerService ownerService, PetService petService) {
+        this.ownerService = ownerService;
+        this.petService = petService;
+    }
+
+    @PutMapping("/owners")
+    public List<Owner> upsertOwners(@RequestBody List<Owner> owners) {
+        return ownerService.upsertAll(owners);
+    }
+
+    @PutMapping("/pets")
+    public List<PetDTO> upsertPets(@RequestBody List<PetDTO> pets) {
+        return petService.upsertAll(pets);
+    }
+}
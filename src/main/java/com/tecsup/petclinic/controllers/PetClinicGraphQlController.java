@@ -0,0 +1,130 @@
+package com.tecsup.petclinic.controllers;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.BatchMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.stereotype.Controller;
+
+import com.tecsup.petclinic.dictionary.PetTypeDictionary;
+import com.tecsup.petclinic.dictionary.PetTypeEntry;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.mappers.PetMapper;
+import com.tecsup.petclinic.repositories.OwnerRepository;
+import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.repositories.VisitRepository;
+import com.tecsup.petclinic.services.OwnerService;
+import com.tecsup.petclinic.services.PetService;
+
+/**
+ * GraphQL queries over the owner and pet services.
+ *
+ * Each @BatchMapping is a per-request DataLoader: all owners (or pets) of one
+ * level of the response are resolved with a single IN query, and a key
+ * already loaded in the request is not loaded again. Pet types come from
+ * PetTypeDictionary and never reach the database.
+ */
+@Controller
+public class PetClinicGraphQlController {
+
+    private final OwnerService ownerService;
+    private final PetService petService;
+    private final PetMapper petMapper;
+    private final OwnerRepository ownerRepository;
+    private final PetRepository petRepository;
+    private final PetTypeDictionary petTypes;
+    private final VisitRepository visitRepository;
+
+    public PetClinicGraphQlController(OwnerService ownerService, PetService petService, PetMapper petMapper,
+                                      OwnerRepository ownerRepository, PetRepository petRepository,
+                                      PetTypeDictionary petTypes, VisitRepository visitRepository) {
+        this.ownerService = ownerService;
+        this.petService = petService;
+        this.petMapper = petMapper;
+        this.ownerRepository = ownerRepository;
+        this.petRepository = petRepository;
+        this.petTypes = petTypes;
+        this.visitRepository = visitRepository;
+    }
+
+    @QueryMapping
+    public Owner owner(@Argument Integer id) {
+        try {
+            return ownerService.findById(id);
+        } catch (OwnerNotFoundException e) {
+            return null;
+        }
+    }
+
+    @QueryMapping
+    public List<Owner> ownersByLastName(@Argument String lastName) {
+        return ownerService.findByLastName(lastName);
+    }
+
+    @QueryMapping
+    public PetDTO pet(@Argument Integer id) {
+        try {
+            return petService.findById(id);
+        } catch (PetNotFoundException e) {
+            return null;
+        }
+    }
+
+    @QueryMapping
+    public List<PetTypeEntry> types() {
+        return petTypes.findAll();
+    }
+
+    @BatchMapping(typeName = "Owner")
+    public Map<Owner, List<PetDTO>> pets(List<Owner> owners) {
+        Map<Integer, List<PetDTO>> byOwner = petRepository.findByOwnerIdIn(ids(owners, Owner::getId)).stream()
+                .map(petMapper::mapToDto)
+                .collect(Collectors.groupingBy(PetDTO::getOwnerId));
+        return owners.stream().collect(Collectors.toMap(Function.identity(),
+                owner -> byOwner.getOrDefault(owner.getId(), List.of()), (a, b) -> a, LinkedHashMap::new));
+    }
+
+    @BatchMapping(typeName = "Pet")
+    public Map<PetDTO, Owner> owner(List<PetDTO> pets) {
+        Map<Integer, Owner> owners = ownerRepository.findAllById(ids(pets, PetDTO::getOwnerId)).stream()
+                .collect(Collectors.toMap(Owner::getId, Function.identity()));
+        return byPet(pets, pet -> owners.get(pet.getOwnerId()));
+    }
+
+    // Types are in memory, nothing to batch
+    @SchemaMapping(typeName = "Pet")
+    public PetTypeEntry type(PetDTO pet) {
+        return petTypes.find(pet.getTypeId()).orElse(null);
+    }
+
+    @BatchMapping(typeName = "Pet")
+    public Map<PetDTO, List<Visit>> visits(List<PetDTO> pets) {
+        Map<Integer, List<Visit>> byPet = visitRepository.findByPetIdInOrderByVisitDateAsc(ids(pets, PetDTO::getId))
+                .stream()
+                .collect(Collectors.groupingBy(Visit::getPetId));
+        return pets.stream().collect(Collectors.toMap(Function.identity(),
+                pet -> byPet.getOrDefault(pet.getId(), List.of()), (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private static <T> Set<Integer> ids(List<T> sources, Function<T, Integer> id) {
+        return sources.stream().map(id).collect(Collectors.toSet());
+    }
+
+    // Values may be null (dangling reference), which Collectors.toMap does not accept
+    private static <V> Map<PetDTO, V> byPet(List<PetDTO> pets, Function<PetDTO, V> value) {
+        Map<PetDTO, V> result = new LinkedHashMap<>();
+        pets.forEach(pet -> result.put(pet, value.apply(pet)));
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package com.tecsup.petclinic.controllers;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.analytics.PetColumnarSnapshot;
+import com.tecsup.petclinic.analytics.PetFilter;
+import com.tecsup.petclinic.analytics.PetFilterStats;
+import com.tecsup.petclinic.services.PetStatisticsService;
+
+/**
+ * Aggregate pet counts for dashboards
+ */
+@RestController
+@RequestMapping("/api/stats/pets")
+public class PetStatisticsController {
+
+    private final PetStatisticsService petStatisticsService;
+    private final PetColumnarSnapshot petSnapshot;
+
+    public PetStatisticsController(PetStatisticsService petStatisticsService, PetColumnarSnapshot petSnapshot) {
+        this.petStatisticsService = petStatisticsService;
+        this.petSnapshot = petSnapshot;
+    }
+
+    @GetMapping("/by-type")
+    public Map<Integer, Long> countByType() {
+        return petStatisticsService.countByType();
+    }
+
+    @GetMapping("/by-owner")
+    public Map<Integer, Long> countByOwner() {
+        return petStatisticsService.countByOwner();
+    }
+
+    @GetMapping("/by-birth-year")
+    public Map<Integer, Long> countByBirthYear() {
+        return petStatisticsService.countByBirthYear();
+    }
+
+    /**
+     * Ad hoc filters, scanned over the columnar snapshot instead of loading pets
+     */
+    @GetMapping("/filtered")
+    public PetFilterStats filtered(@RequestParam(required = false) Integer typeId,
+                                   @RequestParam(required = false) Integer ownerId,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                   LocalDate bornFrom,
+                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                   LocalDate bornTo) {
+        PetFilter filter = PetFilter.builder().typeId(typeId).ownerId(ownerId).bornFrom(bornFrom).bornTo(bornTo).build();
+        return new PetFilterStats(petSnapshot.count(filter), petSnapshot.countByType(filter),
+                petSnapshot.countByBirthYear(filter));
+    }
+}
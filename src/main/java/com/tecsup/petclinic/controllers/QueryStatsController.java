@@ -0,0 +1,47 @@
+package com.tecsup.petclinic.controllers;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.querylog.QueryLog;
+import com.tecsup.petclinic.querylog.QueryStats;
+
+/**
+ * Slowest / most frequent SQL shapes since startup or the last reset
+ */
+@RestController
+@RequestMapping("/api/query-stats")
+public class QueryStatsController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final QueryLog queryLog;
+
+    public QueryStatsController(QueryLog queryLog) {
+        this.queryLog = queryLog;
+    }
+
+    /**
+     *
+     * @param sort TOTAL, COUNT, MEAN, MAX, P99 or ROWS
+     * @param limit
+     * @return the top shapes
+     */
+    @GetMapping
+    public List<QueryStats> top(@RequestParam(defaultValue = "TOTAL") QueryLog.Order sort,
+                                @RequestParam(defaultValue = "20") int limit) {
+        return queryLog.top(sort, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> reset() {
+        queryLog.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.tecsup.petclinic.controllers;
+
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.index.VetQuery;
+import com.tecsup.petclinic.services.VetService;
+
+/**
+ * Derivaciones: veterinarios con todas las especialidades de allOf y alguna de anyOf
+ */
+@RestController
+@RequestMapping("/api/referrals")
+public class VetReferralController {
+
+    private final VetService vetService;
+
+    public VetReferralController(VetService vetService) {
+        this.vetService = vetService;
+    }
+
+    @GetMapping("/vets")
+    public List<Vet> findVets(@RequestParam(required = false) Set<Integer> allOf,
+                              @RequestParam(required = false) Set<Integer> anyOf,
+                              @RequestParam(defaultValue = "false") boolean primaryOnly,
+                              @RequestParam(defaultValue = "0") int minYearsExperience) {
+        return vetService.findReferralCandidates(VetQuery.builder()
+                .allOf(allOf == null ? Set.of() : allOf)
+                .anyOf(anyOf == null ? Set.of() : anyOf)
+                .primaryOnly(primaryOnly)
+                .minYearsExperience(minYearsExperience)
+                .build());
+    }
+}
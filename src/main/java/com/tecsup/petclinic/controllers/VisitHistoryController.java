@@ -0,0 +1,34 @@
+package com.tecsup.petclinic.controllers;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.services.VisitHistoryService;
+
+/**
+ * Visit history, hot and archived
+ */
+@RestController
+@RequestMapping("/api/visit-history")
+public class VisitHistoryController {
+
+    private final VisitHistoryService visitHistoryService;
+
+    public VisitHistoryController(VisitHistoryService visitHistoryService) {
+        this.visitHistoryService = visitHistoryService;
+    }
+
+    @GetMapping
+    public List<Visit> findVisits(@RequestParam(required = false) Integer petId,
+                                  @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+                                  @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        return visitHistoryService.findVisits(petId, from, to);
+    }
+}
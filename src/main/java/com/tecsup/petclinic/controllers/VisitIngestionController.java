@@ -0,0 +1,42 @@
+package com.tecsup.petclinic.controllers;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.services.VisitIngestionService;
+
+/**
+ * Kiosk check-ins: answers 202 as soon as the visit is in the WAL, 503 when
+ * too many visits are waiting for the database
+ */
+@RestController
+@RequestMapping("/api/ingest/visits")
+@ConditionalOnProperty(name = "petclinic.visits.write-behind.enabled", havingValue = "true")
+public class VisitIngestionController {
+
+    private final VisitIngestionService visitIngestionService;
+
+    public VisitIngestionController(VisitIngestionService visitIngestionService) {
+        this.visitIngestionService = visitIngestionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Long>> record(@RequestBody Visit visit) {
+        visit.setId(null);
+        try {
+            long sequence = visitIngestionService.record(visit);
+            return ResponseEntity.accepted().body(Map.of("sequence", sequence));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+}
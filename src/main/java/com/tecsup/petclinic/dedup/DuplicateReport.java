@@ -0,0 +1,42 @@
+package com.tecsup.petclinic.dedup;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Result of one OwnerDeduplicator scan
+ */
+@Value
+public class DuplicateReport {
+
+    int owners;
+    int blocks;
+    /** blocks over petclinic.dedup.max-block-size, not compared (a shared placeholder telephone, say) */
+    int skippedBlocks;
+    long comparisons;
+    long millis;
+    /** highest scores first */
+    List<DuplicateCluster> clusters;
+
+    /**
+     * Owners linked by matching pairs. survivorId is the oldest registration,
+     * a suggestion for OwnerService.merge
+     */
+    @Value
+    public static class DuplicateCluster {
+
+        int survivorId;
+        List<Integer> duplicateIds;
+        double maxScore;
+        List<DuplicatePair> pairs;
+    }
+
+    @Value
+    public static class DuplicatePair {
+
+        int ownerId;
+        int otherId;
+        double score;
+    }
+}
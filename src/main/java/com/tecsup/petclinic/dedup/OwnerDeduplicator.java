@@ -0,0 +1,196 @@
+package com.tecsup.petclinic.dedup;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.tecsup.petclinic.dedup.DuplicateReport.DuplicateCluster;
+import com.tecsup.petclinic.dedup.DuplicateReport.DuplicatePair;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Finds owners registered more than once.
+ *
+ * Comparing every pair is quadratic, so owners are hashed into blocks by
+ * phonetic last name and city, by telephone and by phonetic last name and
+ * house number (see OwnerSimilarity), and only owners sharing a block are
+ * scored. A pair sharing several blocks is scored in the first of them
+ * only, so blocks need no shared state and are scored in parallel on a
+ * dedicated fork-join pool. Pairs at or above the threshold are joined
+ * into clusters.
+ */
+@Component
+@Slf4j
+public class OwnerDeduplicator {
+
+    private static final String OWNERS = "SELECT id, first_name, last_name, address, city, telephone FROM owners";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ForkJoinPool pool;
+    private final double defaultMinScore;
+    private final int maxBlockSize;
+
+    public OwnerDeduplicator(DataSource dataSource,
+                             @Value("${petclinic.dedup.parallelism:0}") int parallelism,
+                             @Value("${petclinic.dedup.min-score:0.85}") double defaultMinScore,
+                             @Value("${petclinic.dedup.max-block-size:1000}") int maxBlockSize,
+                             @Value("${petclinic.dedup.fetch-size:1000}") int fetchSize,
+                             @Value("${petclinic.dedup.query-timeout-seconds:600}") int queryTimeoutSeconds) {
+        // The owner scan streams with its own fetch size; runs from /api get a longer timeout than requests
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.defaultMinScore = defaultMinScore;
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    public double getDefaultMinScore() {
+        return defaultMinScore;
+    }
+
+    /**
+     *
+     * @param minScore pairs scoring below are not reported
+     * @param limit maximum clusters returned
+     * @return clusters and scan counters
+     */
+    public DuplicateReport scan(double minScore, int limit) {
+        long started = System.nanoTime();
+        List<OwnerSimilarity.Normalized> owners = new ArrayList<>();
+        jdbcTemplate.query(OWNERS, rs -> {
+            owners.add(OwnerSimilarity.normalize(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                    rs.getString(5), rs.getString(6)));
+        });
+
+        Map<String, List<OwnerSimilarity.Normalized>> blocks = new HashMap<>();
+        for (OwnerSimilarity.Normalized owner : owners) {
+            for (String key : owner.keys()) {
+                if (key != null) {
+                    blocks.computeIfAbsent(key, k -> new ArrayList<>(2)).add(owner);
+                }
+            }
+        }
+        Set<String> skipped = blocks.entrySet().stream()
+                .filter(block -> block.getValue().size() > maxBlockSize)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        if (!skipped.isEmpty()) {
+            log.warn("Duplicate scan skips {} blocks of more than {} owners", skipped.size(), maxBlockSize);
+        }
+        List<Map.Entry<String, List<OwnerSimilarity.Normalized>>> compared = blocks.entrySet().stream()
+                .filter(block -> block.getValue().size() > 1 && !skipped.contains(block.getKey()))
+                .toList();
+
+        LongAdder comparisons = new LongAdder();
+        // A parallel stream started inside the pool runs on its workers, not on the common pool
+        List<DuplicatePair> pairs = pool.submit(() -> compared.parallelStream()
+                .flatMap(block -> score(block.getKey(), block.getValue(), skipped, minScore, comparisons).stream())
+                .toList()).join();
+
+        List<DuplicateCluster> clusters = cluster(pairs);
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Duplicate scan: {} owners, {} blocks, {} comparisons, {} clusters in {} ms", owners.size(),
+                compared.size(), comparisons.sum(), clusters.size(), millis);
+        return new DuplicateReport(owners.size(), compared.size(), skipped.size(), comparisons.sum(), millis,
+                clusters.stream().limit(limit).toList());
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.shutdown();
+    }
+
+    private static List<DuplicatePair> score(String key, List<OwnerSimilarity.Normalized> block, Set<String> skipped,
+                                             double minScore, LongAdder comparisons) {
+        List<DuplicatePair> pairs = new ArrayList<>();
+        long compared = 0;
+        for (int i = 0; i < block.size(); i++) {
+            OwnerSimilarity.Normalized a = block.get(i);
+            for (int j = i + 1; j < block.size(); j++) {
+                OwnerSimilarity.Normalized b = block.get(j);
+                if (!key.equals(firstSharedKey(a, b, skipped))) {
+                    continue;
+                }
+                compared++;
+                double score = OwnerSimilarity.score(a, b);
+                if (score >= minScore) {
+                    pairs.add(new DuplicatePair(Math.min(a.id(), b.id()), Math.max(a.id(), b.id()), score));
+                }
+            }
+        }
+        comparisons.add(compared);
+        return pairs;
+    }
+
+    /**
+     * Keys of one kind sit at the same position for every owner, so the
+     * first shared key is the same whichever block the pair is found in
+     */
+    private static String firstSharedKey(OwnerSimilarity.Normalized a, OwnerSimilarity.Normalized b,
+                                         Set<String> skipped) {
+        for (int k = 0; k < a.keys().length; k++) {
+            String key = a.keys()[k];
+            if (key != null && key.equals(b.keys()[k]) && !skipped.contains(key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Union-find over the matching pairs
+     */
+    private static List<DuplicateCluster> cluster(List<DuplicatePair> pairs) {
+        Map<Integer, Integer> parent = new HashMap<>();
+        for (DuplicatePair pair : pairs) {
+            int a = root(parent, pair.getOwnerId());
+            int b = root(parent, pair.getOtherId());
+            if (a != b) {
+                parent.put(Math.max(a, b), Math.min(a, b));
+            }
+        }
+        Map<Integer, List<DuplicatePair>> byRoot = pairs.stream()
+                .collect(Collectors.groupingBy(pair -> root(parent, pair.getOwnerId())));
+
+        return byRoot.entrySet().stream()
+                .map(cluster -> {
+                    List<DuplicatePair> members = cluster.getValue().stream()
+                            .sorted(Comparator.comparingDouble(DuplicatePair::getScore).reversed())
+                            .toList();
+                    List<Integer> duplicates = members.stream()
+                            .flatMap(pair -> Stream.of(pair.getOwnerId(), pair.getOtherId()))
+                            .filter(id -> id != cluster.getKey().intValue())
+                            .distinct()
+                            .sorted()
+                            .toList();
+                    return new DuplicateCluster(cluster.getKey(), duplicates, members.get(0).getScore(), members);
+                })
+                .sorted(Comparator.comparingDouble(DuplicateCluster::getMaxScore).reversed()
+                        .thenComparingInt(DuplicateCluster::getSurvivorId))
+                .toList();
+    }
+
+    private static int root(Map<Integer, Integer> parent, int id) {
+        int root = id;
+        while (parent.containsKey(root)) {
+            root = parent.get(root);
+        }
+        return root;
+    }
+}
@@ -0,0 +1,222 @@
+package com.tecsup.petclinic.dedup;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization, blocking keys and pair scoring for owner registrations.
+ *
+ * A score is the weighted similarity of first name, last name, address,
+ * telephone and city, between 0 and 1. Weights favour the first name so
+ * that members of one household (same address, telephone and last name)
+ * stay below the default threshold while typos of one person do not.
+ */
+final class OwnerSimilarity {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern NON_DIGIT = Pattern.compile("\\D+");
+    // Soundex digit of a..z
+    private static final String SOUNDEX = "01230120022455012623010202";
+    private static final Map<String, String> STREET_WORDS = Map.ofEntries(
+            Map.entry("avenue", "ave"), Map.entry("av", "ave"), Map.entry("street", "st"),
+            Map.entry("road", "rd"), Map.entry("drive", "dr"), Map.entry("boulevard", "blvd"),
+            Map.entry("lane", "ln"), Map.entry("la", "ln"), Map.entry("court", "ct"), Map.entry("place", "pl"),
+            Map.entry("calle", "cl"), Map.entry("jiron", "jr"), Map.entry("avenida", "ave"));
+    // Subscriber number in Peru, area code without its first digit plus number in the US:
+    // country prefixes (+1, +51) differ in length and are left out
+    private static final int PHONE_DIGITS = 9;
+
+    static final double FIRST_NAME = 0.30;
+    static final double LAST_NAME = 0.20;
+    static final double ADDRESS = 0.20;
+    static final double TELEPHONE = 0.20;
+    static final double CITY = 0.10;
+    // Similarity assumed for a field missing on either side
+    private static final double UNKNOWN = 0.5;
+
+    private OwnerSimilarity() {
+    }
+
+    /**
+     * Normalized owner fields and its blocking keys, in a fixed order: the
+     * same position holds the same kind of key for every owner
+     */
+    record Normalized(int id, String firstName, String lastName, String address, String houseNumber, String city,
+                      String telephone, String[] keys) {
+    }
+
+    static Normalized normalize(int id, String firstName, String lastName, String address, String city,
+                                String telephone) {
+        String last = text(lastName);
+        String street = street(address);
+        String house = houseNumber(street);
+        String town = text(city);
+        String phone = telephone(telephone);
+        String phonetic = soundex(last);
+
+        String[] keys = new String[] {
+                phonetic.isEmpty() || town.isEmpty() ? null : "n:" + phonetic + "|" + town,
+                phone.isEmpty() ? null : "t:" + phone,
+                phonetic.isEmpty() || house.isEmpty() ? null : "a:" + phonetic + "|" + house };
+        return new Normalized(id, text(firstName), last, street, house, town, phone, keys);
+    }
+
+    /**
+     *
+     * @param a
+     * @param b
+     * @return weighted similarity, 1 for identical registrations
+     */
+    static double score(Normalized a, Normalized b) {
+        double address = similarity(a.address, b.address);
+        if (!a.houseNumber.isEmpty() && !b.houseNumber.isEmpty() && !a.houseNumber.equals(b.houseNumber)) {
+            address /= 2;
+        }
+        return FIRST_NAME * similarity(a.firstName, b.firstName)
+                + LAST_NAME * similarity(a.lastName, b.lastName)
+                + ADDRESS * address
+                + TELEPHONE * telephoneSimilarity(a.telephone, b.telephone)
+                + CITY * similarity(a.city, b.city);
+    }
+
+    static String text(String value) {
+        if (value == null) {
+            return "";
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    static String street(String address) {
+        StringBuilder out = new StringBuilder();
+        for (String word : text(address).split(" ")) {
+            if (!word.isEmpty()) {
+                out.append(out.length() == 0 ? "" : " ").append(STREET_WORDS.getOrDefault(word, word));
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Last digits only: "(608) 555-1023", "608.555.1023" and "+1 608 555 1023" are one number, and so
+     * are "+51 987 111 222" and "987111222"
+     */
+    static String telephone(String telephone) {
+        String digits = telephone == null ? "" : NON_DIGIT.matcher(telephone).replaceAll("");
+        return digits.length() > PHONE_DIGITS ? digits.substring(digits.length() - PHONE_DIGITS) : digits;
+    }
+
+    /**
+     * American Soundex: first letter and three digits, "" without letters
+     */
+    static String soundex(String value) {
+        String letters = text(value).replaceAll("[^a-z]", "");
+        if (letters.isEmpty()) {
+            return "";
+        }
+        StringBuilder code = new StringBuilder(4).append(Character.toUpperCase(letters.charAt(0)));
+        char previous = SOUNDEX.charAt(letters.charAt(0) - 'a');
+        for (int i = 1; i < letters.length() && code.length() < 4; i++) {
+            char c = letters.charAt(i);
+            char digit = SOUNDEX.charAt(c - 'a');
+            if (digit != '0' && digit != previous) {
+                code.append(digit);
+            }
+            // h and w do not separate letters with the same code; vowels do
+            if (c != 'h' && c != 'w') {
+                previous = digit;
+            }
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+
+    /**
+     * Jaro-Winkler similarity, UNKNOWN when either side is empty
+     */
+    static double similarity(String a, String b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return UNKNOWN;
+        }
+        if (a.equals(b)) {
+            return 1;
+        }
+        int window = Math.max(0, Math.max(a.length(), b.length()) / 2 - 1);
+        boolean[] aMatched = new boolean[a.length()];
+        boolean[] bMatched = new boolean[b.length()];
+        int matches = 0;
+        for (int i = 0; i < a.length(); i++) {
+            for (int j = Math.max(0, i - window); j < Math.min(b.length(), i + window + 1); j++) {
+                if (!bMatched[j] && a.charAt(i) == b.charAt(j)) {
+                    aMatched[i] = true;
+                    bMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < a.length(); i++) {
+            if (aMatched[i]) {
+                while (!bMatched[j]) {
+                    j++;
+                }
+                if (a.charAt(i) != b.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        double m = matches;
+        double jaro = (m / a.length() + m / b.length() + (m - transpositions / 2.0) / m) / 3;
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(a.length(), b.length())) && a.charAt(prefix) == b.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1 - jaro);
+    }
+
+    /**
+     * Digits are not text: one wrong or two swapped digits is most likely a
+     * typo, anything else another number
+     */
+    static double telephoneSimilarity(String a, String b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return UNKNOWN;
+        }
+        if (a.equals(b)) {
+            return 1;
+        }
+        if (a.length() != b.length()) {
+            return 0;
+        }
+        int first = -1;
+        int differences = 0;
+        for (int i = 0; i < a.length() && differences <= 2; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                first = differences == 0 ? i : first;
+                differences++;
+            }
+        }
+        boolean swapped = differences == 2 && first + 1 < a.length()
+                && a.charAt(first) == b.charAt(first + 1) && a.charAt(first + 1) == b.charAt(first);
+        return differences == 1 || swapped ? 0.7 : 0;
+    }
+
+    private static String houseNumber(String street) {
+        for (String word : street.split(" ")) {
+            if (!word.isEmpty() && Character.isDigit(word.charAt(0))) {
+                return word;
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,100 @@
+package com.tecsup.petclinic.dictionary;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tecsup.petclinic.entities.PetType;
+import com.tecsup.petclinic.repositories.PetTypeRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * All pet types in an array indexed by type id.
+ *
+ * The table is tiny and rarely written, so the whole array is rebuilt and
+ * swapped in one volatile write whenever a type changes through /api/types;
+ * readers never lock and always see a complete, consistent set. Changes
+ * made on other nodes are picked up by the periodic reload.
+ */
+@Component
+@RepositoryEventHandler
+@Slf4j
+public class PetTypeDictionary {
+
+    private final PetTypeRepository petTypeRepository;
+
+    private volatile PetTypeEntry[] byId;
+
+    public PetTypeDictionary(PetTypeRepository petTypeRepository) {
+        this.petTypeRepository = petTypeRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${petclinic.pet-types.reload-interval-ms:300000}",
+            fixedDelayString = "${petclinic.pet-types.reload-interval-ms:300000}")
+    public void reload() {
+        List<PetType> types = petTypeRepository.findAll();
+        int max = types.stream().mapToInt(PetType::getId).max().orElse(0);
+
+        PetTypeEntry[] entries = new PetTypeEntry[max + 1];
+        types.forEach(type -> entries[type.getId()] = PetTypeEntry.of(type));
+        byId = entries;
+        log.debug("Pet type dictionary loaded: {} types", types.size());
+    }
+
+    @HandleAfterCreate
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void onTypeChanged(PetType type) {
+        reload();
+    }
+
+    /**
+     *
+     * @param id
+     * @return the type, active or not
+     */
+    public Optional<PetTypeEntry> find(int id) {
+        PetTypeEntry[] entries = entries();
+        return id >= 0 && id < entries.length ? Optional.ofNullable(entries[id]) : Optional.empty();
+    }
+
+    /**
+     *
+     * @param id
+     * @return true if new pets can be registered with the type
+     */
+    public boolean isSelectable(int id) {
+        return find(id).map(PetTypeEntry::isActive).orElse(false);
+    }
+
+    public List<PetTypeEntry> findAll() {
+        return Arrays.stream(entries()).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private PetTypeEntry[] entries() {
+        PetTypeEntry[] entries = byId;
+        if (entries == null) {
+            // Used before the application is ready (startup runners, early requests)
+            synchronized (this) {
+                if (byId == null) {
+                    reload();
+                }
+                entries = byId;
+            }
+        }
+        return entries;
+    }
+}
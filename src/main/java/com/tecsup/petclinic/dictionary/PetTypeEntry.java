@@ -0,0 +1,26 @@
+package com.tecsup.petclinic.dictionary;
+
+import com.tecsup.petclinic.entities.PetType;
+
+import lombok.Value;
+
+/**
+ * Immutable copy of a types row, as held by PetTypeDictionary
+ */
+@Value
+public class PetTypeEntry {
+
+    int id;
+    String name;
+    String description;
+    boolean active;
+    String sizeCategory;
+    Integer averageLifespan;
+    String careLevel;
+
+    static PetTypeEntry of(PetType type) {
+        return new PetTypeEntry(type.getId(), type.getName(), type.getDescription(),
+                !Boolean.FALSE.equals(type.getActive()), type.getSizeCategory(), type.getAverageLifespan(),
+                type.getCareLevel());
+    }
+}
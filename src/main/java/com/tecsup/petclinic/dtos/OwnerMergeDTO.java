@@ -0,0 +1,36 @@
+package com.tecsup.petclinic.dtos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.tecsup.petclinic.entities.Owner;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de fusionar owners duplicados en uno.
+ * mergedPets son mascotas de los duplicados con el mismo nombre que una del
+ * owner que queda: sus visitas pasan a esa mascota y se eliminan
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OwnerMergeDTO {
+
+    private Owner owner;
+
+    @Builder.Default
+    private List<Integer> removedOwnerIds = new ArrayList<>();
+
+    @Builder.Default
+    private List<Integer> movedPetIds = new ArrayList<>();
+
+    @Builder.Default
+    private List<Integer> mergedPetIds = new ArrayList<>();
+
+    private int movedVisits;
+}
@@ -0,0 +1,44 @@
+package com.tecsup.petclinic.dtos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.entities.Visit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Página de un owner: sus mascotas con visitas y los veterinarios que las atendieron.
+ * unavailable lista las partes que no respondieron a tiempo (vacías en la respuesta)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OwnerProfileDTO {
+
+    private Owner owner;
+
+    @Builder.Default
+    private List<PetProfile> pets = new ArrayList<>();
+
+    @Builder.Default
+    private List<Vet> vets = new ArrayList<>();
+
+    @Builder.Default
+    private List<String> unavailable = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class PetProfile {
+
+        private PetDTO pet;
+        private List<Visit> visits;
+    }
+}
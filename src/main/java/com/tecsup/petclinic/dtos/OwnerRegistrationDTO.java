@@ -0,0 +1,26 @@
+package com.tecsup.petclinic.dtos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.tecsup.petclinic.entities.Owner;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Alta de un owner junto con sus mascotas en una sola petición
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OwnerRegistrationDTO {
+
+    private Owner owner;
+
+    @Builder.Default
+    private List<PetDTO> pets = new ArrayList<>();
+}
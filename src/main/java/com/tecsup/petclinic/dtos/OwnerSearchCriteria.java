@@ -0,0 +1,23 @@
+package com.tecsup.petclinic.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Criterios opcionales para la búsqueda de owners.
+ * Los campos nulos o vacíos no se aplican como filtro.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OwnerSearchCriteria {
+
+    private String firstName;
+    private String lastName;
+    private String city;
+    private String telephone;
+    private Integer petTypeId;
+}
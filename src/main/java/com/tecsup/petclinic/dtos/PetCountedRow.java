@@ -0,0 +1,18 @@
+package com.tecsup.petclinic.dtos;
+
+/**
+ * Projection of the columns pets are counted by, one row per pet
+ */
+public interface PetCountedRow {
+
+    Integer getId();
+
+    Integer getTypeId();
+
+    Integer getOwnerId();
+
+    /**
+     * null when the birth date is unknown
+     */
+    Integer getBirthYear();
+}
@@ -19,4 +19,12 @@ public class PetDTO {
     private int typeId;
     private int ownerId;
     private LocalDate birthDate;
+
+    // Resolved from PetTypeDictionary, ignored on writes
+    private String typeName;
+    private String careLevel;
+
+    public PetDTO(Integer id, String name, int typeId, int ownerId, LocalDate birthDate) {
+        this(id, name, typeId, ownerId, birthDate, null, null);
+    }
 }
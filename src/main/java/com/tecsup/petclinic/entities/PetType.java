@@ -0,0 +1,35 @@
+package com.tecsup.petclinic.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tipo de mascota (tabla types)
+ */
+@Entity(name = "types")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PetType {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    private String name;
+
+    private String description;
+
+    private Boolean active;
+
+    @Column(name = "size_category")
+    private String sizeCategory;
+
+    @Column(name = "average_lifespan")
+    private Integer averageLifespan;
+
+    @Column(name = "care_level")
+    private String careLevel;
+}
@@ -0,0 +1,30 @@
+package com.tecsup.petclinic.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Especialidad veterinaria (radiología, cirugía, ...)
+ */
+@Entity(name = "specialties")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Specialty {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    private String name;
+
+    private String office;
+
+    @Column(name = "h_open")
+    private Integer hourOpen;
+
+    @Column(name = "h_close")
+    private Integer hourClose;
+}
@@ -0,0 +1,53 @@
+package com.tecsup.petclinic.entities;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Especialidad de un veterinario, con su certificación y experiencia
+ */
+@Entity(name = "vet_specialties")
+@IdClass(VetSpecialty.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VetSpecialty {
+
+    @Id
+    @Column(name = "vet_id")
+    private Integer vetId;
+
+    @Id
+    @Column(name = "specialty_id")
+    private Integer specialtyId;
+
+    @Column(name = "certification_date")
+    private LocalDate certificationDate;
+
+    @Column(name = "years_experience")
+    private Integer yearsExperience;
+
+    @Column(name = "is_primary")
+    private Boolean primary;
+
+    private String notes;
+
+    /**
+     * Clave compuesta (vet_id, specialty_id)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Integer vetId;
+        private Integer specialtyId;
+    }
+}
@@ -0,0 +1,36 @@
+package com.tecsup.petclinic.entities;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Visita veterinaria de una mascota
+ */
+@Entity(name = "visits")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Visit {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "pet_id")
+    private int petId;
+
+    @Column(name = "vet_id")
+    private Integer vetId;
+
+    @Column(name = "visit_date")
+    private LocalDate visitDate;
+
+    private String description;
+
+    private BigDecimal cost;
+}
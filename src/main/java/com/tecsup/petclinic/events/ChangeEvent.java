@@ -0,0 +1,40 @@
+package com.tecsup.petclinic.events;
+
+import java.time.LocalDateTime;
+
+import com.tecsup.petclinic.entities.OutboxEvent;
+
+import lombok.Value;
+
+/**
+ * Message delivered on the change event bus.
+ *
+ * offset is the outbox id: it grows with commit order of each aggregate,
+ * so consumers can resume or replay from the last offset they applied.
+ */
+@Value
+public class ChangeEvent {
+
+    public static final String OWNER = "OWNER";
+    public static final String PET = "PET";
+    /** pet types, only written through /api/types */
+    public static final String TYPE = "TYPE";
+
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String DELETED = "DELETED";
+    /** written by an upsert: created or updated, the service does not know which */
+    public static final String UPSERTED = "UPSERTED";
+
+    long offset;
+    String aggregateType;
+    Integer aggregateId;
+    String eventType;
+    String payload;
+    LocalDateTime createdAt;
+
+    public static ChangeEvent of(OutboxEvent event) {
+        return new ChangeEvent(event.getId(), event.getAggregateType(), event.getAggregateId(),
+                event.getEventType(), event.getPayload(), event.getCreatedAt());
+    }
+}
@@ -0,0 +1,86 @@
+package com.tecsup.petclinic.events;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.tecsup.petclinic.entities.OutboxEvent;
+import com.tecsup.petclinic.repositories.OutboxEventRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process bus fed by the OutboxRelay.
+ *
+ * Events are delivered synchronously on the relay thread in offset order,
+ * which keeps every owner/pet stream ordered for every subscriber.
+ */
+@Component
+@Slf4j
+public class ChangeEventBus {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final Map<String, ChangeEventListener> subscribers = new ConcurrentHashMap<>();
+
+    public ChangeEventBus(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    /**
+     *
+     * @param name unique subscriber name
+     * @param listener
+     */
+    public void subscribe(String name, ChangeEventListener listener) {
+        subscribers.put(name, listener);
+    }
+
+    public void unsubscribe(String name) {
+        subscribers.remove(name);
+    }
+
+    /**
+     * Deliver a batch to every subscriber. A failing subscriber aborts the
+     * batch so the relay leaves it unpublished and retries it later.
+     * @param batch
+     * @throws Exception
+     */
+    void publish(List<ChangeEvent> batch) throws Exception {
+        for (ChangeEvent event : batch) {
+            for (Map.Entry<String, ChangeEventListener> subscriber : subscribers.entrySet()) {
+                try {
+                    subscriber.getValue().onEvent(event);
+                } catch (Exception e) {
+                    log.warn("Subscriber {} failed at offset {}", subscriber.getKey(), event.getOffset(), e);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-read the outbox after the given offset and hand every event to the
+     * listener, in order. Only the caller sees these events.
+     * @param offset last offset already applied by the caller (0 for everything retained)
+     * @param batchSize
+     * @param listener
+     * @return last offset delivered
+     * @throws Exception
+     */
+    public long replayFrom(long offset, int batchSize, ChangeEventListener listener) throws Exception {
+        long last = offset;
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxEventRepository.findByIdGreaterThanOrderByIdAsc(last, PageRequest.of(0, batchSize));
+            for (OutboxEvent event : batch) {
+                listener.onEvent(ChangeEvent.of(event));
+                last = event.getId();
+            }
+        } while (batch.size() == batchSize);
+        return last;
+    }
+}
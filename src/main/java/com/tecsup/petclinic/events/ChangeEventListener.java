@@ -0,0 +1,13 @@
+package com.tecsup.petclinic.events;
+
+/**
+ * Consumer of the change event bus.
+ *
+ * Delivery is at-least-once: an event may be seen again after a failure,
+ * so implementations must be idempotent (e.g. keep the last applied offset).
+ */
+@FunctionalInterface
+public interface ChangeEventListener {
+
+    void onEvent(ChangeEvent event) throws Exception;
+}
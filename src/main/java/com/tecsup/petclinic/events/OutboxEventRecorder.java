@@ -0,0 +1,173 @@
+package com.tecsup.petclinic.events;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.petclinic.entities.OutboxEvent;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.entities.PetType;
+import com.tecsup.petclinic.repositories.OutboxEventRepository;
+import com.tecsup.petclinic.repositories.PetRepository;
+
+/**
+ * Writes owner/pet changes to the outbox.
+ *
+ * Plain (synchronous) event listener: it runs inside the service
+ * transaction, so the outbox row commits or rolls back with the change.
+ *
+ * Writes through /api/owners, /api/pets and /api/types bypass the services
+ * and are recorded from the Data REST events instead. Those run after the
+ * repository call has committed, so the row is written in its own
+ * transaction right after the change. Deleting an owner also deletes its
+ * pets (ON DELETE CASCADE): one PET DELETED row is recorded for each.
+ */
+@Component
+@RepositoryEventHandler
+public class OutboxEventRecorder {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final PetRepository petRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Pets of the owner being deleted through /api/owners, read before the cascade
+    private final ThreadLocal<List<Pet>> cascadedPets = new ThreadLocal<>();
+
+    public OutboxEventRecorder(OutboxEventRepository outboxEventRepository, PetRepository petRepository,
+                               JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.petRepository = petRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener
+    public void onPetChanged(PetChangedEvent event) {
+        record(ChangeEvent.PET, event.getPetId(), eventType(event.getBefore(), event.getAfter()),
+                event.getAfter() != null ? event.getAfter() : event.getBefore());
+    }
+
+    @EventListener
+    public void onOwnerChanged(OwnerChangedEvent event) {
+        record(ChangeEvent.OWNER, event.getOwnerId(), eventType(event.getBefore(), event.getAfter()),
+                event.getAfter() != null ? event.getAfter() : event.getBefore());
+    }
+
+    /**
+     * One row per pet, written in one JDBC batch
+     */
+    @EventListener
+    public void onPetsUpserted(PetsUpsertedEvent event) {
+        List<Object[]> rows = new ArrayList<>();
+        event.getPets().forEach(pet -> rows.add(row(ChangeEvent.PET, pet.getId(), ChangeEvent.UPSERTED, pet)));
+        recordAll(rows);
+    }
+
+    @EventListener
+    public void onOwnersUpserted(OwnersUpsertedEvent event) {
+        List<Object[]> rows = new ArrayList<>();
+        event.getOwners().forEach(owner -> rows.add(row(ChangeEvent.OWNER, owner.getId(), ChangeEvent.UPSERTED, owner)));
+        recordAll(rows);
+    }
+
+    // ------------ Data REST writes ---------------
+
+    @HandleAfterCreate
+    public void onPetCreated(Pet pet) {
+        record(ChangeEvent.PET, pet.getId(), ChangeEvent.CREATED, pet);
+    }
+
+    @HandleAfterSave
+    public void onPetSaved(Pet pet) {
+        record(ChangeEvent.PET, pet.getId(), ChangeEvent.UPDATED, pet);
+    }
+
+    @HandleAfterDelete
+    public void onPetDeleted(Pet pet) {
+        record(ChangeEvent.PET, pet.getId(), ChangeEvent.DELETED, pet);
+    }
+
+    @HandleAfterCreate
+    public void onOwnerCreated(Owner owner) {
+        record(ChangeEvent.OWNER, owner.getId(), ChangeEvent.CREATED, owner);
+    }
+
+    @HandleAfterSave
+    public void onOwnerSaved(Owner owner) {
+        record(ChangeEvent.OWNER, owner.getId(), ChangeEvent.UPDATED, owner);
+    }
+
+    @HandleBeforeDelete
+    public void onOwnerDeleting(Owner owner) {
+        cascadedPets.set(petRepository.findByOwnerId(owner.getId()));
+    }
+
+    @HandleAfterDelete
+    public void onOwnerDeleted(Owner owner) {
+        List<Pet> pets = cascadedPets.get();
+        cascadedPets.remove();
+        if (pets != null) {
+            pets.forEach(this::onPetDeleted);
+        }
+        record(ChangeEvent.OWNER, owner.getId(), ChangeEvent.DELETED, owner);
+    }
+
+    @HandleAfterCreate
+    public void onTypeCreated(PetType type) {
+        record(ChangeEvent.TYPE, type.getId(), ChangeEvent.CREATED, type);
+    }
+
+    @HandleAfterSave
+    public void onTypeSaved(PetType type) {
+        record(ChangeEvent.TYPE, type.getId(), ChangeEvent.UPDATED, type);
+    }
+
+    @HandleAfterDelete
+    public void onTypeDeleted(PetType type) {
+        record(ChangeEvent.TYPE, type.getId(), ChangeEvent.DELETED, type);
+    }
+
+    private void record(String aggregateType, Integer aggregateId, String eventType, Object state) {
+        try {
+            outboxEventRepository.save(new OutboxEvent(null, aggregateType, aggregateId, eventType,
+                    objectMapper.writeValueAsString(state), LocalDateTime.now(), null));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + aggregateType + " " + aggregateId, e);
+        }
+    }
+
+    private void recordAll(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload, created_at) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    private Object[] row(String aggregateType, Integer aggregateId, String eventType, Object state) {
+        try {
+            return new Object[] { aggregateType, aggregateId, eventType, objectMapper.writeValueAsString(state),
+                    Timestamp.valueOf(LocalDateTime.now()) };
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + aggregateType + " " + aggregateId, e);
+        }
+    }
+
+    private static String eventType(Object before, Object after) {
+        if (before == null) {
+            return ChangeEvent.CREATED;
+        }
+        return after == null ? ChangeEvent.DELETED : ChangeEvent.UPDATED;
+    }
+}
@@ -0,0 +1,81 @@
+package com.tecsup.petclinic.events;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.entities.OutboxEvent;
+import com.tecsup.petclinic.repositories.OutboxEventRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves unpublished outbox rows to the ChangeEventBus in batches.
+ *
+ * A batch is marked published only after every subscriber accepted it, so a
+ * crash or a failing subscriber means redelivery (at-least-once), never loss.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ChangeEventBus changeEventBus;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int retentionDays;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, ChangeEventBus changeEventBus,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${petclinic.outbox.batch-size:100}") int batchSize,
+                       @Value("${petclinic.outbox.retention-days:7}") int retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.changeEventBus = changeEventBus;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Publish every pending batch
+     * @return number of events published
+     */
+    @Scheduled(fixedDelayString = "${petclinic.outbox.poll-interval-ms:1000}")
+    public synchronized int relayPending() {
+        int published = 0;
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxEventRepository.findByPublishedAtIsNullOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            try {
+                changeEventBus.publish(batch.stream().map(ChangeEvent::of).collect(Collectors.toList()));
+            } catch (Exception e) {
+                // Already logged by the bus; the whole batch is retried on the next run
+                return published;
+            }
+            List<Long> ids = batch.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status ->
+                    outboxEventRepository.markPublished(ids, LocalDateTime.now()));
+            published += batch.size();
+        } while (batch.size() == batchSize);
+        return published;
+    }
+
+    /**
+     * Published events are kept for replay during the retention window
+     */
+    @Scheduled(cron = "${petclinic.outbox.purge-cron:0 0 3 * * *}")
+    public void purgePublished() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusDays(retentionDays)));
+        log.info("Purged {} published outbox events", deleted);
+    }
+}
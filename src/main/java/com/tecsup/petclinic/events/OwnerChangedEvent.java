@@ -0,0 +1,23 @@
+package com.tecsup.petclinic.events;
+
+import com.tecsup.petclinic.entities.Owner;
+
+import lombok.Value;
+
+/**
+ * Published by the owner service after every write but upserts (see
+ * OwnersUpsertedEvent).
+ *
+ * before is null for a create and after is null for an owner merged into
+ * another one. Both sides are detached copies.
+ */
+@Value
+public class OwnerChangedEvent {
+
+    Owner before;
+    Owner after;
+
+    public Integer getOwnerId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
@@ -0,0 +1,24 @@
+package com.tecsup.petclinic.events;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.tecsup.petclinic.entities.Owner;
+
+import lombok.Value;
+
+/**
+ * Published once per OwnerService.upsertAll call, for the whole batch.
+ *
+ * The owners are detached copies. An upsert never reads the previous rows,
+ * so listeners cannot tell created owners from updated ones.
+ */
+@Value
+public class OwnersUpsertedEvent {
+
+    List<Owner> owners;
+
+    public List<Integer> getOwnerIds() {
+        return owners.stream().map(Owner::getId).collect(Collectors.toList());
+    }
+}
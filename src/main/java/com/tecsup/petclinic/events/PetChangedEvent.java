@@ -0,0 +1,22 @@
+package com.tecsup.petclinic.events;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+
+import lombok.Value;
+
+/**
+ * Published by the pet service after every write but upserts (see
+ * PetsUpsertedEvent).
+ *
+ * before is null for a create and after is null for a delete.
+ */
+@Value
+public class PetChangedEvent {
+
+    PetDTO before;
+    PetDTO after;
+
+    public Integer getPetId() {
+        return after != null ? after.getId() : before.getId();
+    }
+}
@@ -0,0 +1,26 @@
+package com.tecsup.petclinic.events;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+
+import lombok.Value;
+
+/**
+ * Published once per PetService.upsertAll call, for the whole batch.
+ *
+ * pets are the rows as sent, in order (a pet sent twice is there twice);
+ * changes has one entry per pet written, with its previous state as the
+ * upsert's locking lookup read it (before is null for a created pet).
+ */
+@Value
+public class PetsUpsertedEvent {
+
+    List<PetDTO> pets;
+    List<PetChangedEvent> changes;
+
+    public List<Integer> getPetIds() {
+        return pets.stream().map(PetDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,12 @@
+package com.tecsup.petclinic.events;
+
+import lombok.Value;
+
+/**
+ * Published by the vet service after a vet or one of its specialties changes
+ */
+@Value
+public class VetChangedEvent {
+
+    Integer vetId;
+}
@@ -0,0 +1,13 @@
+package com.tecsup.petclinic.exceptions;
+
+/**
+ * Excepción para cuando no se encuentra un Specialty
+ */
+public class SpecialtyNotFoundException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public SpecialtyNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.tecsup.petclinic.exceptions;
+
+/**
+ * Excepción para cuando no se encuentra un Vet
+ */
+public class VetNotFoundException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public VetNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,188 @@
+package com.tecsup.petclinic.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes CSV rows as a sequence of independent gzip members.
+ *
+ * Rows are encoded into a heap block; every blockBytes of CSV the block is
+ * deflated into its own gzip member and written to the file channel through
+ * a direct buffer. The result is a plain .csv.gz for any gzip reader, while
+ * tools that split on member boundaries can decompress blocks in parallel.
+ * The SHA-256 covers the compressed bytes as they hit the file.
+ */
+public class BlockGzipCsvWriter implements Closeable {
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final FileChannel channel;
+    private final int blockBytes;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final MessageDigest sha256;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] deflated = new byte[64 * 1024];
+
+    private byte[] block;
+    private int blockSize;
+    private long rows;
+    private long bytes;
+    private String checksum;
+
+    public BlockGzipCsvWriter(Path file, List<String> columns, int blockBytes, int level) throws IOException {
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.blockBytes = blockBytes;
+        this.block = new byte[blockBytes + 1024];
+        this.deflater = new Deflater(level, true);
+        row(columns.toArray());
+        rows = 0;
+    }
+
+    /**
+     * Append one CSV line; null is written as an empty field
+     * @param values
+     * @throws IOException
+     */
+    public void row(Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                append((byte) ',');
+            }
+            field(values[i]);
+        }
+        append((byte) '\n');
+        rows++;
+        if (blockSize >= blockBytes) {
+            flushBlock();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     *
+     * @return compressed size, final after close
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     *
+     * @return hex SHA-256 of the file, null until closed
+     */
+    public String getSha256() {
+        return checksum;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+            drain();
+            channel.force(true);
+            checksum = HexFormat.of().formatHex(sha256.digest());
+        } finally {
+            deflater.end();
+            channel.close();
+        }
+    }
+
+    private void field(Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            append(text.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        append((byte) '"');
+        append(text.replace("\"", "\"\"").getBytes(StandardCharsets.UTF_8));
+        append((byte) '"');
+    }
+
+    private void append(byte b) {
+        ensureBlock(1);
+        block[blockSize++] = b;
+    }
+
+    private void append(byte[] bytes) {
+        ensureBlock(bytes.length);
+        System.arraycopy(bytes, 0, block, blockSize, bytes.length);
+        blockSize += bytes.length;
+    }
+
+    private void ensureBlock(int length) {
+        if (blockSize + length > block.length) {
+            block = Arrays.copyOf(block, Math.max(block.length * 2, blockSize + length));
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockSize == 0) {
+            return;
+        }
+        put(GZIP_HEADER, GZIP_HEADER.length);
+
+        crc.reset();
+        crc.update(block, 0, blockSize);
+        deflater.reset();
+        deflater.setInput(block, 0, blockSize);
+        deflater.finish();
+        while (!deflater.finished()) {
+            put(deflated, deflater.deflate(deflated));
+        }
+
+        ensureOut(8);
+        out.putInt((int) crc.getValue()).putInt(blockSize);
+        blockSize = 0;
+    }
+
+    private void put(byte[] bytes, int length) throws IOException {
+        ensureOut(length);
+        out.put(bytes, 0, length);
+    }
+
+    private void ensureOut(int length) throws IOException {
+        if (out.remaining() < length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.flip();
+        sha256.update(out.duplicate());
+        while (out.hasRemaining()) {
+            bytes += channel.write(out);
+        }
+        out.clear();
+    }
+}
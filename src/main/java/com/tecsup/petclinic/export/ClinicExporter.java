@@ -0,0 +1,251 @@
+package com.tecsup.petclinic.export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.petclinic.events.ChangeEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Nightly compressed copy of owners, pets and visits for the data warehouse.
+ *
+ * Each run reads the three tables in one read-only, repeatable-read
+ * transaction through forward-only cursors and streams them into
+ * BlockGzipCsvWriter files under a &lt;runId&gt;.tmp directory, which is renamed
+ * to &lt;runId&gt; once manifest.json is written: a directory without the suffix
+ * is always complete.
+ *
+ * Runs are incremental from the previous manifest. Owners and pets come back
+ * when their entity_versions entry is newer than the last table version seen
+ * (every write bumps it, see ChangeVersionRecorder), visits when their id is
+ * above the last exported id.
+ *
+ * Visits have no commit-ordered change source, so the id watermark is only a
+ * best effort: a visit committed after a higher id was exported, an UPDATE
+ * (an owner merge moves visits to another pet) and any delete are missed by
+ * incremental runs. The full run is the correctness boundary: it is taken
+ * when there is no previous run or the last full one is older than
+ * petclinic.export.full-interval-days, and the warehouse replaces its copy
+ * with it.
+ */
+@Component
+@Slf4j
+public class ClinicExporter {
+
+    static final String MANIFEST = "manifest.json";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final DateTimeFormatter RUN_ID =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    static final List<String> OWNER_COLUMNS = List.of("id", "first_name", "last_name", "address", "city", "telephone");
+    static final List<String> PET_COLUMNS = List.of("id", "name", "birth_date", "type_id", "owner_id", "age");
+    static final List<String> VISIT_COLUMNS = List.of("id", "pet_id", "vet_id", "visit_date", "description", "cost");
+
+    private static final String CHANGED_SINCE =
+            " WHERE id IN (SELECT entity_id FROM entity_versions WHERE entity_type = ? AND version > ? AND version <= ?)";
+    private static final String VISITS_SINCE = " WHERE id > ? AND id <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshot;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path dir;
+    private final int blockBytes;
+    private final int level;
+    private final Duration fullInterval;
+
+    public ClinicExporter(DataSource dataSource, PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                          @Value("${petclinic.export.enabled:false}") boolean enabled,
+                          @Value("${petclinic.export.dir:${user.home}/temp/petclinic-export}") Path dir,
+                          @Value("${petclinic.export.fetch-size:1000}") int fetchSize,
+                          @Value("${petclinic.export.query-timeout-seconds:3600}") int queryTimeoutSeconds,
+                          @Value("${petclinic.export.block-bytes:1048576}") int blockBytes,
+                          @Value("${petclinic.export.level:6}") int level,
+                          @Value("${petclinic.export.full-interval-days:7}") int fullIntervalDays) {
+        // Own template: streamed reads need the fetch size (MIN_VALUE on MySQL)
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.dir = dir;
+        this.blockBytes = blockBytes;
+        this.level = level;
+        this.fullInterval = Duration.ofDays(fullIntervalDays);
+    }
+
+    @Scheduled(cron = "${petclinic.export.cron:0 0 3 * * *}")
+    public void exportScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            export(false);
+        } catch (RuntimeException e) {
+            log.error("Clinic export failed", e);
+        }
+    }
+
+    /**
+     *
+     * @param forceFull export every row even if a previous run exists
+     * @return manifest of the new run
+     */
+    public synchronized ExportManifest export(boolean forceFull) {
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(dir);
+            discardIncompleteRuns();
+            Optional<ExportManifest> previous = latest();
+
+            Instant now = Instant.now();
+            boolean full = forceFull || previous.isEmpty() || previous.get().getLastFullAt() == null
+                    || previous.get().getLastFullAt().isBefore(now.minus(fullInterval));
+
+            ExportManifest manifest = new ExportManifest();
+            manifest.setRunId(RUN_ID.format(now));
+            manifest.setPreviousRunId(previous.map(ExportManifest::getRunId).orElse(null));
+            manifest.setFull(full);
+            manifest.setCreatedAt(now);
+            manifest.setLastFullAt(full ? now : previous.get().getLastFullAt());
+
+            Path work = dir.resolve(manifest.getRunId() + TMP_SUFFIX);
+            Files.createDirectory(work);
+            snapshot.executeWithoutResult(status -> exportTables(work, manifest, full ? null : previous.get()));
+
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(work.resolve(MANIFEST).toFile(), manifest);
+            Files.move(work, dir.resolve(manifest.getRunId()), StandardCopyOption.ATOMIC_MOVE);
+
+            log.info("Exported {} run {} ({} rows) in {} ms", full ? "full" : "incremental", manifest.getRunId(),
+                    manifest.getFiles().stream().mapToLong(ExportManifest.ExportedFile::getRows).sum(),
+                    (System.nanoTime() - started) / 1_000_000);
+            return manifest;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     *
+     * @return manifest of the newest complete run
+     */
+    public Optional<ExportManifest> latest() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> runs = Files.list(dir)) {
+            Optional<Path> newest = runs
+                    .filter(run -> Files.exists(run.resolve(MANIFEST)) && !run.toString().endsWith(TMP_SUFFIX))
+                    .max(Path::compareTo);
+            if (newest.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(objectMapper.readValue(newest.get().resolve(MANIFEST).toFile(), ExportManifest.class));
+        }
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    private void exportTables(Path work, ExportManifest manifest, ExportManifest previous) {
+        // Upper bounds first: rows changed after this point belong to the next run
+        long ownerVersion = tableVersion(ChangeEvent.OWNER);
+        long petVersion = tableVersion(ChangeEvent.PET);
+        long visitId = jdbcTemplate.queryForObject(
+                "SELECT GREATEST((SELECT COALESCE(MAX(id), 0) FROM visits), "
+                + "(SELECT COALESCE(MAX(id), 0) FROM visits_archive))", Long.class);
+
+        String owners = "SELECT " + String.join(", ", OWNER_COLUMNS) + " FROM owners";
+        String pets = "SELECT " + String.join(", ", PET_COLUMNS) + " FROM pets";
+        String visits = "SELECT " + String.join(", ", VISIT_COLUMNS) + " FROM visits";
+        try {
+            if (previous == null) {
+                // Archived visits are part of the history the warehouse has never seen
+                manifest.getFiles().add(table(work, "owners", OWNER_COLUMNS, owners + " ORDER BY id"));
+                manifest.getFiles().add(table(work, "pets", PET_COLUMNS, pets + " ORDER BY id"));
+                manifest.getFiles().add(table(work, "visits", VISIT_COLUMNS,
+                        visits + " UNION ALL " + visits + "_archive ORDER BY id"));
+            } else {
+                manifest.getFiles().add(table(work, "owners", OWNER_COLUMNS, owners + CHANGED_SINCE + " ORDER BY id",
+                        ChangeEvent.OWNER, previous.getOwnerVersion(), ownerVersion));
+                manifest.getFiles().add(table(work, "pets", PET_COLUMNS, pets + CHANGED_SINCE + " ORDER BY id",
+                        ChangeEvent.PET, previous.getPetVersion(), petVersion));
+                manifest.getFiles().add(table(work, "visits", VISIT_COLUMNS, visits + VISITS_SINCE + " ORDER BY id",
+                        previous.getVisitId(), visitId));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        manifest.setOwnerVersion(ownerVersion);
+        manifest.setPetVersion(petVersion);
+        manifest.setVisitId(visitId);
+    }
+
+    private ExportManifest.ExportedFile table(Path work, String table, List<String> columns, String sql,
+                                              Object... args) throws IOException {
+        String file = table + ".csv.gz";
+        BlockGzipCsvWriter writer = new BlockGzipCsvWriter(work.resolve(file), columns, blockBytes, level);
+        try (writer) {
+            Object[] values = new Object[columns.size()];
+            jdbcTemplate.query(sql, (ResultSet rs) -> {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = rs.getObject(i + 1);
+                }
+                try {
+                    writer.row(values);
+                } catch (IOException e) {
+                    throw new SQLException("Export write failed", e);
+                }
+            }, args);
+        }
+        meterRegistry.counter("petclinic.export.rows", "table", table).increment(writer.getRows());
+        return new ExportManifest.ExportedFile(table, file, columns, writer.getRows(), writer.getBytes(),
+                writer.getSha256());
+    }
+
+    private long tableVersion(String table) {
+        return jdbcTemplate.queryForObject("SELECT version FROM table_versions WHERE table_name = ?", Long.class, table);
+    }
+
+    private void discardIncompleteRuns() throws IOException {
+        try (Stream<Path> runs = Files.list(dir)) {
+            for (Path run : runs.filter(run -> run.toString().endsWith(TMP_SUFFIX)).toList()) {
+                log.warn("Removing incomplete export {}", run);
+                FileSystemUtils.deleteRecursively(run);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.tecsup.petclinic.export;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * manifest.json of one export run, written after every data file is complete.
+ *
+ * The watermarks are where the next incremental run starts: the last
+ * table_versions value seen for owners and pets, and the highest visit id.
+ * A full run replaces everything before it: incremental visit files can miss
+ * late commits and updates (see ClinicExporter).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportManifest {
+
+    private String runId;
+    private String previousRunId;
+    private boolean full;
+    private Instant createdAt;
+    /** createdAt of the last full run, carried forward by incremental runs */
+    private Instant lastFullAt;
+    private long ownerVersion;
+    private long petVersion;
+    private long visitId;
+    private List<ExportedFile> files = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ExportedFile {
+
+        private String table;
+        private String file;
+        private List<String> columns;
+        private long rows;
+        private long bytes;
+        private String sha256;
+    }
+}
@@ -0,0 +1,32 @@
+package com.tecsup.petclinic.index;
+
+import java.util.Set;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+/**
+ * Referral question: vets having every specialty in allOf and at least one
+ * in anyOf (empty sets do not constrain).
+ *
+ * minYearsExperience applies to each matched specialty; primaryOnly requires
+ * the matched specialties to be primary for the vet.
+ */
+@Value
+@Builder
+public class VetQuery {
+
+    @Singular("allOf")
+    Set<Integer> allOf;
+
+    @Singular("anyOf")
+    Set<Integer> anyOf;
+
+    @Builder.Default
+    boolean activeOnly = true;
+
+    boolean primaryOnly;
+
+    int minYearsExperience;
+}
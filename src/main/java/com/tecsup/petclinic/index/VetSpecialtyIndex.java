@@ -0,0 +1,235 @@
+package com.tecsup.petclinic.index;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.entities.VetSpecialty;
+import com.tecsup.petclinic.events.VetChangedEvent;
+import com.tecsup.petclinic.repositories.VetRepository;
+import com.tecsup.petclinic.repositories.VetSpecialtyRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory bitmap index for referral matching, one bit per vet id.
+ *
+ * Bitmaps: active vets; vets per specialty; vets having the specialty as
+ * primary; and, per specialty, vets with at least N years in it for every N up
+ * to MAX_BUCKETED_YEARS. A query is a handful of AND/OR operations over these;
+ * only a minimum experience above the cap needs an exact check, and only on
+ * the bits already selected.
+ *
+ * Vet ids are small and dense, so plain BitSets are used instead of
+ * compressed (roaring) bitmaps. A changed vet is re-read and re-indexed on
+ * its own after the transaction commits, whether VetService or /api/vets
+ * changed it.
+ */
+@Component
+@RepositoryEventHandler
+@Slf4j
+public class VetSpecialtyIndex {
+
+    static final int MAX_BUCKETED_YEARS = 30;
+
+    private final VetRepository vetRepository;
+    private final VetSpecialtyRepository vetSpecialtyRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final BitSet active = new BitSet();
+    private final Map<Integer, SpecialtyBits> bySpecialty = new HashMap<>();
+    /** exact years, for minimums above MAX_BUCKETED_YEARS */
+    private final Map<Long, Integer> years = new HashMap<>();
+
+    public VetSpecialtyIndex(VetRepository vetRepository, VetSpecialtyRepository vetSpecialtyRepository) {
+        this.vetRepository = vetRepository;
+        this.vetSpecialtyRepository = vetSpecialtyRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        load(vetRepository.findAll(), vetSpecialtyRepository.findAll());
+    }
+
+    /**
+     * Replace the whole index
+     * @param vets
+     * @param specialties
+     */
+    public void load(List<Vet> vets, List<VetSpecialty> specialties) {
+        lock.writeLock().lock();
+        try {
+            active.clear();
+            bySpecialty.clear();
+            years.clear();
+            vets.forEach(this::indexVet);
+            specialties.forEach(this::indexSpecialty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Vet specialty index loaded: {} vets, {} specialties", vets.size(), specialties.size());
+    }
+
+    /**
+     * Incremental refresh of one vet, after the service transaction commits
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVetChanged(VetChangedEvent event) {
+        refresh(event.getVetId());
+    }
+
+    /**
+     * Writes through /api/vets bypass VetService and its events
+     * @param vet
+     */
+    @HandleAfterCreate
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void onVetSaved(Vet vet) {
+        refresh(vet.getId());
+    }
+
+    public void refresh(Integer vetId) {
+        Vet vet = vetRepository.findById(vetId).orElse(null);
+        List<VetSpecialty> specialties = vet == null ? List.of() : vetSpecialtyRepository.findByVetId(vetId);
+
+        lock.writeLock().lock();
+        try {
+            active.clear(vetId);
+            bySpecialty.forEach((specialtyId, bits) -> bits.clear(vetId));
+            years.keySet().removeIf(key -> (int) (key >>> 32) == vetId);
+            if (vet != null) {
+                indexVet(vet);
+                specialties.forEach(this::indexSpecialty);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *
+     * @param query
+     * @return matching vet ids, ascending
+     */
+    public int[] match(VetQuery query) {
+        lock.readLock().lock();
+        try {
+            BitSet result = query.isActiveOnly() ? (BitSet) active.clone() : null;
+
+            for (Integer specialtyId : query.getAllOf()) {
+                BitSet bits = specialtyBits(specialtyId, query);
+                if (result == null) {
+                    result = bits;
+                } else {
+                    result.and(bits);
+                }
+            }
+
+            if (!query.getAnyOf().isEmpty()) {
+                BitSet any = new BitSet();
+                for (Integer specialtyId : query.getAnyOf()) {
+                    any.or(specialtyBits(specialtyId, query));
+                }
+                if (result == null) {
+                    result = any;
+                } else {
+                    result.and(any);
+                }
+            }
+
+            return result == null ? new int[0] : result.stream().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Vets having the specialty, narrowed by the query's primary/experience filters
+     */
+    private BitSet specialtyBits(Integer specialtyId, VetQuery query) {
+        SpecialtyBits bits = bySpecialty.get(specialtyId);
+        if (bits == null) {
+            return new BitSet();
+        }
+        BitSet result = (BitSet) bits.any.clone();
+        if (query.isPrimaryOnly()) {
+            result.and(bits.primary);
+        }
+
+        int minYears = query.getMinYearsExperience();
+        if (minYears > 0) {
+            result.and(bits.atLeast[Math.min(minYears, MAX_BUCKETED_YEARS) - 1]);
+            if (minYears > MAX_BUCKETED_YEARS) {
+                for (int vetId = result.nextSetBit(0); vetId >= 0; vetId = result.nextSetBit(vetId + 1)) {
+                    if (years.getOrDefault(key(vetId, specialtyId), 0) < minYears) {
+                        result.clear(vetId);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void indexVet(Vet vet) {
+        if (Boolean.TRUE.equals(vet.getActive())) {
+            active.set(vet.getId());
+        }
+    }
+
+    private void indexSpecialty(VetSpecialty specialty) {
+        int vetId = specialty.getVetId();
+        SpecialtyBits bits = bySpecialty.computeIfAbsent(specialty.getSpecialtyId(), id -> new SpecialtyBits());
+        bits.any.set(vetId);
+        if (Boolean.TRUE.equals(specialty.getPrimary())) {
+            bits.primary.set(vetId);
+        }
+        int experience = specialty.getYearsExperience() == null ? 0 : specialty.getYearsExperience();
+        for (int i = 0; i < Math.min(experience, MAX_BUCKETED_YEARS); i++) {
+            bits.atLeast[i].set(vetId);
+        }
+        if (experience > MAX_BUCKETED_YEARS) {
+            years.put(key(vetId, specialty.getSpecialtyId()), experience);
+        }
+    }
+
+    private static long key(int vetId, int specialtyId) {
+        return ((long) vetId << 32) | (specialtyId & 0xffffffffL);
+    }
+
+    private static final class SpecialtyBits {
+
+        final BitSet any = new BitSet();
+        final BitSet primary = new BitSet();
+        final BitSet[] atLeast = new BitSet[MAX_BUCKETED_YEARS];
+
+        SpecialtyBits() {
+            for (int i = 0; i < atLeast.length; i++) {
+                atLeast[i] = new BitSet();
+            }
+        }
+
+        void clear(int vetId) {
+            any.clear(vetId);
+            primary.clear(vetId);
+            for (BitSet bits : atLeast) {
+                bits.clear(vetId);
+            }
+        }
+    }
+}
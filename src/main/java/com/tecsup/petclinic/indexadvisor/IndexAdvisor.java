@@ -0,0 +1,388 @@
+package com.tecsup.petclinic.indexadvisor;
+
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.tecsup.petclinic.querylog.QueryLog;
+import com.tecsup.petclinic.querylog.QueryLogDataSource;
+import com.tecsup.petclinic.querylog.WorkloadQuery;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recommends indexes for the workload recorded by QueryLog.
+ *
+ * The costliest SELECT shapes are replayed under EXPLAIN with the bind
+ * values of a real execution (H2 or MySQL) to see which tables are scanned
+ * or read through a weak index. For each such table the candidate index is
+ * the equality columns, most selective first, followed by one range column
+ * or, failing that, the ORDER BY columns. Candidates an existing index
+ * already serves are dropped; one that is a prefix of another is folded
+ * into it. Benefit is estimated in rows examined: table rows (or the index
+ * prefix's rows per key) before, rows per distinct equality key after,
+ * times the executions recorded. Sorts an index would avoid are not
+ * costed.
+ *
+ * Its own EXPLAIN and COUNT(DISTINCT) statements bypass the query log.
+ * The counts scan whole tables, so a run is an explicit admin operation
+ * (POST /api/index-advice/analyze); its result is kept for reading.
+ */
+@Component
+@Slf4j
+public class IndexAdvisor {
+
+    private static final Pattern H2_PLAN = Pattern.compile(
+            "\"PUBLIC\"\\.\"(\\w+)\"(?: \"\\w+\")?\\s*/\\* ([^*]*?) \\*/");
+    private static final int MAX_COLUMNS = 4;
+    private static final int MAX_NAME = 60;
+    // Textbook selectivity of an open range predicate
+    private static final int RANGE_SELECTIVITY = 3;
+
+    private final QueryLog queryLog;
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxShapes;
+
+    private volatile List<IndexRecommendation> lastAdvice;
+
+    public IndexAdvisor(QueryLog queryLog, DataSource dataSource,
+                        @Value("${petclinic.index-advisor.max-shapes:50}") int maxShapes,
+                        @Value("${petclinic.index-advisor.query-timeout-seconds:60}") int queryTimeoutSeconds) {
+        this.queryLog = queryLog;
+        this.jdbcTemplate = new JdbcTemplate(dataSource instanceof QueryLogDataSource logged
+                ? logged.getTargetDataSource() : dataSource);
+        this.jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Analyze the recorded workload; scans every table a candidate is on
+     * @return recommendations, highest estimated benefit first
+     */
+    public synchronized List<IndexRecommendation> advise() {
+        Statistics statistics = new Statistics();
+        boolean mysql = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).matches(".*(mysql|mariadb).*"));
+
+        List<IndexRecommendation> candidates = new ArrayList<>();
+        for (WorkloadQuery query : queryLog.workload(maxShapes)) {
+            Map<String, QueryShapeParser.TableAccess> accesses = QueryShapeParser.parse(query.getShape());
+            if (accesses.isEmpty()) {
+                continue;
+            }
+            Map<String, Plan> plans;
+            try {
+                plans = mysql ? explainMySql(query, accesses) : explainH2(query);
+            } catch (DataAccessException e) {
+                log.debug("Cannot explain {}: {}", query.getShape(), e.getMessage());
+                continue;
+            }
+            for (QueryShapeParser.TableAccess access : accesses.values()) {
+                Plan plan = plans.get(access.table);
+                if (plan != null) {
+                    candidate(query, access, plan, statistics).ifPresent(candidates::add);
+                }
+            }
+        }
+        List<IndexRecommendation> advice = merge(candidates);
+        lastAdvice = advice;
+        return advice;
+    }
+
+    /**
+     *
+     * @return recommendations of the last advise() run, without touching the database
+     */
+    public Optional<List<IndexRecommendation>> lastAdvice() {
+        return Optional.ofNullable(lastAdvice);
+    }
+
+    /**
+     *
+     * @param recommendations
+     * @return a SQL patch that creates them, one commented statement per index
+     */
+    public String ddl(List<IndexRecommendation> recommendations) {
+        StringBuilder out = new StringBuilder();
+        out.append("-- Index advisor, ").append(LocalDateTime.now().withNano(0)).append(": ")
+                .append(recommendations.size()).append(" recommendation(s)\n");
+        for (IndexRecommendation r : recommendations) {
+            out.append("\n-- ").append(r.getTable()).append(": ~").append(r.getRowsExaminedBefore())
+                    .append(" -> ~").append(r.getRowsExaminedAfter()).append(" rows examined per execution, ")
+                    .append(r.getExecutions()).append(" executions, now ")
+                    .append(r.getCurrentIndex() == null ? "table scan" : "using " + r.getCurrentIndex()).append('\n');
+            r.getShapes().forEach(shape -> out.append("--   ").append(shape).append('\n'));
+            out.append(r.getDdl()).append('\n');
+            r.getSupersedes().forEach(index -> out.append("-- ").append(index)
+                    .append(" becomes a prefix of it: DROP INDEX ").append(index).append(";\n"));
+        }
+        return out.toString();
+    }
+
+    private Optional<IndexRecommendation> candidate(WorkloadQuery query, QueryShapeParser.TableAccess access,
+                                                    Plan plan, Statistics statistics) {
+        TableInfo info = statistics.table(access.table);
+        if (info == null) {
+            return Optional.empty();
+        }
+        List<String> equality = access.equality.stream().filter(info.columns::contains).toList();
+        List<String> range = access.range.stream().filter(info.columns::contains).toList();
+        if (equality.isEmpty() && range.isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<String> columns = new ArrayList<>(equality.stream()
+                .sorted(Comparator.comparingLong((String column) -> statistics.distinct(info, List.of(column)))
+                        .reversed())
+                .toList());
+        List<String> tail = new ArrayList<>();
+        if (!range.isEmpty()) {
+            tail.add(range.get(0));
+        } else if (!equality.isEmpty()) {
+            access.orderBy.stream().filter(info.columns::contains).filter(c -> !columns.contains(c)).forEach(tail::add);
+        }
+        columns.addAll(tail);
+        if (columns.size() > MAX_COLUMNS) {
+            columns.subList(MAX_COLUMNS, columns.size()).clear();
+        }
+        List<String> keyColumns = columns.subList(0, Math.min(equality.size(), columns.size()));
+
+        for (List<String> existing : info.indexes.values()) {
+            if (serves(existing, Set.copyOf(keyColumns), columns.subList(keyColumns.size(), columns.size()))) {
+                return Optional.empty();
+            }
+        }
+
+        long rows = statistics.rows(info);
+        long before;
+        if (plan.rows != null) {
+            before = plan.rows;
+        } else if (plan.index == null || !info.indexes.containsKey(plan.index)) {
+            before = rows;
+        } else {
+            List<String> prefix = matchedPrefix(info.indexes.get(plan.index), Set.copyOf(equality));
+            before = prefix.isEmpty() ? rows : Math.max(1, rows / statistics.distinct(info, prefix));
+        }
+        long after = keyColumns.isEmpty() ? rows : Math.max(1, rows / statistics.distinct(info, List.copyOf(keyColumns)));
+        if (!range.isEmpty()) {
+            after = Math.max(1, after / RANGE_SELECTIVITY);
+        }
+        if (before < 2 * after) {
+            return Optional.empty();
+        }
+
+        List<String> supersedes = info.indexes.entrySet().stream()
+                .filter(index -> !info.unique.contains(index.getKey()) && !info.constraintIndexes.contains(index.getKey())
+                        && index.getValue().size() < columns.size()
+                        && columns.subList(0, index.getValue().size()).equals(index.getValue()))
+                .map(Map.Entry::getKey)
+                .toList();
+        String name = ("idx_" + info.name + "_" + String.join("_", columns));
+        return Optional.of(new IndexRecommendation(info.name, List.copyOf(columns),
+                name.length() > MAX_NAME ? name.substring(0, MAX_NAME) : name, plan.index, rows, before, after,
+                query.getCount(), query.getCount() * (before - after), List.of(query.getShape()), supersedes));
+    }
+
+    /**
+     * An existing index serves the candidate when it starts with all of its
+     * equality columns, in any order, followed by its remaining columns
+     */
+    static boolean serves(List<String> index, Set<String> equality, List<String> tail) {
+        if (index.size() < equality.size() + tail.size()
+                || !Set.copyOf(index.subList(0, equality.size())).equals(equality)) {
+            return false;
+        }
+        return index.subList(equality.size(), equality.size() + tail.size()).equals(tail);
+    }
+
+    private static List<String> matchedPrefix(List<String> index, Set<String> equality) {
+        List<String> prefix = new ArrayList<>();
+        for (String column : index) {
+            if (!equality.contains(column)) {
+                break;
+            }
+            prefix.add(column);
+        }
+        return prefix;
+    }
+
+    /**
+     * A candidate whose columns are a prefix of another one's is served by it
+     */
+    private static List<IndexRecommendation> merge(List<IndexRecommendation> candidates) {
+        List<IndexRecommendation> widestFirst = new ArrayList<>(candidates);
+        widestFirst.sort(Comparator.comparingInt((IndexRecommendation r) -> r.getColumns().size()).reversed()
+                .thenComparing(Comparator.comparingLong(IndexRecommendation::getEstimatedRowsSaved).reversed()));
+
+        List<IndexRecommendation> merged = new ArrayList<>();
+        for (IndexRecommendation candidate : widestFirst) {
+            int into = -1;
+            for (int i = 0; i < merged.size() && into < 0; i++) {
+                IndexRecommendation kept = merged.get(i);
+                if (kept.getTable().equals(candidate.getTable()) && kept.getColumns().size() >= candidate.getColumns().size()
+                        && kept.getColumns().subList(0, candidate.getColumns().size()).equals(candidate.getColumns())) {
+                    into = i;
+                }
+            }
+            if (into < 0) {
+                merged.add(candidate);
+                continue;
+            }
+            IndexRecommendation kept = merged.get(into);
+            Set<String> shapes = new LinkedHashSet<>(kept.getShapes());
+            shapes.addAll(candidate.getShapes());
+            Set<String> supersedes = new LinkedHashSet<>(kept.getSupersedes());
+            supersedes.addAll(candidate.getSupersedes());
+            merged.set(into, new IndexRecommendation(kept.getTable(), kept.getColumns(), kept.getName(),
+                    kept.getCurrentIndex(), kept.getTableRows(),
+                    Math.max(kept.getRowsExaminedBefore(), candidate.getRowsExaminedBefore()),
+                    kept.getRowsExaminedAfter(), kept.getExecutions() + candidate.getExecutions(),
+                    kept.getEstimatedRowsSaved() + candidate.getEstimatedRowsSaved(), List.copyOf(shapes),
+                    List.copyOf(supersedes)));
+        }
+        merged.sort(Comparator.comparingLong(IndexRecommendation::getEstimatedRowsSaved).reversed());
+        return merged;
+    }
+
+    // ------------ EXPLAIN ---------------
+
+    private Map<String, Plan> explainH2(WorkloadQuery query) {
+        String plan = jdbcTemplate.query("EXPLAIN " + query.getSql(), ps -> bind(ps, query.getParameters()),
+                rs -> rs.next() ? rs.getString(1) : "");
+        Map<String, Plan> plans = new HashMap<>();
+        Matcher matcher = H2_PLAN.matcher(plan);
+        while (matcher.find()) {
+            String table = matcher.group(1).toLowerCase(Locale.ROOT);
+            String comment = matcher.group(2);
+            String index = comment.contains(".tableScan") ? null
+                    : comment.substring(comment.indexOf('.') + 1,
+                            comment.indexOf(':') > 0 ? comment.indexOf(':') : comment.length()).toLowerCase(Locale.ROOT);
+            // The same table read twice (subquery): the weaker access decides
+            plans.merge(table, new Plan(index, null), (a, b) -> a.index == null ? a : b);
+        }
+        return plans;
+    }
+
+    private Map<String, Plan> explainMySql(WorkloadQuery query, Map<String, QueryShapeParser.TableAccess> accesses) {
+        return jdbcTemplate.query("EXPLAIN " + query.getSql(), ps -> bind(ps, query.getParameters()), rs -> {
+            Map<String, Plan> plans = new HashMap<>();
+            while (rs.next()) {
+                QueryShapeParser.TableAccess access = accesses.get(String.valueOf(rs.getString("table")).toLowerCase(Locale.ROOT));
+                if (access == null) {
+                    continue;
+                }
+                String type = rs.getString("type");
+                // ALL is a table scan, index a full index scan
+                String index = "ALL".equals(type) || "index".equals(type) ? null : rs.getString("key");
+                plans.merge(access.table, new Plan(index == null ? null : index.toLowerCase(Locale.ROOT), rs.getLong("rows")),
+                        (a, b) -> a.index == null ? a : b);
+            }
+            return plans;
+        });
+    }
+
+    private static void bind(PreparedStatement ps, Object[] parameters) throws SQLException {
+        int count = ps.getParameterMetaData().getParameterCount();
+        for (int i = 0; i < count; i++) {
+            ps.setObject(i + 1, parameters != null && i < parameters.length ? parameters[i] : null);
+        }
+    }
+
+    private record Plan(String index, Long rows) {
+    }
+
+    // ------------ Schema and statistics ---------------
+
+    private record TableInfo(String name, Set<String> columns, Map<String, List<String>> indexes, Set<String> unique,
+                             Set<String> constraintIndexes) {
+    }
+
+    /**
+     * Metadata, row counts and distinct counts, cached for one advise() run
+     */
+    private final class Statistics {
+
+        private final Map<String, TableInfo> tables = new HashMap<>();
+        private final Map<String, Long> counts = new HashMap<>();
+
+        TableInfo table(String table) {
+            return tables.computeIfAbsent(table, name -> jdbcTemplate.execute((ConnectionCallback<TableInfo>) connection -> {
+                DatabaseMetaData meta = connection.getMetaData();
+                String metaName = meta.storesUpperCaseIdentifiers() ? name.toUpperCase(Locale.ROOT) : name;
+
+                Set<String> columns = new LinkedHashSet<>();
+                try (ResultSet rs = meta.getColumns(connection.getCatalog(), null, metaName, "%")) {
+                    while (rs.next()) {
+                        columns.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                    }
+                }
+                if (columns.isEmpty()) {
+                    return null;
+                }
+                Map<String, List<String>> indexes = new LinkedHashMap<>();
+                Set<String> unique = new HashSet<>();
+                try (ResultSet rs = meta.getIndexInfo(connection.getCatalog(), null, metaName, false, true)) {
+                    while (rs.next()) {
+                        if (rs.getString("INDEX_NAME") == null || rs.getString("COLUMN_NAME") == null) {
+                            continue;
+                        }
+                        String index = rs.getString("INDEX_NAME").toLowerCase(Locale.ROOT);
+                        indexes.computeIfAbsent(index, k -> new ArrayList<>()).add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                        if (!rs.getBoolean("NON_UNIQUE")) {
+                            unique.add(index);
+                        }
+                    }
+                }
+                // Indexes the engine created for a foreign key (named after it in MySQL, CONSTRAINT_INDEX_n
+                // in H2) belong to the constraint and cannot be dropped on their own
+                Set<String> constraintIndexes = new HashSet<>();
+                try (ResultSet rs = meta.getImportedKeys(connection.getCatalog(), null, metaName)) {
+                    while (rs.next()) {
+                        constraintIndexes.add(String.valueOf(rs.getString("FK_NAME")).toLowerCase(Locale.ROOT));
+                    }
+                }
+                indexes.keySet().stream().filter(index -> index.startsWith("constraint_index"))
+                        .forEach(constraintIndexes::add);
+                return new TableInfo(name, columns, indexes, unique, constraintIndexes);
+            }));
+        }
+
+        long rows(TableInfo table) {
+            return counts.computeIfAbsent(table.name, k ->
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table.name, Long.class));
+        }
+
+        /**
+         * Columns are checked against the metadata before they get here
+         */
+        long distinct(TableInfo table, List<String> columns) {
+            List<String> sorted = columns.stream().sorted().toList();
+            return counts.computeIfAbsent(table.name + "(" + String.join(",", sorted) + ")", k -> Math.max(1,
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT DISTINCT " + String.join(", ", sorted)
+                            + " FROM " + table.name + ") d", Long.class)));
+        }
+    }
+}
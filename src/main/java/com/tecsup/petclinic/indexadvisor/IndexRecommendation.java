@@ -0,0 +1,35 @@
+package com.tecsup.petclinic.indexadvisor;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * One index to create, with the workload it would serve.
+ *
+ * Row figures are estimates per execution from table size and distinct
+ * counts (or the optimizer's own estimate where EXPLAIN reports one), not
+ * measurements.
+ */
+@Value
+public class IndexRecommendation {
+
+    String table;
+    List<String> columns;
+    String name;
+    /** index the plan uses today, null for a table scan */
+    String currentIndex;
+    long tableRows;
+    long rowsExaminedBefore;
+    long rowsExaminedAfter;
+    long executions;
+    /** executions x (before - after) */
+    long estimatedRowsSaved;
+    List<String> shapes;
+    /** existing non-unique indexes that are a prefix of this one */
+    List<String> supersedes;
+
+    public String getDdl() {
+        return "CREATE INDEX " + name + " ON " + table + "(" + String.join(", ", columns) + ");";
+    }
+}
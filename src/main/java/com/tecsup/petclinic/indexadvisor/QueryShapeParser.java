@@ -0,0 +1,121 @@
+package com.tecsup.petclinic.indexadvisor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Column usage of a SELECT, per table: equality and range predicates, ORDER
+ * BY and selected columns.
+ *
+ * This is a pattern matcher for the SQL Hibernate and the JDBC code in this
+ * application emit (alias.column comparisons, JOIN ... ON, IN subqueries),
+ * not a SQL parser: anything it cannot attribute to a table is ignored.
+ */
+final class QueryShapeParser {
+
+    private static final String IDENTIFIER = "[a-z_][a-z0-9_]*";
+    private static final Pattern TABLE = Pattern.compile(
+            "\\b(?:from|join)\\s+(" + IDENTIFIER + ")(?:\\s+(?:as\\s+)?(" + IDENTIFIER + "))?");
+    private static final Pattern PREDICATE = Pattern.compile(
+            "(?:(" + IDENTIFIER + ")\\.)?(" + IDENTIFIER + ")\\s*(<>|!=|<=|>=|=|<|>|\\bin\\b|\\bbetween\\b|\\blike\\b)\\s*"
+            + "(\\?|\\(|(" + IDENTIFIER + ")\\.(" + IDENTIFIER + "))");
+    private static final Pattern ORDER_BY = Pattern.compile(
+            "\\border by (.+?)(?:\\boffset\\b|\\blimit\\b|\\bfetch\\b|\\bfor update\\b|\\)|$)");
+    private static final Pattern SELECTED = Pattern.compile("(" + IDENTIFIER + ")\\.(" + IDENTIFIER + ")");
+    private static final Set<String> KEYWORDS = Set.of("where", "on", "join", "left", "right", "inner", "outer",
+            "cross", "full", "order", "group", "limit", "offset", "fetch", "union", "having", "for", "using");
+
+    private QueryShapeParser() {
+    }
+
+    /**
+     * Columns of one table referenced by the query
+     */
+    static final class TableAccess {
+
+        final String table;
+        final Set<String> equality = new LinkedHashSet<>();
+        final Set<String> range = new LinkedHashSet<>();
+        final List<String> orderBy = new ArrayList<>();
+        final Set<String> selected = new LinkedHashSet<>();
+
+        TableAccess(String table) {
+            this.table = table;
+        }
+    }
+
+    /**
+     *
+     * @param sql
+     * @return accesses by table alias (the table name when there is none), empty if not a SELECT
+     */
+    static Map<String, TableAccess> parse(String sql) {
+        String s = sql.toLowerCase(Locale.ROOT).replace('"', ' ').replace('`', ' ');
+        Map<String, TableAccess> byAlias = new LinkedHashMap<>();
+        if (!s.stripLeading().startsWith("select")) {
+            return byAlias;
+        }
+
+        Matcher table = TABLE.matcher(s);
+        while (table.find()) {
+            String alias = table.group(2) == null || KEYWORDS.contains(table.group(2)) ? table.group(1) : table.group(2);
+            byAlias.putIfAbsent(alias, new TableAccess(table.group(1)));
+        }
+
+        Matcher predicate = PREDICATE.matcher(s);
+        while (predicate.find()) {
+            TableAccess left = resolve(byAlias, predicate.group(1));
+            String op = predicate.group(3);
+            if (left == null || op.equals("<>") || op.equals("!=")) {
+                continue;
+            }
+            boolean equality = op.equals("=") || op.equals("in");
+            (equality ? left.equality : left.range).add(predicate.group(2));
+            if (predicate.group(5) != null && equality) {
+                // Join condition: the other side is looked up by its column too
+                TableAccess right = byAlias.get(predicate.group(5));
+                if (right != null) {
+                    right.equality.add(predicate.group(6));
+                }
+            }
+        }
+
+        Matcher orderBy = ORDER_BY.matcher(s);
+        if (orderBy.find()) {
+            for (String item : orderBy.group(1).split(",")) {
+                String[] parts = item.trim().split("\\s+")[0].split("\\.");
+                TableAccess access = resolve(byAlias, parts.length == 2 ? parts[0] : null);
+                if (access != null) {
+                    access.orderBy.add(parts[parts.length - 1]);
+                }
+            }
+        }
+
+        int from = s.indexOf(" from ");
+        if (from > 0) {
+            Matcher selected = SELECTED.matcher(s.substring(0, from));
+            while (selected.find()) {
+                TableAccess access = byAlias.get(selected.group(1));
+                if (access != null) {
+                    access.selected.add(selected.group(2));
+                }
+            }
+        }
+        return byAlias;
+    }
+
+    private static TableAccess resolve(Map<String, TableAccess> byAlias, String alias) {
+        if (alias != null) {
+            return byAlias.get(alias);
+        }
+        // Unqualified column: only unambiguous with a single table
+        return byAlias.size() == 1 ? byAlias.values().iterator().next() : null;
+    }
+}
@@ -0,0 +1,319 @@
+package com.tecsup.petclinic.jsoncache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.tecsup.petclinic.coherence.CacheInvalidationListener;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.events.OwnerChangedEvent;
+import com.tecsup.petclinic.events.OwnersUpsertedEvent;
+import com.tecsup.petclinic.events.PetChangedEvent;
+import com.tecsup.petclinic.events.PetsUpsertedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Serialized JSON responses of single owners and pets, kept as bytes.
+ *
+ * Entries are dropped after every write of the entity: service writes after
+ * commit, /api repository writes through the Data REST events, and writes
+ * on other nodes through the coherence poller. A reader takes a stamp of
+ * the entity before rendering and its bytes are only stored if no
+ * invalidation happened meanwhile, so a response rendered from the old row
+ * cannot be cached after the new one is committed.
+ *
+ * The cache is bounded by petclinic.json-cache.max-bytes and evicts with a
+ * second-chance clock: hits only set a flag, so reads never lock.
+ */
+@Component
+@RepositoryEventHandler
+public class JsonByteCache implements CacheInvalidationListener {
+
+    // Invalidation stamps are striped: a write to another entity of the same stripe only costs a miss
+    private static final int STRIPES = 1024;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+
+    // Pets of the owner being deleted through /api/owners, read before the cascade
+    private final ThreadLocal<List<Integer>> cascadedPetIds = new ThreadLocal<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final Counter hits;
+    private final Counter misses;
+
+    public JsonByteCache(MeterRegistry meterRegistry, JdbcTemplate jdbcTemplate,
+                         @Value("${petclinic.json-cache.enabled:true}") boolean enabled,
+                         @Value("${petclinic.json-cache.max-bytes:16777216}") long maxBytes,
+                         @Value("${petclinic.json-cache.max-entry-bytes:65536}") int maxEntryBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.hits = meterRegistry.counter("petclinic.json-cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("petclinic.json-cache.requests", "result", "miss");
+        Gauge.builder("petclinic.json-cache.bytes", bytes, AtomicLong::get).baseUnit("bytes").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     *
+     * @param entityType ChangeEvent.OWNER or ChangeEvent.PET
+     * @param id
+     * @param variant base URL and Accept of the request; links in the body depend on them
+     * @return the cached response, null on a miss
+     */
+    public Entry get(String entityType, int id, String variant) {
+        Entry entry = entries.get(key(entityType, id));
+        if (entry == null || !entry.variant.equals(variant)) {
+            misses.increment();
+            return null;
+        }
+        entry.referenced = true;
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Take before rendering and pass to put
+     * @param entityType
+     * @param id
+     * @return the invalidation stamp of the entity
+     */
+    public long stamp(String entityType, int id) {
+        return stamps.get(stripe(key(entityType, id)));
+    }
+
+    /**
+     * Store a rendered response unless the entity was invalidated since stamp
+     * @return whether it was stored
+     */
+    public boolean put(String entityType, int id, long stamp, String variant, String contentType,
+                       List<Map.Entry<String, String>> headers, byte[] body) {
+        if (body.length > maxEntryBytes) {
+            return false;
+        }
+        long key = key(entityType, id);
+        Entry entry = new Entry(key, variant, contentType, List.copyOf(headers), body);
+
+        // Checked again after the insert: an invalidation racing with it may have missed the new entry
+        if (stamps.get(stripe(key)) != stamp) {
+            return false;
+        }
+        Entry previous = entries.put(key, entry);
+        if (stamps.get(stripe(key)) != stamp) {
+            remove(key, entry);
+            return false;
+        }
+        bytes.addAndGet(entry.weight() - (previous != null ? previous.weight() : 0));
+        clock.add(entry);
+        queued.incrementAndGet();
+        evict();
+        return true;
+    }
+
+    @Override
+    public void invalidate(String entityType, Collection<Integer> ids) {
+        ids.forEach(id -> invalidate(entityType, id));
+    }
+
+    @Override
+    public void invalidateAll(String entityType) {
+        for (int i = 0; i < STRIPES; i++) {
+            stamps.incrementAndGet(i);
+        }
+        long type = typeBits(entityType);
+        entries.forEach((key, entry) -> {
+            if ((key & 0xFFFF_FFFF_0000_0000L) == type) {
+                remove(key, entry);
+            }
+        });
+    }
+
+    public void invalidate(String entityType, int id) {
+        long key = key(entityType, id);
+        stamps.incrementAndGet(stripe(key));
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+        }
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // ------------ Writes ---------------
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPetChanged(PetChangedEvent event) {
+        invalidate(ChangeEvent.PET, event.getPetId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOwnerChanged(OwnerChangedEvent event) {
+        invalidate(ChangeEvent.OWNER, event.getOwnerId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPetsUpserted(PetsUpsertedEvent event) {
+        invalidate(ChangeEvent.PET, event.getPetIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOwnersUpserted(OwnersUpsertedEvent event) {
+        invalidate(ChangeEvent.OWNER, event.getOwnerIds());
+    }
+
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void onPetSaved(Pet pet) {
+        invalidate(ChangeEvent.PET, pet.getId());
+    }
+
+    @HandleAfterSave
+    public void onOwnerSaved(Owner owner) {
+        invalidate(ChangeEvent.OWNER, owner.getId());
+    }
+
+    @HandleBeforeDelete
+    public void onOwnerDeleting(Owner owner) {
+        cascadedPetIds.set(jdbcTemplate.queryForList("SELECT id FROM pets WHERE owner_id = ?", Integer.class,
+                owner.getId()));
+    }
+
+    /**
+     * The owner's pets go with it (ON DELETE CASCADE)
+     */
+    @HandleAfterDelete
+    public void onOwnerDeleted(Owner owner) {
+        List<Integer> petIds = cascadedPetIds.get();
+        cascadedPetIds.remove();
+        if (petIds != null) {
+            invalidate(ChangeEvent.PET, petIds);
+        }
+        invalidate(ChangeEvent.OWNER, owner.getId());
+    }
+
+    // ------------ Eviction ---------------
+
+    private void remove(long key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            bytes.addAndGet(-entry.weight());
+        }
+    }
+
+    private void evict() {
+        while (bytes.get() > maxBytes || queued.get() > 2 * entries.size() + STRIPES) {
+            Entry entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            if (entries.get(entry.key) != entry) {
+                // Replaced or invalidated since it was queued
+                continue;
+            }
+            if (bytes.get() <= maxBytes) {
+                // Only compacting the queue of stale entries: keep live ones
+                clock.add(entry);
+                queued.incrementAndGet();
+                return;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                clock.add(entry);
+                queued.incrementAndGet();
+            } else {
+                remove(entry.key, entry);
+            }
+        }
+    }
+
+    private static long key(String entityType, int id) {
+        return typeBits(entityType) | (id & 0xFFFF_FFFFL);
+    }
+
+    private static long typeBits(String entityType) {
+        return switch (entityType) {
+            case ChangeEvent.OWNER -> 1L << 32;
+            case ChangeEvent.PET -> 2L << 32;
+            default -> throw new IllegalArgumentException("Not cached: " + entityType);
+        };
+    }
+
+    private static int stripe(long key) {
+        return (int) ((key ^ (key >>> 32)) * 0x9E3779B9L >>> 22) & (STRIPES - 1);
+    }
+
+    /**
+     * One rendered response
+     */
+    public static final class Entry {
+
+        private final long key;
+        private final String variant;
+        private final String contentType;
+        private final List<Map.Entry<String, String>> headers;
+        private final byte[] body;
+        private volatile boolean referenced;
+
+        Entry(long key, String variant, String contentType, List<Map.Entry<String, String>> headers, byte[] body) {
+            this.key = key;
+            this.variant = variant;
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public List<Map.Entry<String, String>> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        long weight() {
+            // Body plus a rough allowance for the entry, key and headers
+            return body.length + 128L + variant.length();
+        }
+    }
+}
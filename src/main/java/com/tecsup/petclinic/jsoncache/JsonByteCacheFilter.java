@@ -0,0 +1,122 @@
+package com.tecsup.petclinic.jsoncache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.tecsup.petclinic.events.ChangeEvent;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Serves GET /api/pets/{id} and /api/owners/{id} from JsonByteCache.
+ *
+ * A hit writes the stored bytes straight to the response: no repository
+ * lookup, no HAL assembly, no Jackson. A miss runs the normal Data REST
+ * handler, captures what it wrote and stores it when it is a 200 JSON body.
+ * Requests with a query string (projections), an Accept other than JSON/HAL
+ * or Cache-Control: no-cache always go to the handler.
+ */
+public class JsonByteCacheFilter extends OncePerRequestFilter {
+
+    static final String CACHE_HEADER = "X-Cache";
+
+    private static final Set<String> CACHEABLE_ACCEPT = Set.of("", "*/*", "application/json", "application/hal+json");
+    private static final Set<String> NOT_REPLAYED = Set.of(HttpHeaders.CONTENT_TYPE.toLowerCase(),
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(), HttpHeaders.TRANSFER_ENCODING.toLowerCase(),
+            CACHE_HEADER.toLowerCase());
+
+    private final JsonByteCache cache;
+
+    public JsonByteCacheFilter(JsonByteCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !cache.isEnabled() || !"GET".equals(request.getMethod()) || request.getQueryString() != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String entityType = path.startsWith("/api/pets/") ? ChangeEvent.PET
+                : path.startsWith("/api/owners/") ? ChangeEvent.OWNER : null;
+        Integer id = entityType != null ? parseId(path, path.indexOf('/', 5) + 1) : null;
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        accept = accept == null ? "" : accept.trim();
+        String cacheControl = request.getHeader(HttpHeaders.CACHE_CONTROL);
+
+        if (id == null || !CACHEABLE_ACCEPT.contains(accept)
+                || (cacheControl != null && cacheControl.contains("no-cache"))) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // Links in the body are absolute, built from the request
+        String variant = request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort()
+                + request.getContextPath() + " " + accept;
+
+        JsonByteCache.Entry hit = cache.get(entityType, id, variant);
+        if (hit != null) {
+            response.setStatus(HttpStatus.OK.value());
+            hit.getHeaders().forEach(header -> response.addHeader(header.getKey(), header.getValue()));
+            response.setHeader(CACHE_HEADER, "HIT");
+            response.setContentType(hit.getContentType());
+            response.setContentLength(hit.getBody().length);
+            response.getOutputStream().write(hit.getBody());
+            return;
+        }
+
+        long stamp = cache.stamp(entityType, id);
+        ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+        captured.setHeader(CACHE_HEADER, "MISS");
+        try {
+            chain.doFilter(request, captured);
+            String contentType = captured.getContentType();
+            if (captured.getStatus() == HttpStatus.OK.value() && contentType != null && contentType.contains("json")) {
+                cache.put(entityType, id, stamp, variant, contentType, headers(captured),
+                        captured.getContentAsByteArray());
+            }
+        } finally {
+            captured.copyBodyToResponse();
+        }
+    }
+
+    private static List<Map.Entry<String, String>> headers(HttpServletResponse response) {
+        List<Map.Entry<String, String>> headers = new ArrayList<>();
+        for (String name : response.getHeaderNames()) {
+            if (!NOT_REPLAYED.contains(name.toLowerCase())) {
+                response.getHeaders(name).forEach(value -> headers.add(Map.entry(name, value)));
+            }
+        }
+        return headers;
+    }
+
+    private static Integer parseId(String path, int start) {
+        if (start >= path.length() || path.length() - start > 9) {
+            return null;
+        }
+        int id = 0;
+        for (int i = start; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+}
@@ -0,0 +1,126 @@
+package com.tecsup.petclinic.limits;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vegas-style adaptive concurrency limit.
+ *
+ * Compares each call's latency with the best latency seen recently (the
+ * no-queue latency). The difference estimates how many calls are queued
+ * behind the database: below alpha the limit grows, above beta it shrinks,
+ * so excess requests are rejected up front instead of piling up on Tomcat
+ * threads. The best latency is re-learned periodically (a "probe") so a
+ * database that stays slow gets a new, realistic baseline.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** probe every PROBE_MULTIPLIER * limit samples */
+    private static final int PROBE_MULTIPLIER = 30;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private double limit;
+    private long minRtt = Long.MAX_VALUE;
+    private long samplesUntilProbe;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     *
+     * @return a permit to release when the call ends, or empty if the call must be rejected
+     */
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(current + 1, System.nanoTime()));
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        if (--samplesUntilProbe <= 0) {
+            minRtt = rttNanos;
+            samplesUntilProbe = (long) (PROBE_MULTIPLIER * limit);
+            return;
+        }
+        if (rttNanos < minRtt) {
+            minRtt = rttNanos;
+        }
+
+        double log = Math.max(1, Math.log10(limit));
+        double queued = limit * (1 - (double) minRtt / rttNanos);
+
+        if (queued >= 6 * log) {
+            limit = clamp(limit - log);
+        } else if (queued <= 3 * log && inFlightAtStart >= limit / 2) {
+            // Only grow when the limit is actually being used
+            limit = clamp(limit + log);
+        }
+    }
+
+    private synchronized void onDrop() {
+        limit = clamp(limit * DROP_BACKOFF);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    /**
+     * One admitted call; exactly one of success() / dropped() / ignore() must be called
+     */
+    public final class Permit {
+
+        private final int inFlightAtStart;
+        private final long startNanos;
+
+        private Permit(int inFlightAtStart, long startNanos) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.startNanos = startNanos;
+        }
+
+        /** the call completed normally; its latency feeds the limit */
+        public void success() {
+            inFlight.decrementAndGet();
+            onSample(System.nanoTime() - startNanos, inFlightAtStart);
+        }
+
+        /** the call timed out or hit an overload error */
+        public void dropped() {
+            inFlight.decrementAndGet();
+            onDrop();
+        }
+
+        /** the call failed for reasons unrelated to load (e.g. a 404) */
+        public void ignore() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.tecsup.petclinic.limits;
+
+/**
+ * Independent limiter pools so a flood of one kind of request cannot
+ * starve the others
+ */
+public enum Bulkhead {
+
+    READ, WRITE, EXPORT
+}
@@ -0,0 +1,153 @@
+package com.tecsup.petclinic.limits;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission control for /api: each request takes a permit from the limiter
+ * of its bulkhead or is answered 503 with Retry-After immediately. While it
+ * runs, its statements get the bulkhead's query timeout (see
+ * RequestTimeoutDataSource).
+ *
+ * A request that goes async (CompletableFuture, StreamingResponseBody)
+ * keeps its permit until the async request completes, so the limiter sees
+ * the real latency and status instead of the near-zero time it takes to
+ * start it. The query timeout does not follow the work to other threads:
+ * async handlers set their own.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Map<Bulkhead, AdaptiveConcurrencyLimiter> limiters;
+    private final Map<Bulkhead, Integer> queryTimeouts;
+    private final int retryAfterSeconds;
+
+    /**
+     *
+     * @param limiters          one per bulkhead
+     * @param queryTimeouts     statement timeout in seconds per bulkhead; missing or 0 for none
+     * @param retryAfterSeconds
+     */
+    public ConcurrencyLimitFilter(Map<Bulkhead, AdaptiveConcurrencyLimiter> limiters,
+                                  Map<Bulkhead, Integer> queryTimeouts, int retryAfterSeconds) {
+        this.limiters = new EnumMap<>(limiters);
+        this.queryTimeouts = queryTimeouts.isEmpty() ? Map.of() : new EnumMap<>(queryTimeouts);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        Bulkhead bulkhead = classify(request);
+        AdaptiveConcurrencyLimiter limiter = limiters.get(bulkhead);
+        Optional<AdaptiveConcurrencyLimiter.Permit> permit = limiter.tryAcquire();
+
+        if (permit.isEmpty()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"overloaded\",\"bulkhead\":\"" + limiter.getName() + "\"}");
+            return;
+        }
+
+        boolean completed = false;
+        RequestTimeoutDataSource.setQueryTimeout(queryTimeouts.getOrDefault(bulkhead, 0));
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            RequestTimeoutDataSource.clearQueryTimeout();
+            if (completed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new PermitReleaser(permit.get(), response));
+            } else {
+                release(permit.get(), completed, response.getStatus());
+            }
+        }
+    }
+
+    private static void release(AdaptiveConcurrencyLimiter.Permit permit, boolean completed, int status) {
+        if (!completed || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status == HttpStatus.GATEWAY_TIMEOUT.value()) {
+            permit.dropped();
+        } else if (status >= 500) {
+            permit.ignore();
+        } else {
+            permit.success();
+        }
+    }
+
+    static Bulkhead classify(HttpServletRequest request) {
+        // Annual reports stream for as long as a bulk export does; index analysis scans whole tables
+        String uri = request.getRequestURI();
+        if (uri.contains("/export") || uri.startsWith(request.getContextPath() + "/api/reports/")
+                || uri.equals(request.getContextPath() + "/api/index-advice/analyze")) {
+            return Bulkhead.EXPORT;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)
+                ? Bulkhead.READ : Bulkhead.WRITE;
+    }
+
+    /**
+     * Releases the permit of an async request once, when it ends: a timeout
+     * or error counts as a drop, like an exception on the request thread
+     */
+    private static final class PermitReleaser implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimiter.Permit permit;
+        private final HttpServletResponse response;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        PermitReleaser(AdaptiveConcurrencyLimiter.Permit permit, HttpServletResponse response) {
+            this.permit = permit;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                release(permit, true, response.getStatus());
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                permit.dropped();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                permit.dropped();
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Re-dispatched async cycles keep the listener registered on the new context
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
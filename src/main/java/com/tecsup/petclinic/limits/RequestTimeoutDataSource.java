@@ -0,0 +1,81 @@
+package com.tecsup.petclinic.limits;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Gives statements created while an /api request is being served the query
+ * timeout of its bulkhead, so a slow database fails the request instead of
+ * holding its thread.
+ *
+ * The timeout is set on the request thread by ConcurrencyLimitFilter.
+ * Statements created elsewhere (scheduled jobs, startup, executors) are
+ * left alone unless the task sets its own, as the owner profile reads do,
+ * and an explicit timeout set later by a JdbcTemplate or a JPA
+ * query hint still wins.
+ */
+public class RequestTimeoutDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<Integer> QUERY_TIMEOUT = new ThreadLocal<>();
+
+    public RequestTimeoutDataSource(DataSource target) {
+        super(target);
+    }
+
+    /**
+     *
+     * @param seconds timeout of the statements created by the current thread, 0 for none
+     */
+    public static void setQueryTimeout(int seconds) {
+        if (seconds > 0) {
+            QUERY_TIMEOUT.set(seconds);
+        } else {
+            QUERY_TIMEOUT.remove();
+        }
+    }
+
+    public static void clearQueryTimeout() {
+        QUERY_TIMEOUT.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(RequestTimeoutDataSource.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    // equals/hashCode by proxy identity, so pools and holders can compare what they handed out
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    Integer timeout = QUERY_TIMEOUT.get();
+                    if (timeout != null && result instanceof Statement statement) {
+                        statement.setQueryTimeout(timeout);
+                    }
+                    return result;
+                });
+    }
+}
@@ -1,5 +1,6 @@
 package com.tecsup.petclinic.mappers;
 
+import com.tecsup.petclinic.dictionary.PetTypeDictionary;
 import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.entities.Pet;
 import org.springframework.stereotype.Component;
@@ -7,6 +8,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class PetMapper {
 
+    private final PetTypeDictionary petTypes;
+
+    public PetMapper(PetTypeDictionary petTypes) {
+        this.petTypes = petTypes;
+    }
+
     /**
      * Convert DTO to Entity
      * @param dto
@@ -23,15 +30,25 @@ public class PetMapper {
         );
     }
 
+    /**
+     * Convert Entity to DTO, with the type name and care level from the dictionary
+     * @param entity
+     * @return
+     */
     public PetDTO mapToDto(Pet entity) {
         if (entity == null) return null;
-        return new PetDTO(
+        PetDTO dto = new PetDTO(
                 entity.getId(),
                 entity.getName(),
                 entity.getTypeId(),
                 entity.getOwnerId(),
                 entity.getBirthDate()
         );
+        petTypes.find(entity.getTypeId()).ifPresent(type -> {
+            dto.setTypeName(type.getName());
+            dto.setCareLevel(type.getCareLevel());
+        });
+        return dto;
     }
 
 }
@@ -0,0 +1,250 @@
+package com.tecsup.petclinic.querycache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.rest.core.annotation.HandleAfterCreate;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tecsup.petclinic.coalescing.RequestCoalescer;
+import com.tecsup.petclinic.coherence.CacheInvalidationListener;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.events.OwnerChangedEvent;
+import com.tecsup.petclinic.events.OwnersUpsertedEvent;
+import com.tecsup.petclinic.events.PetChangedEvent;
+import com.tecsup.petclinic.events.PetsUpsertedEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Results of list queries (pets by type or owner, owners by last name),
+ * keyed by query name and arguments.
+ *
+ * Every table has a version counter, bumped after each committed write:
+ * service writes after commit, /api repository writes through the Data
+ * REST events, and writes on other nodes through the coherence poller. An
+ * entry keeps the versions of the tables it read, taken before the query
+ * ran, and is only served while they are all current. A write therefore
+ * costs one increment, whatever the number of entries it outdates; those
+ * are dropped when next looked up or by the eviction clock.
+ *
+ * Misses go through the RequestCoalescer with those versions in the key: a
+ * miss after a write never joins a query started before it, whose result
+ * would otherwise be stored as current.
+ *
+ * Callers inside a transaction always query the database, since they must
+ * see their own uncommitted writes. Each hit returns its own copy of the
+ * result. The cache is bounded by petclinic.query-cache.max-entries and
+ * evicts with a second-chance clock, as JsonByteCache does.
+ */
+@Component
+@RepositoryEventHandler
+public class QueryResultCache implements CacheInvalidationListener {
+
+    private final Map<String, AtomicLong> versions = Map.of(
+            ChangeEvent.OWNER, new AtomicLong(), ChangeEvent.PET, new AtomicLong());
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final RequestCoalescer coalescer;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxEntries;
+
+    public QueryResultCache(RequestCoalescer coalescer, MeterRegistry meterRegistry,
+                            @Value("${petclinic.query-cache.enabled:true}") boolean enabled,
+                            @Value("${petclinic.query-cache.max-entries:10000}") int maxEntries) {
+        this.coalescer = coalescer;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        Gauge.builder("petclinic.query-cache.entries", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     *
+     * @param name   query name, used as metric tag and key prefix
+     * @param args   query arguments; equal arguments share one entry
+     * @param tables ChangeEvent.OWNER / ChangeEvent.PET tables the query reads
+     * @param query  the database call, coalesced with identical concurrent misses
+     * @param copy   gives each caller its own copy of a mutable result
+     * @return the query result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name, Object args, List<String> tables, Supplier<T> query, UnaryOperator<T> copy) {
+        if (!enabled) {
+            return coalescer.execute(name, args, query, copy);
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return query.get();
+        }
+        String key = name + ':' + args;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isCurrent(this)) {
+            entry.referenced = true;
+            meterRegistry.counter("petclinic.query-cache.requests", "query", name, "result", "hit").increment();
+            return copy.apply((T) entry.result);
+        }
+        meterRegistry.counter("petclinic.query-cache.requests", "query", name, "result", "miss").increment();
+
+        // Versions before the query: a write committed while it runs outdates the entry right away
+        long[] seen = tables.stream().mapToLong(table -> version(table).get()).toArray();
+        T result = coalescer.execute(name, args + "@" + Arrays.toString(seen), query, copy);
+        if (result != null) {
+            Entry fresh = new Entry(key, tables, seen, copy.apply(result));
+            entries.put(key, fresh);
+            clock.add(fresh);
+            queued.incrementAndGet();
+            evict();
+        } else if (entry != null) {
+            entries.remove(key, entry);
+        }
+        return result;
+    }
+
+    @Override
+    public void invalidate(String entityType, Collection<Integer> ids) {
+        invalidateAll(entityType);
+    }
+
+    @Override
+    public void invalidateAll(String entityType) {
+        version(entityType).incrementAndGet();
+    }
+
+    public long getVersion(String table) {
+        return version(table).get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // ------------ Writes ---------------
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPetChanged(PetChangedEvent event) {
+        invalidateAll(ChangeEvent.PET);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOwnerChanged(OwnerChangedEvent event) {
+        invalidateAll(ChangeEvent.OWNER);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPetsUpserted(PetsUpsertedEvent event) {
+        invalidateAll(ChangeEvent.PET);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOwnersUpserted(OwnersUpsertedEvent event) {
+        invalidateAll(ChangeEvent.OWNER);
+    }
+
+    @HandleAfterCreate
+    @HandleAfterSave
+    @HandleAfterDelete
+    public void onPetSaved(Pet pet) {
+        invalidateAll(ChangeEvent.PET);
+    }
+
+    @HandleAfterCreate
+    @HandleAfterSave
+    public void onOwnerSaved(Owner owner) {
+        invalidateAll(ChangeEvent.OWNER);
+    }
+
+    /**
+     * The owner's pets go with it (ON DELETE CASCADE)
+     */
+    @HandleAfterDelete
+    public void onOwnerDeleted(Owner owner) {
+        invalidateAll(ChangeEvent.OWNER);
+        invalidateAll(ChangeEvent.PET);
+    }
+
+    // ------------ Eviction ---------------
+
+    private void evict() {
+        while (entries.size() > maxEntries || queued.get() > 2 * entries.size() + 1024) {
+            Entry entry = clock.poll();
+            if (entry == null) {
+                return;
+            }
+            queued.decrementAndGet();
+            if (entries.get(entry.key) != entry) {
+                // Replaced since it was queued
+                continue;
+            }
+            if (entries.size() <= maxEntries) {
+                // Only compacting the queue of replaced entries: keep live ones
+                clock.add(entry);
+                queued.incrementAndGet();
+                return;
+            }
+            if (entry.referenced && entry.isCurrent(this)) {
+                entry.referenced = false;
+                clock.add(entry);
+                queued.incrementAndGet();
+            } else {
+                entries.remove(entry.key, entry);
+            }
+        }
+    }
+
+    private AtomicLong version(String table) {
+        AtomicLong version = versions.get(table);
+        if (version == null) {
+            throw new IllegalArgumentException("No version counter for " + table);
+        }
+        return version;
+    }
+
+    /**
+     * One query result and the table versions it was read at
+     */
+    private static final class Entry {
+
+        private final String key;
+        private final List<String> tables;
+        private final long[] versions;
+        private final Object result;
+        private volatile boolean referenced;
+
+        Entry(String key, List<String> tables, long[] versions, Object result) {
+            this.key = key;
+            this.tables = tables;
+            this.versions = versions;
+            this.result = result;
+        }
+
+        boolean isCurrent(QueryResultCache cache) {
+            for (int i = 0; i < versions.length; i++) {
+                if (cache.version(tables.get(i)).get() != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.tecsup.petclinic.querylog;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-shape JDBC statement stats fed by QueryLogDataSource.
+ *
+ * Every execution updates lock-free counters and a log2 latency histogram of
+ * its normalized SQL; only executions over petclinic.query-log.slow-threshold-ms
+ * pay for a log line and a stack walk to find the calling application
+ * method. Bind parameters carry personal data (names, telephones), so they
+ * are only logged with petclinic.query-log.log-parameters on. Past max-statements distinct shapes, new ones
+ * are counted under OTHER so ad-hoc SQL cannot grow the map without bound.
+ */
+@Component
+@Slf4j
+public class QueryLog {
+
+    public static final String OTHER = "(other)";
+
+    public enum Order {
+        TOTAL(QueryStats::getTotalMs),
+        COUNT(QueryStats::getCount),
+        MEAN(QueryStats::getMeanMs),
+        MAX(QueryStats::getMaxMs),
+        P99(QueryStats::getP99Ms),
+        ROWS(QueryStats::getRows);
+
+        private final ToDoubleFunction<QueryStats> key;
+
+        Order(ToDoubleFunction<QueryStats> key) {
+            this.key = key;
+        }
+    }
+
+    // Bucket i holds latencies in [2^i, 2^(i+1)) microseconds; the last one is open-ended (> ~1 min)
+    private static final int BUCKETS = 27;
+    private static final int MAX_PARAMETER_CHARS = 64;
+    private static final String APPLICATION_PACKAGE = "com.tecsup.petclinic.";
+
+    private final SqlNormalizer normalizer = new SqlNormalizer();
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final long slowThresholdNanos;
+    private final boolean logParameters;
+    private final int maxStatements;
+    private final Counter slowCounter;
+
+    public QueryLog(MeterRegistry meterRegistry,
+                    @Value("${petclinic.query-log.slow-threshold-ms:200}") long slowThresholdMillis,
+                    @Value("${petclinic.query-log.log-parameters:false}") boolean logParameters,
+                    @Value("${petclinic.query-log.max-statements:2000}") int maxStatements) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.logParameters = logParameters;
+        this.maxStatements = maxStatements;
+        this.slowCounter = meterRegistry.counter("petclinic.sql.slow");
+    }
+
+    /**
+     * Record one execution
+     * @param sql raw statement text
+     * @param parameters bind values by index - 1, may be null
+     * @param nanos time spent in execute
+     * @param rows update count, -1 when rows are counted later through the returned handle
+     * @param failed
+     * @return handle to add rows read from the result set
+     */
+    public Shape record(String sql, Object[] parameters, long nanos, long rows, boolean failed) {
+        String normalized = normalizer.normalize(sql);
+        Shape shape = shapes.get(normalized);
+        if (shape == null) {
+            shape = shapes.size() < maxStatements
+                    ? shapes.computeIfAbsent(normalized, Shape::new)
+                    : shapes.computeIfAbsent(OTHER, Shape::new);
+        }
+        shape.add(nanos, rows, failed);
+        if (shape.sample == null && !failed) {
+            shape.sample = new Object[] { sql, parameters };
+        }
+
+        if (nanos >= slowThresholdNanos) {
+            String caller = caller();
+            shape.lastSlowCaller = caller;
+            slowCounter.increment();
+            log.warn("Slow SQL {} ms{} from {}: {}{}", TimeUnit.NANOSECONDS.toMillis(nanos),
+                    failed ? " (failed)" : rows >= 0 ? " (" + rows + " rows)" : "", caller, sql.strip(),
+                    logParameters && parameters != null ? " " + format(parameters) : "");
+        }
+        return shape;
+    }
+
+    /**
+     *
+     * @param order
+     * @param limit
+     * @return the first limit shapes, highest first
+     */
+    public List<QueryStats> top(Order order, int limit) {
+        return shapes.values().stream()
+                .map(Shape::snapshot)
+                .sorted(Comparator.comparingDouble(order.key).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Executable samples of the costliest shapes, for tools that replay or EXPLAIN them
+     * @param limit
+     * @return shapes by total time, each with the first SQL text and bind values seen
+     */
+    public List<WorkloadQuery> workload(int limit) {
+        return shapes.values().stream()
+                .filter(shape -> shape.sample != null && !shape.sql.equals(OTHER))
+                .map(shape -> {
+                    QueryStats stats = shape.snapshot();
+                    return new WorkloadQuery(shape.sql, (String) shape.sample[0], (Object[]) shape.sample[1],
+                            stats.getCount(), stats.getTotalMs());
+                })
+                .sorted(Comparator.comparingDouble(WorkloadQuery::getTotalMs).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public void reset() {
+        shapes.clear();
+    }
+
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !isQueryLog(f.getClassName())
+                        && !f.getClassName().contains("$$"))
+                .findFirst()
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName())
+                .orElse("?"));
+    }
+
+    private static boolean isQueryLog(String className) {
+        String outer = className.contains("$") ? className.substring(0, className.indexOf('$')) : className;
+        return outer.equals(QueryLog.class.getName()) || outer.equals(QueryLogDataSource.class.getName());
+    }
+
+    private static String format(Object[] parameters) {
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < parameters.length; i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            Object value = parameters[i];
+            if (value instanceof byte[] bytes) {
+                out.append('<').append(bytes.length).append(" bytes>");
+            } else if (value instanceof InputStream || value instanceof Reader) {
+                out.append("<stream>");
+            } else {
+                String text = String.valueOf(value);
+                out.append(text.length() > MAX_PARAMETER_CHARS ? text.substring(0, MAX_PARAMETER_CHARS) + "..." : text);
+            }
+        }
+        return out.append(']').toString();
+    }
+
+    /**
+     * Counters of one SQL shape
+     */
+    public static final class Shape {
+
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private volatile String lastSlowCaller;
+        // { raw sql, bind values } of the first successful execution
+        private volatile Object[] sample;
+
+        Shape(String sql) {
+            this.sql = sql;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void addRows(long read) {
+            rows.add(read);
+        }
+
+        void add(long nanos, long updated, boolean failed) {
+            count.increment();
+            if (failed) {
+                errors.increment();
+            }
+            if (updated > 0) {
+                rows.add(updated);
+            }
+            totalNanos.add(nanos);
+            if (nanos > maxNanos.get()) {
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+            long micros = nanos / 1000;
+            int bucket = micros == 0 ? 0 : 63 - Long.numberOfLeadingZeros(micros);
+            buckets[Math.min(bucket, BUCKETS - 1)].increment();
+        }
+
+        QueryStats snapshot() {
+            long[] counts = new long[BUCKETS];
+            long histogramTotal = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                histogramTotal += counts[i];
+            }
+            long n = count.sum();
+            double total = totalNanos.sum() / 1e6;
+            double max = maxNanos.get() / 1e6;
+            return new QueryStats(sql, n, errors.sum(), rows.sum(), total, n == 0 ? 0 : total / n, max,
+                    percentile(counts, histogramTotal, 0.50, max), percentile(counts, histogramTotal, 0.95, max),
+                    percentile(counts, histogramTotal, 0.99, max), lastSlowCaller);
+        }
+
+        private static double percentile(long[] counts, long total, double quantile, double maxMs) {
+            long rank = (long) Math.ceil(total * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min((1L << (i + 1)) / 1000.0, maxMs);
+                }
+            }
+            return maxMs;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.tecsup.petclinic.querylog;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Times every statement executed through the wrapped pool and reports it to
+ * QueryLog.
+ *
+ * Connections, statements and result sets are JDK proxies over the pool's
+ * own objects: statements keep their SQL and bind values, execute* calls are
+ * timed, and result sets count rows as next() advances. Everything else is
+ * passed straight through. Being a DelegatingDataSource, the pool is still
+ * found by Boot's pool metrics and health checks.
+ */
+public class QueryLogDataSource extends DelegatingDataSource {
+
+    private final Supplier<QueryLog> queryLogSupplier;
+    private volatile QueryLog queryLog;
+
+    /**
+     *
+     * @param target pool to wrap
+     * @param queryLog resolved on first use, the pool is created before the meter registry
+     */
+    public QueryLogDataSource(DataSource target, Supplier<QueryLog> queryLog) {
+        super(target);
+        this.queryLogSupplier = queryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        QueryLog log = queryLog;
+        if (log == null) {
+            log = queryLog = queryLogSupplier.get();
+        }
+        ConnectionHandler handler = new ConnectionHandler(connection, log);
+        handler.proxy = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, handler);
+        return handler.proxy;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * equals/hashCode by proxy identity, so pools and holders can compare what they handed out
+     */
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> null;
+        };
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final QueryLog log;
+        private Connection proxy;
+
+        ConnectionHandler(Connection target, QueryLog log) {
+            this.target = target;
+            this.log = log;
+        }
+
+        @Override
+        public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+            Object same = identity(self, method, args);
+            if (same != null) {
+                return same;
+            }
+            Object result = QueryLogDataSource.invoke(target, method, args);
+            Class<?> type = method.getReturnType();
+            if (type == Statement.class || type == PreparedStatement.class || type == CallableStatement.class) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                return Proxy.newProxyInstance(QueryLogDataSource.class.getClassLoader(), new Class<?>[] { type },
+                        new StatementHandler((Statement) result, sql, proxy, log));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private static final Object[] NO_PARAMETERS = new Object[0];
+
+        private final Statement target;
+        private final String preparedSql;
+        private final Connection connection;
+        private final QueryLog log;
+        private Object[] parameters = NO_PARAMETERS;
+        private int parameterCount;
+        private String batchSql;
+        private QueryLog.Shape lastShape;
+
+        StatementHandler(Statement target, String preparedSql, Connection connection, QueryLog log) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.connection = connection;
+            this.log = log;
+        }
+
+        @Override
+        public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(self, method, args, name);
+            }
+            if (name.startsWith("set") && preparedSql != null && args != null && args.length >= 2
+                    && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameterCount = 0;
+            } else if (name.equals("addBatch") && args != null && batchSql == null) {
+                batchSql = (String) args[0];
+            } else if (name.equals("getResultSet")) {
+                ResultSet resultSet = (ResultSet) QueryLogDataSource.invoke(target, method, args);
+                return resultSet == null || lastShape == null ? resultSet : wrap(self, resultSet, lastShape);
+            } else if (name.equals("getConnection")) {
+                return connection;
+            } else {
+                Object same = identity(self, method, args);
+                if (same != null) {
+                    return same;
+                }
+            }
+            return QueryLogDataSource.invoke(target, method, args);
+        }
+
+        private Object execute(Object self, Method method, Object[] args, String name) throws Throwable {
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text
+                    : preparedSql != null ? preparedSql : batchSql;
+            Object[] bound = preparedSql != null ? Arrays.copyOf(parameters, parameterCount) : null;
+
+            long started = System.nanoTime();
+            Object result;
+            try {
+                result = QueryLogDataSource.invoke(target, method, args);
+            } catch (Throwable e) {
+                if (sql != null) {
+                    log.record(sql, bound, System.nanoTime() - started, -1, true);
+                }
+                throw e;
+            }
+            long nanos = System.nanoTime() - started;
+            if (sql == null) {
+                return result;
+            }
+
+            lastShape = log.record(sql, bound, nanos, rows(result), false);
+            if (name.endsWith("Batch")) {
+                batchSql = null;
+            }
+            return result instanceof ResultSet resultSet ? wrap(self, resultSet, lastShape) : result;
+        }
+
+        private static long rows(Object result) {
+            if (result instanceof Integer count) {
+                return count;
+            }
+            if (result instanceof Long count) {
+                return count;
+            }
+            if (result instanceof int[] counts) {
+                // Drivers report SUCCESS_NO_INFO (-2) for rows they did not count
+                return Arrays.stream(counts).filter(c -> c > 0).asLongStream().sum();
+            }
+            if (result instanceof long[] counts) {
+                return Arrays.stream(counts).filter(c -> c > 0).sum();
+            }
+            return -1;
+        }
+
+        private void bind(int index, Object value) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private static ResultSet wrap(Object statement, ResultSet resultSet, QueryLog.Shape shape) {
+            return (ResultSet) Proxy.newProxyInstance(QueryLogDataSource.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, new ResultSetHandler(resultSet, (Statement) statement, shape));
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final Statement statement;
+        private final QueryLog.Shape shape;
+
+        ResultSetHandler(ResultSet target, Statement statement, QueryLog.Shape shape) {
+            this.target = target;
+            this.statement = statement;
+            this.shape = shape;
+        }
+
+        @Override
+        public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next" -> {
+                    Object more = QueryLogDataSource.invoke(target, method, args);
+                    if ((Boolean) more) {
+                        shape.addRows(1);
+                    }
+                    return more;
+                }
+                case "getStatement" -> {
+                    return statement;
+                }
+                case "equals", "hashCode" -> {
+                    return identity(self, method, args);
+                }
+                default -> {
+                    return QueryLogDataSource.invoke(target, method, args);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.tecsup.petclinic.querylog;
+
+import lombok.Value;
+
+/**
+ * Point-in-time stats of one SQL shape.
+ *
+ * Percentiles come from log2 latency buckets: each is the upper bound of
+ * its bucket (capped at max), so it is at most twice the real value.
+ */
+@Value
+public class QueryStats {
+
+    String sql;
+    long count;
+    long errors;
+    long rows;
+    double totalMs;
+    double meanMs;
+    double maxMs;
+    double p50Ms;
+    double p95Ms;
+    double p99Ms;
+    /** last service method seen running a slow execution of this shape */
+    String lastSlowCaller;
+}
@@ -0,0 +1,86 @@
+package com.tecsup.petclinic.querylog;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces a SQL string to its shape: literals become ?, whitespace is
+ * collapsed, and IN lists or multi-row VALUES of any length collapse to one
+ * entry, so statements that differ only in values or list arity share stats.
+ *
+ * Prepared statements repeat the same text, so results are cached by the raw
+ * SQL up to a fixed number of entries.
+ */
+public class SqlNormalizer {
+
+    private static final int MAX_CACHED = 10_000;
+
+    private static final String PARAMS = "\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)";
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*" + PARAMS);
+    private static final Pattern VALUES_ROWS = Pattern.compile("(" + PARAMS + ")(?:\\s*,\\s*" + PARAMS + ")+");
+
+    private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+    public String normalize(String sql) {
+        String shape = cache.get(sql);
+        if (shape == null) {
+            shape = compute(sql);
+            if (cache.size() < MAX_CACHED) {
+                cache.put(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+    static String compute(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int i = 0;
+        int n = sql.length();
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                // String literal, '' is an escaped quote
+                i++;
+                while (i < n) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < n && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                out.append('?');
+            } else if (Character.isDigit(c) && !identifierPart(out)) {
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < n && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (!out.isEmpty()) {
+                    out.append(' ');
+                }
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        String shape = out.toString().strip();
+        shape = IN_LIST.matcher(shape).replaceAll("in (...)");
+        return VALUES_ROWS.matcher(shape).replaceAll("$1, ...");
+    }
+
+    private static boolean identifierPart(StringBuilder out) {
+        if (out.isEmpty()) {
+            return false;
+        }
+        char last = out.charAt(out.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+}
@@ -0,0 +1,18 @@
+package com.tecsup.petclinic.querylog;
+
+import lombok.Value;
+
+/**
+ * One SQL shape of the recorded workload with a concrete execution of it
+ */
+@Value
+public class WorkloadQuery {
+
+    String shape;
+    /** raw text of one execution, with its own IN list arity */
+    String sql;
+    /** bind values of that execution, null for plain statements */
+    Object[] parameters;
+    long count;
+    double totalMs;
+}
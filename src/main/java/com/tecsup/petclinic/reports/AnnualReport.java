@@ -0,0 +1,96 @@
+package com.tecsup.petclinic.reports;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates of one year: visits per vet per month, revenue per vet and the
+ * pet cohorts by type and birth year.
+ *
+ * Each fork-join leaf fills its own instance for one id range; merge adds
+ * one partial into another, so the order in which ranges finish does not
+ * matter. Vet and type id 0 stand for "none" (visit without vet), birth
+ * year 0 for an unknown birth date.
+ */
+public class AnnualReport {
+
+    private final int year;
+
+    private final Map<Integer, long[]> visitsByVetMonth = new TreeMap<>();
+    private final Map<Integer, BigDecimal> revenueByVet = new TreeMap<>();
+    private final Map<Integer, Map<Integer, Long>> petsByTypeAndBirthYear = new TreeMap<>();
+
+    public AnnualReport(int year) {
+        this.year = year;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     *
+     * @param vetId
+     * @param month 1 to 12
+     * @param visits
+     * @param revenue
+     */
+    public void addVisits(int vetId, int month, long visits, BigDecimal revenue) {
+        visitsByVetMonth.computeIfAbsent(vetId, id -> new long[12])[month - 1] += visits;
+        if (revenue != null) {
+            revenueByVet.merge(vetId, revenue, BigDecimal::add);
+        }
+    }
+
+    public void addPets(int typeId, int birthYear, long pets) {
+        petsByTypeAndBirthYear.computeIfAbsent(typeId, id -> new TreeMap<>()).merge(birthYear, pets, Long::sum);
+    }
+
+    /**
+     * Add another partial into this one
+     * @param other
+     * @return this
+     */
+    public AnnualReport merge(AnnualReport other) {
+        other.visitsByVetMonth.forEach((vetId, months) -> {
+            for (int month = 1; month <= 12; month++) {
+                if (months[month - 1] != 0) {
+                    addVisits(vetId, month, months[month - 1], null);
+                }
+            }
+        });
+        other.revenueByVet.forEach((vetId, revenue) -> revenueByVet.merge(vetId, revenue, BigDecimal::add));
+        other.petsByTypeAndBirthYear.forEach((typeId, years) ->
+                years.forEach((birthYear, pets) -> addPets(typeId, birthYear, pets)));
+        return this;
+    }
+
+    /**
+     *
+     * @return vet id -> visits per month (index 0 is January)
+     */
+    public Map<Integer, long[]> getVisitsByVetMonth() {
+        return visitsByVetMonth;
+    }
+
+    public Map<Integer, BigDecimal> getRevenueByVet() {
+        return revenueByVet;
+    }
+
+    public Map<Integer, Map<Integer, Long>> getPetsByTypeAndBirthYear() {
+        return petsByTypeAndBirthYear;
+    }
+
+    /**
+     * Revenue attributed to each vet's primary specialty
+     * @param primarySpecialtyByVet
+     * @return specialty id (0 when the vet has no primary specialty) -> revenue
+     */
+    public Map<Integer, BigDecimal> revenueBySpecialty(Map<Integer, Integer> primarySpecialtyByVet) {
+        Map<Integer, BigDecimal> result = new TreeMap<>();
+        revenueByVet.forEach((vetId, revenue) ->
+                result.merge(primarySpecialtyByVet.getOrDefault(vetId, 0), revenue, BigDecimal::add));
+        return result;
+    }
+}
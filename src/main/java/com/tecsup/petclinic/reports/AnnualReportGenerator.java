@@ -0,0 +1,205 @@
+package com.tecsup.petclinic.reports;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.archive.VisitArchiver;
+import com.tecsup.petclinic.dictionary.PetTypeDictionary;
+import com.tecsup.petclinic.dictionary.PetTypeEntry;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Year-end report over visits and pets, computed in parallel.
+ *
+ * The id ranges of visits (plus visits_archive when the year is older than
+ * the archive boundary) and pets are split by KeyRangeTask on a dedicated
+ * fork-join pool. Every leaf runs one GROUP BY over its range in a read-only
+ * transaction, so it holds its own connection only for that query; the
+ * partial aggregates are merged in memory. Keep petclinic.reports.parallelism
+ * below the connection pool size or leaves will queue for connections.
+ */
+@Component
+@Slf4j
+public class AnnualReportGenerator {
+
+    private static final String VISIT_ROWS =
+            "SELECT vet_id, visit_date, cost FROM %s WHERE id >= ? AND id < ? AND visit_date >= ? AND visit_date < ?";
+    private static final String VISIT_AGGREGATE =
+            "SELECT COALESCE(vet_id, 0), MONTH(visit_date), COUNT(*), SUM(cost) FROM (%s) v "
+            + "GROUP BY COALESCE(vet_id, 0), MONTH(visit_date)";
+    private static final String PET_AGGREGATE =
+            "SELECT type_id, COALESCE(YEAR(birth_date), 0), COUNT(*) FROM pets WHERE id >= ? AND id < ? "
+            + "GROUP BY type_id, COALESCE(YEAR(birth_date), 0)";
+
+    // Default Hikari pool is 10 connections
+    private static final int DEFAULT_MAX_PARALLELISM = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final VisitArchiver visitArchiver;
+    private final PetTypeDictionary petTypes;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+
+    public AnnualReportGenerator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 VisitArchiver visitArchiver, PetTypeDictionary petTypes,
+                                 @Value("${petclinic.reports.parallelism:0}") int parallelism,
+                                 @Value("${petclinic.reports.chunk-size:50000}") long chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.visitArchiver = visitArchiver;
+        this.petTypes = petTypes;
+        this.chunkSize = chunkSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism
+                : Math.min(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_PARALLELISM));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     *
+     * @param year
+     * @return the merged aggregates of the year
+     */
+    public AnnualReport generate(int year) {
+        long started = System.nanoTime();
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = from.plusYears(1);
+
+        LocalDate boundary = visitArchiver.getBoundary();
+        boolean archived = boundary != null && from.isBefore(boundary);
+        String visitRows = String.format(VISIT_ROWS, "visits")
+                + (archived ? " UNION ALL " + String.format(VISIT_ROWS, "visits_archive") : "");
+        String visitSql = String.format(VISIT_AGGREGATE, visitRows);
+
+        long[] visitIds = idRange("visits");
+        if (archived) {
+            long[] archiveIds = idRange("visits_archive");
+            visitIds = new long[] { Math.min(visitIds[0], archiveIds[0]), Math.max(visitIds[1], archiveIds[1]) };
+        }
+        long[] petIds = idRange("pets");
+
+        ForkJoinTask<AnnualReport> visits = pool.submit(new KeyRangeTask(visitIds[0], visitIds[1], chunkSize,
+                (start, end) -> visitLeaf(year, visitSql, archived, start, end, from, to)));
+        ForkJoinTask<AnnualReport> pets = pool.submit(new KeyRangeTask(petIds[0], petIds[1], chunkSize,
+                (start, end) -> petLeaf(year, start, end)));
+        AnnualReport report = visits.join().merge(pets.join());
+
+        log.info("Annual report {} computed in {} ms on {} threads", year,
+                (System.nanoTime() - started) / 1_000_000, pool.getParallelism());
+        return report;
+    }
+
+    /**
+     * Stream the report as CSV, one section per aggregate
+     * @param report
+     * @param out
+     * @throws IOException
+     */
+    public void write(AnnualReport report, Writer out) throws IOException {
+        Map<Integer, String> vets = names("SELECT id, CONCAT(first_name, ' ', last_name) FROM vets");
+        Map<Integer, String> specialties = names("SELECT id, name FROM specialties");
+        Map<Integer, Integer> primarySpecialty = new HashMap<>();
+        jdbcTemplate.query("SELECT vet_id, specialty_id FROM vet_specialties WHERE is_primary = TRUE",
+                rs -> {
+                    primarySpecialty.put(rs.getInt(1), rs.getInt(2));
+                });
+
+        out.write("# Annual report " + report.getYear() + "\n");
+
+        out.write("\n# Visits per vet per month\nvet_id,vet,month,visits\n");
+        for (Map.Entry<Integer, long[]> entry : report.getVisitsByVetMonth().entrySet()) {
+            for (int month = 1; month <= 12; month++) {
+                long visits = entry.getValue()[month - 1];
+                if (visits > 0) {
+                    out.write(entry.getKey() + "," + csv(vets.getOrDefault(entry.getKey(), "none")) + ","
+                            + month + "," + visits + "\n");
+                }
+            }
+        }
+
+        out.write("\n# Revenue per primary specialty\nspecialty_id,specialty,revenue\n");
+        for (Map.Entry<Integer, BigDecimal> entry : report.revenueBySpecialty(primarySpecialty).entrySet()) {
+            out.write(entry.getKey() + "," + csv(specialties.getOrDefault(entry.getKey(), "none")) + ","
+                    + entry.getValue().toPlainString() + "\n");
+        }
+
+        out.write("\n# Pets by type and birth year\ntype_id,type,birth_year,pets\n");
+        for (Map.Entry<Integer, Map<Integer, Long>> entry : report.getPetsByTypeAndBirthYear().entrySet()) {
+            String type = petTypes.find(entry.getKey()).map(PetTypeEntry::getName).orElse("unknown");
+            for (Map.Entry<Integer, Long> cohort : entry.getValue().entrySet()) {
+                out.write(entry.getKey() + "," + csv(type) + ","
+                        + (cohort.getKey() == 0 ? "unknown" : cohort.getKey()) + "," + cohort.getValue() + "\n");
+            }
+        }
+        out.flush();
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private AnnualReport visitLeaf(int year, String sql, boolean archived, long start, long end,
+                                   LocalDate from, LocalDate to) {
+        Object[] range = { start, end, Date.valueOf(from), Date.valueOf(to) };
+        Object[] args = archived ? new Object[] { start, end, Date.valueOf(from), Date.valueOf(to),
+                start, end, Date.valueOf(from), Date.valueOf(to) } : range;
+        AnnualReport partial = new AnnualReport(year);
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(sql, rs -> {
+            partial.addVisits(rs.getInt(1), rs.getInt(2), rs.getLong(3), rs.getBigDecimal(4));
+        }, args));
+        return partial;
+    }
+
+    private AnnualReport petLeaf(int year, long start, long end) {
+        AnnualReport partial = new AnnualReport(year);
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(PET_AGGREGATE, rs -> {
+            partial.addPets(rs.getInt(1), rs.getInt(2), rs.getLong(3));
+        }, start, end));
+        return partial;
+    }
+
+    /**
+     *
+     * @param table
+     * @return [min id, max id + 1), or [0, 0) for an empty table
+     */
+    private long[] idRange(String table) {
+        return jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id) FROM " + table, (rs, i) -> {
+            long min = rs.getLong(1);
+            return rs.wasNull() ? new long[] { 0, 0 } : new long[] { min, rs.getLong(2) + 1 };
+        });
+    }
+
+    private Map<Integer, String> names(String sql) {
+        Map<Integer, String> names = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            names.put(rs.getInt(1), rs.getString(2));
+        });
+        return names;
+    }
+
+    private static String csv(String value) {
+        return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+}
@@ -0,0 +1,39 @@
+package com.tecsup.petclinic.reports;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiFunction;
+
+/**
+ * Splits the id range [from, to) in halves until it is at most chunkSize
+ * wide, aggregates each leaf with its own query and merges the partials on
+ * the way back up.
+ */
+class KeyRangeTask extends RecursiveTask<AnnualReport> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long from;
+    private final long to;
+    private final long chunkSize;
+    private final transient BiFunction<Long, Long, AnnualReport> leaf;
+
+    KeyRangeTask(long from, long to, long chunkSize, BiFunction<Long, Long, AnnualReport> leaf) {
+        this.from = from;
+        this.to = to;
+        this.chunkSize = chunkSize;
+        this.leaf = leaf;
+    }
+
+    @Override
+    protected AnnualReport compute() {
+        if (to - from <= chunkSize) {
+            return leaf.apply(from, to);
+        }
+        long middle = from + (to - from) / 2;
+        KeyRangeTask left = new KeyRangeTask(from, middle, chunkSize, leaf);
+        KeyRangeTask right = new KeyRangeTask(middle, to, chunkSize, leaf);
+        left.fork();
+        AnnualReport result = right.compute();
+        return result.merge(left.join());
+    }
+}
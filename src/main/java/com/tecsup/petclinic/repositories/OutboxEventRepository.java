@@ -0,0 +1,36 @@
+package com.tecsup.petclinic.repositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+
+import com.tecsup.petclinic.entities.OutboxEvent;
+
+/**
+ * Repositorio para el outbox de eventos de cambio
+ */
+@Repository
+@RepositoryRestResource(exported = false)
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Eventos aún no publicados, en orden de escritura
+    List<OutboxEvent> findByPublishedAtIsNullOrderByIdAsc(Pageable pageable);
+
+    // Eventos a partir de un offset (para replay)
+    List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(Long offset, Pageable pageable);
+
+    @Modifying
+    @Query("update outbox_events e set e.publishedAt = :publishedAt where e.id in :ids")
+    int markPublished(@Param("ids") List<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("delete from outbox_events e where e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+}
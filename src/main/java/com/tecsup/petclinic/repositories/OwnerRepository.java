@@ -3,6 +3,7 @@ package com.tecsup.petclinic.repositories;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 import com.tecsup.petclinic.entities.Owner;
@@ -11,7 +12,7 @@ import com.tecsup.petclinic.entities.Owner;
  * Repositorio para Owner
  */
 @Repository
-public interface OwnerRepository extends JpaRepository<Owner, Integer> {
+public interface OwnerRepository extends JpaRepository<Owner, Integer>, JpaSpecificationExecutor<Owner> {
 
     // Buscar owners por apellido
     List<Owner> findByLastName(String lastName);
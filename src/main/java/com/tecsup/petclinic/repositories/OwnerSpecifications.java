@@ -0,0 +1,66 @@
+package com.tecsup.petclinic.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.tecsup.petclinic.dtos.OwnerSearchCriteria;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Pet;
+
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+/**
+ * Predicados dinámicos para buscar owners.
+ *
+ * Todos los filtros son de igualdad para que el motor pueda usar los índices
+ * idx_owners_city_last_name, idx_owners_last_name, idx_owners_telephone y
+ * idx_pets_owner_type.
+ */
+public final class OwnerSpecifications {
+
+    private OwnerSpecifications() {
+    }
+
+    /**
+     * Construye un único predicado con los criterios informados
+     * @param criteria
+     * @return specification
+     */
+    public static Specification<Owner> matching(OwnerSearchCriteria criteria) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (hasText(criteria.getCity())) {
+                predicates.add(cb.equal(root.get("city"), criteria.getCity()));
+            }
+            if (hasText(criteria.getLastName())) {
+                predicates.add(cb.equal(root.get("lastName"), criteria.getLastName()));
+            }
+            if (hasText(criteria.getFirstName())) {
+                predicates.add(cb.equal(root.get("firstName"), criteria.getFirstName()));
+            }
+            if (hasText(criteria.getTelephone())) {
+                predicates.add(cb.equal(root.get("telephone"), criteria.getTelephone()));
+            }
+            if (criteria.getPetTypeId() != null) {
+                // EXISTS en lugar de JOIN para no duplicar owners con varias mascotas del mismo tipo
+                Subquery<Integer> pets = query.subquery(Integer.class);
+                Root<Pet> pet = pets.from(Pet.class);
+                pets.select(pet.get("id"))
+                        .where(cb.equal(pet.get("ownerId"), root.get("id")),
+                                cb.equal(pet.get("typeId"), criteria.getPetTypeId()));
+                predicates.add(cb.exists(pets));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
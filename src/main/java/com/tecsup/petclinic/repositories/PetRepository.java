@@ -1,11 +1,14 @@
 package com.tecsup.petclinic.repositories;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import com.tecsup.petclinic.dtos.PetCountedRow;
 import com.tecsup.petclinic.entities.Pet;
 
 /**
@@ -26,7 +29,14 @@ public interface PetRepository
 	// Fetch pets by ownerId
 	List<Pet> findByOwnerId(int ownerId);
 
+	// Fetch the pets of several owners in one IN query
+	List<Pet> findByOwnerIdIn(Collection<Integer> ownerIds);
+
 	@Override
 	List<Pet> findAll();
 
+	// Counted columns of every pet in a single statement, so all counters come from one snapshot
+	@Query("select p.id as id, p.typeId as typeId, p.ownerId as ownerId, year(p.birthDate) as birthYear from pets p")
+	List<PetCountedRow> findCountedRows();
+
 }
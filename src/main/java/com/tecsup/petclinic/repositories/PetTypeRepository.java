@@ -0,0 +1,15 @@
+package com.tecsup.petclinic.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+
+import com.tecsup.petclinic.entities.PetType;
+
+/**
+ * Repositorio para los tipos de mascota, expuesto en /api/types
+ */
+@Repository
+@RepositoryRestResource(path = "types")
+public interface PetTypeRepository extends JpaRepository<PetType, Integer> {
+}
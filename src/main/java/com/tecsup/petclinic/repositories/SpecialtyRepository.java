@@ -0,0 +1,18 @@
+package com.tecsup.petclinic.repositories;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.tecsup.petclinic.entities.Specialty;
+
+/**
+ * Repositorio para Specialty
+ */
+@Repository
+public interface SpecialtyRepository extends JpaRepository<Specialty, Integer> {
+
+    // Buscar especialidad por nombre
+    Optional<Specialty> findByName(String name);
+}
@@ -0,0 +1,26 @@
+package com.tecsup.petclinic.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tecsup.petclinic.entities.Vet;
+
+/**
+ * Repositorio para Vet
+ */
+@Repository
+public interface VetRepository extends JpaRepository<Vet, Integer> {
+
+    // Buscar veterinarios por apellido
+    List<Vet> findByLastName(String lastName);
+
+    // Veterinarios que atendieron alguna mascota del owner, también en visitas archivadas
+    @Query(value = "SELECT * FROM vets WHERE id IN (SELECT vet_id FROM visits WHERE pet_id IN "
+            + "(SELECT id FROM pets WHERE owner_id = :ownerId) UNION SELECT vet_id FROM visits_archive WHERE pet_id IN "
+            + "(SELECT id FROM pets WHERE owner_id = :ownerId)) ORDER BY id", nativeQuery = true)
+    List<Vet> findSeenByOwnerId(@Param("ownerId") int ownerId);
+}
@@ -0,0 +1,20 @@
+package com.tecsup.petclinic.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+
+import com.tecsup.petclinic.entities.VetSpecialty;
+
+/**
+ * Repositorio para la relación vet-specialty (clave compuesta, no se expone por REST)
+ */
+@Repository
+@RepositoryRestResource(exported = false)
+public interface VetSpecialtyRepository extends JpaRepository<VetSpecialty, VetSpecialty.Key> {
+
+    // Especialidades de un veterinario
+    List<VetSpecialty> findByVetId(Integer vetId);
+}
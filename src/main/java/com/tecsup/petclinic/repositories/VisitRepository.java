@@ -0,0 +1,29 @@
+package com.tecsup.petclinic.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.tecsup.petclinic.entities.Visit;
+
+/**
+ * Repositorio para Visit
+ */
+@Repository
+public interface VisitRepository extends JpaRepository<Visit, Integer> {
+
+    // Buscar visitas por mascota
+    List<Visit> findByPetId(int petId);
+
+    // Visitas de varias mascotas en una sola consulta IN
+    List<Visit> findByPetIdInOrderByVisitDateAsc(Collection<Integer> petIds);
+
+    // Visitas de todas las mascotas de un owner, sin leer antes las mascotas
+    @Query("SELECT v FROM visits v WHERE v.petId IN (SELECT p.id FROM pets p WHERE p.ownerId = :ownerId) "
+            + "ORDER BY v.visitDate")
+    List<Visit> findByPetOwnerId(@Param("ownerId") int ownerId);
+}
@@ -0,0 +1,88 @@
+package com.tecsup.petclinic.seed;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RFC 4180 reader for fixture files: comma separated, fields optionally
+ * enclosed in double quotes, a quote inside a quoted field doubled. An
+ * empty field is NULL, as for H2's CSVREAD and the NULLIF of the MySQL
+ * load.
+ */
+final class CsvReader implements Closeable {
+
+    private final BufferedReader reader;
+
+    CsvReader(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     *
+     * @return the fields of the next record, null at the end of the file
+     * @throws IOException
+     */
+    List<String> next() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.isEmpty()) {
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // Line break inside a quoted field
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("Unterminated quoted field: " + field);
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(value(field));
+                field.setLength(0);
+            } else if (c != '\r' || i < line.length()) {
+                field.append(c);
+            }
+        }
+        fields.add(value(field));
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static String value(StringBuilder field) {
+        return field.length() == 0 ? null : field.toString();
+    }
+}
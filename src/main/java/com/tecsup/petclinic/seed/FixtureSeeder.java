@@ -0,0 +1,340 @@
+package com.tecsup.petclinic.seed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the schema and loads the CSV fixtures at startup, in place of
+ * Spring's script initializer (schema.sql plus a data.sql of INSERTs,
+ * parsed and executed statement by statement on every start).
+ *
+ * Each fixture is loaded with one statement on the engine's bulk path:
+ * INSERT ... SELECT FROM CSVREAD on H2, LOAD DATA LOCAL INFILE on MySQL
+ * (allowLoadLocalInfile=true on the connection). When the bulk path is
+ * refused, or petclinic.seed.bulk is off, rows go in as JDBC batches.
+ *
+ * A SHA-256 of the schema script and the fixtures is kept in seed_state:
+ * while it matches, a restart against the same database (a file or
+ * DB_CLOSE_DELAY=-1 H2 database, another test context) skips the seeding.
+ * That database keeps whatever earlier runs wrote to it: test contexts
+ * sharing the in-memory testdb no longer each start from fresh fixtures,
+ * and a file database never resets. Set petclinic.seed.force for a clean
+ * copy on every start.
+ *
+ * Registered as a database initializer (see FixtureSeederDetector), so
+ * beans marked @DependsOnDatabaseInitialization wait for it.
+ */
+@Component
+@Slf4j
+public class FixtureSeeder implements InitializingBean {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final String STATE = "fixtures";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ResourceLoader resourceLoader;
+    private final boolean enabled;
+    private final String schema;
+    private final String location;
+    private final List<String> tables;
+    private final boolean force;
+    private final boolean bulk;
+    private final int batchSize;
+    private final boolean mysql;
+
+    public FixtureSeeder(DataSource dataSource, ResourceLoader resourceLoader,
+                         @Value("${petclinic.seed.enabled:true}") boolean enabled,
+                         @Value("${petclinic.seed.schema:classpath:schema.sql}") String schema,
+                         @Value("${petclinic.seed.location:classpath:fixtures/}") String location,
+                         @Value("${petclinic.seed.tables:vets,specialties,vet_specialties,types,owners,pets,visits}")
+                         List<String> tables,
+                         @Value("${petclinic.seed.force:false}") boolean force,
+                         @Value("${petclinic.seed.bulk:true}") boolean bulk,
+                         @Value("${petclinic.seed.batch-size:1000}") int batchSize) {
+        // Not the shared JdbcTemplate bean: it is only created once database initializers such as this one ran
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.resourceLoader = resourceLoader;
+        this.enabled = enabled;
+        this.schema = schema;
+        this.location = location;
+        this.tables = tables.stream().map(String::trim).map(FixtureSeeder::identifier).toList();
+        this.force = force;
+        this.bulk = bulk;
+        this.batchSize = batchSize;
+        this.mysql = enabled && jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).matches(".*(mysql|mariadb).*"));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (enabled) {
+            seed();
+        }
+    }
+
+    /**
+     * Recreates the schema and loads every fixture, unless the stored
+     * checksum matches and force is off
+     *
+     * @return rows loaded, -1 when skipped
+     */
+    public long seed() {
+        long started = System.nanoTime();
+        String checksum = checksum();
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS seed_state (name VARCHAR(40) NOT NULL, "
+                + "checksum CHAR(64) NOT NULL, seeded_at TIMESTAMP NOT NULL, PRIMARY KEY (name))");
+        List<String> stored = jdbcTemplate.queryForList("SELECT checksum FROM seed_state WHERE name = ?",
+                String.class, STATE);
+        if (!force && stored.contains(checksum)) {
+            log.info("Fixtures unchanged (checksum {}), seeding skipped", checksum.substring(0, 12));
+            return -1;
+        }
+
+        new ResourceDatabasePopulator(resourceLoader.getResource(schema)).execute(jdbcTemplate.getDataSource());
+        long rows = 0;
+        for (String table : tables) {
+            rows += load(table, resourceLoader.getResource(location + table + ".csv"), bulk);
+        }
+        // Written last: a seeding that fails half way is redone on the next start
+        jdbcTemplate.update("DELETE FROM seed_state WHERE name = ?", STATE);
+        jdbcTemplate.update("INSERT INTO seed_state (name, checksum, seeded_at) VALUES (?, ?, ?)", STATE, checksum,
+                Timestamp.valueOf(LocalDateTime.now()));
+        log.info("Seeded {} rows into {} tables in {} ms", rows, tables.size(),
+                (System.nanoTime() - started) / 1_000_000);
+        return rows;
+    }
+
+    /**
+     * Loads one fixture into an existing table, its header row naming the
+     * columns
+     *
+     * @param table
+     * @param fixture
+     * @param bulk false for JDBC batches straight away
+     * @return rows inserted
+     */
+    long load(String table, Resource fixture, boolean bulk) {
+        identifier(table);
+        List<String> columns = header(fixture);
+        if (bulk) {
+            try {
+                return mysql ? loadData(table, fixture, columns) : csvRead(table, fixture, columns);
+            } catch (DataAccessException e) {
+                log.warn("Bulk load of {} refused, loading it in JDBC batches: {}", table, e.getMessage());
+            }
+        }
+        return batches(table, fixture, columns);
+    }
+
+    private long csvRead(String table, Resource fixture, List<String> columns) {
+        String list = String.join(", ", columns);
+        return withFile(fixture, file -> jdbcTemplate.update("INSERT INTO " + table + " (" + list + ") SELECT "
+                + list + " FROM CSVREAD('" + file.replace("'", "''") + "', NULL, 'charset=UTF-8')"));
+    }
+
+    /**
+     * Fields go through user variables: an empty one becomes NULL and
+     * true/false become 1/0 in BOOLEAN (TINYINT) columns
+     */
+    private long loadData(String table, Resource fixture, List<String> columns) {
+        int[] types = columnTypes(table, columns);
+        String variables = IntStream.range(0, columns.size()).mapToObj(i -> "@c" + i)
+                .collect(Collectors.joining(", "));
+        String assignments = IntStream.range(0, columns.size())
+                .mapToObj(i -> columns.get(i) + " = " + (isBoolean(types[i])
+                        ? "CASE LOWER(@c" + i + ") WHEN 'true' THEN 1 WHEN 'false' THEN 0 ELSE NULLIF(@c" + i + ", '') END"
+                        : "NULLIF(@c" + i + ", '')"))
+                .collect(Collectors.joining(", "));
+        return withFile(fixture, file -> jdbcTemplate.update("LOAD DATA LOCAL INFILE '"
+                + file.replace("\\", "\\\\").replace("'", "''") + "' INTO TABLE " + table
+                + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''"
+                + " LINES TERMINATED BY '\\n' IGNORE 1 LINES (" + variables + ") SET " + assignments));
+    }
+
+    private long batches(String table, Resource fixture, List<String> columns) {
+        int[] types = columnTypes(table, columns);
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+        long rows = 0;
+        try (CsvReader reader = new CsvReader(fixture.getInputStream())) {
+            reader.next();
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            for (List<String> record = reader.next(); record != null; record = reader.next()) {
+                if (record.size() != columns.size()) {
+                    throw new IllegalStateException(fixture.getDescription() + ": " + record.size()
+                            + " fields after row " + rows + ", expected " + columns.size());
+                }
+                Object[] values = new Object[types.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = convert(record.get(i), types[i]);
+                }
+                batch.add(values);
+                if (batch.size() == batchSize) {
+                    jdbcTemplate.batchUpdate(sql, batch);
+                    rows += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                rows += batch.size();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + fixture.getDescription(), e);
+        }
+        return rows;
+    }
+
+    private int[] columnTypes(String table, List<String> columns) {
+        return jdbcTemplate.query("SELECT " + String.join(", ", columns) + " FROM " + table + " WHERE 1 = 0", rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            return IntStream.rangeClosed(1, columns.size()).map(i -> {
+                try {
+                    return metaData.getColumnType(i);
+                } catch (SQLException e) {
+                    return Types.VARCHAR;
+                }
+            }).toArray();
+        });
+    }
+
+    private static Object convert(String value, int type) {
+        if (value == null) {
+            return null;
+        }
+        switch (type) {
+            case Types.BOOLEAN, Types.BIT, Types.TINYINT -> {
+                return value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")
+                        ? Boolean.parseBoolean(value) : Integer.valueOf(value);
+            }
+            case Types.SMALLINT, Types.INTEGER -> {
+                return Integer.valueOf(value);
+            }
+            case Types.BIGINT -> {
+                return Long.valueOf(value);
+            }
+            case Types.DECIMAL, Types.NUMERIC -> {
+                return new BigDecimal(value);
+            }
+            case Types.REAL, Types.FLOAT, Types.DOUBLE -> {
+                return Double.valueOf(value);
+            }
+            case Types.DATE -> {
+                return java.sql.Date.valueOf(LocalDate.parse(value));
+            }
+            case Types.TIMESTAMP -> {
+                return Timestamp.valueOf(LocalDateTime.parse(value.replace(' ', 'T')));
+            }
+            default -> {
+                return value;
+            }
+        }
+    }
+
+    private static boolean isBoolean(int type) {
+        return type == Types.BOOLEAN || type == Types.BIT || type == Types.TINYINT;
+    }
+
+    private static List<String> header(Resource fixture) {
+        try (CsvReader reader = new CsvReader(fixture.getInputStream())) {
+            List<String> header = reader.next();
+            if (header == null) {
+                throw new IllegalStateException(fixture.getDescription() + " has no header row");
+            }
+            return header.stream().map(FixtureSeeder::identifier).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + fixture.getDescription(), e);
+        }
+    }
+
+    /**
+     * Table and column names are spliced into the SQL
+     */
+    private static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalStateException("Not a table or column name: " + name);
+        }
+        return name;
+    }
+
+    /**
+     * Both bulk paths read a file by name: a fixture packed in the jar is
+     * copied out first
+     */
+    private static long withFile(Resource fixture, ToLongFunction<String> load) {
+        try {
+            if (fixture.isFile()) {
+                return load.applyAsLong(fixture.getFile().getAbsolutePath());
+            }
+            Path copy = Files.createTempFile("fixture", ".csv");
+            try (InputStream in = fixture.getInputStream()) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+                return load.applyAsLong(copy.toAbsolutePath().toString());
+            } finally {
+                Files.deleteIfExists(copy);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + fixture.getDescription(), e);
+        }
+    }
+
+    private String checksum() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest(digest, resourceLoader.getResource(schema));
+            for (String table : tables) {
+                digest.update((table + '\n').getBytes(StandardCharsets.UTF_8));
+                digest(digest, resourceLoader.getResource(location + table + ".csv"));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void digest(MessageDigest digest, Resource resource) {
+        try (InputStream in = new DigestInputStream(resource.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + resource.getDescription(), e);
+        }
+    }
+}
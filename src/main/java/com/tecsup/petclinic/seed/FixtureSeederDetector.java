@@ -0,0 +1,18 @@
+package com.tecsup.petclinic.seed;
+
+import java.util.Set;
+
+import org.springframework.boot.sql.init.dependency.AbstractBeansOfTypeDatabaseInitializerDetector;
+
+/**
+ * Marks FixtureSeeder as a database initializer, so that beans annotated
+ * with @DependsOnDatabaseInitialization are created after the seeding.
+ * Registered in META-INF/spring.factories.
+ */
+class FixtureSeederDetector extends AbstractBeansOfTypeDatabaseInitializerDetector {
+
+    @Override
+    protected Set<Class<?>> getDatabaseInitializerBeanTypes() {
+        return Set.of(FixtureSeeder.class);
+    }
+}
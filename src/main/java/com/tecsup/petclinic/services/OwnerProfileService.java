@@ -0,0 +1,18 @@
+package com.tecsup.petclinic.services;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.tecsup.petclinic.dtos.OwnerProfileDTO;
+
+/**
+ * Interfaz para el perfil completo de un owner
+ */
+public interface OwnerProfileService {
+
+    /**
+     * Owner, mascotas, visitas y veterinarios leídos en paralelo
+     * @param ownerId
+     * @return el perfil; falla con OwnerNotFoundException si el owner no existe
+     */
+    CompletableFuture<OwnerProfileDTO> findProfile(Integer ownerId);
+}
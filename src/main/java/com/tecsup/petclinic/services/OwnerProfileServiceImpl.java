@@ -0,0 +1,176 @@
+package com.tecsup.petclinic.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.tecsup.petclinic.dtos.OwnerProfileDTO;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.limits.RequestTimeoutDataSource;
+import com.tecsup.petclinic.mappers.PetMapper;
+import com.tecsup.petclinic.repositories.VetRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Perfil de un owner armado con cuatro lecturas en paralelo.
+ *
+ * Owner, mascotas, visitas (también las archivadas en visits_archive) y
+ * veterinarios se piden todos por ownerId, así que ninguna lectura espera a
+ * otra y la latencia es la de la más lenta. Cada una
+ * corre en el pool acotado petclinic.profile.threads con su propia conexión
+ * y su propio timeout. Si el owner falla, falla el perfil; las demás partes
+ * vuelven vacías y se listan en unavailable. Los nombres de tipo salen del
+ * diccionario en memoria. Con el pool y su cola llenos la lectura se rechaza:
+ * sin owner falla el perfil, cualquier otra parte vuelve vacía en unavailable.
+ * Nunca corre en el hilo que llama, donde no tendría timeout.
+ *
+ * orTimeout solo deja de esperar la lectura: las sentencias de cada parte
+ * llevan además su timeout (redondeado a segundos) para que el hilo y la
+ * conexión se liberen poco después, ya que el del filtro se queda en el
+ * hilo de la petición.
+ */
+@Service
+@Slf4j
+public class OwnerProfileServiceImpl implements OwnerProfileService {
+
+    static final String PETS = "pets";
+    static final String VISITS = "visits";
+    static final String VETS = "vets";
+
+    private final OwnerService ownerService;
+    private final PetService petService;
+    private final PetMapper petMapper;
+    private final VisitHistoryService visitHistoryService;
+    private final VetRepository vetRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadPoolExecutor executor;
+    private final long ownerTimeoutMillis;
+    private final Map<String, Long> timeoutMillis;
+
+    public OwnerProfileServiceImpl(OwnerService ownerService, PetService petService, PetMapper petMapper,
+                                   VisitHistoryService visitHistoryService, VetRepository vetRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${petclinic.profile.threads:8}") int threads,
+                                   @Value("${petclinic.profile.queue-capacity:64}") int queueCapacity,
+                                   @Value("${petclinic.profile.owner-timeout-ms:1000}") long ownerTimeoutMillis,
+                                   @Value("${petclinic.profile.pets-timeout-ms:1000}") long petsTimeoutMillis,
+                                   @Value("${petclinic.profile.visits-timeout-ms:1500}") long visitsTimeoutMillis,
+                                   @Value("${petclinic.profile.vets-timeout-ms:1000}") long vetsTimeoutMillis) {
+        this.ownerService = ownerService;
+        this.petService = petService;
+        this.petMapper = petMapper;
+        this.visitHistoryService = visitHistoryService;
+        this.vetRepository = vetRepository;
+        this.meterRegistry = meterRegistry;
+        this.ownerTimeoutMillis = ownerTimeoutMillis;
+        this.timeoutMillis = Map.of(PETS, petsTimeoutMillis, VISITS, visitsTimeoutMillis, VETS, vetsTimeoutMillis);
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "owner-profile-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public CompletableFuture<OwnerProfileDTO> findProfile(Integer ownerId) {
+
+        List<String> unavailable = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<Owner> owner = submit(ownerTimeoutMillis, () -> {
+            try {
+                return ownerService.findById(ownerId);
+            } catch (OwnerNotFoundException e) {
+                throw new CompletionException(e);
+            }
+        }).orTimeout(ownerTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<List<PetDTO>> pets = branch(PETS, unavailable, () -> petService.findByOwnerId(ownerId)
+                .stream().map(petMapper::mapToDto).collect(Collectors.toList()));
+        CompletableFuture<List<Visit>> visits = branch(VISITS, unavailable,
+                () -> visitHistoryService.findOwnerVisits(ownerId));
+        CompletableFuture<List<Vet>> vets = branch(VETS, unavailable, () -> vetRepository.findSeenByOwnerId(ownerId));
+
+        return CompletableFuture.allOf(owner, pets, visits, vets).thenApply(done -> {
+            Map<Integer, List<Visit>> visitsByPet = visits.join().stream()
+                    .collect(Collectors.groupingBy(Visit::getPetId));
+            List<OwnerProfileDTO.PetProfile> petProfiles = pets.join().stream()
+                    .map(pet -> new OwnerProfileDTO.PetProfile(pet, visitsByPet.getOrDefault(pet.getId(), List.of())))
+                    .collect(Collectors.toList());
+
+            List<String> missing;
+            synchronized (unavailable) {
+                missing = unavailable.stream().sorted().collect(Collectors.toList());
+            }
+            return OwnerProfileDTO.builder()
+                    .owner(owner.join())
+                    .pets(petProfiles)
+                    .vets(vets.join())
+                    .unavailable(missing)
+                    .build();
+        });
+    }
+
+    /**
+     * Optional part of the profile: empty (and reported) on failure, timeout or rejection
+     */
+    private <T> CompletableFuture<List<T>> branch(String name, List<String> unavailable, Supplier<List<T>> read) {
+        long timeout = timeoutMillis.get(name);
+        return submit(timeout, read)
+                .orTimeout(timeout, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.warn("Owner profile without {}: {}", name, e.toString());
+                    meterRegistry.counter("petclinic.profile.unavailable", "branch", name).increment();
+                    unavailable.add(name);
+                    return List.of();
+                });
+    }
+
+    /**
+     * A read the saturated pool rejects fails its future instead of throwing
+     */
+    private <T> CompletableFuture<T> submit(long timeoutMillis, Supplier<T> read) {
+        int seconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis + 999));
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                RequestTimeoutDataSource.setQueryTimeout(seconds);
+                try {
+                    return read.get();
+                } finally {
+                    RequestTimeoutDataSource.clearQueryTimeout();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("petclinic.profile.rejected").increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -2,6 +2,12 @@ package com.tecsup.petclinic.services;
 
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import com.tecsup.petclinic.dtos.OwnerMergeDTO;
+import com.tecsup.petclinic.dtos.OwnerRegistrationDTO;
+import com.tecsup.petclinic.dtos.OwnerSearchCriteria;
 import com.tecsup.petclinic.entities.Owner;
 import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
 
@@ -17,6 +23,14 @@ public interface OwnerService {
      */
     Owner create(Owner owner);
 
+    /**
+     * Registrar un owner con sus mascotas en una sola transacción
+     * @param registration owner y mascotas sin ids
+     * @return el mismo grafo con los ids generados
+     * @throws IllegalArgumentException si falta el owner o una mascota no tiene un tipo activo
+     */
+    OwnerRegistrationDTO register(OwnerRegistrationDTO registration);
+
     /**
      * Buscar owner por ID
      * @param id
@@ -32,6 +46,14 @@ public interface OwnerService {
      */
     List<Owner> findByLastName(String lastName);
 
+    /**
+     * Buscar owners combinando cualquiera de los criterios en una sola consulta paginada
+     * @param criteria
+     * @param pageable
+     * @return página de owners
+     */
+    Page<Owner> search(OwnerSearchCriteria criteria, Pageable pageable);
+
     /**
      * Actualizar un owner existente
      * @param owner
@@ -39,4 +61,29 @@ public interface OwnerService {
      * @throws OwnerNotFoundException
      */
     Owner update(Owner owner) throws OwnerNotFoundException;
-}
\ No newline at end of file
+
+    /**
+     * Insertar o actualizar un owner en una sola sentencia, sin leerlo antes.
+     * Con id se busca por id; sin id, por nombre, apellido y teléfono
+     * @param owner
+     * @return owner guardado con su id
+     */
+    Owner upsert(Owner owner);
+
+    /**
+     * Igual que upsert, en batches JDBC
+     * @param owners
+     * @return owners guardados con sus ids, en el mismo orden
+     */
+    List<Owner> upsertAll(List<Owner> owners);
+
+    /**
+     * Fusionar owners duplicados: sus mascotas pasan al owner que queda con
+     * un UPDATE por owner_id y los duplicados se eliminan
+     * @param survivorId owner que se conserva
+     * @param duplicateIds owners que se eliminan
+     * @return owner conservado y lo que se movió
+     * @throws OwnerNotFoundException
+     */
+    OwnerMergeDTO merge(Integer survivorId, List<Integer> duplicateIds) throws OwnerNotFoundException;
+}
@@ -1,13 +1,50 @@
 package com.tecsup.petclinic.services;
 
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.tecsup.petclinic.coalescing.RequestCoalescer;
+import com.tecsup.petclinic.dictionary.PetTypeDictionary;
+import com.tecsup.petclinic.dictionary.PetTypeEntry;
+import com.tecsup.petclinic.dtos.OwnerMergeDTO;
+import com.tecsup.petclinic.dtos.OwnerRegistrationDTO;
+import com.tecsup.petclinic.dtos.OwnerSearchCriteria;
+import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.events.OwnerChangedEvent;
+import com.tecsup.petclinic.events.OwnersUpsertedEvent;
+import com.tecsup.petclinic.events.PetChangedEvent;
 import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.querycache.QueryResultCache;
 import com.tecsup.petclinic.repositories.OwnerRepository;
+import com.tecsup.petclinic.repositories.OwnerSpecifications;
+import com.tecsup.petclinic.snapshot.CatalogSnapshotService;
+import com.tecsup.petclinic.upsert.UpsertWriter;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -18,20 +55,145 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class OwnerServiceImpl implements OwnerService {
 
+    private static final String INSERT_OWNER =
+            "INSERT INTO owners (first_name, last_name, address, city, telephone) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_PET =
+            "INSERT INTO pets (name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_OWNERS =
+            "SELECT id, first_name, last_name, address, city, telephone FROM owners WHERE id";
+    private static final String SELECT_PETS =
+            "SELECT id, name, birth_date, type_id, owner_id FROM pets WHERE owner_id";
+
+    private static final List<String> OWNER_COLUMNS =
+            List.of("id", "first_name", "last_name", "address", "city", "telephone");
+    private static final List<String> OWNER_NATURAL_KEY = List.of("first_name", "last_name", "telephone");
+
     private OwnerRepository ownerRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private CatalogSnapshotService catalogSnapshot;
+    private RequestCoalescer coalescer;
+    private JdbcTemplate jdbcTemplate;
+    private PetTypeDictionary petTypes;
+    private UpsertWriter upsertWriter;
+    private QueryResultCache queryCache;
 
-    public OwnerServiceImpl(OwnerRepository ownerRepository) {
+    public OwnerServiceImpl(OwnerRepository ownerRepository, ApplicationEventPublisher eventPublisher,
+                            CatalogSnapshotService catalogSnapshot, RequestCoalescer coalescer,
+                            JdbcTemplate jdbcTemplate, PetTypeDictionary petTypes, UpsertWriter upsertWriter,
+                            QueryResultCache queryCache) {
         this.ownerRepository = ownerRepository;
+        this.eventPublisher = eventPublisher;
+        this.catalogSnapshot = catalogSnapshot;
+        this.coalescer = coalescer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.petTypes = petTypes;
+        this.upsertWriter = upsertWriter;
+        this.queryCache = queryCache;
     }
 
     @Override
+    @Transactional
     public Owner create(Owner owner) {
-        return ownerRepository.save(owner);
+        Owner created = ownerRepository.save(owner);
+        eventPublisher.publishEvent(new OwnerChangedEvent(null, copy(created)));
+        return created;
+    }
+
+    @Override
+    @Transactional
+    public OwnerRegistrationDTO register(OwnerRegistrationDTO registration) {
+        if (registration.getOwner() == null) {
+            throw new IllegalArgumentException("Owner is required");
+        }
+        // "pets": null en el JSON equivale a un owner sin mascotas
+        if (registration.getPets() == null) {
+            registration.setPets(new ArrayList<>());
+        }
+        for (PetDTO pet : registration.getPets()) {
+            if (pet == null) {
+                throw new IllegalArgumentException("Null pet in registration");
+            }
+            if (!petTypes.isSelectable(pet.getTypeId())) {
+                throw new IllegalArgumentException("Unknown or inactive pet type: " + pet.getTypeId());
+            }
+        }
+        Owner owner = copy(registration.getOwner());
+
+        // El owner primero: su id generado es la FK de las mascotas
+        KeyHolder ownerKey = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_OWNER, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, owner.getFirstName());
+            ps.setString(2, owner.getLastName());
+            ps.setString(3, owner.getAddress());
+            ps.setString(4, owner.getCity());
+            ps.setString(5, owner.getTelephone());
+            return ps;
+        }, ownerKey);
+        owner.setId(ownerKey.getKey().intValue());
+
+        List<PetDTO> pets = new ArrayList<>();
+        for (PetDTO pet : registration.getPets()) {
+            PetTypeEntry type = petTypes.find(pet.getTypeId()).orElseThrow();
+            pets.add(PetDTO.builder()
+                    .name(pet.getName())
+                    .typeId(pet.getTypeId())
+                    .ownerId(owner.getId())
+                    .birthDate(pet.getBirthDate())
+                    .typeName(type.getName())
+                    .careLevel(type.getCareLevel())
+                    .build());
+        }
+
+        // Todas las mascotas en un solo batch; los ids vuelven como claves generadas
+        if (!pets.isEmpty()) {
+            KeyHolder petKeys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_PET, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            PetDTO pet = pets.get(i);
+                            ps.setString(1, pet.getName());
+                            if (pet.getBirthDate() == null) {
+                                ps.setNull(2, Types.DATE);
+                            } else {
+                                ps.setDate(2, Date.valueOf(pet.getBirthDate()));
+                            }
+                            ps.setInt(3, pet.getTypeId());
+                            ps.setInt(4, pet.getOwnerId());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return pets.size();
+                        }
+                    }, petKeys);
+
+            List<Map<String, Object>> keys = petKeys.getKeyList();
+            for (int i = 0; i < pets.size(); i++) {
+                pets.get(i).setId(((Number) keys.get(i).values().iterator().next()).intValue());
+            }
+        }
+
+        // Los mismos eventos que create() de cada servicio: outbox, contadores y snapshot
+        eventPublisher.publishEvent(new OwnerChangedEvent(null, copy(owner)));
+        pets.forEach(pet -> eventPublisher.publishEvent(new PetChangedEvent(null, pet)));
+
+        return new OwnerRegistrationDTO(owner, pets);
     }
 
     @Override
     public Owner findById(Integer id) throws OwnerNotFoundException {
-        Optional<Owner> owner = ownerRepository.findById(id);
+        // Snapshot mapeado (reinicio en caliente); si no lo tiene, se consulta la BD
+        Optional<Owner> owner = catalogSnapshot.findOwner(id);
+        if (owner.isPresent()) {
+            return owner.get();
+        }
+
+        // Consultas idénticas concurrentes comparten una sola ejecución
+        owner = coalescer.execute("owner.findById", id,
+                () -> ownerRepository.findById(id), found -> found.map(OwnerServiceImpl::copy));
         
         if (!owner.isPresent()) {
             throw new OwnerNotFoundException("Owner not found with id: " + id);
@@ -42,12 +204,22 @@ public class OwnerServiceImpl implements OwnerService {
 
     @Override
     public List<Owner> findByLastName(String lastName) {
-        List<Owner> owners = ownerRepository.findByLastName(lastName);
+        // Cacheado hasta la siguiente escritura de owners; los fallos concurrentes comparten una consulta
+        UnaryOperator<List<Owner>> copyAll = found -> found.stream().map(OwnerServiceImpl::copy)
+                .collect(Collectors.toList());
+        List<Owner> owners = queryCache.get("owner.findByLastName", lastName, List.of(ChangeEvent.OWNER),
+                () -> ownerRepository.findByLastName(lastName), copyAll);
         owners.forEach(owner -> log.info("Owner: {}", owner));
         return owners;
     }
 
     @Override
+    public Page<Owner> search(OwnerSearchCriteria criteria, Pageable pageable) {
+        return ownerRepository.findAll(OwnerSpecifications.matching(criteria), pageable);
+    }
+
+    @Override
+    @Transactional(rollbackFor = OwnerNotFoundException.class)
     public Owner update(Owner owner) throws OwnerNotFoundException {
         // Verificar que el owner existe antes de actualizar
         Optional<Owner> existingOwner = ownerRepository.findById(owner.getId());
@@ -56,7 +228,141 @@ public class OwnerServiceImpl implements OwnerService {
             throw new OwnerNotFoundException("Owner not found with id: " + owner.getId());
         }
         
+        // Copiar el estado previo: la entidad gestionada se modifica al hacer merge
+        Owner before = copy(existingOwner.get());
+
         // Actualizar el owner
-        return ownerRepository.save(owner);
+        Owner updated = ownerRepository.save(owner);
+        eventPublisher.publishEvent(new OwnerChangedEvent(before, copy(updated)));
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public Owner upsert(Owner owner) {
+        return upsertAll(List.of(owner)).get(0);
+    }
+
+    @Override
+    @Transactional
+    public List<Owner> upsertAll(List<Owner> owners) {
+        List<Owner> saved = owners.stream().map(OwnerServiceImpl::copy).collect(Collectors.toList());
+
+        // Con id la clave es el id; sin id, la clave natural (nombre, apellido, teléfono)
+        List<Owner> byId = saved.stream().filter(owner -> owner.getId() != null).collect(Collectors.toList());
+        List<Owner> byNaturalKey = saved.stream().filter(owner -> owner.getId() == null).collect(Collectors.toList());
+
+        upsertWriter.upsert("owners", OWNER_COLUMNS, List.of("id"), byId,
+                owner -> new Object[] { owner.getId(), owner.getFirstName(), owner.getLastName(),
+                        owner.getAddress(), owner.getCity(), owner.getTelephone() });
+        List<Integer> ids = upsertWriter.upsert("owners", OWNER_COLUMNS.subList(1, OWNER_COLUMNS.size()), OWNER_NATURAL_KEY,
+                byNaturalKey, owner -> new Object[] { owner.getFirstName(), owner.getLastName(),
+                        owner.getAddress(), owner.getCity(), owner.getTelephone() });
+        for (int i = 0; i < byNaturalKey.size(); i++) {
+            byNaturalKey.get(i).setId(ids.get(i));
+        }
+
+        if (!saved.isEmpty()) {
+            eventPublisher.publishEvent(new OwnersUpsertedEvent(
+                    saved.stream().map(OwnerServiceImpl::copy).collect(Collectors.toList())));
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional(rollbackFor = OwnerNotFoundException.class)
+    public OwnerMergeDTO merge(Integer survivorId, List<Integer> duplicateIds) throws OwnerNotFoundException {
+        List<Integer> duplicates = duplicateIds.stream().distinct().collect(Collectors.toList());
+        if (duplicates.isEmpty() || duplicates.contains(survivorId)) {
+            throw new IllegalArgumentException("Duplicates must be other owners than " + survivorId);
+        }
+        List<Integer> all = new ArrayList<>(duplicates);
+        all.add(0, survivorId);
+
+        Map<Integer, Owner> owners = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_OWNERS + in(all.size()), rs -> {
+            owners.put(rs.getInt("id"), new Owner(rs.getInt("id"), rs.getString("first_name"),
+                    rs.getString("last_name"), rs.getString("address"), rs.getString("city"), rs.getString("telephone")));
+        }, all.toArray());
+        for (Integer id : all) {
+            if (!owners.containsKey(id)) {
+                throw new OwnerNotFoundException("Owner not found with id: " + id);
+            }
+        }
+
+        List<PetDTO> pets = jdbcTemplate.query(SELECT_PETS + in(all.size()) + " ORDER BY id",
+                (rs, rowNum) -> new PetDTO(rs.getInt("id"), rs.getString("name"), rs.getInt("type_id"),
+                        rs.getInt("owner_id"), rs.getObject("birth_date", LocalDate.class)),
+                all.toArray());
+
+        // Una mascota con el mismo nombre que otra del owner que queda es la misma registrada dos veces
+        // (uq_pets_owner_name no permitiría moverla): sus visitas pasan a esa y se elimina. Los nombres
+        // se comparan sin mayúsculas, como la collation de MySQL: "max" y "Max" son la misma
+        Map<String, Integer> names = new HashMap<>();
+        pets.stream().filter(pet -> pet.getOwnerId() == survivorId)
+                .forEach(pet -> names.putIfAbsent(petName(pet), pet.getId()));
+        List<PetDTO> moved = new ArrayList<>();
+        List<PetDTO> merged = new ArrayList<>();
+        List<Object[]> visitMoves = new ArrayList<>();
+        for (PetDTO pet : pets) {
+            if (pet.getOwnerId() == survivorId) {
+                continue;
+            }
+            Integer into = names.putIfAbsent(petName(pet), pet.getId());
+            if (into == null) {
+                moved.add(pet);
+            } else {
+                merged.add(pet);
+                visitMoves.add(new Object[] { into, pet.getId() });
+            }
+        }
+
+        int movedVisits = 0;
+        if (!merged.isEmpty()) {
+            for (int count : jdbcTemplate.batchUpdate("UPDATE visits SET pet_id = ? WHERE pet_id = ?", visitMoves)) {
+                movedVisits += count;
+            }
+            for (int count : jdbcTemplate.batchUpdate("UPDATE visits_archive SET pet_id = ? WHERE pet_id = ?",
+                    visitMoves)) {
+                movedVisits += count;
+            }
+            jdbcTemplate.update("DELETE FROM pets WHERE id" + in(merged.size()),
+                    merged.stream().map(PetDTO::getId).toArray());
+        }
+
+        // Todas las mascotas restantes de los duplicados en una sola sentencia
+        jdbcTemplate.update("UPDATE pets SET owner_id = ? WHERE owner_id" + in(duplicates.size()), all.toArray());
+        jdbcTemplate.update("DELETE FROM owners WHERE id" + in(duplicates.size()), duplicates.toArray());
+
+        // Los mismos eventos que update() y delete() de cada servicio: outbox, contadores y snapshots
+        for (PetDTO pet : moved) {
+            PetDTO after = new PetDTO(pet.getId(), pet.getName(), pet.getTypeId(), survivorId, pet.getBirthDate());
+            eventPublisher.publishEvent(new PetChangedEvent(pet, after));
+        }
+        merged.forEach(pet -> eventPublisher.publishEvent(new PetChangedEvent(pet, null)));
+        duplicates.forEach(id -> eventPublisher.publishEvent(new OwnerChangedEvent(owners.get(id), null)));
+
+        log.info("Owners {} merged into {}: {} pets moved, {} merged, {} visits moved", duplicates, survivorId,
+                moved.size(), merged.size(), movedVisits);
+        return OwnerMergeDTO.builder()
+                .owner(owners.get(survivorId))
+                .removedOwnerIds(duplicates)
+                .movedPetIds(moved.stream().map(PetDTO::getId).collect(Collectors.toList()))
+                .mergedPetIds(merged.stream().map(PetDTO::getId).collect(Collectors.toList()))
+                .movedVisits(movedVisits)
+                .build();
+    }
+
+    private static String petName(PetDTO pet) {
+        return pet.getName().toLowerCase(Locale.ROOT);
+    }
+
+    private static String in(int count) {
+        return " IN (" + String.join(", ", Collections.nCopies(count, "?")) + ")";
+    }
+
+    private static Owner copy(Owner owner) {
+        return new Owner(owner.getId(), owner.getFirstName(), owner.getLastName(),
+                owner.getAddress(), owner.getCity(), owner.getTelephone());
     }
 }
\ No newline at end of file
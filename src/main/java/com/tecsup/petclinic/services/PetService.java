@@ -27,6 +27,21 @@ public interface PetService {
 	 */
 	PetDTO update(PetDTO pet);
 
+	/**
+	 * Insert or update in one statement, without reading the pet first.
+	 * Keyed by id when present, otherwise by owner and name
+	 * @param pet
+	 * @return the pet with its id
+	 */
+	PetDTO upsert(PetDTO pet);
+
+	/**
+	 * Same as upsert, in JDBC batches
+	 * @param pets
+	 * @return the pets with their ids, in the same order
+	 */
+	List<PetDTO> upsertAll(List<PetDTO> pets);
+
 	/**
 	 * 
 	 * @param id
@@ -1,18 +1,35 @@
 package com.tecsup.petclinic.services;
 
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import com.tecsup.petclinic.coalescing.RequestCoalescer;
+import com.tecsup.petclinic.dictionary.PetTypeDictionary;
 import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.events.PetChangedEvent;
+import com.tecsup.petclinic.events.PetsUpsertedEvent;
 import com.tecsup.petclinic.mappers.PetMapper;
+import com.tecsup.petclinic.querycache.QueryResultCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.tecsup.petclinic.entities.Pet;
 import com.tecsup.petclinic.exceptions.PetNotFoundException;
 import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.snapshot.CatalogSnapshotService;
+import com.tecsup.petclinic.upsert.UpsertWriter;
 
 /**
  * 
@@ -23,12 +40,31 @@ import com.tecsup.petclinic.repositories.PetRepository;
 @Slf4j
 public class PetServiceImpl implements PetService {
 
+	private static final List<String> PET_COLUMNS = List.of("id", "name", "birth_date", "type_id", "owner_id");
+	private static final List<String> PET_NATURAL_KEY = List.of("owner_id", "name");
+	private static final List<String> PET_TABLES = List.of(ChangeEvent.PET);
+
 	PetRepository petRepository;
 	PetMapper petMapper;
-
-	public PetServiceImpl (PetRepository petRepository, PetMapper petMapper) {
+	ApplicationEventPublisher eventPublisher;
+	CatalogSnapshotService catalogSnapshot;
+	RequestCoalescer coalescer;
+	PetTypeDictionary petTypes;
+	UpsertWriter upsertWriter;
+	QueryResultCache queryCache;
+
+	public PetServiceImpl (PetRepository petRepository, PetMapper petMapper,
+						   ApplicationEventPublisher eventPublisher, CatalogSnapshotService catalogSnapshot,
+						   RequestCoalescer coalescer, PetTypeDictionary petTypes, UpsertWriter upsertWriter,
+						   QueryResultCache queryCache) {
 		this. petRepository = petRepository;
 		this.petMapper = petMapper;
+		this.eventPublisher = eventPublisher;
+		this.catalogSnapshot = catalogSnapshot;
+		this.coalescer = coalescer;
+		this.petTypes = petTypes;
+		this.upsertWriter = upsertWriter;
+		this.queryCache = queryCache;
 	}
 
 
@@ -38,11 +74,19 @@ public class PetServiceImpl implements PetService {
 	 * @return
 	 */
 	@Override
+	@Transactional
 	public PetDTO create(PetDTO petDTO) {
 
+		// Checked against the in-memory dictionary, no query on types
+		if (!petTypes.isSelectable(petDTO.getTypeId()))
+			throw new IllegalArgumentException("Unknown or inactive pet type: " + petDTO.getTypeId());
+
 		Pet newPet = petRepository.save(petMapper.mapToEntity(petDTO));
 
-		return petMapper.mapToDto(newPet);
+		PetDTO created = petMapper.mapToDto(newPet);
+		eventPublisher.publishEvent(new PetChangedEvent(null, created));
+
+		return created;
 	}
 
 	/**
@@ -51,14 +95,89 @@ public class PetServiceImpl implements PetService {
 	 * @return
 	 */
 	@Override
+	@Transactional
 	public PetDTO update(PetDTO petDTO) {
 
+		// Previous state is copied to a DTO so listeners can adjust what they derived from it
+		PetDTO before = petDTO.getId() == null ? null
+				: petRepository.findById(petDTO.getId()).map(petMapper::mapToDto).orElse(null);
+
 		Pet newPet = petRepository.save(petMapper.mapToEntity(petDTO));
 
-		return petMapper.mapToDto(newPet);
+		PetDTO updated = petMapper.mapToDto(newPet);
+		eventPublisher.publishEvent(new PetChangedEvent(before, updated));
+
+		return updated;
+
+	}
+
+
+	/**
+	 * 
+	 * @param petDTO
+	 * @return
+	 */
+	@Override
+	@Transactional
+	public PetDTO upsert(PetDTO petDTO) {
+		return upsertAll(List.of(petDTO)).get(0);
+	}
 
+	/**
+	 * 
+	 * @param pets
+	 * @return
+	 */
+	@Override
+	@Transactional
+	public List<PetDTO> upsertAll(List<PetDTO> pets) {
+
+		for (PetDTO pet : pets) {
+			if (!petTypes.isSelectable(pet.getTypeId()))
+				throw new IllegalArgumentException("Unknown or inactive pet type: " + pet.getTypeId());
+			if (pet.getId() == null && pet.getName() == null)
+				throw new IllegalArgumentException("Pet name is required to upsert without id");
+		}
+		List<Pet> saved = pets.stream().map(petMapper::mapToEntity).collect(Collectors.toList());
+
+		// Keyed by id when the partner sends ours, otherwise by (owner_id, name)
+		List<Pet> byId = saved.stream().filter(pet -> pet.getId() != null).collect(Collectors.toList());
+		List<Pet> byNaturalKey = saved.stream().filter(pet -> pet.getId() == null).collect(Collectors.toList());
+
+		// State of every pet before this call; a pet the first upsert created has none
+		Map<Integer, PetDTO> before = new HashMap<>();
+		List<Integer> written = upsertWriter.upsert("pets", PET_COLUMNS, List.of("id"), byId,
+				pet -> new Object[] { pet.getId(), pet.getName(), pet.getBirthDate(), pet.getTypeId(), pet.getOwnerId() },
+				(id, row) -> before.put(id, previous(id, row[1], row[2], row[3], row[4])));
+		Set<Integer> first = new HashSet<>(written);
+		List<Integer> ids = upsertWriter.upsert("pets", PET_COLUMNS.subList(1, PET_COLUMNS.size()), PET_NATURAL_KEY,
+				byNaturalKey, pet -> new Object[] { pet.getName(), pet.getBirthDate(), pet.getTypeId(), pet.getOwnerId() },
+				(id, row) -> {
+					if (!first.contains(id))
+						before.put(id, previous(id, row[0], row[1], row[2], row[3]));
+				});
+		for (int i = 0; i < byNaturalKey.size(); i++)
+			byNaturalKey.get(i).setId(ids.get(i));
+
+		List<PetDTO> result = saved.stream().map(petMapper::mapToDto).collect(Collectors.toList());
+		// The last row sent for a pet is what it holds now
+		Map<Integer, PetDTO> after = new LinkedHashMap<>();
+		result.forEach(pet -> after.put(pet.getId(), pet));
+		List<PetChangedEvent> changes = after.values().stream()
+				.map(pet -> new PetChangedEvent(before.get(pet.getId()), pet)).collect(Collectors.toList());
+		if (!result.isEmpty())
+			eventPublisher.publishEvent(new PetsUpsertedEvent(result, changes));
+
+		return result;
 	}
 
+	/**
+	 * Pet as read by the upsert's lookup, column values as the driver returned them
+	 */
+	private static PetDTO previous(int id, Object name, Object birthDate, Object typeId, Object ownerId) {
+		LocalDate date = birthDate instanceof Date sqlDate ? sqlDate.toLocalDate() : (LocalDate) birthDate;
+		return new PetDTO(id, (String) name, ((Number) typeId).intValue(), ((Number) ownerId).intValue(), date);
+	}
 
 	/**
 	 * 
@@ -66,12 +185,15 @@ public class PetServiceImpl implements PetService {
 	 * @throws PetNotFoundException
 	 */
 	@Override
+	@Transactional(rollbackFor = PetNotFoundException.class)
 	public void delete(Integer id) throws PetNotFoundException{
 
 		PetDTO pet = findById(id);
 
 		petRepository.delete(this.petMapper.mapToEntity(pet));
 
+		eventPublisher.publishEvent(new PetChangedEvent(pet, null));
+
 	}
 
 	/**
@@ -82,7 +204,11 @@ public class PetServiceImpl implements PetService {
 	@Override
 	public PetDTO findById(Integer id) throws PetNotFoundException {
 
-		Optional<Pet> pet = petRepository.findById(id);
+		// Served from the mapped snapshot after a restart, otherwise from the database
+		Optional<Pet> pet = catalogSnapshot.findPet(id);
+		if (!pet.isPresent())
+			pet = coalescer.execute("pet.findById", id,
+					() -> petRepository.findById(id), found -> found.map(PetServiceImpl::copy));
 
 		if ( !pet.isPresent())
 			throw new PetNotFoundException("Record not found...!");
@@ -116,7 +242,9 @@ public class PetServiceImpl implements PetService {
 	@Override
 	public List<Pet> findByTypeId(int typeId) {
 
-		List<Pet> pets = petRepository.findByTypeId(typeId);
+		// Cached until the next pet write; concurrent misses share one query
+		List<Pet> pets = queryCache.get("pet.findByTypeId", typeId, PET_TABLES,
+				() -> petRepository.findByTypeId(typeId), PetServiceImpl::copyAll);
 
 		pets.forEach(pet -> log.info("" + pet));
 
@@ -131,7 +259,9 @@ public class PetServiceImpl implements PetService {
 	@Override
 	public List<Pet> findByOwnerId(int ownerId) {
 
-		List<Pet> pets = petRepository.findByOwnerId(ownerId);
+		// Cached until the next pet write; concurrent misses share one query
+		List<Pet> pets = queryCache.get("pet.findByOwnerId", ownerId, PET_TABLES,
+				() -> petRepository.findByOwnerId(ownerId), PetServiceImpl::copyAll);
 
 		pets.forEach(pet -> log.info("" + pet));
 
@@ -148,4 +278,15 @@ public class PetServiceImpl implements PetService {
 		return petRepository.findAll();
 
 	}
+
+	/**
+	 * Callers that shared a coalesced query each get their own entities
+	 */
+	private static Pet copy(Pet pet) {
+		return new Pet(pet.getId(), pet.getName(), pet.getTypeId(), pet.getOwnerId(), pet.getBirthDate());
+	}
+
+	private static List<Pet> copyAll(List<Pet> pets) {
+		return pets.stream().map(PetServiceImpl::copy).collect(Collectors.toList());
+	}
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.tecsup.petclinic.services;
+
+import java.util.Map;
+
+/**
+ * Pet population counters served from memory
+ */
+public interface PetStatisticsService {
+
+	/**
+	 *
+	 * @return number of pets per type id
+	 */
+	Map<Integer, Long> countByType();
+
+	/**
+	 *
+	 * @return number of pets per owner id
+	 */
+	Map<Integer, Long> countByOwner();
+
+	/**
+	 *
+	 * @return number of pets per birth year
+	 */
+	Map<Integer, Long> countByBirthYear();
+
+	/**
+	 * Reload every counter from one read of the pets table
+	 */
+	void reconcile();
+}
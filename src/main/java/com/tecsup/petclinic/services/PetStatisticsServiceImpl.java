@@ -0,0 +1,190 @@
+package com.tecsup.petclinic.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.tecsup.petclinic.dtos.PetCountedRow;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.events.PetChangedEvent;
+import com.tecsup.petclinic.events.PetsUpsertedEvent;
+import com.tecsup.petclinic.repositories.PetRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps pet counters in LongAdders so dashboards never load pet entities.
+ *
+ * Counters move with every PetChangedEvent and with each pet of a
+ * PetsUpsertedEvent, and are rebuilt from the database on startup and every
+ * petclinic.stats.reconcile-interval-ms, which repairs drift from writes
+ * that bypass the service (e.g. owner cascade deletes).
+ *
+ * A rebuild reads the counted columns of every pet in one statement, so the
+ * three counters come from the same snapshot. Events applied meanwhile are
+ * journaled and replayed on the new counters before they replace the old
+ * ones, skipping those the snapshot already holds: a journaled pet whose
+ * row reads as the event's after state was committed before the read.
+ * Reads never query.
+ */
+@Service
+@Slf4j
+public class PetStatisticsServiceImpl implements PetStatisticsService {
+
+	private final PetRepository petRepository;
+
+	private volatile Counters counters = new Counters();
+	private final Object lock = new Object();
+	// Events applied during a rebuild, null when none runs
+	private List<PetChangedEvent> journal;
+
+	public PetStatisticsServiceImpl(PetRepository petRepository) {
+		this.petRepository = petRepository;
+	}
+
+	@Override
+	public Map<Integer, Long> countByType() {
+		return snapshot(counters.byType);
+	}
+
+	@Override
+	public Map<Integer, Long> countByOwner() {
+		return snapshot(counters.byOwner);
+	}
+
+	@Override
+	public Map<Integer, Long> countByBirthYear() {
+		return snapshot(counters.byBirthYear);
+	}
+
+	@Override
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(initialDelayString = "${petclinic.stats.reconcile-interval-ms:300000}",
+			fixedDelayString = "${petclinic.stats.reconcile-interval-ms:300000}")
+	public synchronized void reconcile() {
+		synchronized (lock) {
+			journal = new ArrayList<>();
+		}
+		Counters fresh = new Counters();
+		// Counted state of each pet in the snapshot, to tell which journaled events it already holds
+		Map<Integer, Counted> read = new HashMap<>();
+		try {
+			for (PetCountedRow row : petRepository.findCountedRows()) {
+				Counted counted = new Counted(row.getTypeId(), row.getOwnerId(), row.getBirthYear());
+				read.put(row.getId(), counted);
+				apply(fresh, counted, 1);
+			}
+		} catch (RuntimeException e) {
+			synchronized (lock) {
+				journal = null;
+			}
+			throw e;
+		}
+		synchronized (lock) {
+			int replayed = 0;
+			for (PetChangedEvent event : journal) {
+				Counted after = Counted.of(event.getAfter());
+				if (Objects.equals(read.get(event.getPetId()), after)) {
+					continue;
+				}
+				apply(fresh, event);
+				read.put(event.getPetId(), after);
+				replayed++;
+			}
+			this.counters = fresh;
+			log.debug("Replayed {} of {} events journaled during the reconcile", replayed, journal.size());
+			journal = null;
+		}
+		log.info("Pet statistics reconciled: {} types, {} owners", fresh.byType.size(), fresh.byOwner.size());
+	}
+
+	/**
+	 * Applied after commit so rolled back writes never reach the counters
+	 * @param event
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPetChanged(PetChangedEvent event) {
+		synchronized (lock) {
+			apply(this.counters, event);
+			if (journal != null) {
+				journal.add(event);
+			}
+		}
+	}
+
+	/**
+	 * Each pet of the batch moves the counters like a single write
+	 * @param event
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPetsUpserted(PetsUpsertedEvent event) {
+		synchronized (lock) {
+			for (PetChangedEvent change : event.getChanges()) {
+				apply(this.counters, change);
+				if (journal != null) {
+					journal.add(change);
+				}
+			}
+		}
+	}
+
+	private void apply(Counters current, PetChangedEvent event) {
+		if (event.getBefore() != null) {
+			apply(current, Counted.of(event.getBefore()), -1);
+		}
+		if (event.getAfter() != null) {
+			apply(current, Counted.of(event.getAfter()), 1);
+		}
+	}
+
+	private void apply(Counters current, Counted pet, int delta) {
+		add(current.byType, pet.typeId(), delta);
+		add(current.byOwner, pet.ownerId(), delta);
+		if (pet.birthYear() != null) {
+			add(current.byBirthYear, pet.birthYear(), delta);
+		}
+	}
+
+	private static void add(Map<Integer, LongAdder> counter, Integer key, int delta) {
+		counter.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+	}
+
+	private static Map<Integer, Long> snapshot(Map<Integer, LongAdder> counter) {
+		Map<Integer, Long> result = new TreeMap<>();
+		counter.forEach((key, adder) -> {
+			long total = adder.sum();
+			if (total > 0) {
+				result.put(key, total);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * What a pet is counted by
+	 */
+	private record Counted(Integer typeId, Integer ownerId, Integer birthYear) {
+
+		static Counted of(PetDTO pet) {
+			return pet == null ? null : new Counted(pet.getTypeId(), pet.getOwnerId(),
+					pet.getBirthDate() == null ? null : pet.getBirthDate().getYear());
+		}
+	}
+
+	private static class Counters {
+		final Map<Integer, LongAdder> byType = new ConcurrentHashMap<>();
+		final Map<Integer, LongAdder> byOwner = new ConcurrentHashMap<>();
+		final Map<Integer, LongAdder> byBirthYear = new ConcurrentHashMap<>();
+	}
+}
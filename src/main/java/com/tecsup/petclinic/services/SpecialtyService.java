@@ -0,0 +1,41 @@
+package com.tecsup.petclinic.services;
+
+import java.util.List;
+
+import com.tecsup.petclinic.entities.Specialty;
+import com.tecsup.petclinic.exceptions.SpecialtyNotFoundException;
+
+/**
+ * Interfaz para el servicio de Specialty
+ */
+public interface SpecialtyService {
+
+    /**
+     * Crear una nueva especialidad
+     * @param specialty
+     * @return especialidad creada
+     */
+    Specialty create(Specialty specialty);
+
+    /**
+     * Buscar especialidad por ID
+     * @param id
+     * @return especialidad encontrada
+     * @throws SpecialtyNotFoundException
+     */
+    Specialty findById(Integer id) throws SpecialtyNotFoundException;
+
+    /**
+     * Buscar especialidad por nombre
+     * @param name
+     * @return especialidad encontrada
+     * @throws SpecialtyNotFoundException
+     */
+    Specialty findByName(String name) throws SpecialtyNotFoundException;
+
+    /**
+     * Listar todas las especialidades
+     * @return lista de especialidades
+     */
+    List<Specialty> findAll();
+}
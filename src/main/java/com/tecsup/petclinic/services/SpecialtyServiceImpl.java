@@ -0,0 +1,46 @@
+package com.tecsup.petclinic.services;
+
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tecsup.petclinic.entities.Specialty;
+import com.tecsup.petclinic.exceptions.SpecialtyNotFoundException;
+import com.tecsup.petclinic.repositories.SpecialtyRepository;
+
+/**
+ * Implementación del servicio de Specialty
+ */
+@Service
+public class SpecialtyServiceImpl implements SpecialtyService {
+
+    private SpecialtyRepository specialtyRepository;
+
+    public SpecialtyServiceImpl(SpecialtyRepository specialtyRepository) {
+        this.specialtyRepository = specialtyRepository;
+    }
+
+    @Override
+    @Transactional
+    public Specialty create(Specialty specialty) {
+        return specialtyRepository.save(specialty);
+    }
+
+    @Override
+    public Specialty findById(Integer id) throws SpecialtyNotFoundException {
+        return specialtyRepository.findById(id)
+                .orElseThrow(() -> new SpecialtyNotFoundException("Specialty not found with id: " + id));
+    }
+
+    @Override
+    public Specialty findByName(String name) throws SpecialtyNotFoundException {
+        return specialtyRepository.findByName(name)
+                .orElseThrow(() -> new SpecialtyNotFoundException("Specialty not found with name: " + name));
+    }
+
+    @Override
+    public List<Specialty> findAll() {
+        return specialtyRepository.findAll();
+    }
+}
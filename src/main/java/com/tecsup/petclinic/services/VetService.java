@@ -0,0 +1,65 @@
+package com.tecsup.petclinic.services;
+
+import java.util.List;
+
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.entities.VetSpecialty;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.index.VetQuery;
+
+/**
+ * Interfaz para el servicio de Vet
+ */
+public interface VetService {
+
+    /**
+     * Crear un nuevo veterinario
+     * @param vet
+     * @return veterinario creado
+     */
+    Vet create(Vet vet);
+
+    /**
+     * Actualizar un veterinario existente
+     * @param vet
+     * @return veterinario actualizado
+     * @throws VetNotFoundException
+     */
+    Vet update(Vet vet) throws VetNotFoundException;
+
+    /**
+     * Buscar veterinario por ID
+     * @param id
+     * @return veterinario encontrado
+     * @throws VetNotFoundException
+     */
+    Vet findById(Integer id) throws VetNotFoundException;
+
+    /**
+     * Listar todos los veterinarios
+     * @return lista de veterinarios
+     */
+    List<Vet> findAll();
+
+    /**
+     * Asignar (o actualizar) una especialidad a un veterinario
+     * @param vetSpecialty
+     * @return relación guardada
+     * @throws VetNotFoundException
+     */
+    VetSpecialty assignSpecialty(VetSpecialty vetSpecialty) throws VetNotFoundException;
+
+    /**
+     * Quitar una especialidad a un veterinario
+     * @param vetId
+     * @param specialtyId
+     */
+    void removeSpecialty(Integer vetId, Integer specialtyId);
+
+    /**
+     * Veterinarios que cumplen la consulta de derivación, resuelta con el índice de bitmaps
+     * @param query
+     * @return veterinarios ordenados por id
+     */
+    List<Vet> findReferralCandidates(VetQuery query);
+}
@@ -0,0 +1,95 @@
+package com.tecsup.petclinic.services;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.entities.VetSpecialty;
+import com.tecsup.petclinic.events.VetChangedEvent;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.index.VetQuery;
+import com.tecsup.petclinic.index.VetSpecialtyIndex;
+import com.tecsup.petclinic.repositories.VetRepository;
+import com.tecsup.petclinic.repositories.VetSpecialtyRepository;
+
+/**
+ * Implementación del servicio de Vet
+ */
+@Service
+public class VetServiceImpl implements VetService {
+
+    private VetRepository vetRepository;
+    private VetSpecialtyRepository vetSpecialtyRepository;
+    private VetSpecialtyIndex vetSpecialtyIndex;
+    private ApplicationEventPublisher eventPublisher;
+
+    public VetServiceImpl(VetRepository vetRepository, VetSpecialtyRepository vetSpecialtyRepository,
+                          VetSpecialtyIndex vetSpecialtyIndex, ApplicationEventPublisher eventPublisher) {
+        this.vetRepository = vetRepository;
+        this.vetSpecialtyRepository = vetSpecialtyRepository;
+        this.vetSpecialtyIndex = vetSpecialtyIndex;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public Vet create(Vet vet) {
+        Vet created = vetRepository.save(vet);
+        eventPublisher.publishEvent(new VetChangedEvent(created.getId()));
+        return created;
+    }
+
+    @Override
+    @Transactional(rollbackFor = VetNotFoundException.class)
+    public Vet update(Vet vet) throws VetNotFoundException {
+        findById(vet.getId());
+        Vet updated = vetRepository.save(vet);
+        eventPublisher.publishEvent(new VetChangedEvent(updated.getId()));
+        return updated;
+    }
+
+    @Override
+    public Vet findById(Integer id) throws VetNotFoundException {
+        return vetRepository.findById(id)
+                .orElseThrow(() -> new VetNotFoundException("Vet not found with id: " + id));
+    }
+
+    @Override
+    public List<Vet> findAll() {
+        return vetRepository.findAll();
+    }
+
+    @Override
+    @Transactional(rollbackFor = VetNotFoundException.class)
+    public VetSpecialty assignSpecialty(VetSpecialty vetSpecialty) throws VetNotFoundException {
+        findById(vetSpecialty.getVetId());
+        VetSpecialty saved = vetSpecialtyRepository.save(vetSpecialty);
+        eventPublisher.publishEvent(new VetChangedEvent(vetSpecialty.getVetId()));
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void removeSpecialty(Integer vetId, Integer specialtyId) {
+        vetSpecialtyRepository.deleteById(new VetSpecialty.Key(vetId, specialtyId));
+        eventPublisher.publishEvent(new VetChangedEvent(vetId));
+    }
+
+    @Override
+    public List<Vet> findReferralCandidates(VetQuery query) {
+        // El índice resuelve la consulta; la BD solo se lee para los ids que coinciden
+        int[] ids = vetSpecialtyIndex.match(query);
+        if (ids.length == 0) {
+            return List.of();
+        }
+        return vetRepository.findAllById(Arrays.stream(ids).boxed().collect(Collectors.toList())).stream()
+                .sorted(Comparator.comparing(Vet::getId))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,28 @@
+package com.tecsup.petclinic.services;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.tecsup.petclinic.entities.Visit;
+
+/**
+ * Visit history across the hot visits table and visits_archive
+ */
+public interface VisitHistoryService {
+
+    /**
+     * The archive is only queried when the range starts before the archive boundary
+     * @param petId null for every pet
+     * @param from  first visit date, inclusive; null for no lower bound
+     * @param to    last visit date, inclusive; null for no upper bound
+     * @return visits ordered by date
+     */
+    List<Visit> findVisits(Integer petId, LocalDate from, LocalDate to);
+
+    /**
+     * Every visit of the owner's pets, archived ones included when anything was archived
+     * @param ownerId
+     * @return visits ordered by date
+     */
+    List<Visit> findOwnerVisits(int ownerId);
+}
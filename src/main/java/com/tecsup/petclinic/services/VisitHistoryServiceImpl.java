@@ -0,0 +1,92 @@
+package com.tecsup.petclinic.services;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import com.tecsup.petclinic.archive.VisitArchiver;
+import com.tecsup.petclinic.entities.Visit;
+
+/**
+ * Reads visits from the hot table, adding visits_archive with UNION ALL only
+ * when the requested range reaches below the archive boundary.
+ */
+@Service
+public class VisitHistoryServiceImpl implements VisitHistoryService {
+
+    private static final String COLUMNS = "id, pet_id, vet_id, visit_date, description, cost";
+
+    private static final RowMapper<Visit> VISIT_MAPPER = (rs, rowNum) -> new Visit(
+            rs.getInt("id"),
+            rs.getInt("pet_id"),
+            rs.getObject("vet_id", Integer.class),
+            rs.getDate("visit_date").toLocalDate(),
+            rs.getString("description"),
+            rs.getBigDecimal("cost"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VisitArchiver visitArchiver;
+
+    public VisitHistoryServiceImpl(JdbcTemplate jdbcTemplate, VisitArchiver visitArchiver) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.visitArchiver = visitArchiver;
+    }
+
+    @Override
+    public List<Visit> findVisits(Integer petId, LocalDate from, LocalDate to) {
+        List<Object> args = new ArrayList<>();
+        String where = where(petId, from, to, args);
+
+        String sql = "SELECT " + COLUMNS + " FROM visits" + where;
+        if (needsArchive(from)) {
+            sql += " UNION ALL SELECT " + COLUMNS + " FROM visits_archive" + where;
+            args.addAll(new ArrayList<>(args));
+        }
+        sql += " ORDER BY visit_date, id";
+
+        return jdbcTemplate.query(sql, VISIT_MAPPER, args.toArray());
+    }
+
+    @Override
+    public List<Visit> findOwnerVisits(int ownerId) {
+        String where = " WHERE pet_id IN (SELECT id FROM pets WHERE owner_id = ?)";
+        String sql = "SELECT " + COLUMNS + " FROM visits" + where;
+        if (needsArchive(null)) {
+            sql += " UNION ALL SELECT " + COLUMNS + " FROM visits_archive" + where;
+            return jdbcTemplate.query(sql + " ORDER BY visit_date, id", VISIT_MAPPER, ownerId, ownerId);
+        }
+        return jdbcTemplate.query(sql + " ORDER BY visit_date, id", VISIT_MAPPER, ownerId);
+    }
+
+    /**
+     *
+     * @param from first date requested, null for no lower bound
+     * @return whether the range can contain archived visits
+     */
+    boolean needsArchive(LocalDate from) {
+        LocalDate boundary = visitArchiver.getBoundary();
+        return boundary != null && (from == null || from.isBefore(boundary));
+    }
+
+    private static String where(Integer petId, LocalDate from, LocalDate to, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (petId != null) {
+            conditions.add("pet_id = ?");
+            args.add(petId);
+        }
+        if (from != null) {
+            conditions.add("visit_date >= ?");
+            args.add(Date.valueOf(from));
+        }
+        if (to != null) {
+            conditions.add("visit_date <= ?");
+            args.add(Date.valueOf(to));
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+}
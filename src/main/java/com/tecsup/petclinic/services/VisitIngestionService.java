@@ -0,0 +1,37 @@
+package com.tecsup.petclinic.services;
+
+import com.tecsup.petclinic.entities.Visit;
+
+/**
+ * Write-behind path for high volume visit recording
+ */
+public interface VisitIngestionService {
+
+    /**
+     * Append the visit to the write-ahead log and acknowledge it;
+     * the database insert happens later in a batch
+     * @param visit
+     * @return WAL sequence of the visit
+     * @throws java.util.concurrent.RejectedExecutionException if too many visits wait for the database
+     */
+    long record(Visit visit);
+
+    /**
+     * Wait until every acknowledged visit is in the database
+     * @param timeoutMillis
+     * @return true if everything was flushed in time
+     */
+    boolean flush(long timeoutMillis);
+
+    /**
+     *
+     * @return visits acknowledged but not yet in the database
+     */
+    int getQueueDepth();
+
+    /**
+     *
+     * @return age in milliseconds of the oldest visit not yet in the database
+     */
+    long getFlushLagMillis();
+}
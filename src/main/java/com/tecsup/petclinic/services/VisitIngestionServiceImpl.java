@@ -0,0 +1,300 @@
+package com.tecsup.petclinic.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.wal.VisitWriteAheadLog;
+import com.tecsup.petclinic.wal.WalEntry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Acknowledges visits once they are in the WAL and inserts them with JDBC
+ * batches from a single background writer.
+ *
+ * Each batch and the WAL checkpoint (visit_wal_checkpoints) commit in the
+ * same transaction, so a restart replays exactly the visits that are not in
+ * the database yet.
+ *
+ * At most queueCapacity visits wait for the writer: past that, record()
+ * rejects the visit before it reaches the WAL and the caller retries later.
+ */
+@Slf4j
+public class VisitIngestionServiceImpl implements VisitIngestionService {
+
+    private static final String INSERT_VISIT =
+            "INSERT INTO visits (pet_id, vet_id, visit_date, description, cost) VALUES (?, ?, ?, ?, ?)";
+
+    private final VisitWriteAheadLog wal;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int queueCapacity;
+
+    private volatile BlockingDeque<WalEntry> queue;
+    private final AtomicLong acknowledgedSequence = new AtomicLong();
+    private final AtomicLong flushedSequence = new AtomicLong();
+    private volatile WalEntry oldestInFlight;
+
+    private final Counter flushedCounter;
+    private final Timer batchTimer;
+
+    private final Counter rejectedCounter;
+
+    // Guarded by the WAL monitor, so no visit is appended once stop() has closed admission
+    private boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    public VisitIngestionServiceImpl(VisitWriteAheadLog wal, JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                                     int batchSize, long flushIntervalMillis, int queueCapacity) {
+        this.wal = wal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.queueCapacity = queueCapacity;
+        this.queue = new LinkedBlockingDeque<>(queueCapacity);
+
+        Gauge.builder("petclinic.visits.ingest.queue.depth", this, VisitIngestionServiceImpl::getQueueDepth)
+                .description("Visits acknowledged but not yet in the database")
+                .register(meterRegistry);
+        Gauge.builder("petclinic.visits.ingest.flush.lag", this, VisitIngestionServiceImpl::getFlushLagMillis)
+                .description("Age of the oldest visit not yet in the database")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("petclinic.visits.ingest.flushed");
+        this.batchTimer = meterRegistry.timer("petclinic.visits.ingest.batch");
+        this.rejectedCounter = meterRegistry.counter("petclinic.visits.ingest.rejected");
+    }
+
+    /**
+     * Replay unflushed WAL entries and start the writer
+     */
+    public void start() {
+        Long checkpoint = jdbcTemplate.query("SELECT last_seq FROM visit_wal_checkpoints WHERE wal_id = ?",
+                rs -> rs.next() ? rs.getLong(1) : 0L, wal.getId());
+        try {
+            List<WalEntry> pending = wal.open(checkpoint);
+            // A replay larger than the capacity is still kept whole; new visits wait for it to drain
+            queue = new LinkedBlockingDeque<>(Math.max(queueCapacity, pending.size()));
+            queue.addAll(pending);
+            long last = pending.isEmpty() ? checkpoint : pending.get(pending.size() - 1).getSequence();
+            acknowledgedSequence.set(last);
+            flushedSequence.set(checkpoint);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open visit WAL", e);
+        }
+
+        running = true;
+        synchronized (wal) {
+            accepting = true;
+        }
+        writer = new Thread(this::writeLoop, "visit-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stop accepting work, drain what is queued and close the WAL
+     */
+    public void stop() throws InterruptedException, IOException {
+        // Admission first: a record() past this point fails instead of appending behind the drain
+        synchronized (wal) {
+            accepting = false;
+        }
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        wal.close();
+    }
+
+    @Override
+    public long record(Visit visit) {
+        if (visit.getVisitDate() == null || visit.getPetId() <= 0) {
+            throw new IllegalArgumentException("A visit needs a pet and a date");
+        }
+        try {
+            WalEntry entry;
+            // Same monitor as the WAL appends: the queue must stay in sequence order
+            synchronized (wal) {
+                if (!accepting) {
+                    throw new IllegalStateException("Visit ingestion is not running");
+                }
+                // Checked before the append: a rejected visit must not be replayed later
+                if (queue.remainingCapacity() == 0) {
+                    rejectedCounter.increment();
+                    throw new RejectedExecutionException("Visit ingestion queue is full (" + queue.size() + ")");
+                }
+                entry = wal.append(visit);
+                queue.add(entry);
+            }
+            acknowledgedSequence.accumulateAndGet(entry.getSequence(), Math::max);
+            return entry.getSequence();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append visit to WAL", e);
+        }
+    }
+
+    @Override
+    public boolean flush(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long target = acknowledgedSequence.get();
+        while (flushedSequence.get() < target) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.size() + (oldestInFlight != null ? 1 : 0);
+    }
+
+    @Override
+    public long getFlushLagMillis() {
+        WalEntry oldest = oldestInFlight != null ? oldestInFlight : queue.peekFirst();
+        return oldest == null ? 0 : System.currentTimeMillis() - oldest.getAppendedAtMillis();
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                WalEntry first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    wal.sync();
+                    continue;
+                }
+                List<WalEntry> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                oldestInFlight = first;
+
+                if (!writeWithRetry(batch)) {
+                    return;
+                }
+
+                oldestInFlight = null;
+                wal.checkpoint(flushedSequence.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                // This is the only writer: it must outlive any failure
+                log.error("Visit writer step failed", e);
+            }
+        }
+    }
+
+    /**
+     * Keeps the batch until it is in the database, whatever the failure (a
+     * lost connection, a lock or query timeout, a failed WAL sync)
+     *
+     * @return false if interrupted while backing off
+     */
+    private boolean writeWithRetry(List<WalEntry> batch) {
+        long backoff = 100;
+        while (true) {
+            long started = System.nanoTime();
+            try {
+                wal.sync();
+                write(batch);
+                batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Visit batch of {} failed, retrying in {} ms", batch.size(), backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, 5000);
+            }
+        }
+    }
+
+    private void write(List<WalEntry> batch) {
+        // Visits written one by one by an earlier attempt are not written again
+        long flushed = flushedSequence.get();
+        List<WalEntry> pending = batch.stream().filter(entry -> entry.getSequence() > flushed).toList();
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            writeBatch(pending);
+        } catch (DataIntegrityViolationException e) {
+            // One bad visit must not block the others: retry them one by one
+            pending.forEach(this::writeSingle);
+        }
+    }
+
+    private void writeSingle(WalEntry entry) {
+        try {
+            writeBatch(List.of(entry));
+        } catch (DataIntegrityViolationException e) {
+            log.error("Dropping visit {} rejected by the database: {}", entry.getSequence(), entry.getVisit(), e);
+            transactionTemplate.executeWithoutResult(status -> saveCheckpoint(entry.getSequence()));
+            flushedSequence.set(entry.getSequence());
+        }
+    }
+
+    private void writeBatch(List<WalEntry> batch) {
+        long last = batch.get(batch.size() - 1).getSequence();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_VISIT, batch, batch.size(), (ps, entry) -> {
+                Visit visit = entry.getVisit();
+                ps.setInt(1, visit.getPetId());
+                if (visit.getVetId() != null) {
+                    ps.setInt(2, visit.getVetId());
+                } else {
+                    ps.setNull(2, Types.INTEGER);
+                }
+                ps.setDate(3, Date.valueOf(visit.getVisitDate()));
+                ps.setString(4, visit.getDescription());
+                ps.setBigDecimal(5, visit.getCost());
+            });
+            saveCheckpoint(last);
+        });
+        flushedSequence.set(last);
+        flushedCounter.increment(batch.size());
+    }
+
+    private void saveCheckpoint(long sequence) {
+        int updated = jdbcTemplate.update("UPDATE visit_wal_checkpoints SET last_seq = ? WHERE wal_id = ?",
+                sequence, wal.getId());
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO visit_wal_checkpoints (wal_id, last_seq) VALUES (?, ?)",
+                    wal.getId(), sequence);
+        }
+    }
+}
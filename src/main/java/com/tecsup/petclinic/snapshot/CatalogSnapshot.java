@@ -0,0 +1,208 @@
+package com.tecsup.petclinic.snapshot;
+
+import static com.tecsup.petclinic.snapshot.CatalogSnapshotWriter.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.entities.PetType;
+import com.tecsup.petclinic.events.ChangeEvent;
+
+/**
+ * Read-only, memory-mapped view of a file written by CatalogSnapshotWriter.
+ *
+ * Opening walks the record headers once to build id -> offset arrays; the
+ * records themselves are decoded straight from the mapping on each lookup,
+ * so nothing is copied to the heap up front and the OS pages data in lazily.
+ */
+public class CatalogSnapshot {
+
+    private final MappedByteBuffer buffer;
+    private final long ownerVersion;
+    private final long petVersion;
+    private final long typeVersion;
+    private final long createdMillis;
+
+    private final Index owners = new Index();
+    private final Index pets = new Index();
+    private final Index types = new Index();
+
+    private CatalogSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            throw new IOException("Not a catalog snapshot");
+        }
+        this.ownerVersion = buffer.getLong(8);
+        this.petVersion = buffer.getLong(16);
+        this.typeVersion = buffer.getLong(24);
+        this.createdMillis = buffer.getLong(32);
+
+        int position = HEADER_BYTES;
+        while (true) {
+            if (position >= buffer.limit()) {
+                throw new IOException("Truncated catalog snapshot");
+            }
+            byte kind = buffer.get(position);
+            if (kind == END) {
+                break;
+            }
+            int length = buffer.getInt(position + 1);
+            int payload = position + 5;
+            int id = buffer.getInt(payload);
+            switch (kind) {
+                case OWNER -> owners.add(id, payload);
+                case PET -> pets.add(id, payload);
+                case TYPE -> types.add(id, payload);
+                default -> throw new IOException("Unknown record kind " + kind);
+            }
+            position = payload + length;
+        }
+    }
+
+    /**
+     *
+     * @param file
+     * @return the mapped snapshot
+     * @throws IOException if the file is missing or not a complete snapshot
+     */
+    public static CatalogSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     *
+     * @param entityType ChangeEvent.OWNER, ChangeEvent.PET or ChangeEvent.TYPE
+     * @return table_versions version the snapshot holds every change up to
+     */
+    public long getVersion(String entityType) {
+        return switch (entityType) {
+            case ChangeEvent.OWNER -> ownerVersion;
+            case ChangeEvent.PET -> petVersion;
+            case ChangeEvent.TYPE -> typeVersion;
+            default -> throw new IllegalArgumentException("Not in a catalog snapshot: " + entityType);
+        };
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    public int ownerCount() {
+        return owners.size;
+    }
+
+    public int petCount() {
+        return pets.size;
+    }
+
+    public int typeCount() {
+        return types.size;
+    }
+
+    public Optional<Owner> owner(int id) {
+        int offset = owners.find(id);
+        if (offset < 0) {
+            return Optional.empty();
+        }
+        Cursor c = new Cursor(offset + 4);
+        return Optional.of(new Owner(id, c.string(), c.string(), c.string(), c.string(), c.string()));
+    }
+
+    public Optional<Pet> pet(int id) {
+        int offset = pets.find(id);
+        if (offset < 0) {
+            return Optional.empty();
+        }
+        Cursor c = new Cursor(offset + 4);
+        int typeId = c.integer();
+        int ownerId = c.integer();
+        int day = c.integer();
+        String name = c.string();
+        return Optional.of(new Pet(id, name, typeId, ownerId, day == NO_DATE ? null : LocalDate.ofEpochDay(day)));
+    }
+
+    public Optional<PetType> type(int id) {
+        int offset = types.find(id);
+        if (offset < 0) {
+            return Optional.empty();
+        }
+        Cursor c = new Cursor(offset + 4);
+        String name = c.string();
+        String description = c.string();
+        byte active = buffer.get(c.position++);
+        String sizeCategory = c.string();
+        int lifespan = c.integer();
+        String careLevel = c.string();
+        return Optional.of(new PetType(id, name, description, active < 0 ? null : active == 1, sizeCategory,
+                lifespan == Integer.MIN_VALUE ? null : lifespan, careLevel));
+    }
+
+    /**
+     * Absolute reads only, so concurrent lookups never share a position
+     */
+    private final class Cursor {
+
+        int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+
+        int integer() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        String string() {
+            int length = integer();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Sorted id -> payload offset arrays
+     */
+    private static final class Index {
+
+        int[] ids = new int[64];
+        int[] offsets = new int[64];
+        int size;
+
+        void add(int id, int offset) throws IOException {
+            if (size > 0 && ids[size - 1] >= id) {
+                throw new IOException("Snapshot records out of id order");
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            ids[size] = id;
+            offsets[size] = offset;
+            size++;
+        }
+
+        int find(int id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            return i >= 0 ? offsets[i] : -1;
+        }
+    }
+}
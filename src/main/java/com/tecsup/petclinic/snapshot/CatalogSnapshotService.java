@@ -0,0 +1,307 @@
+package com.tecsup.petclinic.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.rest.core.annotation.HandleBeforeDelete;
+import org.springframework.data.rest.core.annotation.HandleBeforeSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tecsup.petclinic.coherence.CacheInvalidationListener;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.entities.PetType;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.events.OwnerChangedEvent;
+import com.tecsup.petclinic.events.OwnersUpsertedEvent;
+import com.tecsup.petclinic.events.PetChangedEvent;
+import com.tecsup.petclinic.events.PetsUpsertedEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Warm-restart cache of owners, pets and types backed by a memory-mapped file.
+ *
+ * Each snapshot records the table_versions of owners, pets and types read
+ * before its scan. Versions are bumped after a write commits, one at a time
+ * under the table_versions row lock, so a write the scan missed always has
+ * a higher version than the file. On startup the last snapshot is mapped
+ * and every id in entity_versions above those versions is marked dirty and
+ * read from the database, everything else is served from the mapping: the
+ * dirty set is re-derived, never persisted. Local writes mark ids dirty as
+ * they happen, including /api/owners, /api/pets and /api/types writes
+ * (deleting an owner marks its cascaded pets as well). The file is
+ * rewritten every petclinic.snapshot.write-interval-ms and on shutdown;
+ * dirty ids stay dirty until the next restart.
+ *
+ * A node that dies between a commit and its bump loses that change, as
+ * for the coherence poller: the row may be served stale from the snapshot
+ * until a later write of it or the next snapshot.
+ *
+ * Lookups return empty when the id is not served from the snapshot; callers
+ * then go to the database as before.
+ */
+@Component
+@RepositoryEventHandler
+@Slf4j
+public class CatalogSnapshotService implements CacheInvalidationListener {
+
+    private static final List<String> ENTITY_TYPES = List.of(ChangeEvent.OWNER, ChangeEvent.PET, ChangeEvent.TYPE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Path file;
+
+    private volatile CatalogSnapshot snapshot;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public CatalogSnapshotService(JdbcTemplate jdbcTemplate,
+                                  @Value("${petclinic.snapshot.enabled:false}") boolean enabled,
+                                  @Value("${petclinic.snapshot.file:${user.home}/temp/petclinic-catalog.snap}") Path file) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.file = file;
+    }
+
+    public Optional<Owner> findOwner(Integer id) {
+        CatalogSnapshot current = snapshot;
+        if (current == null || id == null || dirty.contains(key(ChangeEvent.OWNER, id))) {
+            return Optional.empty();
+        }
+        return current.owner(id);
+    }
+
+    public Optional<Pet> findPet(Integer id) {
+        CatalogSnapshot current = snapshot;
+        if (current == null || id == null || dirty.contains(key(ChangeEvent.PET, id))) {
+            return Optional.empty();
+        }
+        return current.pet(id);
+    }
+
+    public Optional<PetType> findType(Integer id) {
+        CatalogSnapshot current = snapshot;
+        if (current == null || id == null || dirty.contains(key(ChangeEvent.TYPE, id))) {
+            return Optional.empty();
+        }
+        return current.type(id);
+    }
+
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Marks the id as changed so it is no longer served from the mapping
+     * @param aggregateType ChangeEvent.OWNER, ChangeEvent.PET or ChangeEvent.TYPE
+     * @param id
+     */
+    public void invalidate(String aggregateType, Integer id) {
+        // Also while a snapshot is being mapped or written, before it is served
+        if (enabled) {
+            dirty.add(key(aggregateType, id));
+        }
+    }
+
+    /**
+     * Changes made by other nodes, from the coherence poller
+     */
+    @Override
+    public void invalidate(String entityType, Collection<Integer> ids) {
+        ids.forEach(id -> invalidate(entityType, id));
+    }
+
+    @Override
+    public void invalidateAll(String entityType) {
+        if (snapshot != null) {
+            log.info("Catalog snapshot dropped: too many {} changes on other nodes", entityType);
+            snapshot = null;
+        }
+    }
+
+    // Synchronous on purpose: the id must stop being served before the writing transaction can read it back
+    @EventListener
+    public void onPetChanged(PetChangedEvent event) {
+        invalidate(ChangeEvent.PET, event.getPetId());
+    }
+
+    @EventListener
+    public void onOwnerChanged(OwnerChangedEvent event) {
+        invalidate(ChangeEvent.OWNER, event.getOwnerId());
+    }
+
+    @EventListener
+    public void onPetsUpserted(PetsUpsertedEvent event) {
+        invalidate(ChangeEvent.PET, event.getPetIds());
+    }
+
+    @EventListener
+    public void onOwnersUpserted(OwnersUpsertedEvent event) {
+        invalidate(ChangeEvent.OWNER, event.getOwnerIds());
+    }
+
+    // Before the repository call, for the same reason; a created id is not in the mapping
+    @HandleBeforeSave
+    @HandleBeforeDelete
+    public void onPetSaving(Pet pet) {
+        invalidate(ChangeEvent.PET, pet.getId());
+    }
+
+    @HandleBeforeSave
+    public void onOwnerSaving(Owner owner) {
+        invalidate(ChangeEvent.OWNER, owner.getId());
+    }
+
+    /**
+     * The owner's pets go with it (ON DELETE CASCADE)
+     */
+    @HandleBeforeDelete
+    public void onOwnerDeleting(Owner owner) {
+        invalidate(ChangeEvent.OWNER, owner.getId());
+        if (enabled) {
+            jdbcTemplate.queryForList("SELECT id FROM pets WHERE owner_id = ?", Integer.class, owner.getId())
+                    .forEach(id -> invalidate(ChangeEvent.PET, id));
+        }
+    }
+
+    @HandleBeforeSave
+    @HandleBeforeDelete
+    public void onTypeSaving(PetType type) {
+        invalidate(ChangeEvent.TYPE, type.getId());
+    }
+
+    /**
+     * Map the previous snapshot and catch up with entity_versions
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled || !Files.exists(file)) {
+            return;
+        }
+        try {
+            CatalogSnapshot candidate = CatalogSnapshot.open(file);
+            if (!catchUp(candidate)) {
+                log.warn("Catalog snapshot {} does not match this database, ignoring it", file);
+                return;
+            }
+            snapshot = candidate;
+            log.info("Catalog snapshot mapped: {} owners, {} pets, {} types, {} changed since written",
+                    candidate.ownerCount(), candidate.petCount(), candidate.typeCount(), dirty.size());
+        } catch (Exception e) {
+            log.warn("Cannot use catalog snapshot {}", file, e);
+        }
+    }
+
+    /**
+     * Write a fresh snapshot and switch reads to it
+     */
+    @Scheduled(initialDelayString = "${petclinic.snapshot.write-interval-ms:600000}",
+            fixedDelayString = "${petclinic.snapshot.write-interval-ms:600000}")
+    public synchronized void write() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Versions first: a write the scan misses is bumped after them, never missed
+            long ownerVersion = currentVersion(ChangeEvent.OWNER);
+            long petVersion = currentVersion(ChangeEvent.PET);
+            long typeVersion = currentVersion(ChangeEvent.TYPE);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.createDirectories(file.toAbsolutePath().getParent());
+
+            try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(tmp, ownerVersion, petVersion,
+                    typeVersion)) {
+                jdbcTemplate.query("SELECT id, first_name, last_name, address, city, telephone FROM owners ORDER BY id",
+                        rs -> {
+                            try {
+                                writer.owner(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                                        rs.getString(5), rs.getString(6));
+                            } catch (IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+                jdbcTemplate.query("SELECT id, name, type_id, owner_id, birth_date FROM pets ORDER BY id",
+                        rs -> {
+                            Date birthDate = rs.getDate(5);
+                            try {
+                                writer.pet(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getInt(4),
+                                        birthDate != null ? birthDate.toLocalDate() : null);
+                            } catch (IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+                jdbcTemplate.query("SELECT id, name, description, active, size_category, average_lifespan, care_level "
+                        + "FROM types ORDER BY id", rs -> {
+                            try {
+                                boolean active = rs.getBoolean(4);
+                                Boolean activeValue = rs.wasNull() ? null : active;
+                                int lifespan = rs.getInt(6);
+                                Integer lifespanValue = rs.wasNull() ? null : lifespan;
+                                writer.type(rs.getInt(1), rs.getString(2), rs.getString(3), activeValue,
+                                        rs.getString(5), lifespanValue, rs.getString(7));
+                            } catch (IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        });
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Dirty before served: changes bumped during the scan must not be read from the new file
+            CatalogSnapshot written = CatalogSnapshot.open(file);
+            catchUp(written);
+            snapshot = written;
+            log.info("Catalog snapshot written at versions owner {}, pet {}, type {}", ownerVersion, petVersion,
+                    typeVersion);
+        } catch (Exception e) {
+            log.warn("Cannot write catalog snapshot {}", file, e);
+        }
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void writeOnShutdown() {
+        write();
+    }
+
+    /**
+     * Mark everything changed after the snapshot's versions as dirty
+     * @return false if the snapshot is ahead of this database (taken from another one)
+     */
+    private boolean catchUp(CatalogSnapshot candidate) {
+        for (String entityType : ENTITY_TYPES) {
+            if (candidate.getVersion(entityType) > currentVersion(entityType)) {
+                return false;
+            }
+        }
+        for (String entityType : ENTITY_TYPES) {
+            jdbcTemplate.queryForList("SELECT entity_id FROM entity_versions WHERE entity_type = ? AND version > ?",
+                            Integer.class, entityType, candidate.getVersion(entityType))
+                    .forEach(id -> dirty.add(key(entityType, id)));
+        }
+        return true;
+    }
+
+    private long currentVersion(String entityType) {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT version FROM table_versions WHERE table_name = ?",
+                Long.class, entityType);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    private static String key(String aggregateType, Integer id) {
+        return aggregateType + ":" + id;
+    }
+}
@@ -0,0 +1,126 @@
+package com.tecsup.petclinic.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Streams owners, pets and types into a snapshot file.
+ *
+ * Layout: header (magic, format, owner, pet and type versions, created
+ * millis) followed by records
+ * [byte kind][int length][payload] and a terminating END byte. Records of a
+ * kind must be written in ascending id order so the reader can binary search
+ * its offset index.
+ */
+public class CatalogSnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x50435331; // "PCS1"
+    static final int FORMAT = 2;
+    static final int HEADER_BYTES = 4 + 4 + 3 * 8 + 8;
+
+    static final byte END = 0;
+    static final byte OWNER = 1;
+    static final byte PET = 2;
+    static final byte TYPE = 3;
+
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private final ByteBuffer record = ByteBuffer.allocate(64 * 1024);
+
+    /**
+     *
+     * @param file
+     * @param ownerVersion table_versions of owners the snapshot is consistent with
+     * @param petVersion
+     * @param typeVersion
+     * @throws IOException
+     */
+    public CatalogSnapshotWriter(Path file, long ownerVersion, long petVersion, long typeVersion) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putInt(FORMAT).putLong(ownerVersion).putLong(petVersion).putLong(typeVersion)
+                .putLong(System.currentTimeMillis());
+    }
+
+    public void owner(int id, String firstName, String lastName, String address, String city, String telephone)
+            throws IOException {
+        record.clear();
+        record.putInt(id);
+        putString(firstName);
+        putString(lastName);
+        putString(address);
+        putString(city);
+        putString(telephone);
+        emit(OWNER);
+    }
+
+    public void pet(int id, String name, int typeId, int ownerId, LocalDate birthDate) throws IOException {
+        record.clear();
+        record.putInt(id).putInt(typeId).putInt(ownerId);
+        record.putInt(birthDate != null ? (int) birthDate.toEpochDay() : NO_DATE);
+        putString(name);
+        emit(PET);
+    }
+
+    public void type(int id, String name, String description, Boolean active, String sizeCategory,
+                     Integer averageLifespan, String careLevel) throws IOException {
+        record.clear();
+        record.putInt(id);
+        putString(name);
+        putString(description);
+        record.put((byte) (active == null ? -1 : active ? 1 : 0));
+        putString(sizeCategory);
+        record.putInt(averageLifespan != null ? averageLifespan : Integer.MIN_VALUE);
+        putString(careLevel);
+        emit(TYPE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            ensure(1);
+            buffer.put(END);
+            drain();
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            record.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        record.putInt(bytes.length).put(bytes);
+    }
+
+    private void emit(byte kind) throws IOException {
+        record.flip();
+        ensure(5 + record.remaining());
+        buffer.put(kind).putInt(record.remaining()).put(record);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,242 @@
+package com.tecsup.petclinic.upsert;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Upserts in chunks of petclinic.upsert.batch-size rows: one locking
+ * lookup of the chunk's keys, then a batch of UPDATEs by id for the rows
+ * found and a batch of INSERTs for the rest. Callers get back the id of
+ * every row, inserted or updated, in input order.
+ *
+ * Rows are matched on the key columns passed and nothing else, with
+ * portable SQL that runs the same on MySQL and H2. Neither MySQL's INSERT
+ * ... ON DUPLICATE KEY UPDATE nor H2's MERGE fit: the first fires on any
+ * unique key of the table and returns unreliable ids for a batch mixing
+ * inserts and updates, the second fails when a key matches several rows.
+ *
+ * The database compares the keys, with its collation: a row is matched to
+ * the exact key it sent back, otherwise to one equal ignoring case. With
+ * several rows for one key (owners entered twice, not merged yet) the
+ * lowest id is updated. The keys need no unique index; without one, two
+ * transactions inserting the same new key are kept apart only by the gap
+ * locks of the lookup.
+ *
+ * Key columns must not be NULL: a NULL never equals an existing key, so
+ * the row would be inserted again every time.
+ */
+@Component
+public class UpsertWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public UpsertWriter(JdbcTemplate jdbcTemplate, @Value("${petclinic.upsert.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     *
+     * @param table
+     * @param columns columns written, in the order values returns them
+     * @param keyColumns columns identifying an existing row
+     * @param rows
+     * @param values column values of one row
+     * @return row ids, in the order of rows
+     * @throws IllegalArgumentException if a row has a NULL key column
+     */
+    public <T> List<Integer> upsert(String table, List<String> columns, List<String> keyColumns,
+                                    List<T> rows, Function<T, Object[]> values) {
+        return upsert(table, columns, keyColumns, rows, values, (id, row) -> { });
+    }
+
+    /**
+     * Same upsert, also handing over what every updated row held before, as
+     * read by the locking lookup
+     *
+     * @param previous called once per row that existed before this call, with
+     *                 its id and its values of columns, in that order
+     */
+    public <T> List<Integer> upsert(String table, List<String> columns, List<String> keyColumns,
+                                    List<T> rows, Function<T, Object[]> values,
+                                    BiConsumer<Integer, Object[]> previous) {
+        List<Integer> ids = new ArrayList<>(rows.size());
+        if (rows.isEmpty()) {
+            return ids;
+        }
+        int[] keyIndexes = keyColumns.stream().mapToInt(columns::indexOf).toArray();
+        List<Object[]> rowValues = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            Object[] rowValue = values.apply(row);
+            for (int index : keyIndexes) {
+                if (rowValue[index] == null) {
+                    throw new IllegalArgumentException("Key column " + columns.get(index) + " is null in row "
+                            + rowValues.size() + " of the " + table + " upsert");
+                }
+            }
+            rowValues.add(rowValue);
+        }
+        // Rows this call inserted or already reported: a later chunk updating them is not a previous state
+        Set<Integer> seen = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            ids.addAll(write(table, columns, keyColumns, keyIndexes,
+                    rowValues.subList(from, Math.min(from + batchSize, rows.size())), seen, previous));
+        }
+        return ids;
+    }
+
+    private List<Integer> write(String table, List<String> columns, List<String> keyColumns, int[] keyIndexes,
+                                List<Object[]> rows, Set<Integer> seen, BiConsumer<Integer, Object[]> previous) {
+        List<List<Object>> keys = rows.stream().map(row -> normalize(key(row, keyIndexes)))
+                .collect(Collectors.toList());
+
+        // ------------ Existing rows, lowest id first ---------------
+        String match = "(" + keyColumns.stream().map(column -> column + " = ?").collect(Collectors.joining(" AND "))
+                + ")";
+        List<List<Object>> distinct = keys.stream().distinct().collect(Collectors.toList());
+        String select = "SELECT id" + columns.stream().filter(column -> !column.equals("id"))
+                .map(column -> ", " + column).collect(Collectors.joining()) + " FROM " + table + " WHERE "
+                + String.join(" OR ", Collections.nCopies(distinct.size(), match)) + " ORDER BY id FOR UPDATE";
+        Map<List<Object>, Integer> exact = new HashMap<>();
+        Map<List<Object>, Integer> folded = new HashMap<>();
+        Map<Integer, Object[]> found = new HashMap<>();
+        jdbcTemplate.query(select, rs -> {
+            int id = rs.getInt(1);
+            Object[] row = new Object[columns.size()];
+            for (int i = 0, column = 2; i < columns.size(); i++) {
+                row[i] = columns.get(i).equals("id") ? id : rs.getObject(column++);
+            }
+            List<Object> key = key(row, keyIndexes);
+            exact.putIfAbsent(normalize(key), id);
+            folded.putIfAbsent(fold(key), id);
+            found.put(id, row);
+        }, distinct.stream().flatMap(List::stream).toArray());
+
+        // ------------ Updates by id, one insert per new key ---------------
+        Integer[] ids = new Integer[rows.size()];
+        List<Object[]> updates = new ArrayList<>();
+        Map<List<Object>, Integer> inserted = new LinkedHashMap<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            List<Object> key = keys.get(i);
+            Integer id = exact.containsKey(key) ? exact.get(key) : folded.get(fold(key));
+            if (id != null) {
+                ids[i] = id;
+                updates.add(update(rows.get(i), columns, id));
+                if (seen.add(id)) {
+                    previous.accept(id, found.get(id));
+                }
+            } else if (inserted.containsKey(key)) {
+                // Same new key twice in the chunk: the later row wins, as if they ran in turn
+                inserts.set(inserted.get(key), rows.get(i));
+            } else {
+                inserted.put(key, inserts.size());
+                inserts.add(rows.get(i));
+            }
+        }
+
+        if (!updates.isEmpty()) {
+            String set = columns.stream().filter(column -> !column.equals("id"))
+                    .map(column -> column + " = ?").collect(Collectors.joining(", "));
+            jdbcTemplate.batchUpdate("UPDATE " + table + " SET " + set + " WHERE id = ?", updates);
+        }
+        List<Integer> insertedIds = inserts.isEmpty() ? List.of() : insert(table, columns, inserts);
+        seen.addAll(insertedIds);
+        for (int i = 0; i < rows.size(); i++) {
+            if (ids[i] == null) {
+                ids[i] = insertedIds.get(inserted.get(keys.get(i)));
+            }
+        }
+        return Arrays.asList(ids);
+    }
+
+    /**
+     * A batch of inserts only, so generated keys come back one per row
+     */
+    private List<Integer> insert(String table, List<String> columns, List<Object[]> rows) {
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        int idIndex = columns.indexOf("id");
+        if (idIndex >= 0) {
+            // An explicit id is not a generated key: the driver does not return it
+            jdbcTemplate.batchUpdate(sql, rows);
+            return rows.stream().map(row -> ((Number) row[idIndex]).intValue()).collect(Collectors.toList());
+        }
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(sql, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        new ArgumentPreparedStatementSetter(rows.get(i)).setValues(ps);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keys);
+        List<Map<String, Object>> keyList = keys.getKeyList();
+        if (keyList.size() != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " ids from " + table + " insert, got "
+                    + keyList.size());
+        }
+        return keyList.stream().map(key -> ((Number) key.values().iterator().next()).intValue())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Object> key(Object[] row, int[] keyIndexes) {
+        return IntStream.of(keyIndexes).mapToObj(index -> row[index]).collect(Collectors.toList());
+    }
+
+    /**
+     * Numbers compare by value, whatever type the driver returned
+     */
+    private static List<Object> normalize(List<Object> key) {
+        return key.stream().map(value -> value instanceof Number number ? (Object) number.longValue() : value)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Object> fold(List<Object> key) {
+        return normalize(key).stream()
+                .map(value -> value instanceof String text ? (Object) text.toLowerCase(Locale.ROOT) : value)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Non-id columns in order, then the id for the WHERE
+     */
+    private static Object[] update(Object[] row, List<String> columns, int id) {
+        List<Object> values = new ArrayList<>(row.length + 1);
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).equals("id")) {
+                values.add(row[i]);
+            }
+        }
+        values.add(id);
+        return values.toArray();
+    }
+}
@@ -0,0 +1,16 @@
+package com.tecsup.petclinic.wal;
+
+/**
+ * When appended WAL records are forced to disk
+ */
+public enum FsyncPolicy {
+
+    /** force before acknowledging every record (no loss, slowest) */
+    ALWAYS,
+
+    /** force at most once per interval (bounded loss window on power failure) */
+    INTERVAL,
+
+    /** leave it to the OS page cache (survives process crash, not power loss) */
+    NEVER
+}
@@ -0,0 +1,303 @@
+package com.tecsup.petclinic.wal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.tecsup.petclinic.entities.Visit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only log of visits acknowledged but not yet in the database, kept
+ * as segment files named after the first sequence they may hold
+ * (visits-&lt;seq&gt;.wal).
+ *
+ * Record layout: [int length][int crc32][payload], payload = seq, pet id,
+ * vet id (-1 for none), epoch day, cost, description. A torn or corrupt
+ * tail (crash during append) ends the replay of its segment.
+ *
+ * At each checkpoint a segment that reached segmentBytes is closed and a
+ * new one started, and closed segments holding only flushed sequences are
+ * deleted, so the log stays bounded even when the writer never fully
+ * catches up; once everything is flushed the current segment is emptied.
+ * Sequences keep growing so the database checkpoint stays comparable. The
+ * log id (visits.wal.id) keys that checkpoint, so a lost WAL directory
+ * never makes new records look already flushed.
+ */
+@Slf4j
+public class VisitWriteAheadLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "visits-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final long segmentBytes;
+    private final String id;
+
+    // First sequence of each segment, oldest first; the last one is open for appends
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private FileChannel channel;
+    private long lastSequence;
+    private long lastForceMillis;
+
+    public VisitWriteAheadLog(Path directory, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                              long segmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.segmentBytes = segmentBytes;
+
+        Path idFile = directory.resolve("visits.wal.id");
+        if (!Files.exists(idFile)) {
+            Files.writeString(idFile, UUID.randomUUID().toString());
+        }
+        this.id = Files.readString(idFile).trim();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Open the log and return the entries written after the checkpoint
+     * @param checkpoint last sequence known to be in the database
+     * @return entries to flush again, in order
+     * @throws IOException
+     */
+    public synchronized List<WalEntry> open(long checkpoint) throws IOException {
+        lastSequence = checkpoint;
+        segments.clear();
+        Path legacy = directory.resolve("visits.wal");
+        if (Files.exists(legacy)) {
+            // Single file of earlier versions: the oldest segment
+            Files.move(legacy, segment(0));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())), path);
+                }
+            });
+        }
+
+        List<WalEntry> pending = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            boolean current = segment.getKey().equals(segments.lastKey());
+            FileChannel segmentChannel = FileChannel.open(segment.getValue(), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                long position = read(segmentChannel, checkpoint, now, pending);
+                long size = segmentChannel.size();
+                if (position < size) {
+                    log.warn("Discarding {} bytes of torn WAL tail in {}", size - position, segment.getValue());
+                    segmentChannel.truncate(position);
+                }
+                if (current) {
+                    segmentChannel.position(position);
+                    channel = segmentChannel;
+                }
+            } finally {
+                if (!current) {
+                    segmentChannel.close();
+                }
+            }
+        }
+        if (channel == null) {
+            startSegment();
+        }
+        log.info("Opened visit WAL {} with {} segments and {} unflushed entries", directory, segments.size(),
+                pending.size());
+        return pending;
+    }
+
+    /**
+     * Read the valid records of one segment
+     * @return position after the last valid record
+     */
+    private long read(FileChannel segmentChannel, long checkpoint, long now, List<WalEntry> pending)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = 0;
+        long size = segmentChannel.size();
+
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            segmentChannel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            segmentChannel.read(payload, position + HEADER_BYTES);
+            if (crc != crc(payload.array())) {
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+            long sequence = in.readLong();
+            Visit visit = decode(in);
+            if (sequence > checkpoint) {
+                pending.add(new WalEntry(sequence, visit, now));
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    /**
+     * Append a visit; once this returns the visit is acknowledged
+     * @param visit
+     * @return entry with its sequence
+     * @throws IOException
+     */
+    public synchronized WalEntry append(Visit visit) throws IOException {
+        long sequence = lastSequence + 1;
+        byte[] payload = encode(sequence, visit);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+
+        long now = System.currentTimeMillis();
+        if (fsyncPolicy == FsyncPolicy.ALWAYS
+                || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForceMillis >= fsyncIntervalMillis)) {
+            channel.force(false);
+            lastForceMillis = now;
+        }
+        lastSequence = sequence;
+        return new WalEntry(sequence, visit, now);
+    }
+
+    /**
+     * Force pending appends to disk (used by the INTERVAL policy)
+     * @throws IOException
+     */
+    public synchronized void sync() throws IOException {
+        if (channel != null && fsyncPolicy != FsyncPolicy.NEVER) {
+            channel.force(false);
+            lastForceMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Drop what the database already holds: a full segment is closed and a
+     * new one started, closed segments with only flushed records are
+     * deleted, and the current one is emptied when everything is flushed
+     * @param flushedSequence last sequence committed with the checkpoint
+     * @throws IOException
+     */
+    public synchronized void checkpoint(long flushedSequence) throws IOException {
+        if (flushedSequence >= lastSequence) {
+            if (channel.size() > 0) {
+                channel.truncate(0);
+                channel.position(0);
+            }
+        } else if (channel.size() >= segmentBytes) {
+            startSegment();
+        }
+
+        // A closed segment ends right before the next one starts
+        while (segments.size() > 1) {
+            Long first = segments.firstKey();
+            if (segments.higherKey(first) - 1 > flushedSequence) {
+                break;
+            }
+            Files.deleteIfExists(segments.remove(first));
+        }
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Close the current segment, forced to disk since sync() only forces
+     * the current one, and open the next at lastSequence + 1
+     */
+    private void startSegment() throws IOException {
+        if (channel != null) {
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(false);
+            }
+            channel.close();
+        }
+        long first = lastSequence + 1;
+        Path path = segment(first);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segments.put(first, path);
+    }
+
+    private Path segment(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] encode(long sequence, Visit visit) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeInt(visit.getPetId());
+            out.writeInt(visit.getVetId() != null ? visit.getVetId() : -1);
+            out.writeLong(visit.getVisitDate().toEpochDay());
+            out.writeUTF(visit.getCost() != null ? visit.getCost().toPlainString() : "");
+            out.writeUTF(visit.getDescription() != null ? visit.getDescription() : "");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Visit decode(DataInputStream in) throws IOException {
+        Visit visit = new Visit();
+        visit.setPetId(in.readInt());
+        int vetId = in.readInt();
+        visit.setVetId(vetId >= 0 ? vetId : null);
+        visit.setVisitDate(LocalDate.ofEpochDay(in.readLong()));
+        String cost = in.readUTF();
+        visit.setCost(cost.isEmpty() ? null : new BigDecimal(cost));
+        String description = in.readUTF();
+        visit.setDescription(description.isEmpty() ? null : description);
+        return visit;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
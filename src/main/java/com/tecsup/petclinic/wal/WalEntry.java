@@ -0,0 +1,16 @@
+package com.tecsup.petclinic.wal;
+
+import com.tecsup.petclinic.entities.Visit;
+
+import lombok.Value;
+
+/**
+ * Acknowledged visit waiting to be written to the database
+ */
+@Value
+public class WalEntry {
+
+    long sequence;
+    Visit visit;
+    long appendedAtMillis;
+}
@@ -9,6 +9,12 @@
 -- ===============================================
 -- DROP TABLES (Orden inverso por dependencias)
 -- ===============================================
+DROP TABLE IF EXISTS entity_versions;
+DROP TABLE IF EXISTS table_versions;
+DROP TABLE IF EXISTS visit_archive_state;
+DROP TABLE IF EXISTS visits_archive;
+DROP TABLE IF EXISTS visit_wal_checkpoints;
+DROP TABLE IF EXISTS outbox_events;
 DROP TABLE IF EXISTS visits;
 DROP TABLE IF EXISTS pets;
 DROP TABLE IF EXISTS vet_specialties;
@@ -100,6 +106,11 @@ CREATE TABLE IF NOT EXISTS owners (
 );
 
 CREATE INDEX idx_owners_last_name ON owners(last_name);
+CREATE INDEX idx_owners_city_last_name ON owners(city, last_name);
+CREATE INDEX idx_owners_telephone ON owners(telephone);
+-- Natural key of upserts from partner clinics (NULLs never match, so upserts reject them).
+-- Not unique: owners entered twice exist until merged (see data/migrate-mysql-unique-natural-keys.sql)
+CREATE INDEX idx_owners_name_telephone ON owners(first_name, last_name, telephone);
 
 -- ===============================================
 -- TABLE: pets (Mascotas)
@@ -122,6 +133,8 @@ CREATE TABLE IF NOT EXISTS pets (
 );
 
 CREATE INDEX idx_pets_name ON pets(name);
+CREATE INDEX idx_pets_owner_type ON pets(owner_id, type_id);
+CREATE INDEX idx_pets_owner_name ON pets(owner_id, name);
 
 -- ===============================================
 -- TABLE: visits (Visitas Veterinarias)
@@ -143,10 +156,94 @@ CREATE TABLE IF NOT EXISTS visits (
     ON UPDATE CASCADE
 );
 
-CREATE INDEX idx_visits_pet_id ON visits(pet_id);
+-- Visit history by pet and date range (from the index advisor); also serves lookups by pet_id alone
+CREATE INDEX idx_visits_pet_id_visit_date ON visits(pet_id, visit_date);
 CREATE INDEX idx_visits_vet_id ON visits(vet_id);
 CREATE INDEX idx_visits_date ON visits(visit_date);
 
+-- ===============================================
+-- TABLE: outbox_events (Eventos de cambio)
+-- Description: Change events written in the same transaction as the
+--              owner/pet change; relayed to the in-process event bus
+-- ===============================================
+CREATE TABLE IF NOT EXISTS outbox_events (
+  id              BIGINT AUTO_INCREMENT,
+  aggregate_type  VARCHAR(20) NOT NULL,
+  aggregate_id    INT NOT NULL,
+  event_type      VARCHAR(20) NOT NULL,
+  payload         VARCHAR(4000),
+  created_at      TIMESTAMP NOT NULL,
+  published_at    TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_outbox_published ON outbox_events(published_at, id);
+
+-- ===============================================
+-- TABLE: visit_wal_checkpoints (Checkpoint del WAL de visitas)
+-- Description: Last WAL sequence inserted into visits, per WAL file;
+--              updated in the same transaction as each visit batch
+-- ===============================================
+CREATE TABLE IF NOT EXISTS visit_wal_checkpoints (
+  wal_id          VARCHAR(36) NOT NULL,
+  last_seq        BIGINT NOT NULL,
+  PRIMARY KEY (wal_id)
+);
+
+-- ===============================================
+-- TABLE: visits_archive (Visitas históricas)
+-- Description: Visits older than the archive boundary, moved out of
+--              visits in chunks by the archiver
+-- ===============================================
+CREATE TABLE IF NOT EXISTS visits_archive (
+  id              INT NOT NULL,
+  pet_id          INT NOT NULL,
+  vet_id          INT,
+  visit_date      DATE NOT NULL,
+  description     VARCHAR(255),
+  cost            DECIMAL(10,2),
+  archived_at     TIMESTAMP NOT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_visits_archive_pet_date ON visits_archive(pet_id, visit_date);
+CREATE INDEX idx_visits_archive_date ON visits_archive(visit_date);
+
+-- ===============================================
+-- TABLE: visit_archive_state (Frontera del archivo)
+-- Description: Single row; visits dated before boundary may be in
+--              visits_archive, visits on or after it are always in visits
+-- ===============================================
+CREATE TABLE IF NOT EXISTS visit_archive_state (
+  id              INT NOT NULL,
+  boundary        DATE NOT NULL,
+  PRIMARY KEY (id)
+);
+
+-- ===============================================
+-- TABLE: table_versions / entity_versions (Versiones para coherencia)
+-- Description: Bumped right after each owner/pet/type write commits;
+--              every node polls them to invalidate its local caches.
+--              A crash between the commit and the bump loses that
+--              invalidation: the entry stays stale until a full reload
+-- ===============================================
+CREATE TABLE IF NOT EXISTS table_versions (
+  table_name      VARCHAR(20) NOT NULL,
+  version         BIGINT NOT NULL,
+  PRIMARY KEY (table_name)
+);
+
+INSERT INTO table_versions (table_name, version) VALUES ('OWNER', 0), ('PET', 0), ('TYPE', 0);
+
+CREATE TABLE IF NOT EXISTS entity_versions (
+  entity_type     VARCHAR(20) NOT NULL,
+  entity_id       INT NOT NULL,
+  version         BIGINT NOT NULL,
+  PRIMARY KEY (entity_type, entity_id)
+);
+
+CREATE INDEX idx_entity_versions_version ON entity_versions(entity_type, version);
+
 -- ===============================================
 -- END OF SCHEMA CREATION
 -- ===============================================
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.tecsup.petclinic.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.events.PetChangedEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class PetColumnarSnapshotTest {
+
+    private static final int ROWS = 100_000;
+
+    private List<Pet> pets;
+    private PetColumnarSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        String[] names = {"Leo", "Basil", "Rosy", "Jewel", "Iggy", "George", "Max", "Lucky", "Sly"};
+        pets = new ArrayList<>(ROWS);
+        for (int i = 1; i <= ROWS; i++) {
+            LocalDate birthDate = i % 10 == 0 ? null : LocalDate.of(1995 + random.nextInt(30), 1 + random.nextInt(12), 1);
+            pets.add(new Pet(i, names[random.nextInt(names.length)], 1 + random.nextInt(8),
+                    1 + random.nextInt(5_000), birthDate));
+        }
+        snapshot = new PetColumnarSnapshot(Mockito.mock(DataSource.class), 1000);
+        snapshot.load(pets);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testAggregatesMatchEntityScan() {
+
+        LocalDate FROM = LocalDate.of(2000, 1, 1);
+        LocalDate TO = LocalDate.of(2009, 12, 31);
+
+        PetFilter filter = PetFilter.builder().bornFrom(FROM).bornTo(TO).build();
+
+        Map<Integer, Long> expectedByType = pets.stream()
+                .filter(p -> p.getBirthDate() != null && !p.getBirthDate().isBefore(FROM) && !p.getBirthDate().isAfter(TO))
+                .collect(Collectors.groupingBy(Pet::getTypeId, Collectors.counting()));
+
+        assertEquals(expectedByType, snapshot.countByType(filter));
+        assertEquals(expectedByType.values().stream().mapToLong(Long::longValue).sum(), snapshot.count(filter));
+
+        Map<Integer, Long> expectedByYear = pets.stream()
+                .filter(p -> p.getTypeId() == 2 && p.getBirthDate() != null)
+                .collect(Collectors.groupingBy(p -> p.getBirthDate().getYear(), Collectors.counting()));
+
+        assertEquals(expectedByYear, snapshot.countByBirthYear(PetFilter.builder().typeId(2).build()));
+        assertEquals(ROWS, snapshot.count(PetFilter.ALL));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testFindIdsByOwner() {
+
+        int OWNER_ID = 77;
+
+        int[] expected = pets.stream().filter(p -> p.getOwnerId() == OWNER_ID).mapToInt(Pet::getId).toArray();
+
+        assertArrayEquals(expected, snapshot.findIds(PetFilter.builder().ownerId(OWNER_ID).build()));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testIncrementalRefresh() {
+
+        PetFilter TYPE_9 = PetFilter.builder().typeId(9).build();
+
+        PetDTO created = new PetDTO(ROWS + 1, "Nemo", 9, 1, LocalDate.of(2020, 1, 1));
+        snapshot.onPetChanged(new PetChangedEvent(null, created));
+        assertEquals(1, snapshot.count(TYPE_9));
+
+        PetDTO moved = new PetDTO(1, pets.get(0).getName(), 9, 1, null);
+        snapshot.onPetChanged(new PetChangedEvent(null, moved));
+        assertEquals(2, snapshot.count(TYPE_9));
+
+        snapshot.onPetChanged(new PetChangedEvent(created, null));
+        assertEquals(1, snapshot.count(TYPE_9));
+        assertEquals(ROWS, snapshot.size());
+
+        // Out of order ids (e.g. explicit ids) keep the rows sorted
+        snapshot.upsert(new PetDTO(ROWS + 10, "Ten", 9, 1, null));
+        snapshot.upsert(new PetDTO(ROWS + 5, "Five", 9, 1, null));
+        assertArrayEquals(new int[] {1, ROWS + 5, ROWS + 10}, snapshot.findIds(TYPE_9));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testFootprintIsAFractionOfEntities() {
+
+        // Pet entity: header + Integer id + 2 ints + String ref + LocalDate ref, plus the boxed id and LocalDate
+        long entityBytes = pets.stream().mapToLong(p -> 32 + 16 + (p.getBirthDate() != null ? 24 : 0)
+                + 40 + p.getName().length()).sum() + 4L * ROWS;
+
+        log.info("Columnar ~{} KB vs entities ~{} KB", snapshot.estimatedBytes() / 1024, entityBytes / 1024);
+
+        assertTrue(snapshot.estimatedBytes() * 4 < entityBytes);
+    }
+
+    /**
+     * Tombstones are compacted once they are a quarter of the rows, without
+     * a reload
+     */
+    @Test
+    public void testDeletedRowsAreCompacted() {
+
+        long bytesBefore = snapshot.estimatedBytes();
+        for (int id = 1; id <= ROWS; id++) {
+            if (id % 3 != 0) {
+                snapshot.remove(id);
+            }
+        }
+
+        int[] expected = pets.stream().filter(p -> p.getId() % 3 == 0 && p.getOwnerId() == 77)
+                .mapToInt(Pet::getId).toArray();
+        assertArrayEquals(expected, snapshot.findIds(PetFilter.builder().ownerId(77).build()));
+        assertEquals(ROWS / 3, snapshot.count(PetFilter.ALL));
+        assertTrue(snapshot.estimatedBytes() < bytesBefore);
+
+        snapshot.upsert(new PetDTO(2, "Back", 9, 1, null));
+        assertArrayEquals(new int[] {2}, snapshot.findIds(PetFilter.builder().typeId(9).build()));
+    }
+}
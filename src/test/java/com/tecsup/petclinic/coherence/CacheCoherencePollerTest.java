@@ -0,0 +1,147 @@
+package com.tecsup.petclinic.coherence;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tecsup.petclinic.PetClinicApplication;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.services.OwnerService;
+import com.tecsup.petclinic.services.PetService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two application contexts (nodes) sharing one H2 file database. The file
+ * outlives the run: each test puts back what it changes, and the first node
+ * reseeds it every time instead of trusting the checksum, in case a run
+ * died before restoring.
+ */
+@DirtiesContext
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + CacheCoherencePollerTest.SHARED_DB,
+        "petclinic.seed.force=true",
+        "petclinic.coherence.poll-interval-ms=100"
+})
+@AutoConfigureMockMvc
+@Slf4j
+public class CacheCoherencePollerTest {
+
+    static final String SHARED_DB = "jdbc:h2:file:./target/coherence-db;MODE=MySQL;AUTO_SERVER=TRUE";
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private OwnerService ownerService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private ConfigurableApplicationContext otherNode;
+    private final Set<String> invalidated = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void startOtherNode() {
+        // Arguments, not default properties: they must win over application-h2.yml
+        otherNode = new SpringApplicationBuilder(PetClinicApplication.class)
+                .run("--spring.datasource.url=" + SHARED_DB,
+                        "--petclinic.seed.enabled=false",
+                        "--spring.main.web-application-type=none",
+                        "--petclinic.coherence.poll-interval-ms=100");
+        otherNode.getBean(CacheCoherencePoller.class).register(new CacheInvalidationListener() {
+            @Override
+            public void invalidate(String entityType, Collection<Integer> ids) {
+                ids.forEach(id -> invalidated.add(entityType + ":" + id));
+            }
+
+            @Override
+            public void invalidateAll(String entityType) {
+                invalidated.add(entityType + ":*");
+            }
+        });
+    }
+
+    @AfterEach
+    void stopOtherNode() {
+        otherNode.close();
+    }
+
+    /**
+     * Updates on this node reach the other node's caches within a few poll intervals
+     */
+    @Test
+    public void testUpdatesInvalidateOtherNode() throws Exception {
+
+        PetDTO pet = petService.findById(1);
+        String name = pet.getName();
+        Owner owner = ownerService.findById(2);
+        String telephone = owner.getTelephone();
+
+        try {
+            pet.setName(name + "x");
+            petService.update(pet);
+            owner.setTelephone("6085550000");
+            ownerService.update(owner);
+
+            String petKey = ChangeEvent.PET + ":" + pet.getId();
+            String ownerKey = ChangeEvent.OWNER + ":" + owner.getId();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!(invalidated.contains(petKey) && invalidated.contains(ownerKey))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            log.info("Invalidated on the other node: {}", invalidated);
+            assertTrue(invalidated.contains(petKey), petKey);
+            assertTrue(invalidated.contains(ownerKey), ownerKey);
+        } finally {
+            pet.setName(name);
+            petService.update(pet);
+            owner.setTelephone(telephone);
+            ownerService.update(owner);
+        }
+    }
+
+    /**
+     * Writes through /api/pets bypass the services and must bump the versions too
+     */
+    @Test
+    public void testDataRestUpdatesInvalidateOtherNode() throws Exception {
+
+        PetDTO pet = petService.findById(2);
+        try {
+            mockMvc.perform(patch("/api/pets/" + pet.getId()).contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\":\"" + pet.getName() + "y\"}"))
+                    .andExpect(status().is2xxSuccessful());
+
+            String petKey = ChangeEvent.PET + ":" + pet.getId();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!invalidated.contains(petKey) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(invalidated.contains(petKey), petKey);
+        } finally {
+            petService.update(pet);
+        }
+    }
+}
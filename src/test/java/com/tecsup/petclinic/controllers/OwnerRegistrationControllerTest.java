@@ -0,0 +1,53 @@
+package com.tecsup.petclinic.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OwnerRegistrationControllerTest {
+
+    private static final String OWNER =
+            "\"owner\":{\"firstName\":\"Ana\",\"lastName\":\"Quispe\",\"city\":\"Lima\",\"telephone\":\"955000111\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * "pets": null registers the owner alone
+     */
+    @Test
+    public void testNullPetsRegistersOwnerOnly() throws Exception {
+
+        mockMvc.perform(post("/api/registrations").contentType(MediaType.APPLICATION_JSON)
+                        .content("{" + OWNER + ",\"pets\":null}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.owner.id").isNumber())
+                .andExpect(jsonPath("$.pets").isEmpty());
+    }
+
+    /**
+     * Validation failures are the client's, not a 500
+     */
+    @Test
+    public void testInvalidRegistrationIsBadRequest() throws Exception {
+
+        mockMvc.perform(post("/api/registrations").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"pets\":[]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/registrations").contentType(MediaType.APPLICATION_JSON)
+                        .content("{" + OWNER + ",\"pets\":[null]}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/registrations").contentType(MediaType.APPLICATION_JSON)
+                        .content("{" + OWNER + ",\"pets\":[{\"name\":\"Nube\",\"typeId\":6}]}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,95 @@
+package com.tecsup.petclinic.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.graphql.ExecutionGraphQlResponse;
+import org.springframework.graphql.ExecutionGraphQlService;
+import org.springframework.graphql.support.DefaultExecutionGraphQlRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.repositories.PetTypeRepository;
+import com.tecsup.petclinic.repositories.VisitRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@DirtiesContext
+@Slf4j
+public class PetClinicGraphQlControllerTest {
+
+    @Autowired
+    private ExecutionGraphQlService graphQlService;
+
+    @MockitoSpyBean
+    private PetRepository petRepository;
+
+    @MockitoSpyBean
+    private PetTypeRepository petTypeRepository;
+
+    @MockitoSpyBean
+    private VisitRepository visitRepository;
+
+    /**
+     * Both Davis owners' pets, types and visits: one IN query per nested level, none for types
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNestedFieldsAreBatched() {
+
+        ExecutionGraphQlResponse response = execute("""
+                {
+                  ownersByLastName(lastName: "Davis") { firstName pets { name type { name } visits { description } } }
+                }
+                """);
+
+        assertTrue(response.getErrors().isEmpty(), response.getErrors().toString());
+        Map<String, Object> data = response.getData();
+        log.info("DATA : {}", data);
+
+        List<Map<String, Object>> owners = (List<Map<String, Object>>) data.get("ownersByLastName");
+        assertEquals(2, owners.size());
+        Map<String, Object> iggy = ((List<Map<String, Object>>) owners.get(1).get("pets")).get(0);
+        assertEquals("Iggy", iggy.get("name"));
+        assertEquals("lizard", ((Map<String, Object>) iggy.get("type")).get("name"));
+
+        verify(petRepository, times(1)).findByOwnerIdIn(anyCollection());
+        verify(petTypeRepository, never()).findAllById(any());
+        verify(visitRepository, times(1)).findByPetIdInOrderByVisitDateAsc(anyCollection());
+    }
+
+    /**
+     * Pathologically nested queries are rejected before execution
+     */
+    @Test
+    public void testDeepQueryIsRejected() {
+
+        ExecutionGraphQlResponse response = execute("""
+                { owner(id: 1) { pets { owner { pets { owner { pets { owner { pets { name } } } } } } } } }
+                """);
+
+        assertFalse(response.getErrors().isEmpty());
+        log.info("ERRORS : {}", response.getErrors());
+        verify(petRepository, times(0)).findByOwnerIdIn(anyCollection());
+    }
+
+    private ExecutionGraphQlResponse execute(String document) {
+        return graphQlService.execute(new DefaultExecutionGraphQlRequest(document, null, null, null,
+                UUID.randomUUID().toString(), null)).block();
+    }
+}
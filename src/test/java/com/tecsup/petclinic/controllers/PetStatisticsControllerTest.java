@@ -0,0 +1,49 @@
+package com.tecsup.petclinic.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tecsup.petclinic.analytics.PetColumnarSnapshot;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PetStatisticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PetColumnarSnapshot petSnapshot;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * The filter endpoint answers from the snapshot streamed from the pets table
+     */
+    @Test
+    public void testFilteredCountsMatchDatabase() throws Exception {
+
+        petSnapshot.reload();
+        Integer dogs = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pets WHERE type_id = 2", Integer.class);
+        Integer born2000 = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pets "
+                + "WHERE birth_date BETWEEN '2000-01-01' AND '2000-12-31'", Integer.class);
+
+        mockMvc.perform(get("/api/stats/pets/filtered?typeId=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(dogs))
+                .andExpect(jsonPath("$.byType.2").value(dogs));
+        mockMvc.perform(get("/api/stats/pets/filtered?bornFrom=2000-01-01&bornTo=2000-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(born2000))
+                .andExpect(jsonPath("$.byBirthYear.2000").value(born2000));
+    }
+}
@@ -0,0 +1,151 @@
+package com.tecsup.petclinic.dedup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.tecsup.petclinic.dedup.DuplicateReport.DuplicateCluster;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scan over synthetic owners, a share of them registered twice with a typo
+ * (a dropped or swapped letter, a spelled-out street word, a mistyped
+ * digit) and the telephone in another format. Reports time, comparisons
+ * against the all-pairs count, and recall and precision of the planted
+ * duplicates.
+ *
+ * Not part of the regular build (surefire only picks *Test classes); run with
+ * mvn test -Dtest=OwnerDeduplicatorBenchmark
+ */
+@SpringBootTest
+@Slf4j
+public class OwnerDeduplicatorBenchmark {
+
+    private static final int OWNERS = 100_000;
+    private static final int DUPLICATES = 5_000;
+    private static final int FIRST_ID = 1_000_000;
+    private static final String[] FIRST_NAMES = { "Ana", "Luis", "Rosa", "Jorge", "Carmen", "Pedro", "Lucia",
+            "Miguel", "Elena", "Juan", "Sofia", "Diego", "Maria", "Carlos", "Paula", "Andres", "Julia", "Raul",
+            "Teresa", "Victor", "Betty", "George", "Harold", "Jean", "Peter", "David", "Laura", "Martin" };
+    private static final String[] SYLLABLES = { "ra", "mo", "que", "li", "san", "to", "ver", "gas", "pe", "dro",
+            "ca", "sti", "llo", "men", "do", "za", "ri", "vas", "ta", "nes", "gu", "tie", "rrez", "flo" };
+    private static final String[] STREETS = { "Av.", "Jr.", "Calle", "St.", "Ave." };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OwnerDeduplicator deduplicator;
+
+    @AfterEach
+    void cleanUp() {
+        untimed().update("DELETE FROM owners WHERE id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void benchmarkScan() {
+
+        Map<Integer, Integer> planted = seed();
+        deduplicator.scan(deduplicator.getDefaultMinScore(), Integer.MAX_VALUE);
+
+        DuplicateReport report = deduplicator.scan(deduplicator.getDefaultMinScore(), Integer.MAX_VALUE);
+        int found = 0;
+        int pairs = 0;
+        for (DuplicateCluster cluster : report.getClusters()) {
+            for (DuplicateReport.DuplicatePair pair : cluster.getPairs()) {
+                pairs++;
+                if (planted.get(pair.getOtherId()) != null && planted.get(pair.getOtherId()) == pair.getOwnerId()) {
+                    found++;
+                }
+            }
+        }
+        log.info("{} owners in {} ms on {} threads: {} blocks ({} skipped), {} comparisons instead of {}",
+                report.getOwners(), report.getMillis(), Runtime.getRuntime().availableProcessors(),
+                report.getBlocks(), report.getSkippedBlocks(), report.getComparisons(),
+                (long) report.getOwners() * (report.getOwners() - 1) / 2);
+        log.info("{} pairs reported, {} of {} planted duplicates found: recall {}, precision {}", pairs, found,
+                DUPLICATES, String.format("%.3f", (double) found / DUPLICATES),
+                String.format("%.3f", pairs == 0 ? 0 : (double) found / pairs));
+    }
+
+    /**
+     *
+     * @return planted duplicate id to original id
+     */
+    private Map<Integer, Integer> seed() {
+        Random random = new Random(48);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < OWNERS; i++) {
+            rows.add(new Object[] { FIRST_ID + i, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                    capitalize(word(random, 2 + random.nextInt(2))),
+                    STREETS[random.nextInt(STREETS.length)] + " " + capitalize(word(random, 3)) + " "
+                            + (1 + random.nextInt(3000)),
+                    "City " + random.nextInt(200), String.valueOf(900_000_000 + random.nextInt(99_999_999)) });
+        }
+        List<Integer> originals = new ArrayList<>(IntStream.range(0, OWNERS).boxed().toList());
+        Collections.shuffle(originals, random);
+        Map<Integer, Integer> planted = new HashMap<>();
+        for (int i = 0; i < DUPLICATES; i++) {
+            int original = originals.get(i);
+            Object[] row = rows.get(original).clone();
+            row[0] = FIRST_ID + OWNERS + i;
+            switch (random.nextInt(4)) {
+                case 0 -> row[1] = typo(random, (String) row[1]);
+                case 1 -> row[2] = typo(random, (String) row[2]);
+                case 2 -> row[3] = ((String) row[3]).replace("Av.", "Avenida").replace("St.", "Street")
+                        .replace("Ave.", "Avenue");
+                default -> row[5] = digitTypo(random, (String) row[5]);
+            }
+            // Typed in another format, which also keeps uq_owners_name_telephone apart
+            String phone = (String) row[5];
+            row[5] = (i % 2 == 0 ? "+51 " : "") + phone.substring(0, 3) + "-" + phone.substring(3, 6) + "-"
+                    + phone.substring(6);
+            rows.add(row);
+            planted.put((Integer) row[0], FIRST_ID + original);
+        }
+        untimed().batchUpdate("INSERT INTO owners (id, first_name, last_name, address, city, telephone) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", rows);
+        return planted;
+    }
+
+    private static String word(Random random, int syllables) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static String typo(Random random, String value) {
+        int at = 1 + random.nextInt(value.length() - 2);
+        return random.nextBoolean() ? value.substring(0, at) + value.substring(at + 1)
+                : value.substring(0, at) + value.charAt(at + 1) + value.charAt(at) + value.substring(at + 2);
+    }
+
+    private static String digitTypo(Random random, String phone) {
+        int at = random.nextInt(phone.length());
+        return phone.substring(0, at) + (char) ('0' + (phone.charAt(at) - '0' + 1) % 10) + phone.substring(at + 1);
+    }
+
+    // Seeding and cleaning up the rows exceeds the application's query timeout
+    private JdbcTemplate untimed() {
+        JdbcTemplate untimed = new JdbcTemplate(jdbcTemplate.getDataSource());
+        untimed.setQueryTimeout(600);
+        return untimed;
+    }
+}
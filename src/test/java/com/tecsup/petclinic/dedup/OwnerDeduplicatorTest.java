@@ -0,0 +1,115 @@
+package com.tecsup.petclinic.dedup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tecsup.petclinic.dedup.DuplicateReport.DuplicateCluster;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.services.OwnerService;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Slf4j
+public class OwnerDeduplicatorTest {
+
+    @Autowired
+    private OwnerDeduplicator deduplicator;
+
+    @Autowired
+    private OwnerService ownerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * A second registration of Betty Davis with typos is found, the other
+     * Davis (another household) is not
+     */
+    @Test
+    public void testFindsRegistrationWithTypos() throws Exception {
+
+        Owner typo = ownerService.create(new Owner(null, "Bety", "Davies", "638 Cardinal Avenue", "Sun Prairie",
+                "(608) 555-1749"));
+        try {
+            DuplicateReport report = deduplicator.scan(deduplicator.getDefaultMinScore(), 100);
+            log.info("{}", report);
+
+            DuplicateCluster davis = report.getClusters().stream()
+                    .filter(cluster -> cluster.getSurvivorId() == 2)
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(List.of(typo.getId()), davis.getDuplicateIds());
+            assertTrue(report.getClusters().stream().noneMatch(cluster -> cluster.getDuplicateIds().contains(4)));
+            assertTrue(report.getComparisons() < (long) report.getOwners() * (report.getOwners() - 1) / 2);
+
+            mockMvc.perform(get("/api/owner-duplicates?limit=5"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.clusters[?(@.survivorId == 2)].duplicateIds[0]").value(typo.getId()));
+        } finally {
+            jdbcTemplate.update("DELETE FROM owners WHERE id = ?", typo.getId());
+        }
+        mockMvc.perform(post("/api/owner-duplicates/merge?survivorId=2&duplicateIds=" + Integer.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testSoundex() {
+
+        assertEquals("R163", OwnerSimilarity.soundex("Robert"));
+        assertEquals("R163", OwnerSimilarity.soundex("Rupert"));
+        assertEquals("A261", OwnerSimilarity.soundex("Ashcraft"));
+        assertEquals("T522", OwnerSimilarity.soundex("Tymczak"));
+        assertEquals("P236", OwnerSimilarity.soundex("Pfister"));
+        assertEquals(OwnerSimilarity.soundex("Davis"), OwnerSimilarity.soundex("Davies"));
+        assertEquals(OwnerSimilarity.soundex("Nuñez"), OwnerSimilarity.soundex("Nunez"));
+        assertEquals("", OwnerSimilarity.soundex(null));
+    }
+
+    /**
+     * One person with typos scores above the threshold, one household below
+     */
+    @Test
+    public void testScore() {
+
+        OwnerSimilarity.Normalized betty = OwnerSimilarity.normalize(2, "Betty", "Davis", "638 Cardinal Ave.",
+                "Sun Prairie", "6085551749");
+        OwnerSimilarity.Normalized typo = OwnerSimilarity.normalize(11, "Bety", "Davies", "638 Cardinal Avenue",
+                "Sun  Prairie", "+1 608 555 1794");
+        OwnerSimilarity.Normalized husband = OwnerSimilarity.normalize(12, "Harold", "Davis", "638 Cardinal Ave",
+                "Sun Prairie", "608-555-1749");
+        OwnerSimilarity.Normalized neighbour = OwnerSimilarity.normalize(13, "Betty", "Davis", "640 Cardinal Ave.",
+                "Sun Prairie", "6085550000");
+
+        assertEquals(1.0, OwnerSimilarity.score(betty, betty), 1e-9);
+        assertTrue(OwnerSimilarity.score(betty, typo) >= 0.85);
+        assertTrue(OwnerSimilarity.score(betty, husband) < 0.85);
+        assertTrue(OwnerSimilarity.score(betty, neighbour) < 0.85);
+
+        assertEquals(OwnerSimilarity.telephone("6085551749"), OwnerSimilarity.telephone("+1 (608) 555-1749"));
+        assertEquals("987111222", OwnerSimilarity.telephone("+51 987 111 222"));
+        assertEquals(0.7, OwnerSimilarity.telephoneSimilarity("085551749", "085551794"), 1e-9);
+        assertEquals(0, OwnerSimilarity.telephoneSimilarity("085551749", "085559999"), 1e-9);
+        assertEquals("638 cardinal ave", OwnerSimilarity.street("638 Cardinal Avenue"));
+    }
+}
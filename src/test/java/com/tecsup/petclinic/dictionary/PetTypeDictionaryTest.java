@@ -0,0 +1,67 @@
+package com.tecsup.petclinic.dictionary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+public class PetTypeDictionaryTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PetTypeDictionary dictionary;
+
+    @Test
+    public void testLoadedAtStartup() {
+        assertEquals(8, dictionary.findAll().size());
+        assertEquals("lizard", dictionary.find(3).orElseThrow().getName());
+        assertTrue(dictionary.isSelectable(1));
+        assertFalse(dictionary.isSelectable(6));
+        assertFalse(dictionary.find(-1).isPresent());
+        assertFalse(dictionary.find(999).isPresent());
+    }
+
+    /**
+     * Writes through /api/types swap in a new dictionary right away
+     */
+    @Test
+    public void testReloadedOnChange() throws Exception {
+
+        String location = mockMvc.perform(post("/api/types").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"ferret\",\"active\":true,\"careLevel\":\"high\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+        int id = Integer.parseInt(location.substring(location.lastIndexOf('/') + 1));
+        log.info("Created type {}", id);
+
+        assertEquals("ferret", dictionary.find(id).orElseThrow().getName());
+        assertTrue(dictionary.isSelectable(id));
+
+        mockMvc.perform(patch("/api/types/" + id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"active\":false}"))
+                .andExpect(status().is2xxSuccessful());
+        assertFalse(dictionary.isSelectable(id));
+
+        mockMvc.perform(delete("/api/types/" + id)).andExpect(status().isNoContent());
+        assertFalse(dictionary.find(id).isPresent());
+    }
+}
@@ -0,0 +1,105 @@
+package com.tecsup.petclinic.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.services.PetService;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@Slf4j
+public class OutboxRelayTest {
+
+    private static final String SUBSCRIBER = "outbox-relay-test";
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private ChangeEventBus changeEventBus;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @AfterEach
+    void tearDown() {
+        changeEventBus.unsubscribe(SUBSCRIBER);
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testEventsAreRelayedInOrderAndReplayable() throws Exception {
+
+        List<ChangeEvent> received = new ArrayList<>();
+        changeEventBus.subscribe(SUBSCRIBER, received::add);
+
+        PetDTO created = petService.create(PetDTO.builder().name("Outbox").typeId(1).ownerId(1).build());
+        created.setName("Outbox2");
+        petService.update(created);
+        petService.delete(created.getId());
+
+        outboxRelay.relayPending();
+
+        List<ChangeEvent> forPet = eventsFor(received, created.getId());
+        log.info("EVENTS : {}", forPet);
+
+        assertEquals(List.of(ChangeEvent.CREATED, ChangeEvent.UPDATED, ChangeEvent.DELETED),
+                forPet.stream().map(ChangeEvent::getEventType).collect(Collectors.toList()));
+        assertTrue(forPet.get(1).getPayload().contains("Outbox2"));
+
+        // ------------ Replay ---------------
+
+        List<ChangeEvent> replayed = new ArrayList<>();
+        changeEventBus.replayFrom(forPet.get(0).getOffset() - 1, 2, replayed::add);
+
+        assertEquals(forPet, eventsFor(replayed, created.getId()));
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testFailedBatchIsRedelivered() throws PetNotFoundException {
+
+        AtomicBoolean fail = new AtomicBoolean(true);
+        List<ChangeEvent> received = new ArrayList<>();
+        changeEventBus.subscribe(SUBSCRIBER, event -> {
+            if (fail.get()) {
+                throw new IllegalStateException("consumer down");
+            }
+            received.add(event);
+        });
+
+        PetDTO created = petService.create(PetDTO.builder().name("Retry").typeId(1).ownerId(1).build());
+
+        assertEquals(0, outboxRelay.relayPending());
+
+        fail.set(false);
+        outboxRelay.relayPending();
+
+        assertEquals(1, eventsFor(received, created.getId()).size());
+
+        petService.delete(created.getId());
+    }
+
+    private static List<ChangeEvent> eventsFor(List<ChangeEvent> events, Integer petId) {
+        return events.stream()
+                .filter(e -> ChangeEvent.PET.equals(e.getAggregateType()) && petId.equals(e.getAggregateId()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,187 @@
+package com.tecsup.petclinic.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.services.PetService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@Slf4j
+public class ClinicExporterTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PetService petService;
+
+    @TempDir
+    Path dir;
+
+    /**
+     *
+     */
+    @Test
+    public void testFullExportMatchesTables() throws Exception {
+
+        // 256-byte blocks: every file is many gzip members
+        ClinicExporter exporter = newExporter(256);
+        ExportManifest manifest = exporter.export(false);
+
+        assertTrue(manifest.isFull());
+        Path run = dir.resolve(manifest.getRunId());
+        assertTrue(Files.exists(run.resolve(ClinicExporter.MANIFEST)));
+
+        long visits = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visits", Long.class)
+                + jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visits_archive", Long.class);
+        assertFile(run, manifest, "owners", jdbcTemplate.queryForObject("SELECT COUNT(*) FROM owners", Long.class));
+        assertFile(run, manifest, "pets", jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pets", Long.class));
+        assertFile(run, manifest, "visits", visits);
+
+        List<String> owners = lines(run.resolve("owners.csv.gz"));
+        assertEquals(String.join(",", ClinicExporter.OWNER_COLUMNS), owners.get(0));
+        assertEquals("1,George,Franklin,110 W. Liberty St.,Madison,6085551023", owners.get(1));
+
+        assertEquals(manifest.getRunId(), exporter.latest().get().getRunId());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testIncrementalExportsOnlyChanges() throws Exception {
+
+        ClinicExporter exporter = newExporter(1 << 20);
+        ExportManifest first = exporter.export(false);
+
+        PetDTO pet = petService.create(PetDTO.builder().name("Export, \"Jr\"").typeId(2).ownerId(3).build());
+        jdbcTemplate.update("INSERT INTO visits (pet_id, vet_id, visit_date, description, cost) "
+                + "VALUES (?, 1, DATE '2026-10-01', 'export check', 12.50)", pet.getId());
+        Integer visitId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM visits", Integer.class);
+
+        // A run that died half way is discarded, not read as the previous run
+        Files.createDirectory(dir.resolve("20000101T000000000Z.tmp"));
+
+        try {
+            ExportManifest second = exporter.export(false);
+
+            assertFalse(second.isFull());
+            assertEquals(first.getRunId(), second.getPreviousRunId());
+            assertEquals(first.getLastFullAt(), second.getLastFullAt());
+            assertFalse(Files.exists(dir.resolve("20000101T000000000Z.tmp")));
+
+            Path run = dir.resolve(second.getRunId());
+            assertFile(run, second, "owners", 0);
+            assertFile(run, second, "pets", 1);
+            assertFile(run, second, "visits", 1);
+            assertEquals(pet.getId() + ",\"Export, \"\"Jr\"\"\",,2,3,", lines(run.resolve("pets.csv.gz")).get(1));
+            assertEquals(visitId + "," + pet.getId() + ",1,2026-10-01,export check,12.50",
+                    lines(run.resolve("visits.csv.gz")).get(1));
+
+            // Nothing changed since
+            ExportManifest third = exporter.export(false);
+            assertEquals(0, third.getFiles().stream().mapToLong(ExportManifest.ExportedFile::getRows).sum());
+
+            assertTrue(exporter.export(true).isFull());
+        } finally {
+            jdbcTemplate.update("DELETE FROM visits WHERE id = ?", visitId);
+            petService.delete(pet.getId());
+        }
+    }
+
+    /**
+     * Visits follow an id watermark: an update to an exported visit only
+     * reaches the warehouse with the next full run
+     */
+    @Test
+    public void testVisitUpdatesWaitForTheNextFullRun() throws Exception {
+
+        ClinicExporter exporter = newExporter(1 << 20);
+        exporter.export(true);
+
+        Integer visitId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM visits", Integer.class);
+        String description = jdbcTemplate.queryForObject(
+                "SELECT description FROM visits WHERE id = ?", String.class, visitId);
+        jdbcTemplate.update("UPDATE visits SET description = 'export update check' WHERE id = ?", visitId);
+        try {
+            ExportManifest incremental = exporter.export(false);
+            assertFalse(incremental.isFull());
+            assertFile(dir.resolve(incremental.getRunId()), incremental, "visits", 0);
+
+            // Past the full interval (0 days here) the next run is full and carries the update
+            ExportManifest full = newExporter(1 << 20, 0).export(false);
+            assertTrue(full.isFull());
+            assertTrue(lines(dir.resolve(full.getRunId()).resolve("visits.csv.gz")).stream()
+                    .anyMatch(line -> line.startsWith(visitId + ",") && line.contains("export update check")));
+        } finally {
+            jdbcTemplate.update("UPDATE visits SET description = ? WHERE id = ?", description, visitId);
+        }
+    }
+
+    private ClinicExporter newExporter(int blockBytes) {
+        return newExporter(blockBytes, 7);
+    }
+
+    private ClinicExporter newExporter(int blockBytes, int fullIntervalDays) {
+        return new ClinicExporter(dataSource, transactionManager, objectMapper, meterRegistry,
+                true, dir, 100, 60, blockBytes, 6, fullIntervalDays);
+    }
+
+    private void assertFile(Path run, ExportManifest manifest, String table, long rows) throws Exception {
+        ExportManifest.ExportedFile file = manifest.getFiles().stream()
+                .filter(f -> f.getTable().equals(table)).findFirst().get();
+        Path path = run.resolve(file.getFile());
+
+        assertEquals(rows, file.getRows());
+        assertEquals(rows + 1, lines(path).size());
+        assertEquals(Files.size(path), file.getBytes());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(path))),
+                file.getSha256());
+    }
+
+    private List<String> lines(Path file) throws IOException {
+        // GZIPInputStream reads concatenated members as one stream
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.tecsup.petclinic.indexadvisor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.tecsup.petclinic.querylog.QueryLog;
+import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.repositories.VetRepository;
+import com.tecsup.petclinic.repositories.VisitRepository;
+import com.tecsup.petclinic.services.VisitHistoryService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Repository workload over synthetic owners, pets and visits: measured,
+ * handed to the advisor, measured again with its indexes created, which are
+ * dropped afterwards.
+ *
+ * Not part of the regular build (surefire only picks *Test classes); run with
+ * mvn test -Dtest=IndexAdvisorBenchmark
+ */
+@SpringBootTest
+@Slf4j
+public class IndexAdvisorBenchmark {
+
+    private static final int OWNERS = 2_000;
+    private static final int PETS = 50_000;
+    private static final int VISITS = 200_000;
+    // Visits go to the first pets only, 40 each: long-lived patients
+    private static final int VISITED_PETS = 5_000;
+    private static final int FIRST_ID = 1_000_000;
+    private static final int ROUNDS = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueryLog queryLog;
+
+    @Autowired
+    private IndexAdvisor indexAdvisor;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private VetRepository vetRepository;
+
+    @Autowired
+    private VisitHistoryService visitHistoryService;
+
+    private List<IndexRecommendation> created = List.of();
+
+    @AfterEach
+    void cleanUp() {
+        JdbcTemplate jdbcTemplate = untimed();
+        created.forEach(r -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + r.getName()));
+        jdbcTemplate.update("DELETE FROM visits WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM pets WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM owners WHERE id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void benchmarkRecommendations() {
+
+        seed();
+        run();
+        queryLog.reset();
+        long[] before = run();
+
+        List<IndexRecommendation> recommendations = indexAdvisor.advise();
+        log.info("\n{}", indexAdvisor.ddl(recommendations));
+        JdbcTemplate jdbcTemplate = untimed();
+        created = recommendations;
+        recommendations.forEach(r -> jdbcTemplate.execute(r.getDdl()));
+
+        run();
+        long[] after = run();
+        log.info("workload of {} rounds: {} ms before, {} ms with {} index(es); visit history {} -> {} ms",
+                ROUNDS, before[0] / 1_000_000, after[0] / 1_000_000, recommendations.size(),
+                before[1] / 1_000_000, after[1] / 1_000_000);
+    }
+
+    /**
+     *
+     * @return total and visit history nanoseconds
+     */
+    private long[] run() {
+        Random random = new Random(7);
+        long history = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            int owner = FIRST_ID + random.nextInt(OWNERS);
+            petRepository.findByTypeId(1 + random.nextInt(8));
+            petRepository.findByOwnerId(owner);
+            visitRepository.findByPetOwnerId(owner);
+            vetRepository.findSeenByOwnerId(owner);
+            visitRepository.findByPetIdInOrderByVisitDateAsc(
+                    List.of(FIRST_ID + random.nextInt(VISITED_PETS), FIRST_ID + random.nextInt(VISITED_PETS)));
+            LocalDate from = LocalDate.of(2022, 1, 1).plusDays(random.nextInt(600));
+            long historyStart = System.nanoTime();
+            visitHistoryService.findVisits(FIRST_ID + random.nextInt(VISITED_PETS), from, from.plusDays(60));
+            history += System.nanoTime() - historyStart;
+        }
+        return new long[] { System.nanoTime() - start, history };
+    }
+
+    private void seed() {
+        JdbcTemplate jdbcTemplate = untimed();
+        jdbcTemplate.update("INSERT INTO owners (id, first_name, last_name, address, city, telephone) "
+                + "SELECT ? + x, 'Bench', 'Owner' || x, 'Street ' || x, 'City' || MOD(x, 50), '555' || x "
+                + "FROM SYSTEM_RANGE(0, ?)", FIRST_ID, OWNERS - 1);
+        jdbcTemplate.update("INSERT INTO pets (id, name, type_id, owner_id, birth_date) "
+                + "SELECT ? + x, 'bench-' || x, 1 + MOD(x * 7, 8), ? + MOD(x, ?), DATE '2015-01-01' + MOD(x, 3000) "
+                + "FROM SYSTEM_RANGE(0, ?)", FIRST_ID, FIRST_ID, OWNERS, PETS - 1);
+        jdbcTemplate.update("INSERT INTO visits (id, pet_id, vet_id, visit_date, cost) "
+                + "SELECT ? + x, ? + MOD(x * 31, ?), 1 + MOD(x, 6), DATE '2022-01-01' + MOD(x, 700), MOD(x, 300) "
+                + "FROM SYSTEM_RANGE(0, ?)", FIRST_ID, FIRST_ID, VISITED_PETS, VISITS - 1);
+    }
+
+    // Seeding and cleaning up the rows exceeds the application's query timeout
+    private JdbcTemplate untimed() {
+        JdbcTemplate untimed = new JdbcTemplate(jdbcTemplate.getDataSource());
+        untimed.setQueryTimeout(600);
+        return untimed;
+    }
+}
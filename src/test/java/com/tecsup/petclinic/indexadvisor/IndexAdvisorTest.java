@@ -0,0 +1,156 @@
+package com.tecsup.petclinic.indexadvisor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tecsup.petclinic.querylog.QueryLog;
+import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.repositories.VisitRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Slf4j
+public class IndexAdvisorTest {
+
+    private static final String PROBE_QUERY = "SELECT id, note FROM advisor_probe WHERE kind = ? AND created >= ?";
+
+    @Autowired
+    private IndexAdvisor indexAdvisor;
+
+    @Autowired
+    private QueryLog queryLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PetRepository petRepository;
+
+    @Autowired
+    private VisitRepository visitRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * A scanned table gets an index on its equality column, then its range
+     * column, and no recommendation once the index exists
+     */
+    @Test
+    public void testRecommendsIndexForScannedTable() throws Exception {
+
+        jdbcTemplate.execute("CREATE TABLE advisor_probe (id INT PRIMARY KEY, kind INT, created DATE, note VARCHAR(20))");
+        try {
+            jdbcTemplate.update("INSERT INTO advisor_probe SELECT x, MOD(x, 60), DATE '2024-01-01' + MOD(x, 365), "
+                    + "'n' || x FROM SYSTEM_RANGE(1, 600)");
+            queryLog.reset();
+            for (int i = 0; i < 5; i++) {
+                jdbcTemplate.queryForList(PROBE_QUERY, i, Date.valueOf("2024-06-01"));
+            }
+
+            mockMvc.perform(post("/api/index-advice/analyze"))
+                    .andExpect(status().isOk());
+            IndexRecommendation probe = probe(indexAdvisor.lastAdvice().orElseThrow());
+            assertEquals(List.of("kind", "created"), probe.getColumns());
+            assertNull(probe.getCurrentIndex());
+            assertEquals(600, probe.getRowsExaminedBefore());
+            assertEquals(10 / 3, probe.getRowsExaminedAfter());
+            assertEquals(5, probe.getExecutions());
+            assertEquals("CREATE INDEX idx_advisor_probe_kind_created ON advisor_probe(kind, created);", probe.getDdl());
+
+            mockMvc.perform(get("/api/index-advice/ddl"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(Matchers.containsString(probe.getDdl())))
+                    .andExpect(content().string(Matchers.containsString("--   " + PROBE_QUERY)));
+
+            jdbcTemplate.execute(probe.getDdl());
+            assertNull(probe(indexAdvisor.advise()));
+        } finally {
+            jdbcTemplate.execute("DROP TABLE advisor_probe");
+            queryLog.reset();
+        }
+    }
+
+    /**
+     * Derived queries on indexed columns (including foreign keys, which H2
+     * and InnoDB index) get no recommendation
+     */
+    @Test
+    public void testIndexedRepositoryQueriesAreServed() {
+
+        queryLog.reset();
+        petRepository.findByOwnerId(1);
+        petRepository.findByTypeId(1);
+        petRepository.findByName("Leo");
+        visitRepository.findByPetId(1);
+        visitRepository.findByPetOwnerId(1);
+
+        List<IndexRecommendation> recommendations = indexAdvisor.advise();
+        assertTrue(queryLog.workload(10).size() >= 5);
+        assertTrue(recommendations.stream().noneMatch(r -> r.getTable().equals("pets") || r.getTable().equals("visits")),
+                recommendations::toString);
+        queryLog.reset();
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testParseShape() {
+
+        Map<String, QueryShapeParser.TableAccess> accesses = QueryShapeParser.parse(
+                "select v1_0.id,v1_0.visit_date from visits v1_0 join pets p1_0 on p1_0.id=v1_0.pet_id "
+                        + "where p1_0.owner_id=? and v1_0.visit_date>=? order by v1_0.visit_date,v1_0.id");
+
+        QueryShapeParser.TableAccess visits = accesses.get("v1_0");
+        assertEquals("visits", visits.table);
+        assertEquals(Set.of("pet_id"), visits.equality);
+        assertEquals(Set.of("visit_date"), visits.range);
+        assertEquals(List.of("visit_date", "id"), visits.orderBy);
+        assertEquals(Set.of("id", "visit_date"), visits.selected);
+
+        QueryShapeParser.TableAccess pets = accesses.get("p1_0");
+        assertEquals(Set.of("id", "owner_id"), pets.equality);
+
+        assertTrue(QueryShapeParser.parse("update pets set name=? where id=?").isEmpty());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testServes() {
+
+        assertTrue(IndexAdvisor.serves(List.of("owner_id", "type_id"), Set.of("type_id", "owner_id"), List.of()));
+        assertTrue(IndexAdvisor.serves(List.of("owner_id", "type_id"), Set.of("owner_id"), List.of()));
+        assertFalse(IndexAdvisor.serves(List.of("owner_id", "type_id"), Set.of("type_id"), List.of()));
+        assertTrue(IndexAdvisor.serves(List.of("pet_id", "visit_date"), Set.of("pet_id"), List.of("visit_date")));
+        assertFalse(IndexAdvisor.serves(List.of("pet_id"), Set.of("pet_id"), List.of("visit_date")));
+    }
+
+    private static IndexRecommendation probe(List<IndexRecommendation> recommendations) {
+        log.info("{}", recommendations);
+        return recommendations.stream().filter(r -> r.getTable().equals("advisor_probe")).findFirst().orElse(null);
+    }
+}
@@ -0,0 +1,59 @@
+package com.tecsup.petclinic.jsoncache;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * GET /api/pets/{id} and /api/owners/{id} on a small hot set: the default
+ * Data REST path (repository lookup, HAL assembly, Jackson) forced with
+ * Cache-Control: no-cache, against the cached bytes.
+ *
+ * Not part of the regular build (surefire only picks *Test classes); run with
+ * mvn test -Dtest=JsonByteCacheBenchmark
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Slf4j
+public class JsonByteCacheBenchmark {
+
+    private static final int REQUESTS = 10_000;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void benchmarkHotReads() throws Exception {
+
+        for (int round = 0; round <= ROUNDS; round++) {
+            // Round 0 warms up both paths
+            long jackson = run(true);
+            long cached = run(false);
+            if (round > 0) {
+                log.info("round {}: jackson {} us/req, cached {} us/req", round,
+                        jackson / REQUESTS / 1_000, cached / REQUESTS / 1_000);
+            }
+        }
+    }
+
+    private long run(boolean bypass) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            String path = (i % 2 == 0 ? "/api/pets/" : "/api/owners/") + (1 + i % 10);
+            if (bypass) {
+                mockMvc.perform(get(path).header(HttpHeaders.CACHE_CONTROL, "no-cache"));
+            } else {
+                mockMvc.perform(get(path));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,218 @@
+package com.tecsup.petclinic.jsoncache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.tecsup.petclinic.coherence.CacheCoherencePoller;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.services.PetService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Slf4j
+public class JsonByteCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JsonByteCache cache;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheCoherencePoller poller;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     *
+     */
+    @Test
+    public void testSecondReadIsServedFromBytes() throws Exception {
+
+        cache.invalidate(ChangeEvent.PET, 1);
+
+        MvcResult miss = mockMvc.perform(get("/api/pets/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(JsonByteCacheFilter.CACHE_HEADER, "MISS"))
+                .andReturn();
+        MvcResult hit = mockMvc.perform(get("/api/pets/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(JsonByteCacheFilter.CACHE_HEADER, "HIT"))
+                .andExpect(jsonPath("$.name").value("Leo"))
+                .andReturn();
+
+        assertArrayEquals(miss.getResponse().getContentAsByteArray(), hit.getResponse().getContentAsByteArray());
+        assertEquals(miss.getResponse().getContentType(), hit.getResponse().getContentType());
+
+        // Projections, other media types and no-cache go to Data REST
+        mockMvc.perform(get("/api/pets/1?projection=x"))
+                .andExpect(header().doesNotExist(JsonByteCacheFilter.CACHE_HEADER));
+        mockMvc.perform(get("/api/pets/1").accept(MediaType.TEXT_HTML))
+                .andExpect(header().doesNotExist(JsonByteCacheFilter.CACHE_HEADER));
+        mockMvc.perform(get("/api/pets/1").header(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(header().doesNotExist(JsonByteCacheFilter.CACHE_HEADER));
+
+        mockMvc.perform(get("/api/pets/999999")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/pets/999999"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(JsonByteCacheFilter.CACHE_HEADER, "MISS"));
+    }
+
+    /**
+     * Service writes invalidate after commit
+     */
+    @Test
+    public void testServiceUpdateInvalidates() throws Exception {
+
+        PetDTO pet = petService.create(PetDTO.builder().name("Cached").typeId(2).ownerId(3).build());
+        // The poller also sees this node's bump of the create: let it pass before caching
+        poller.poll();
+        try {
+            mockMvc.perform(get("/api/pets/" + pet.getId()));
+            mockMvc.perform(get("/api/pets/" + pet.getId()))
+                    .andExpect(header().string(JsonByteCacheFilter.CACHE_HEADER, "HIT"));
+
+            pet.setName("Cached2");
+            petService.update(pet);
+
+            mockMvc.perform(get("/api/pets/" + pet.getId()))
+                    .andExpect(header().string(JsonByteCacheFilter.CACHE_HEADER, "MISS"))
+                    .andExpect(jsonPath("$.name").value("Cached2"));
+        } finally {
+            petService.delete(pet.getId());
+        }
+        mockMvc.perform(get("/api/pets/" + pet.getId())).andExpect(status().isNotFound());
+    }
+
+    /**
+     * Repository writes through /api invalidate through the Data REST events
+     */
+    @Test
+    public void testRepositoryWriteInvalidates() throws Exception {
+
+        mockMvc.perform(get("/api/owners/2"));
+        mockMvc.perform(get("/api/owners/2"))
+                .andExpect(header().string(JsonByteCacheFilter.CACHE_HEADER, "HIT"));
+
+        mockMvc.perform(patch("/api/owners/2").contentType(MediaType.APPLICATION_JSON).content("{\"city\":\"Cusco\"}"))
+                .andExpect(status().is2xxSuccessful());
+        try {
+            mockMvc.perform(get("/api/owners/2"))
+                    .andExpect(header().string(JsonByteCacheFilter.CACHE_HEADER, "MISS"))
+                    .andExpect(jsonPath("$.city").value("Cusco"));
+        } finally {
+            mockMvc.perform(patch("/api/owners/2").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"city\":\"Sun Prairie\"}"));
+        }
+    }
+
+    /**
+     * Deleting an owner through /api cascades to its pets: their entries go too
+     */
+    @Test
+    public void testOwnerDeleteEvictsItsPets() throws Exception {
+
+        String location = mockMvc.perform(post("/api/owners").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Json\",\"lastName\":\"Cascade\",\"telephone\":\"5550101\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+        int ownerId = Integer.parseInt(location.substring(location.lastIndexOf('/') + 1));
+        PetDTO pet = petService.create(PetDTO.builder().name("JsonCascaded").typeId(2).ownerId(ownerId).build());
+        poller.poll();
+
+        mockMvc.perform(get("/api/pets/" + pet.getId()));
+        mockMvc.perform(get("/api/pets/" + pet.getId()))
+                .andExpect(header().string(JsonByteCacheFilter.CACHE_HEADER, "HIT"));
+
+        mockMvc.perform(delete("/api/owners/" + ownerId)).andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/pets/" + pet.getId())).andExpect(status().isNotFound());
+    }
+
+    /**
+     * A response rendered before an invalidation is not stored
+     */
+    @Test
+    public void testStaleRenderIsNotStored() {
+
+        JsonByteCache local = new JsonByteCache(meterRegistry, jdbcTemplate, true, 1 << 20, 1 << 16);
+
+        long stamp = local.stamp(ChangeEvent.PET, 7);
+        local.invalidate(ChangeEvent.PET, 7);
+        assertFalse(local.put(ChangeEvent.PET, 7, stamp, "v", "application/json", List.of(), new byte[10]));
+        assertNull(local.get(ChangeEvent.PET, 7, "v"));
+
+        stamp = local.stamp(ChangeEvent.PET, 7);
+        assertTrue(local.put(ChangeEvent.PET, 7, stamp, "v", "application/json", List.of(), new byte[10]));
+        assertNotNull(local.get(ChangeEvent.PET, 7, "v"));
+        assertNull(local.get(ChangeEvent.PET, 7, "other base url"));
+        assertNull(local.get(ChangeEvent.OWNER, 7, "v"));
+
+        // From the coherence poller
+        local.invalidate(ChangeEvent.PET, Set.of(7));
+        assertNull(local.get(ChangeEvent.PET, 7, "v"));
+        assertEquals(0, local.getBytes());
+    }
+
+    /**
+     * Over the byte budget, entries read since the last sweep survive
+     */
+    @Test
+    public void testBoundedByBytes() {
+
+        JsonByteCache local = new JsonByteCache(meterRegistry, jdbcTemplate, true, 10_000, 2_000);
+
+        assertFalse(local.put(ChangeEvent.OWNER, 1, 0, "v", "application/json", List.of(), new byte[2_001]));
+
+        for (int id = 1; id <= 100; id++) {
+            local.put(ChangeEvent.OWNER, id, local.stamp(ChangeEvent.OWNER, id), "v", "application/json",
+                    List.of(), new byte[1_000]);
+            // Owner 1 is hot
+            local.get(ChangeEvent.OWNER, 1, "v");
+        }
+
+        assertTrue(local.getBytes() <= 10_000);
+        assertTrue(local.size() < 10);
+        assertNotNull(local.get(ChangeEvent.OWNER, 1, "v"));
+        assertNotNull(local.get(ChangeEvent.OWNER, 100, "v"));
+
+        local.invalidateAll(ChangeEvent.OWNER);
+        assertEquals(0, local.size());
+        assertEquals(0, local.getBytes());
+    }
+}
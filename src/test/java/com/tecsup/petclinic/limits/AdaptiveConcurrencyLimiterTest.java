@@ -0,0 +1,217 @@
+package com.tecsup.petclinic.limits;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final int DB_CONNECTIONS = 4;
+    private static final int CLIENTS = 48;
+
+    /**
+     * The "database" serves 4 queries at a time and slows from 2 ms to 20 ms
+     * per query. Without a limiter every client queues behind the connection
+     * pool; with it, the excess is rejected and admitted requests stay fast.
+     */
+    @Test
+    public void testP99StaysBoundedWhenDatabaseSlowsDown() throws Exception {
+
+        long unlimitedP99 = p99(run(null));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("READ", 40, 2, 200);
+        Result limited = run(limiter);
+        long limitedP99 = p99(limited);
+
+        log.info("p99 unlimited {} ms, limited {} ms, rejected {}, final limit {}",
+                unlimitedP99, limitedP99, limited.rejected.get(), limiter.getLimit());
+
+        assertTrue(limited.rejected.get() > 0, "Overload must be shed");
+        assertTrue(limitedP99 * 2 < unlimitedP99, "p99 should stay well below the queueing latency");
+        assertTrue(limiter.getLimit() < 40, "The limit should adapt down to the slow database");
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testFilterRejectsWithRetryAfter() throws Exception {
+
+        AdaptiveConcurrencyLimiter reads = new AdaptiveConcurrencyLimiter("READ", 1, 1, 1);
+        AdaptiveConcurrencyLimiter writes = new AdaptiveConcurrencyLimiter("WRITE", 1, 1, 1);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+                Map.of(Bulkhead.READ, reads, Bulkhead.WRITE, writes, Bulkhead.EXPORT, reads), Map.of(), 3);
+
+        // Occupy the only read permit
+        Optional<AdaptiveConcurrencyLimiter.Permit> held = reads.tryAcquire();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/pets/1"), rejected, new MockFilterChain());
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("3", rejected.getHeader("Retry-After"));
+
+        // Writes have their own bulkhead
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/pets"), accepted, new MockFilterChain());
+
+        assertEquals(200, accepted.getStatus());
+        held.get().success();
+    }
+
+    /**
+     * An async request holds its permit until it completes, not just until
+     * the handler returns
+     */
+    @Test
+    public void testAsyncRequestHoldsPermitUntilComplete() throws Exception {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("READ", 1, 1, 1);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+                Map.of(Bulkhead.READ, limiter, Bulkhead.WRITE, limiter, Bulkhead.EXPORT, limiter), Map.of(), 1);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/owner-profiles/1");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        assertEquals(1, limiter.getInFlight());
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/pets/1"), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testReportsUseTheExportBulkhead() {
+        assertEquals(Bulkhead.EXPORT,
+                ConcurrencyLimitFilter.classify(new MockHttpServletRequest("GET", "/api/reports/annual/2024")));
+        assertEquals(Bulkhead.EXPORT,
+                ConcurrencyLimitFilter.classify(new MockHttpServletRequest("GET", "/api/owners/export")));
+        assertEquals(Bulkhead.EXPORT,
+                ConcurrencyLimitFilter.classify(new MockHttpServletRequest("POST", "/api/index-advice/analyze")));
+        assertEquals(Bulkhead.READ,
+                ConcurrencyLimitFilter.classify(new MockHttpServletRequest("GET", "/api/index-advice")));
+        assertEquals(Bulkhead.READ, ConcurrencyLimitFilter.classify(new MockHttpServletRequest("GET", "/api/pets/1")));
+    }
+
+    /**
+     * Statements created while a request is served get its bulkhead's
+     * timeout; the same pool used outside a request is not limited
+     */
+    @Test
+    public void testQueryTimeoutOnlyAppliesToRequests() throws Exception {
+
+        Connection connection = mock(Connection.class);
+        PreparedStatement inRequest = mock(PreparedStatement.class);
+        PreparedStatement inJob = mock(PreparedStatement.class);
+        when(connection.prepareStatement("SELECT 1")).thenReturn(inRequest, inJob);
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenReturn(connection);
+        DataSource dataSource = new RequestTimeoutDataSource(pool);
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("READ", 1, 1, 1);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+                Map.of(Bulkhead.READ, limiter, Bulkhead.WRITE, limiter, Bulkhead.EXPORT, limiter),
+                Map.of(Bulkhead.READ, 5), 1);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/pets/1"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    try {
+                        dataSource.getConnection().prepareStatement("SELECT 1");
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+        dataSource.getConnection().prepareStatement("SELECT 1");
+
+        verify(inRequest).setQueryTimeout(5);
+        verify(inJob, never()).setQueryTimeout(anyInt());
+    }
+
+    private Result run(AdaptiveConcurrencyLimiter limiter) throws InterruptedException {
+        Semaphore connections = new Semaphore(DB_CONNECTIONS, true);
+        Result result = new Result();
+        long start = System.currentTimeMillis();
+        long slowFrom = start + 300;
+        long end = start + 1500;
+        // Only latencies once the slow down has settled are measured
+        long measureFrom = start + 900;
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+
+        for (int i = 0; i < CLIENTS; i++) {
+            Thread client = new Thread(() -> {
+                try {
+                    while (System.currentTimeMillis() < end) {
+                        Optional<AdaptiveConcurrencyLimiter.Permit> permit =
+                                limiter == null ? Optional.empty() : limiter.tryAcquire();
+                        if (limiter != null && permit.isEmpty()) {
+                            result.rejected.incrementAndGet();
+                            Thread.sleep(5);
+                            continue;
+                        }
+                        long t0 = System.nanoTime();
+                        connections.acquire();
+                        try {
+                            Thread.sleep(System.currentTimeMillis() < slowFrom ? 2 : 20);
+                        } finally {
+                            connections.release();
+                        }
+                        long millis = (System.nanoTime() - t0) / 1_000_000;
+                        permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::success);
+                        if (System.currentTimeMillis() > measureFrom) {
+                            result.latencies.add(millis);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            client.start();
+        }
+        done.await();
+        return result;
+    }
+
+    private static long p99(Result result) {
+        List<Long> sorted = new ArrayList<>(result.latencies);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+    }
+
+    private static class Result {
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger rejected = new AtomicInteger();
+    }
+}
@@ -0,0 +1,181 @@
+package com.tecsup.petclinic.querycache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.events.ChangeEvent;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.services.PetService;
+
+// No coherence poller run during the tests: only the local events may invalidate
+@SpringBootTest(properties = "petclinic.coherence.poll-interval-ms=3600000")
+@AutoConfigureMockMvc
+public class QueryResultCacheTest {
+
+    @Autowired
+    private QueryResultCache queryCache;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Served from the cache until a write to a table the query read; writes
+     * to other tables and transactional callers do not use the entry
+     */
+    @Test
+    public void testServedUntilTableVersionChanges() {
+
+        AtomicInteger queries = new AtomicInteger();
+        List<String> first = cached("test.versions", queries);
+        List<String> second = cached("test.versions", queries);
+        assertEquals(1, queries.get());
+        assertEquals(first, second);
+        assertNotSame(first, second);
+
+        queryCache.invalidateAll(ChangeEvent.OWNER);
+        cached("test.versions", queries);
+        assertEquals(1, queries.get());
+
+        transactionTemplate.executeWithoutResult(status -> cached("test.versions", queries));
+        assertEquals(2, queries.get());
+
+        queryCache.invalidateAll(ChangeEvent.PET);
+        cached("test.versions", queries);
+        assertEquals(3, queries.get());
+    }
+
+    /**
+     * A write committed while the query runs outdates its result at once
+     */
+    @Test
+    public void testWriteDuringQueryIsNotCached() {
+
+        AtomicInteger queries = new AtomicInteger();
+        queryCache.get("test.race", 1, List.of(ChangeEvent.PET), () -> {
+            queries.incrementAndGet();
+            queryCache.invalidateAll(ChangeEvent.PET);
+            return List.of("old");
+        }, ArrayList::new);
+
+        cached("test.race", queries);
+        assertEquals(2, queries.get());
+    }
+
+    /**
+     * A miss after a write does not join a query started before it: that
+     * result would be stored under the new version
+     */
+    @Test
+    public void testMissAfterWriteDoesNotJoinEarlierQuery() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<List<String>> before = CompletableFuture.supplyAsync(() ->
+                queryCache.get("test.join", 1, List.of(ChangeEvent.PET), () -> {
+                    started.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return List.of("old");
+                }, ArrayList::new));
+        try {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            queryCache.invalidateAll(ChangeEvent.PET);
+
+            CompletableFuture<List<String>> after = CompletableFuture.supplyAsync(() ->
+                    queryCache.get("test.join", 1, List.of(ChangeEvent.PET), () -> List.of("new"), ArrayList::new));
+            try {
+                after.get(1, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // Joined the earlier query: only completes once it is released
+            }
+            release.countDown();
+
+            assertEquals(List.of("new"), after.get());
+            assertEquals(List.of("old"), before.get());
+            assertEquals(List.of("new"), queryCache.get("test.join", 1, List.of(ChangeEvent.PET),
+                    () -> List.of("new"), ArrayList::new));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * A pet created through /api (Data REST, no service event) shows up at once
+     */
+    @Test
+    public void testDataRestCreateInvalidatesPetQueries() throws Exception {
+
+        int before = petService.findByOwnerId(1).size();
+
+        String location = mockMvc.perform(post("/api/pets").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"RestCached\",\"typeId\":1,\"ownerId\":1}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+        int petId = Integer.parseInt(location.substring(location.lastIndexOf('/') + 1));
+        try {
+            List<Pet> pets = petService.findByOwnerId(1);
+            assertEquals(before + 1, pets.size());
+            assertTrue(pets.stream().anyMatch(pet -> pet.getId() == petId));
+        } finally {
+            petService.delete(petId);
+        }
+    }
+
+    /**
+     * Pets by owner reflect a pet created and deleted through the service
+     */
+    @Test
+    public void testServiceWritesInvalidatePetQueries() throws PetNotFoundException {
+
+        int before = petService.findByOwnerId(1).size();
+        long version = queryCache.getVersion(ChangeEvent.PET);
+
+        PetDTO created = petService.create(new PetDTO(null, "Cached", 1, 1, null));
+        try {
+            assertTrue(queryCache.getVersion(ChangeEvent.PET) > version);
+            List<Pet> pets = petService.findByOwnerId(1);
+            assertEquals(before + 1, pets.size());
+            assertTrue(pets.stream().anyMatch(pet -> pet.getId().equals(created.getId())));
+        } finally {
+            petService.delete(created.getId());
+        }
+        assertEquals(before, petService.findByOwnerId(1).size());
+    }
+
+    private List<String> cached(String name, AtomicInteger queries) {
+        return queryCache.get(name, 1, List.of(ChangeEvent.PET), () -> {
+            queries.incrementAndGet();
+            return List.of("Leo", "Basil");
+        }, ArrayList::new);
+    }
+}
@@ -0,0 +1,58 @@
+package com.tecsup.petclinic.querylog;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cost of the query log per statement: the same point lookups and small
+ * scans through the raw pool and through QueryLogDataSource.
+ *
+ * Not part of the regular build (surefire only picks *Test classes); run with
+ * mvn test -Dtest=QueryLogBenchmark
+ */
+@SpringBootTest
+@Slf4j
+public class QueryLogBenchmark {
+
+    private static final int STATEMENTS = 20_000;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void benchmarkOverhead() {
+
+        DataSource raw = ((QueryLogDataSource) dataSource).getTargetDataSource();
+        JdbcTemplate plain = new JdbcTemplate(raw);
+        JdbcTemplate logged = new JdbcTemplate(dataSource);
+
+        for (int round = 0; round <= ROUNDS; round++) {
+            // Round 0 warms up both paths
+            long plainNanos = run(plain);
+            long loggedNanos = run(logged);
+            if (round > 0) {
+                log.info("round {}: raw {} ns/stmt, logged {} ns/stmt, overhead {} ns/stmt", round,
+                        plainNanos / STATEMENTS, loggedNanos / STATEMENTS, (loggedNanos - plainNanos) / STATEMENTS);
+            }
+        }
+    }
+
+    private static long run(JdbcTemplate jdbcTemplate) {
+        long start = System.nanoTime();
+        for (int i = 0; i < STATEMENTS; i++) {
+            if (i % 2 == 0) {
+                jdbcTemplate.queryForObject("SELECT name FROM pets WHERE id = ?", String.class, 1 + i % 10);
+            } else {
+                jdbcTemplate.queryForList("SELECT id, name FROM types WHERE active = ?", true);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,153 @@
+package com.tecsup.petclinic.querylog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tecsup.petclinic.services.PetService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Slf4j
+public class QueryLogTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private QueryLog queryLog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     *
+     */
+    @Test
+    public void testNormalize() {
+
+        assertEquals("select * from pets where name = ? and id > ? and p1_0.x = ?",
+                SqlNormalizer.compute("select *  from pets\n where name = 'O''Brien' and id > 42 and p1_0.x = 1.5"));
+        assertEquals("select id from owners where id in (...) and city = ?",
+                SqlNormalizer.compute("select id from owners where id in (?, ?,?) and city = ?"));
+        assertEquals("select id from owners where id in (...)",
+                SqlNormalizer.compute("select id from owners where id IN (1, 2, 3, 4)"));
+        assertEquals("insert into types (name, active) values (?,?), ...",
+                SqlNormalizer.compute("insert into types (name, active) values (?,?), (?,?), (?,?)"));
+    }
+
+    /**
+     * The application DataSource is wrapped; shapes collect counts, rows and errors
+     */
+    @Test
+    public void testStatementsAreRecordedByShape() {
+
+        assertTrue(dataSource instanceof QueryLogDataSource);
+        queryLog.reset();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+        named.queryForList("SELECT id FROM pets WHERE id IN (:ids)", java.util.Map.of("ids", List.of(1, 2)), Integer.class);
+        named.queryForList("SELECT id FROM pets WHERE id IN (:ids)", java.util.Map.of("ids", List.of(3, 4, 5)), Integer.class);
+        jdbcTemplate.update("UPDATE owners SET city = city WHERE id <= ?", 2);
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.queryForList("SELECT nope FROM pets"));
+
+        List<QueryStats> top = queryLog.top(QueryLog.Order.COUNT, 100);
+
+        QueryStats in = find(top, "SELECT id FROM pets WHERE id in (...)");
+        assertEquals(2, in.getCount());
+        assertEquals(5, in.getRows());
+        assertTrue(in.getMaxMs() >= in.getMeanMs() && in.getP99Ms() <= in.getMaxMs());
+
+        assertEquals(2, find(top, "UPDATE owners SET city = city WHERE id <= ?").getRows());
+        assertEquals(1, find(top, "SELECT nope FROM pets").getErrors());
+
+        // JPA goes through the same pool
+        petService.findAll();
+        assertTrue(queryLog.top(QueryLog.Order.TOTAL, 100).stream().anyMatch(s -> s.getSql().contains("from pets")));
+    }
+
+    /**
+     * Over the threshold: counted as slow and attributed to the calling method
+     */
+    @Test
+    public void testSlowStatementRecordsCaller() {
+
+        QueryLog slowLog = new QueryLog(meterRegistry, 0, true, 10);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new QueryLogDataSource(dataSource, () -> slowLog));
+
+        jdbcTemplate.queryForObject("SELECT name FROM pets WHERE id = ?", String.class, 1);
+
+        QueryStats stats = slowLog.top(QueryLog.Order.MAX, 1).get(0);
+        assertEquals("SELECT name FROM pets WHERE id = ?", stats.getSql());
+        assertEquals(1, stats.getRows());
+        assertEquals("QueryLogTest.testSlowStatementRecordsCaller", stats.getLastSlowCaller());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testShapesAreBounded() {
+
+        QueryLog bounded = new QueryLog(meterRegistry, 60_000, true, 2);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new QueryLogDataSource(dataSource, () -> bounded));
+
+        jdbcTemplate.queryForList("SELECT id FROM pets");
+        jdbcTemplate.queryForList("SELECT id FROM owners");
+        jdbcTemplate.queryForList("SELECT id FROM types");
+        jdbcTemplate.queryForList("SELECT id FROM vets");
+
+        List<QueryStats> top = bounded.top(QueryLog.Order.COUNT, 10);
+        assertEquals(3, top.size());
+        assertEquals(2, find(top, QueryLog.OTHER).getCount());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testTopEndpoint() throws Exception {
+
+        mockMvc.perform(get("/api/pets/1"));
+
+        mockMvc.perform(get("/api/query-stats").param("sort", "COUNT").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].sql").isString())
+                .andExpect(jsonPath("$[0].p99Ms").isNumber());
+
+        mockMvc.perform(get("/api/query-stats").param("sort", "SLOWEST"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static QueryStats find(List<QueryStats> stats, String sql) {
+        return stats.stream().filter(s -> s.getSql().equals(sql)).findFirst()
+                .orElseThrow(() -> new AssertionError(sql + " not in " + stats));
+    }
+}
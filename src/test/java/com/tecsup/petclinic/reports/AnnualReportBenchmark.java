@@ -0,0 +1,119 @@
+package com.tecsup.petclinic.reports;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.tecsup.petclinic.archive.VisitArchiver;
+import com.tecsup.petclinic.dictionary.PetTypeDictionary;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Annual report over synthetic visits and pets with 1, 2, 4 and 8 fork-join
+ * threads. Speed-up is bounded by the cores of the machine and the
+ * connection pool (10 by default).
+ *
+ * Not part of the regular build (surefire only picks *Test classes); run with
+ * mvn test -Dtest=AnnualReportBenchmark
+ */
+@SpringBootTest
+@Slf4j
+public class AnnualReportBenchmark {
+
+    private static final int VISITS = 200_000;
+    private static final int PETS = 50_000;
+    private static final int FIRST_ID = 1_000_000;
+    private static final int YEAR = 2023;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VisitArchiver visitArchiver;
+
+    @Autowired
+    private PetTypeDictionary petTypes;
+
+    @AfterEach
+    void cleanUp() {
+        JdbcTemplate jdbcTemplate = untimed();
+        jdbcTemplate.update("DELETE FROM visits WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM pets WHERE id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void benchmarkParallelism() {
+
+        seed();
+        log.info("{} cores available", Runtime.getRuntime().availableProcessors());
+
+        // JIT warm-up, so the first configuration measured is not penalised
+        AnnualReportGenerator warmUp = new AnnualReportGenerator(jdbcTemplate, transactionManager,
+                visitArchiver, petTypes, 2, 25_000);
+        for (int i = 0; i < 5; i++) {
+            warmUp.generate(YEAR);
+        }
+        warmUp.close();
+
+        long single = 0;
+        for (int parallelism : new int[] { 1, 2, 4, 8 }) {
+            AnnualReportGenerator generator = new AnnualReportGenerator(jdbcTemplate, transactionManager,
+                    visitArchiver, petTypes, parallelism, 25_000);
+            try {
+                generator.generate(YEAR);
+                long start = System.nanoTime();
+                for (int i = 0; i < 3; i++) {
+                    generator.generate(YEAR);
+                }
+                long millis = (System.nanoTime() - start) / 3_000_000;
+                single = parallelism == 1 ? millis : single;
+                log.info("parallelism {}: {} ms per report, speed-up {}", parallelism, millis,
+                        String.format("%.2f", (double) single / Math.max(millis, 1)));
+            } finally {
+                generator.close();
+            }
+        }
+    }
+
+    private void seed() {
+        JdbcTemplate jdbcTemplate = untimed();
+        Random random = new Random(43);
+        List<Object[]> pets = new ArrayList<>();
+        for (int i = 0; i < PETS; i++) {
+            pets.add(new Object[] { FIRST_ID + i, "bench-" + i, 1 + random.nextInt(8), 1 + random.nextInt(10),
+                    Date.valueOf(LocalDate.of(2000 + random.nextInt(24), 1 + random.nextInt(12), 1)) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO pets (id, name, type_id, owner_id, birth_date) VALUES (?, ?, ?, ?, ?)",
+                pets);
+
+        List<Object[]> visits = new ArrayList<>();
+        for (int i = 0; i < VISITS; i++) {
+            visits.add(new Object[] { FIRST_ID + i, FIRST_ID + random.nextInt(PETS), 1 + random.nextInt(5),
+                    Date.valueOf(LocalDate.of(YEAR - 1 + random.nextInt(2), 1 + random.nextInt(12), 1)),
+                    random.nextInt(300) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO visits (id, pet_id, vet_id, visit_date, cost) VALUES (?, ?, ?, ?, ?)",
+                visits);
+    }
+
+    // Seeding and cleaning up the rows exceeds the application's query timeout. H2 keeps a
+    // statement timeout on the pooled session, so a longer one has to be set explicitly
+    private JdbcTemplate untimed() {
+        JdbcTemplate untimed = new JdbcTemplate(jdbcTemplate.getDataSource());
+        untimed.setQueryTimeout(600);
+        return untimed;
+    }
+}
@@ -0,0 +1,114 @@
+package com.tecsup.petclinic.reports;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.tecsup.petclinic.archive.VisitArchiver;
+import com.tecsup.petclinic.dictionary.PetTypeDictionary;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@Slf4j
+public class AnnualReportGeneratorTest {
+
+    @Autowired
+    private AnnualReportGenerator generator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VisitArchiver visitArchiver;
+
+    @Autowired
+    private PetTypeDictionary petTypes;
+
+    /**
+     * 2024 in the fixtures: one January visit by vet 1 (no primary specialty) and
+     * one February visit by vet 4 (surgery)
+     */
+    @Test
+    public void testReportOnSeedData() {
+
+        AnnualReport report = generator.generate(2024);
+
+        assertEquals(2, report.getVisitsByVetMonth().size());
+        assertEquals(1, report.getVisitsByVetMonth().get(1)[0]);
+        assertEquals(1, report.getVisitsByVetMonth().get(4)[1]);
+        assertEquals(new BigDecimal("150.00"), report.getRevenueByVet().get(4));
+
+        long pets = report.getPetsByTypeAndBirthYear().values().stream()
+                .flatMap(years -> years.values().stream()).mapToLong(Long::longValue).sum();
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pets", Long.class), pets);
+        assertEquals(2L, report.getPetsByTypeAndBirthYear().get(1).get(1995));
+    }
+
+    /**
+     * One id per leaf on four threads gives the same aggregates as a single range
+     */
+    @Test
+    public void testSplitRangesMergeToSameReport() {
+
+        AnnualReportGenerator split = new AnnualReportGenerator(jdbcTemplate, transactionManager, visitArchiver,
+                petTypes, 4, 1);
+        AnnualReportGenerator whole = new AnnualReportGenerator(jdbcTemplate, transactionManager, visitArchiver,
+                petTypes, 1, Long.MAX_VALUE);
+        try {
+            for (int year : new int[] { 2008, 2010, 2024 }) {
+                AnnualReport expected = whole.generate(year);
+                AnnualReport actual = split.generate(year);
+
+                assertEquals(expected.getVisitsByVetMonth().keySet(), actual.getVisitsByVetMonth().keySet());
+                expected.getVisitsByVetMonth().forEach((vetId, months) ->
+                        assertArrayEquals(months, actual.getVisitsByVetMonth().get(vetId)));
+                assertEquals(expected.getRevenueByVet(), actual.getRevenueByVet());
+                assertEquals(expected.getPetsByTypeAndBirthYear(), actual.getPetsByTypeAndBirthYear());
+            }
+        } finally {
+            split.close();
+            whole.close();
+        }
+    }
+
+    @Test
+    public void testWriteCsv() throws Exception {
+
+        StringWriter out = new StringWriter();
+        generator.write(generator.generate(2024), out);
+        String csv = out.toString();
+        log.info("REPORT :\n{}", csv);
+
+        assertTrue(csv.contains("1,James Carter,1,1\n"));
+        assertTrue(csv.contains("4,Rafael Ortega,2,1\n"));
+        assertTrue(csv.contains("0,none,65.00\n"));
+        assertTrue(csv.contains("2,surgery,150.00\n"));
+        assertTrue(csv.contains("1,cat,1995,2\n"));
+    }
+
+    @Test
+    public void testRevenueBySpecialty() {
+
+        AnnualReport report = new AnnualReport(2024);
+        report.addVisits(1, 1, 2, new BigDecimal("10.00"));
+        report.addVisits(2, 3, 1, new BigDecimal("5.50"));
+        report.addVisits(3, 3, 1, new BigDecimal("4.50"));
+
+        assertEquals(Map.of(0, new BigDecimal("10.00"), 7, new BigDecimal("10.00")),
+                report.revenueBySpecialty(Map.of(2, 7, 3, 7)));
+    }
+}
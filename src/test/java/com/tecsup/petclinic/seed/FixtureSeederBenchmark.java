@@ -0,0 +1,100 @@
+package com.tecsup.petclinic.seed;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads one large owners-shaped fixture three ways: as a script of one
+ * INSERT per row (what data.sql did), as JDBC batches and through CSVREAD.
+ *
+ * Not part of the regular build (surefire only picks *Test classes); run with
+ * mvn test -Dtest=FixtureSeederBenchmark
+ */
+@SpringBootTest
+@Slf4j
+public class FixtureSeederBenchmark {
+
+    private static final int ROWS = 200_000;
+
+    @Autowired
+    private FixtureSeeder seeder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Path csv;
+    private Path script;
+
+    @BeforeEach
+    void writeFixtures() throws IOException {
+        jdbcTemplate.execute("CREATE TABLE seed_bench (id INT AUTO_INCREMENT, first_name VARCHAR(30), "
+                + "last_name VARCHAR(30), address VARCHAR(255), city VARCHAR(80), telephone VARCHAR(20), "
+                + "PRIMARY KEY (id))");
+        csv = Files.createTempFile("seed_bench", ".csv");
+        script = Files.createTempFile("seed_bench", ".sql");
+        Random random = new Random(49);
+        try (Writer csvOut = Files.newBufferedWriter(csv, StandardCharsets.UTF_8);
+             Writer sqlOut = Files.newBufferedWriter(script, StandardCharsets.UTF_8)) {
+            csvOut.write("id,first_name,last_name,address,city,telephone\n");
+            for (int i = 1; i <= ROWS; i++) {
+                String[] row = { String.valueOf(i), "Owner" + random.nextInt(1000), "Family" + random.nextInt(5000),
+                        random.nextInt(3000) + " Oak St.", "City " + random.nextInt(200),
+                        String.valueOf(900_000_000 + random.nextInt(99_999_999)) };
+                csvOut.write(String.join(",", row) + "\n");
+                sqlOut.write("INSERT INTO seed_bench (id, first_name, last_name, address, city, telephone) VALUES ("
+                        + row[0] + ", '" + row[1] + "', '" + row[2] + "', '" + row[3] + "', '" + row[4] + "', '"
+                        + row[5] + "');\n");
+            }
+        }
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        jdbcTemplate.execute("DROP TABLE seed_bench");
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(script);
+    }
+
+    @Test
+    public void benchmarkLoad() {
+
+        // Warm-up
+        seeder.load("seed_bench", new FileSystemResource(csv), true);
+        jdbcTemplate.execute("TRUNCATE TABLE seed_bench");
+
+        long started = System.nanoTime();
+        new ResourceDatabasePopulator(new FileSystemResource(script)).execute(jdbcTemplate.getDataSource());
+        long scriptMs = elapsed(started);
+        jdbcTemplate.execute("TRUNCATE TABLE seed_bench");
+
+        started = System.nanoTime();
+        seeder.load("seed_bench", new FileSystemResource(csv), false);
+        long batchMs = elapsed(started);
+        jdbcTemplate.execute("TRUNCATE TABLE seed_bench");
+
+        started = System.nanoTime();
+        seeder.load("seed_bench", new FileSystemResource(csv), true);
+        long bulkMs = elapsed(started);
+
+        log.info("{} rows: script {} ms, JDBC batches {} ms, CSVREAD {} ms", ROWS, scriptMs, batchMs, bulkMs);
+    }
+
+    private static long elapsed(long started) {
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+}
@@ -0,0 +1,91 @@
+package com.tecsup.petclinic.seed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+public class FixtureSeederTest {
+
+    private static final String FIXTURE = """
+            id,name,born,active,cost,notes
+            1,"Davis, Betty",2000-09-07,true,45.50,"said ""hi""
+            twice"
+            2,Leo,,false,,
+            """;
+
+    @Autowired
+    private FixtureSeeder seeder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createProbe() {
+        jdbcTemplate.execute("CREATE TABLE seed_probe (id INT AUTO_INCREMENT, name VARCHAR(30), born DATE, "
+                + "active BOOLEAN, cost DECIMAL(10,2), notes VARCHAR(255), PRIMARY KEY (id))");
+    }
+
+    @AfterEach
+    void dropProbe() {
+        jdbcTemplate.execute("DROP TABLE seed_probe");
+    }
+
+    /**
+     * The fixtures were loaded at startup and their checksum recorded, so
+     * seeding again is skipped
+     */
+    @Test
+    public void testSeededAndSkippedWhenUnchanged() {
+
+        assertEquals("Carter", jdbcTemplate.queryForObject("SELECT last_name FROM vets WHERE id = 1", String.class));
+        assertEquals("Expert in X-ray imaging", jdbcTemplate.queryForObject(
+                "SELECT notes FROM vet_specialties WHERE vet_id = 2 AND specialty_id = 1", String.class));
+        assertEquals(Boolean.FALSE, jdbcTemplate.queryForObject("SELECT active FROM types WHERE id = 6",
+                Boolean.class));
+        assertEquals(64, jdbcTemplate.queryForObject("SELECT checksum FROM seed_state WHERE name = 'fixtures'",
+                String.class).length());
+
+        assertEquals(-1, seeder.seed());
+    }
+
+    /**
+     * CSVREAD and JDBC batches read quotes, line breaks and empty fields
+     * the same way, and the identity continues after the loaded ids
+     */
+    @Test
+    public void testBulkAndBatchLoadTheSameRows() {
+
+        assertEquals(2, seeder.load("seed_probe", fixture(), true));
+        List<Map<String, Object>> bulk = jdbcTemplate.queryForList("SELECT * FROM seed_probe ORDER BY id");
+        jdbcTemplate.update("DELETE FROM seed_probe");
+
+        assertEquals(2, seeder.load("seed_probe", fixture(), false));
+        List<Map<String, Object>> batches = jdbcTemplate.queryForList("SELECT * FROM seed_probe ORDER BY id");
+
+        assertEquals(bulk, batches);
+        assertEquals("Davis, Betty", batches.get(0).get("NAME"));
+        assertEquals("said \"hi\"\ntwice", batches.get(0).get("NOTES"));
+        assertNull(batches.get(1).get("BORN"));
+        assertNull(batches.get(1).get("NOTES"));
+
+        jdbcTemplate.update("INSERT INTO seed_probe (name) VALUES ('Max')");
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT id FROM seed_probe WHERE name = 'Max'", Integer.class));
+    }
+
+    private static Resource fixture() {
+        return new ByteArrayResource(FIXTURE.getBytes(StandardCharsets.UTF_8), "seed_probe.csv");
+    }
+}
@@ -0,0 +1,173 @@
+package com.tecsup.petclinic.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.tecsup.petclinic.dtos.OwnerProfileDTO;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.entities.Pet;
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.mappers.PetMapper;
+import com.tecsup.petclinic.repositories.PetRepository;
+import com.tecsup.petclinic.repositories.VetRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pruebas del perfil de owner: contenido, lecturas en paralelo y timeouts por parte
+ */
+@SpringBootTest(properties = "petclinic.profile.vets-timeout-ms=500")
+@DirtiesContext
+@Slf4j
+public class OwnerProfileServiceTest {
+
+    private static final long DELAY_MS = 300;
+
+    @Autowired
+    private OwnerProfileService ownerProfileService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private PetMapper petMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoSpyBean
+    private PetRepository petRepository;
+
+    @MockitoSpyBean
+    private VisitHistoryService visitHistoryService;
+
+    @MockitoSpyBean
+    private VetRepository vetRepository;
+
+    /**
+     * Jean Coleman (owner 6): dos gatos, cuatro visitas, dos veterinarios
+     */
+    @Test
+    public void testFindProfile() throws Exception {
+
+        OwnerProfileDTO profile = ownerProfileService.findProfile(6).get();
+        log.info("PROFILE : {}", profile);
+
+        assertEquals("Coleman", profile.getOwner().getLastName());
+        assertEquals(List.of("Samantha", "Max"), profile.getPets().stream()
+                .map(pet -> pet.getPet().getName()).collect(Collectors.toList()));
+        profile.getPets().forEach(pet -> {
+            assertEquals("cat", pet.getPet().getTypeName());
+            assertEquals(2, pet.getVisits().size());
+        });
+        assertEquals(List.of(2, 3), profile.getVets().stream().map(Vet::getId).collect(Collectors.toList()));
+        assertTrue(profile.getUnavailable().isEmpty());
+    }
+
+    @Test
+    public void testOwnerNotFound() {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> ownerProfileService.findProfile(9999).get());
+        assertInstanceOf(OwnerNotFoundException.class, e.getCause());
+    }
+
+    /**
+     * Tres lecturas lentas: el perfil tarda lo que la más lenta, no la suma
+     */
+    @Test
+    public void testReadsRunInParallel() throws Exception {
+
+        doAnswer(slow(DELAY_MS, List.of(new Pet(7, "Samantha", 1, 6, null), new Pet(8, "Max", 1, 6, null))))
+                .when(petRepository).findByOwnerId(anyInt());
+        doAnswer(slow(DELAY_MS, List.of())).when(visitHistoryService).findOwnerVisits(anyInt());
+        doAnswer(slow(DELAY_MS, List.of())).when(vetRepository).findSeenByOwnerId(anyInt());
+
+        long start = System.nanoTime();
+        OwnerProfileDTO profile = ownerProfileService.findProfile(6).get();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Profile with three {} ms reads took {} ms", DELAY_MS, millis);
+
+        assertEquals(2, profile.getPets().size());
+        assertTrue(millis < 2 * DELAY_MS, millis + " ms");
+    }
+
+    /**
+     * Los veterinarios superan su timeout: el perfil llega sin ellos
+     */
+    @Test
+    public void testSlowBranchIsReportedUnavailable() throws Exception {
+
+        doAnswer(slow(1_500, List.of())).when(vetRepository).findSeenByOwnerId(anyInt());
+
+        long start = System.nanoTime();
+        OwnerProfileDTO profile = ownerProfileService.findProfile(6).get();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(List.of("vets"), profile.getUnavailable());
+        assertTrue(profile.getVets().isEmpty());
+        assertEquals(2, profile.getPets().get(0).getVisits().size());
+        assertTrue(millis < 1_000, millis + " ms");
+    }
+
+    /**
+     * Pool de un hilo y cola de uno, ocupados por el owner y las mascotas:
+     * visitas y veterinarios se rechazan y el perfil llega sin ellos; un
+     * segundo perfil, sin owner, falla
+     */
+    @Test
+    public void testSaturatedPoolDegradesInsteadOfRunningInline() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        OwnerService ownerService = mock(OwnerService.class);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new Owner(6, "Jean", "Coleman", "105 N. Lake St.", "Monona", "6085552654");
+        }).when(ownerService).findById(anyInt());
+
+        OwnerProfileServiceImpl saturated = new OwnerProfileServiceImpl(ownerService, petService, petMapper,
+                visitHistoryService, vetRepository, meterRegistry, 1, 1, 1_000, 1_000, 1_000, 1_000);
+        try {
+            CompletableFuture<OwnerProfileDTO> first = saturated.findProfile(6);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> saturated.findProfile(6).get());
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+
+            release.countDown();
+            OwnerProfileDTO profile = first.get();
+            assertEquals("Coleman", profile.getOwner().getLastName());
+            assertEquals(List.of("vets", "visits"), profile.getUnavailable());
+            assertEquals(2, profile.getPets().size());
+        } finally {
+            release.countDown();
+            saturated.close();
+        }
+    }
+
+    private static Answer<Object> slow(long millis, Object result) {
+        return invocation -> {
+            Thread.sleep(millis);
+            return result;
+        };
+    }
+}
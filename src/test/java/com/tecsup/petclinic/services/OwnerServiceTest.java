@@ -6,6 +6,9 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -15,15 +18,26 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.dtos.OwnerMergeDTO;
+import com.tecsup.petclinic.dtos.OwnerRegistrationDTO;
+import com.tecsup.petclinic.dtos.OwnerSearchCriteria;
 import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.events.OwnerChangedEvent;
+import com.tecsup.petclinic.events.OwnersUpsertedEvent;
 import com.tecsup.petclinic.repositories.OwnerRepository;
 
 import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
@@ -36,6 +50,7 @@ import lombok.extern.slf4j.Slf4j;
 @SpringBootTest
 @Slf4j
 @Transactional
+@RecordApplicationEvents
 public class OwnerServiceTest {
 
 	@Autowired
@@ -44,6 +59,10 @@ public class OwnerServiceTest {
 	private OwnerRepository ownerRepository;
 	@Autowired
 	private PetService petService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private ApplicationEvents events;
 	
 	private Owner testOwner;
 	
@@ -322,4 +341,221 @@ public class OwnerServiceTest {
 		ownerWithNullId.setTelephone("123-4567");
 
 	}
+
+	/**
+	 * Prueba de la búsqueda dinámica combinando ciudad, apellido y paginación
+	 */
+	@Test
+	public void testSearchOwnersByCityAndLastName() {
+		Owner createdOwner = ownerService.create(testOwner);
+
+		OwnerSearchCriteria criteria = OwnerSearchCriteria.builder()
+				.city("Springfield")
+				.lastName("Doe")
+				.build();
+
+		Page<Owner> page = ownerService.search(criteria, PageRequest.of(0, 10, Sort.by("id")));
+		log.info("OWNERS FOUND BY SEARCH: " + page.getContent());
+
+		assertEquals(1, page.getTotalElements(), "Solo el owner creado vive en Springfield con apellido Doe");
+		assertEquals(createdOwner.getId(), page.getContent().get(0).getId());
+
+		// Un criterio vacío no filtra: se respeta el tamaño de página
+		Page<Owner> firstPage = ownerService.search(new OwnerSearchCriteria(), PageRequest.of(0, 2));
+		assertEquals(2, firstPage.getContent().size());
+		assertTrue(firstPage.getTotalElements() > 2);
+	}
+
+	/**
+	 * Prueba de la búsqueda por tipo de mascota (EXISTS sobre pets, sin duplicados)
+	 */
+	@Test
+	public void testSearchOwnersByPetType() {
+		// Madison + perro (type 2) -> solo Maria Escobito (Mulligan)
+		OwnerSearchCriteria criteria = OwnerSearchCriteria.builder()
+				.city("Madison")
+				.petTypeId(2)
+				.build();
+
+		Page<Owner> page = ownerService.search(criteria, PageRequest.of(0, 10));
+
+		assertEquals(1, page.getTotalElements());
+		assertEquals("Escobito", page.getContent().get(0).getLastName());
+	}
+
+	/**
+	 * Verifica que las búsquedas por ciudad/apellido y teléfono usan los índices
+	 * compuestos en H2 y que están declarados en el esquema MySQL
+	 */
+	@Test
+	public void testSearchUsesCompositeIndexes() throws Exception {
+		String cityPlan = explain("SELECT o.id FROM owners o WHERE o.city = 'Madison' AND o.last_name = 'Davis'");
+		String phonePlan = explain("SELECT o.id FROM owners o WHERE o.telephone = '6085551749'");
+		String petTypePlan = explain("SELECT o.id FROM owners o WHERE EXISTS "
+				+ "(SELECT p.id FROM pets p WHERE p.owner_id = o.id AND p.type_id = 2)");
+		log.info("PLANS: {} / {} / {}", cityPlan, phonePlan, petTypePlan);
+
+		assertTrue(cityPlan.contains("IDX_OWNERS_CITY_LAST_NAME"), cityPlan);
+		assertTrue(phonePlan.contains("IDX_OWNERS_TELEPHONE"), phonePlan);
+		assertTrue(petTypePlan.contains("IDX_PETS_OWNER_TYPE"), petTypePlan);
+
+		String mysqlSchema = Files.readString(Path.of("data", "schema-mysql.sql"));
+		assertTrue(mysqlSchema.contains("INDEX idx_owners_city_last_name (city, last_name)"));
+		assertTrue(mysqlSchema.contains("INDEX idx_owners_telephone (telephone)"));
+		assertTrue(mysqlSchema.contains("INDEX idx_pets_owner_type (owner_id, type_id)"));
+	}
+
+	/**
+	 * Registra un owner con tres mascotas en una sola llamada y verifica los ids generados
+	 */
+	@Test
+	public void testRegisterOwnerWithPets() {
+		Owner owner = new Owner(null, "Lucia", "Ramos", "Av. Lima 123", "Lima", "987654321");
+		List<PetDTO> pets = List.of(
+				PetDTO.builder().name("Toby").typeId(2).birthDate(LocalDate.of(2020, 1, 5)).build(),
+				PetDTO.builder().name("Misu").typeId(1).build(),
+				PetDTO.builder().name("Kiwi").typeId(5).build());
+
+		OwnerRegistrationDTO registered = ownerService.register(new OwnerRegistrationDTO(owner, pets));
+
+		Integer ownerId = registered.getOwner().getId();
+		assertNotNull(ownerId);
+		assertEquals(3, registered.getPets().size());
+		registered.getPets().forEach(pet -> {
+			assertNotNull(pet.getId());
+			assertEquals(ownerId.intValue(), pet.getOwnerId());
+		});
+		assertEquals(3, registered.getPets().stream().map(PetDTO::getId).distinct().count());
+
+		Set<String> stored = petService.findByOwnerId(ownerId).stream()
+				.map(pet -> pet.getId() + ":" + pet.getName())
+				.collect(Collectors.toSet());
+		Set<String> returned = registered.getPets().stream()
+				.map(pet -> pet.getId() + ":" + pet.getName())
+				.collect(Collectors.toSet());
+		assertEquals(returned, stored);
+	}
+
+	/**
+	 * Una mascota inválida hace fallar todo el registro
+	 */
+	@Test
+	public void testRegisterFailsOnInvalidPet() {
+		Owner owner = new Owner(null, "Pedro", "Salas", "Jr. Cusco 45", "Lima", "912345678");
+		List<PetDTO> pets = List.of(PetDTO.builder().name("Toby").typeId(2).build(),
+				PetDTO.builder().typeId(1).build());
+
+		assertThrows(DataIntegrityViolationException.class,
+				() -> ownerService.register(new OwnerRegistrationDTO(owner, pets)));
+	}
+
+	/**
+	 * Reenviar el mismo owner sin id actualiza la fila existente (clave natural)
+	 */
+	@Test
+	public void testUpsertOwnerIsIdempotent() {
+		Owner first = ownerService.upsert(new Owner(null, "Rosa", "Paz", "Av. Sol 1", "Cusco", "984000111"));
+		Owner again = ownerService.upsert(new Owner(null, "Rosa", "Paz", "Av. Sol 2", "Cusco", "984000111"));
+
+		assertNotNull(first.getId());
+		assertEquals(first.getId(), again.getId());
+
+		List<Owner> stored = ownerService.findByLastName("Paz");
+		assertEquals(1, stored.size());
+		assertEquals("Av. Sol 2", stored.get(0).getAddress());
+	}
+
+	/**
+	 * Un batch con owners por id, por clave natural existente y nuevos
+	 */
+	@Test
+	public void testUpsertAllByIdAndNaturalKey() throws OwnerNotFoundException {
+		long before = ownerRepository.count();
+
+		List<Owner> saved = ownerService.upsertAll(List.of(
+				new Owner(1, "George", "Franklin", "110 W. Liberty St.", "Middleton", "6085551023"),
+				new Owner(null, "Betty", "Davis", "640 Cardinal Ave.", "Sun Prairie", "6085551749"),
+				new Owner(null, "Nora", "Quispe", "Jr. Puno 8", "Arequipa", "959000222")));
+
+		assertEquals(List.of(1, 2), List.of(saved.get(0).getId(), saved.get(1).getId()));
+		assertNotNull(saved.get(2).getId());
+		assertEquals(before + 1, ownerRepository.count());
+		assertEquals("Middleton", ownerService.findById(1).getCity());
+		assertEquals("640 Cardinal Ave.", ownerService.findById(2).getAddress());
+
+		// Un solo evento para todo el batch
+		assertEquals(1, events.stream(OwnersUpsertedEvent.class).count());
+		assertEquals(0, events.stream(OwnerChangedEvent.class).count());
+		assertEquals(List.of(1, 2, saved.get(2).getId()),
+				events.stream(OwnersUpsertedEvent.class).findFirst().get().getOwnerIds());
+	}
+
+	/**
+	 * La clave natural no es única: un create con el mismo nombre y teléfono
+	 * que otro owner sigue insertando (los duplicados se fusionan después)
+	 */
+	@Test
+	public void testCreateWithExistingNaturalKey() {
+		long before = ownerRepository.count();
+
+		Owner copy = ownerService.create(new Owner(null, "George", "Franklin", "110 W. Liberty St.", "Madison",
+				"6085551023"));
+
+		assertNotNull(copy.getId());
+		assertEquals(before + 1, ownerRepository.count());
+	}
+
+	/**
+	 * Sin teléfono la clave natural tiene un NULL, que nunca coincide: se rechaza
+	 * en lugar de insertar un duplicado en cada reenvío
+	 */
+	@Test
+	public void testUpsertRejectsNullNaturalKey() {
+		long before = ownerRepository.count();
+
+		assertThrows(IllegalArgumentException.class,
+				() -> ownerService.upsert(new Owner(null, "Rosa", "Paz", "Av. Sol 1", "Cusco", null)));
+		assertEquals(before, ownerRepository.count());
+	}
+
+	/**
+	 * Las mascotas de los duplicados pasan al owner que queda; una con el mismo
+	 * nombre que una suya (sin importar mayúsculas) se fusiona con ella, con sus visitas
+	 */
+	@Test
+	public void testMergeOwners() throws OwnerNotFoundException {
+		OwnerRegistrationDTO kept = ownerService.register(new OwnerRegistrationDTO(
+				new Owner(null, "Lucia", "Ramos", "Av. Grau 120", "Lima", "987111222"),
+				List.of(PetDTO.builder().name("Kira").typeId(2).build())));
+		OwnerRegistrationDTO duplicate = ownerService.register(new OwnerRegistrationDTO(
+				new Owner(null, "Lucía", "Ramos", "Avenida Grau 120", "Lima", "987 111 222"),
+				List.of(PetDTO.builder().name("kira").typeId(2).build(), PetDTO.builder().name("Coco").typeId(4).build())));
+		Integer keptId = kept.getOwner().getId();
+		Integer duplicateId = duplicate.getOwner().getId();
+		Integer kira = kept.getPets().get(0).getId();
+		Integer duplicateKira = duplicate.getPets().get(0).getId();
+		Integer coco = duplicate.getPets().get(1).getId();
+		jdbcTemplate.update("INSERT INTO visits (pet_id, visit_date, description) VALUES (?, ?, 'vacuna')",
+				duplicateKira, LocalDate.of(2024, 3, 1));
+
+		OwnerMergeDTO merged = ownerService.merge(keptId, List.of(duplicateId));
+
+		assertEquals(keptId, merged.getOwner().getId());
+		assertEquals(List.of(duplicateId), merged.getRemovedOwnerIds());
+		assertEquals(List.of(coco), merged.getMovedPetIds());
+		assertEquals(List.of(duplicateKira), merged.getMergedPetIds());
+		assertEquals(1, merged.getMovedVisits());
+
+		assertEquals(Set.of(kira, coco), Set.copyOf(jdbcTemplate.queryForList(
+				"SELECT id FROM pets WHERE owner_id = ?", Integer.class, keptId)));
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visits WHERE pet_id = ?", Integer.class, kira));
+		assertThrows(OwnerNotFoundException.class, () -> ownerService.findById(duplicateId));
+
+		assertThrows(OwnerNotFoundException.class, () -> ownerService.merge(keptId, List.of(Integer.MAX_VALUE)));
+		assertThrows(IllegalArgumentException.class, () -> ownerService.merge(keptId, List.of(keptId)));
+	}
+
+	private String explain(String sql) {
+		return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class).toUpperCase();
+	}
 }
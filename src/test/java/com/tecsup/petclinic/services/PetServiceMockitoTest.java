@@ -7,6 +7,11 @@ import static org.junit.jupiter.api.Assertions.fail;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
 
 import com.tecsup.petclinic.dtos.PetDTO;
 import com.tecsup.petclinic.mappers.PetMapper;
@@ -22,10 +27,12 @@ import com.tecsup.petclinic.util.TObjectCreator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.bean.override.mockito.MockitoBean; // New import
 
 @Slf4j
 //@ExtendWith(MockitoExtension.class)
+@DirtiesContext
 @SpringBootTest
 public class PetServiceMockitoTest {
 
@@ -249,4 +256,44 @@ public class PetServiceMockitoTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Identical concurrent lookups share one repository call, each caller gets its own copy
+     */
+    @Test
+    public void testConcurrentFindByOwnerIdIsCoalesced() throws Exception {
+
+        int callers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+
+        Mockito.when(this.repository.findByOwnerId(7)).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return List.of(new Pet(1, "Leo", 1, 7, null));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<List<Pet>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return this.petService.findByOwnerId(7);
+                }));
+            }
+            start.countDown();
+
+            List<Pet> first = results.get(0).get();
+            for (Future<List<Pet>> result : results) {
+                List<Pet> pets = result.get();
+                assertEquals(first, pets);
+                if (pets != first)
+                    assertTrue(pets.get(0) != first.get(0));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int queries = Mockito.mockingDetails(this.repository).getInvocations().size();
+        log.info("{} concurrent callers, {} repository calls", callers, queries);
+        assertTrue(queries < callers / 2);
+    }
+}
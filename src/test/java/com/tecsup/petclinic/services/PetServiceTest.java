@@ -2,11 +2,13 @@ package com.tecsup.petclinic.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.tecsup.petclinic.dtos.PetDTO;
 import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +43,19 @@ public class PetServiceTest {
         assertEquals(NAME_EXPECTED, pet.getName());
     }
 
+    /**
+     * Type name and care level come from the in-memory dictionary
+     */
+    @Test
+    public void testFindPetByIdResolvesType() throws PetNotFoundException {
+
+        PetDTO pet = this.petService.findById(1);
+
+        assertEquals(1, pet.getTypeId());
+        assertEquals("cat", pet.getTypeName());
+        assertEquals("medium", pet.getCareLevel());
+    }
+
     /**
      *
      */
@@ -109,7 +124,47 @@ public class PetServiceTest {
         assertEquals(PET_NAME, newPetDTO.getName());
         assertEquals(OWNER_ID, newPetDTO.getOwnerId());
         assertEquals(TYPE_ID, newPetDTO.getTypeId());
+        assertEquals("cat", newPetDTO.getTypeName());
+
+    }
+
+    /**
+     * Resending the same pet (no id: owner + name) updates it in place
+     */
+    @Test
+    public void testUpsertPetIsIdempotent() throws PetNotFoundException {
+
+        // Upserts write through JDBC, so no @Transactional rollback: the pet is deleted at the end
+        PetDTO first = this.petService.upsert(PetDTO.builder().name("Bolt").ownerId(2).typeId(2).build());
+        try {
+            PetDTO again = this.petService.upsert(PetDTO.builder().name("Bolt").ownerId(2).typeId(2)
+                    .birthDate(LocalDate.of(2019, 3, 7)).build());
+
+            assertNotNull(first.getId());
+            assertEquals(first.getId(), again.getId());
+            assertEquals("dog", again.getTypeName());
+            assertEquals(LocalDate.of(2019, 3, 7), this.petService.findById(first.getId()).getBirthDate());
+
+            again.setName("Bolt Jr");
+            assertEquals(first.getId(), this.petService.upsert(again).getId());
+            assertEquals("Bolt Jr", this.petService.findById(first.getId()).getName());
+        } finally {
+            this.petService.delete(first.getId());
+        }
+    }
+
+    /**
+     * Type 6 (snake) is inactive, type 99 does not exist
+     */
+    @Test
+    public void testCreatePetWithInvalidType() {
+
+        PetDTO inactive = PetDTO.builder().name("Kaa").ownerId(1).typeId(6).build();
+        PetDTO unknown = PetDTO.builder().name("Nessie").ownerId(1).typeId(99).build();
 
+        assertThrows(IllegalArgumentException.class, () -> this.petService.create(inactive));
+        assertThrows(IllegalArgumentException.class, () -> this.petService.create(unknown));
+        assertThrows(IllegalArgumentException.class, () -> this.petService.upsert(inactive));
     }
 
 
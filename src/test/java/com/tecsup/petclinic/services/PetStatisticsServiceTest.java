@@ -0,0 +1,181 @@
+package com.tecsup.petclinic.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.tecsup.petclinic.dtos.PetCountedRow;
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.events.PetChangedEvent;
+import com.tecsup.petclinic.exceptions.PetNotFoundException;
+import com.tecsup.petclinic.repositories.PetRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@Slf4j
+public class PetStatisticsServiceTest {
+
+    @Autowired
+    private PetStatisticsService petStatisticsService;
+
+    @Autowired
+    private PetService petService;
+
+    /**
+     *
+     */
+    @Test
+    public void testCountsMatchDatabase() {
+
+        petStatisticsService.reconcile();
+
+        Map<Integer, Long> byType = petStatisticsService.countByType();
+        log.info("PETS BY TYPE : {}", byType);
+
+        for (Map.Entry<Integer, Long> entry : byType.entrySet()) {
+            assertEquals(petService.findByTypeId(entry.getKey()).size(), entry.getValue().intValue());
+        }
+        assertEquals(petService.findByOwnerId(10).size(), petStatisticsService.countByOwner().get(10).intValue());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testCountersFollowWrites() throws PetNotFoundException {
+
+        int TYPE_ID = 3;
+        int OWNER_ID = 4;
+        int YEAR = 2021;
+
+        petStatisticsService.reconcile();
+        long typeBefore = petStatisticsService.countByType().getOrDefault(TYPE_ID, 0L);
+        long yearBefore = petStatisticsService.countByBirthYear().getOrDefault(YEAR, 0L);
+
+        // ------------ Create ---------------
+
+        PetDTO created = petService.create(PetDTO.builder()
+                .name("Spike")
+                .typeId(TYPE_ID)
+                .ownerId(OWNER_ID)
+                .birthDate(LocalDate.of(YEAR, 5, 1))
+                .build());
+
+        assertEquals(typeBefore + 1, petStatisticsService.countByType().get(TYPE_ID));
+        assertEquals(yearBefore + 1, petStatisticsService.countByBirthYear().get(YEAR));
+
+        // ------------ Update ---------------
+
+        created.setTypeId(4);
+        petService.update(created);
+
+        assertEquals(typeBefore, petStatisticsService.countByType().getOrDefault(TYPE_ID, 0L));
+
+        // ------------ Delete ---------------
+
+        petService.delete(created.getId());
+
+        assertEquals(yearBefore, petStatisticsService.countByBirthYear().getOrDefault(YEAR, 0L));
+    }
+
+    /**
+     * Upserts move the counters by what each pet held before
+     */
+    @Test
+    public void testCountersAfterUpsert() throws PetNotFoundException {
+
+        int TYPE_ID = 7;
+
+        long typeBefore = petStatisticsService.countByType().getOrDefault(TYPE_ID, 0L);
+
+        PetDTO pet = PetDTO.builder().name("Copo").typeId(TYPE_ID).ownerId(5).build();
+        PetDTO upserted = petService.upsert(pet);
+        assertEquals(typeBefore + 1, petStatisticsService.countByType().get(TYPE_ID));
+
+        petService.upsert(pet);
+        assertEquals(typeBefore + 1, petStatisticsService.countByType().get(TYPE_ID));
+
+        long otherBefore = petStatisticsService.countByType().getOrDefault(8, 0L);
+        petService.upsert(PetDTO.builder().name("Copo").typeId(8).ownerId(5).build());
+        assertEquals(typeBefore, petStatisticsService.countByType().getOrDefault(TYPE_ID, 0L));
+        assertEquals(otherBefore + 1, petStatisticsService.countByType().get(8));
+
+        petService.delete(upserted.getId());
+        assertEquals(otherBefore, petStatisticsService.countByType().getOrDefault(8, 0L));
+    }
+
+    /**
+     * A pet created while the counts are read is replayed on the rebuilt
+     * counters instead of being lost until the next reconcile
+     */
+    @Test
+    public void testEventDuringReconcileIsKept() {
+
+        PetRepository repository = Mockito.mock(PetRepository.class);
+        PetStatisticsServiceImpl statistics = new PetStatisticsServiceImpl(repository);
+        Mockito.when(repository.findCountedRows()).thenAnswer(invocation -> {
+            // Committed after the statement read the table
+            statistics.onPetChanged(new PetChangedEvent(null, new PetDTO(99, "Late", 2, 4, null)));
+            return List.of();
+        });
+
+        statistics.reconcile();
+
+        assertEquals(Map.of(2, 1L), statistics.countByType());
+        assertEquals(Map.of(4, 1L), statistics.countByOwner());
+    }
+
+    /**
+     * Events committed before the read but delivered during it are already
+     * in the snapshot: replaying them would count the pets twice
+     */
+    @Test
+    public void testEventAlreadyReadIsNotCountedTwice() {
+
+        PetRepository repository = Mockito.mock(PetRepository.class);
+        PetStatisticsServiceImpl statistics = new PetStatisticsServiceImpl(repository);
+        Mockito.when(repository.findCountedRows()).thenAnswer(invocation -> {
+            statistics.onPetChanged(new PetChangedEvent(null, new PetDTO(99, "Early", 2, 4, null)));
+            statistics.onPetChanged(new PetChangedEvent(new PetDTO(98, "Moved", 2, 4, null),
+                    new PetDTO(98, "Moved", 3, 4, null)));
+            return List.of(row(99, 2, 4, null), row(98, 3, 4, null));
+        });
+
+        statistics.reconcile();
+
+        assertEquals(Map.of(2, 1L, 3, 1L), statistics.countByType());
+        assertEquals(Map.of(4, 2L), statistics.countByOwner());
+    }
+
+    private static PetCountedRow row(int id, int typeId, int ownerId, Integer birthYear) {
+        return new PetCountedRow() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getTypeId() {
+                return typeId;
+            }
+
+            @Override
+            public Integer getOwnerId() {
+                return ownerId;
+            }
+
+            @Override
+            public Integer getBirthYear() {
+                return birthYear;
+            }
+        };
+    }
+}
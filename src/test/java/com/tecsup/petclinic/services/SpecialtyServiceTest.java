@@ -1,37 +1,62 @@
 package com.tecsup.petclinic.services;
 
-import lombok.extern.slf4j.Slf4j;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tecsup.petclinic.entities.Specialty;
+import com.tecsup.petclinic.exceptions.SpecialtyNotFoundException;
+
+import lombok.extern.slf4j.Slf4j;
 
 @SpringBootTest
 @Slf4j
 public class SpecialtyServiceTest {
 
-	//@Autowired
-   //	private OwnerService ownerService;
+	@Autowired
+	private SpecialtyService specialtyService;
 
 	/**
 	 * 
 	 */
-	/*
 	@Test
-	public void testFindOwnerById() {
+	public void testFindSpecialtyById() {
+
+		Integer ID = 2;
+		String NAME = "surgery";
+		Specialty specialty = null;
 
-		long ID = 1;
-		String NAME = "Jaime";
-		Owner owner = null;
-		
 		try {
-			
-			owner = ownerService.findById(ID);
-			
-		} catch (OwnertNotFoundException e) {
+			specialty = specialtyService.findById(ID);
+		} catch (SpecialtyNotFoundException e) {
 			fail(e.getMessage());
 		}
-		log.info("" + owner);
+		log.info("" + specialty);
+
+		assertEquals(NAME, specialty.getName());
+	}
 
-		assertEquals(NAME, owner.getName());
+	/**
+	 * 
+	 */
+	@Test
+	@Transactional
+	public void testCreateSpecialty() throws SpecialtyNotFoundException {
 
+		Specialty specialty = specialtyService.create(new Specialty(null, "cardiology", "B-12", 8, 14));
+		assertNotNull(specialty.getId());
+
+		assertEquals(specialty.getId(), specialtyService.findByName("cardiology").getId());
+	}
+
+	@Test
+	public void testFindSpecialtyNotFound() {
+		assertThrows(SpecialtyNotFoundException.class, () -> specialtyService.findByName("astrology"));
 	}
-	*/
 }
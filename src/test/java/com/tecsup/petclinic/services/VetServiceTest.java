@@ -1,11 +1,180 @@
 package com.tecsup.petclinic.services;
 
-import lombok.extern.slf4j.Slf4j;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.entities.VetSpecialty;
+import com.tecsup.petclinic.exceptions.VetNotFoundException;
+import com.tecsup.petclinic.index.VetQuery;
+import com.tecsup.petclinic.index.VetSpecialtyIndex;
+import com.tecsup.petclinic.repositories.VetRepository;
+import com.tecsup.petclinic.repositories.VetSpecialtyRepository;
+
+import lombok.extern.slf4j.Slf4j;
 
 @SpringBootTest
+@AutoConfigureMockMvc
 @Slf4j
 public class VetServiceTest {
 
-	
+	private static final int RADIOLOGY = 1;
+	private static final int SURGERY = 2;
+	private static final int DENTISTRY = 3;
+
+	@Autowired
+	private VetService vetService;
+
+	@Autowired
+	private VetRepository vetRepository;
+
+	@Autowired
+	private VetSpecialtyRepository vetSpecialtyRepository;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	/**
+	 * Consultas de derivación sobre los datos iniciales (fixtures/*.csv)
+	 */
+	@Test
+	public void testFindReferralCandidates() {
+
+		assertEquals(List.of(2, 5), ids(VetQuery.builder().allOf(RADIOLOGY).build()));
+		assertEquals(List.of(2), ids(VetQuery.builder().allOf(RADIOLOGY).minYearsExperience(8).build()));
+		assertEquals(List.of(2), ids(VetQuery.builder().allOf(RADIOLOGY).primaryOnly(true).build()));
+		assertEquals(List.of(3), ids(VetQuery.builder().allOf(SURGERY).anyOf(DENTISTRY).anyOf(RADIOLOGY).build()));
+		assertEquals(List.of(2, 3, 4, 5), ids(VetQuery.builder().anyOf(RADIOLOGY).anyOf(SURGERY).build()));
+		assertEquals(List.of(3), ids(VetQuery.builder().allOf(SURGERY).minYearsExperience(10).build()));
+	}
+
+	/**
+	 * El índice se actualiza al asignar o quitar especialidades, y al desactivar un veterinario.
+	 * Sin @Transactional: el índice se refresca después del commit; los datos se restauran en el finally
+	 */
+	@Test
+	public void testIndexIsRefreshedIncrementally() throws VetNotFoundException {
+
+		VetQuery surgeryAndDentistry = VetQuery.builder().allOf(SURGERY).anyOf(DENTISTRY).build();
+		assertEquals(List.of(3), ids(surgeryAndDentistry));
+
+		Vet vet = vetService.findById(3);
+		try {
+			vetService.assignSpecialty(new VetSpecialty(4, DENTISTRY, LocalDate.of(2020, 1, 1), 6, false, null));
+			assertEquals(List.of(3, 4), ids(surgeryAndDentistry));
+
+			vet.setActive(false);
+			vetService.update(vet);
+			assertEquals(List.of(4), ids(surgeryAndDentistry));
+
+			vet.setActive(true);
+			vetService.update(vet);
+			vetService.removeSpecialty(4, DENTISTRY);
+			assertEquals(List.of(3), ids(surgeryAndDentistry));
+		} finally {
+			vet.setActive(true);
+			vetService.update(vet);
+			vetService.removeSpecialty(4, DENTISTRY);
+		}
+	}
+
+	/**
+	 * Un PATCH a /api/vets no pasa por VetService: el índice se refresca igual
+	 */
+	@Test
+	public void testDataRestUpdateRefreshesIndex() throws Exception {
+
+		VetQuery surgery = VetQuery.builder().allOf(SURGERY).minYearsExperience(10).build();
+		assertEquals(List.of(3), ids(surgery));
+		try {
+			mockMvc.perform(patch("/api/vets/3").contentType(MediaType.APPLICATION_JSON).content("{\"active\":false}"))
+					.andExpect(status().is2xxSuccessful());
+			assertEquals(List.of(), ids(surgery));
+		} finally {
+			mockMvc.perform(patch("/api/vets/3").contentType(MediaType.APPLICATION_JSON).content("{\"active\":true}"));
+		}
+		assertEquals(List.of(3), ids(surgery));
+	}
+
+	@Test
+	public void testFindVetNotFound() {
+		assertThrows(VetNotFoundException.class, () -> vetService.findById(9999));
+	}
+
+	/**
+	 * 50.000 veterinarios sintéticos: cada consulta son unas pocas operaciones AND/OR sobre bitmaps
+	 */
+	@Test
+	public void testMatchingLargeIndex() {
+
+		int vets = 50_000;
+		int specialties = 20;
+		Random random = new Random(39);
+
+		List<Vet> vetRows = new ArrayList<>();
+		List<VetSpecialty> specialtyRows = new ArrayList<>();
+		for (int id = 1; id <= vets; id++) {
+			vetRows.add(new Vet(id, "F" + id, "L" + id, null, null, random.nextInt(10) > 0));
+			for (int s = 1; s <= specialties; s++) {
+				if (random.nextInt(5) == 0) {
+					specialtyRows.add(new VetSpecialty(id, s, null, random.nextInt(25), random.nextInt(4) == 0, null));
+				}
+			}
+		}
+
+		VetSpecialtyIndex index = new VetSpecialtyIndex(vetRepository, vetSpecialtyRepository);
+		index.load(vetRows, specialtyRows);
+
+		VetQuery query = VetQuery.builder().allOf(1).allOf(2).anyOf(3).anyOf(4).minYearsExperience(4).build();
+
+		// Resultado esperado por fuerza bruta
+		Map<String, Integer> years = new HashMap<>();
+		specialtyRows.forEach(row -> years.put(row.getVetId() + ":" + row.getSpecialtyId(), row.getYearsExperience()));
+		int[] expected = vetRows.stream()
+				.filter(Vet::getActive)
+				.mapToInt(Vet::getId)
+				.filter(id -> has(years, id, 1, 4) && has(years, id, 2, 4)
+						&& (has(years, id, 3, 4) || has(years, id, 4, 4)))
+				.toArray();
+		assertArrayEquals(expected, index.match(query));
+
+		int runs = 2_000;
+		for (int i = 0; i < runs; i++) {
+			index.match(query);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < runs; i++) {
+			index.match(query);
+		}
+		long micros = (System.nanoTime() - start) / runs / 1_000;
+		log.info("{} vets, {} matches, {} us per query", vets, expected.length, micros);
+		assertTrue(micros < 5_000, micros + " us");
+	}
+
+	private List<Integer> ids(VetQuery query) {
+		return vetService.findReferralCandidates(query).stream().map(Vet::getId).collect(Collectors.toList());
+	}
+
+	private static boolean has(Map<String, Integer> years, int vetId, int specialtyId, int minYears) {
+		return years.getOrDefault(vetId + ":" + specialtyId, -1) >= minYears;
+	}
 }
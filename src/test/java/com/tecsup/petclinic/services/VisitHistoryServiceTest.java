@@ -0,0 +1,123 @@
+package com.tecsup.petclinic.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.entities.Vet;
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.archive.VisitArchiver;
+import com.tecsup.petclinic.repositories.VetRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@Slf4j
+public class VisitHistoryServiceTest {
+
+    private static final int PET_ID = 5;
+    private static final int OWNER_ID = 4;
+    private static final LocalDate FIRST = LocalDate.of(1990, 1, 1);
+    private static final LocalDate CUTOFF = LocalDate.of(1990, 6, 1);
+    private static final int VISITS = 230;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private VisitHistoryService visitHistoryService;
+
+    @Autowired
+    private VetRepository vetRepository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM visits WHERE pet_id = ? AND visit_date < '2000-01-01'", PET_ID);
+        jdbcTemplate.update("DELETE FROM visits_archive WHERE pet_id = ?", PET_ID);
+        jdbcTemplate.update("DELETE FROM visit_archive_state");
+    }
+
+    /**
+     * An interrupted run leaves every visit readable; the next run finishes the move in chunks
+     */
+    @Test
+    public void testArchiveIsResumableAndHistorySpansBothTables() {
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < VISITS; i++) {
+            rows.add(new Object[] { PET_ID, Date.valueOf(FIRST.plusDays(i)), "checkup " + i });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO visits (pet_id, visit_date, description) VALUES (?, ?, ?)", rows);
+
+        VisitArchiver archiver = new VisitArchiver(jdbcTemplate, transactionTemplate,
+                new SimpleMeterRegistry(), 730, 40, 0);
+
+        // Stopped before the first chunk: boundary moved, nothing archived yet
+        Thread.currentThread().interrupt();
+        assertEquals(0, archiver.archive(CUTOFF));
+        assertTrue(Thread.interrupted());
+        assertEquals(CUTOFF, archiver.getBoundary());
+        assertEquals(VISITS, history(FIRST).size());
+
+        int expected = (int) (CUTOFF.toEpochDay() - FIRST.toEpochDay());
+        assertEquals(expected, archiver.archive(CUTOFF));
+        assertEquals(0, archiver.archive(CUTOFF));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM visits WHERE pet_id = ? AND visit_date < ?"));
+        assertEquals(expected, count("SELECT COUNT(*) FROM visits_archive WHERE pet_id = ? AND visit_date < ?"));
+
+        List<Visit> all = history(FIRST);
+        assertEquals(VISITS, all.size());
+        for (int i = 0; i < VISITS; i++) {
+            assertEquals(FIRST.plusDays(i), all.get(i).getVisitDate());
+        }
+
+        // A range after the boundary is answered by the hot table alone
+        List<Visit> recent = history(CUTOFF);
+        assertEquals(VISITS - expected, recent.size());
+        assertFalse(((VisitHistoryServiceImpl) visitHistoryService).needsArchive(CUTOFF));
+    }
+
+    /**
+     * An owner's visits (and the vets seen) come from both tables once some were archived
+     */
+    @Test
+    public void testOwnerVisitsIncludeArchive() {
+
+        jdbcTemplate.update("INSERT INTO visits (pet_id, vet_id, visit_date, description) VALUES (?, 4, ?, ?)",
+                PET_ID, Date.valueOf(FIRST), "archived checkup");
+        new VisitArchiver(jdbcTemplate, transactionTemplate, new SimpleMeterRegistry(), 730, 40, 0).archive(CUTOFF);
+
+        List<Visit> visits = visitHistoryService.findOwnerVisits(OWNER_ID);
+
+        assertEquals(1, visits.size());
+        assertEquals(FIRST, visits.get(0).getVisitDate());
+        assertEquals(List.of(4), vetRepository.findSeenByOwnerId(OWNER_ID).stream().map(Vet::getId)
+                .collect(Collectors.toList()));
+    }
+
+    private List<Visit> history(LocalDate from) {
+        return visitHistoryService.findVisits(PET_ID, from, LocalDate.of(1999, 12, 31));
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, PET_ID, Date.valueOf(CUTOFF));
+    }
+}
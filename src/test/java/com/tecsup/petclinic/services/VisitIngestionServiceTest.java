@@ -0,0 +1,231 @@
+package com.tecsup.petclinic.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tecsup.petclinic.entities.Visit;
+import com.tecsup.petclinic.wal.FsyncPolicy;
+import com.tecsup.petclinic.wal.VisitWriteAheadLog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@Slf4j
+public class VisitIngestionServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path walDir;
+
+    /**
+     *
+     */
+    @Test
+    public void testVisitsAreFlushedInBatches() throws Exception {
+
+        String DESCRIPTION = "kiosk check-in";
+        int VISITS = 50;
+
+        VisitIngestionServiceImpl service = newService(FsyncPolicy.ALWAYS);
+        service.start();
+
+        for (int i = 0; i < VISITS; i++) {
+            service.record(visit(DESCRIPTION));
+        }
+
+        assertTrue(service.flush(10_000));
+        service.stop();
+
+        assertEquals(VISITS, countVisits(DESCRIPTION));
+        assertEquals(0, service.getQueueDepth());
+        assertEquals(0, service.getFlushLagMillis());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testUnflushedEntriesAreReplayedOnRestart() throws Exception {
+
+        String DESCRIPTION = "acked before crash";
+
+        // ------------ Acknowledged, never flushed ---------------
+
+        VisitWriteAheadLog crashed = new VisitWriteAheadLog(walDir, FsyncPolicy.ALWAYS, 0, 1 << 20);
+        crashed.open(0);
+        for (int i = 0; i < 3; i++) {
+            crashed.append(visit(DESCRIPTION));
+        }
+        crashed.close();
+
+        // ------------ Restart ---------------
+
+        VisitIngestionServiceImpl service = newService(FsyncPolicy.NEVER);
+        service.start();
+        assertTrue(service.flush(10_000));
+        service.stop();
+
+        assertEquals(3, countVisits(DESCRIPTION));
+
+        // ------------ Second restart replays nothing ---------------
+
+        VisitIngestionServiceImpl again = newService(FsyncPolicy.NEVER);
+        again.start();
+        assertTrue(again.flush(10_000));
+        again.stop();
+
+        assertEquals(3, countVisits(DESCRIPTION));
+    }
+
+    /**
+     * A failure that is not an integrity violation (here a lost connection)
+     * neither kills the writer nor drops the batch
+     */
+    @Test
+    public void testBatchIsRetriedAfterFailure() throws Exception {
+
+        String DESCRIPTION = "written after an outage";
+        AtomicInteger failures = new AtomicInteger(1);
+        JdbcTemplate flaky = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new CannotCreateTransactionException("Connection lost");
+                }
+                return super.batchUpdate(sql, batchArgs, batchSize, pss);
+            }
+        };
+
+        VisitIngestionServiceImpl service = new VisitIngestionServiceImpl(
+                new VisitWriteAheadLog(walDir, FsyncPolicy.ALWAYS, 10, 1 << 20), flaky, transactionTemplate,
+                new SimpleMeterRegistry(), 20, 20, 1000);
+        service.start();
+        for (int i = 0; i < 5; i++) {
+            service.record(visit(DESCRIPTION));
+        }
+        assertTrue(service.flush(10_000));
+
+        service.record(visit(DESCRIPTION));
+        assertTrue(service.flush(10_000));
+        service.stop();
+
+        assertEquals(6, countVisits(DESCRIPTION));
+        assertTrue(failures.get() < 0);
+    }
+
+    /**
+     * A writer that never catches up still gets its flushed segments deleted
+     */
+    @Test
+    public void testFlushedSegmentsAreDeleted() throws Exception {
+
+        String DESCRIPTION = "segmented";
+
+        VisitWriteAheadLog wal = new VisitWriteAheadLog(walDir, FsyncPolicy.NEVER, 0, 1);
+        wal.open(0);
+        for (int i = 0; i < 3; i++) {
+            wal.append(visit(DESCRIPTION));
+        }
+        wal.checkpoint(1);
+        assertEquals(2, wal.getSegmentCount());
+
+        for (int i = 0; i < 3; i++) {
+            wal.append(visit(DESCRIPTION));
+        }
+        wal.checkpoint(4);
+        assertEquals(2, wal.getSegmentCount());
+        wal.close();
+
+        // ------------ Restart replays what the remaining segments hold ---------------
+
+        VisitWriteAheadLog reopened = new VisitWriteAheadLog(walDir, FsyncPolicy.NEVER, 0, 1);
+        assertEquals(2, reopened.open(4).size());
+        assertEquals(7, reopened.append(visit(DESCRIPTION)).getSequence());
+        reopened.checkpoint(7);
+        assertEquals(1, reopened.getSegmentCount());
+        reopened.close();
+    }
+
+    /**
+     * While the database is down the queue fills up and new visits are
+     * refused before they reach the WAL
+     */
+    @Test
+    public void testFullQueueRejectsVisits() throws Exception {
+
+        String DESCRIPTION = "queued during an outage";
+        AtomicBoolean down = new AtomicBoolean(true);
+        JdbcTemplate outage = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                if (down.get()) {
+                    throw new CannotCreateTransactionException("Connection lost");
+                }
+                return super.batchUpdate(sql, batchArgs, batchSize, pss);
+            }
+        };
+
+        VisitIngestionServiceImpl service = new VisitIngestionServiceImpl(
+                new VisitWriteAheadLog(walDir, FsyncPolicy.NEVER, 10, 1 << 20), outage, transactionTemplate,
+                new SimpleMeterRegistry(), 2, 20, 3);
+        service.start();
+
+        int accepted = 0;
+        try {
+            // At most the queue plus one batch in flight
+            for (; accepted < 10; accepted++) {
+                service.record(visit(DESCRIPTION));
+            }
+        } catch (RejectedExecutionException e) {
+            log.info("Rejected after {} visits", accepted);
+        }
+        assertTrue(accepted >= 3 && accepted <= 5);
+
+        down.set(false);
+        assertTrue(service.flush(10_000));
+        service.stop();
+
+        assertEquals(accepted, countVisits(DESCRIPTION));
+        assertThrows(IllegalStateException.class, () -> service.record(visit(DESCRIPTION)));
+    }
+
+    private VisitIngestionServiceImpl newService(FsyncPolicy fsyncPolicy) throws Exception {
+        return new VisitIngestionServiceImpl(new VisitWriteAheadLog(walDir, fsyncPolicy, 10, 1 << 20),
+                jdbcTemplate, transactionTemplate, new SimpleMeterRegistry(), 20, 20, 1000);
+    }
+
+    private int countVisits(String description) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visits WHERE description = ?",
+                Integer.class, description);
+    }
+
+    private static Visit visit(String description) {
+        return new Visit(null, 1, 1, LocalDate.now(), description, new BigDecimal("30.00"));
+    }
+}
@@ -0,0 +1,149 @@
+package com.tecsup.petclinic.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.services.PetService;
+
+import lombok.extern.slf4j.Slf4j;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Slf4j
+public class CatalogSnapshotServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @TempDir
+    Path dir;
+
+    /**
+     *
+     */
+    @Test
+    public void testRestartServesSnapshotAndCatchesUp() throws Exception {
+
+        Path file = dir.resolve("catalog.snap");
+
+        PetDTO pet = petService.create(PetDTO.builder().name("Snap").typeId(2).ownerId(3).build());
+
+        newService(file).write();
+
+        // ------------ Change after the snapshot ---------------
+
+        pet.setName("Snap2");
+        petService.update(pet);
+
+        // ------------ Restart ---------------
+
+        CatalogSnapshotService restarted = newService(file);
+        restarted.load();
+
+        assertTrue(restarted.isLoaded());
+        assertEquals("Franklin", restarted.findOwner(1).get().getLastName());
+        assertEquals("Leo", restarted.findPet(1).get().getName());
+        assertEquals("hamster", restarted.findType(5).get().getName());
+        assertEquals("low", restarted.findType(5).get().getCareLevel());
+
+        // Changed since the snapshot's versions: must come from the database
+        assertFalse(restarted.findPet(pet.getId()).isPresent());
+
+        petService.delete(pet.getId());
+    }
+
+    /**
+     *
+     */
+    @Test
+    public void testSnapshotFromAnotherDatabaseIsIgnored() throws Exception {
+
+        Path file = dir.resolve("foreign.snap");
+
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(file, Long.MAX_VALUE - 1, 0, 0)) {
+            writer.owner(1, "Someone", "Else", null, null, null);
+        }
+
+        CatalogSnapshotService service = newService(file);
+        service.load();
+
+        assertFalse(service.isLoaded());
+        assertFalse(service.findOwner(1).isPresent());
+    }
+
+    /**
+     * Writes through /api bypass the services: entity_versions must still
+     * record them, cascaded pets of a deleted owner included
+     */
+    @Test
+    public void testRestartCatchesUpDataRestWrites() throws Exception {
+
+        Path file = dir.resolve("rest.snap");
+
+        String location = mockMvc.perform(post("/api/owners").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"Rest\",\"lastName\":\"Snapshot\",\"telephone\":\"5550100\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+        int ownerId = Integer.parseInt(location.substring(location.lastIndexOf('/') + 1));
+        PetDTO cascaded = petService.create(PetDTO.builder().name("RestCascaded").typeId(2).ownerId(ownerId).build());
+        PetDTO pet = petService.create(PetDTO.builder().name("RestPatched").typeId(2).ownerId(3).build());
+
+        newService(file).write();
+
+        // ------------ Changes after the snapshot, through Data REST ---------------
+
+        mockMvc.perform(patch("/api/pets/" + pet.getId()).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"RestPatched2\"}"))
+                .andExpect(status().is2xxSuccessful());
+        mockMvc.perform(patch("/api/types/5").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"careLevel\":\"medium\"}"))
+                .andExpect(status().is2xxSuccessful());
+        mockMvc.perform(delete("/api/owners/" + ownerId))
+                .andExpect(status().isNoContent());
+
+        try {
+            CatalogSnapshotService restarted = newService(file);
+            restarted.load();
+
+            assertTrue(restarted.isLoaded());
+            assertFalse(restarted.findPet(pet.getId()).isPresent());
+            assertFalse(restarted.findType(5).isPresent());
+            assertFalse(restarted.findOwner(ownerId).isPresent());
+            assertFalse(restarted.findPet(cascaded.getId()).isPresent());
+
+            assertEquals("Leo", restarted.findPet(1).get().getName());
+            assertTrue(restarted.findType(4).isPresent());
+        } finally {
+            mockMvc.perform(patch("/api/types/5").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"careLevel\":\"low\"}"));
+            petService.delete(pet.getId());
+        }
+    }
+
+    private CatalogSnapshotService newService(Path file) {
+        return new CatalogSnapshotService(jdbcTemplate, true, file);
+    }
+}
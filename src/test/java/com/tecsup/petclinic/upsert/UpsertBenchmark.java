@@ -0,0 +1,118 @@
+package com.tecsup.petclinic.upsert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.tecsup.petclinic.dtos.PetDTO;
+import com.tecsup.petclinic.entities.Owner;
+import com.tecsup.petclinic.exceptions.OwnerNotFoundException;
+import com.tecsup.petclinic.services.OwnerService;
+import com.tecsup.petclinic.services.PetService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Partner resend of records that already exist: the read-then-save update
+ * path against single-row and batched upserts.
+ *
+ * Not part of the regular build (surefire only picks *Test classes); run with
+ * mvn test -Dtest=UpsertBenchmark
+ */
+@SpringBootTest
+@Slf4j
+public class UpsertBenchmark {
+
+    private static final int ROWS = 2_000;
+    private static final int ROUNDS = 3;
+
+    @Autowired
+    private OwnerService ownerService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        // Pets go with their owners (ON DELETE CASCADE)
+        jdbcTemplate.update("DELETE FROM owners WHERE last_name = 'Bench'");
+    }
+
+    @Test
+    public void benchmarkOwners() {
+
+        List<Owner> owners = ownerService.upsertAll(owners("A"));
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            List<Owner> resend = copies(owners, "B" + round);
+            measure("owners read + save ", () -> resend.forEach(owner -> {
+                try {
+                    ownerService.update(owner);
+                } catch (OwnerNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            List<Owner> single = copies(owners, "C" + round);
+            measure("owners upsert      ", () -> single.forEach(ownerService::upsert));
+            List<Owner> batch = copies(owners, "D" + round);
+            measure("owners upsertAll   ", () -> ownerService.upsertAll(batch));
+        }
+    }
+
+    @Test
+    public void benchmarkPets() {
+
+        Owner owner = ownerService.upsert(new Owner(null, "Pet", "Bench", null, null, "0"));
+        List<PetDTO> pets = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            pets.add(PetDTO.builder().name("bench-" + i).typeId(1 + i % 5).ownerId(owner.getId()).build());
+        }
+        pets = petService.upsertAll(pets);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            List<PetDTO> resend = retype(pets, 2);
+            measure("pets read + save   ", () -> resend.forEach(petService::update));
+            List<PetDTO> single = retype(pets, 3);
+            measure("pets upsert        ", () -> single.forEach(petService::upsert));
+            List<PetDTO> batch = retype(pets, 4);
+            measure("pets upsertAll     ", () -> petService.upsertAll(batch));
+        }
+    }
+
+    private static void measure(String label, Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        long micros = (System.nanoTime() - start) / 1_000;
+        log.info("{} {} rows in {} ms, {} us/row", label, ROWS, micros / 1_000, micros / ROWS);
+    }
+
+    private static List<Owner> owners(String address) {
+        List<Owner> owners = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            owners.add(new Owner(null, "Owner" + i, "Bench", address, "Lima", "9" + i));
+        }
+        return owners;
+    }
+
+    private static List<Owner> copies(List<Owner> owners, String address) {
+        return owners.stream()
+                .map(owner -> new Owner(owner.getId(), owner.getFirstName(), owner.getLastName(), address,
+                        owner.getCity(), owner.getTelephone()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<PetDTO> retype(List<PetDTO> pets, int typeId) {
+        return pets.stream()
+                .map(pet -> new PetDTO(pet.getId(), pet.getName(), typeId, pet.getOwnerId(), pet.getBirthDate()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,147 @@
+package com.tecsup.petclinic.upsert;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Upsert statements on the test database, H2 in MODE=MySQL: the SQL is the
+ * same one MySQL runs. Each test rolls back.
+ */
+@SpringBootTest
+@Transactional
+public class UpsertWriterTest {
+
+    private static final List<String> OWNER_COLUMNS =
+            List.of("id", "first_name", "last_name", "address", "city", "telephone");
+    private static final List<String> OWNER_KEY = List.of("first_name", "last_name", "telephone");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts and updates in one batch; a new key sent twice is inserted once
+     */
+    @Test
+    public void testNaturalKeyBatchMixesInsertsAndUpdates() {
+
+        UpsertWriter writer = new UpsertWriter(jdbcTemplate, 2);
+        long before = count("owners");
+
+        List<Integer> ids = writer.upsert("owners", OWNER_COLUMNS.subList(1, 6), OWNER_KEY, List.of(
+                new Object[] { "George", "Franklin", "1 New St.", "Madison", "6085551023" },
+                new Object[] { "Ana", "Upsert", "Jr. Uno 1", "Lima", "900000001" },
+                new Object[] { "Ana", "Upsert", "Jr. Uno 2", "Lima", "900000001" },
+                new Object[] { "Betty", "Davis", "640 Cardinal Ave.", "Sun Prairie", "6085551749" }), row -> row);
+
+        assertEquals(1, ids.get(0));
+        assertEquals(ids.get(1), ids.get(2));
+        assertEquals(2, ids.get(3));
+        assertEquals(before + 1, count("owners"));
+        assertEquals("1 New St.", address(1));
+        assertEquals("Jr. Uno 2", address(ids.get(1)));
+    }
+
+    /**
+     * By id, a row whose natural key is another owner's is still written
+     * to its own id: the other owner is left alone
+     */
+    @Test
+    public void testIdKeyNeverTouchesOtherKeys() {
+
+        UpsertWriter writer = new UpsertWriter(jdbcTemplate, 500);
+        Map<String, Object> betty = jdbcTemplate.queryForMap("SELECT * FROM owners WHERE id = 2");
+        int newId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM owners", Integer.class) + 100;
+
+        List<Integer> ids = writer.upsert("owners", OWNER_COLUMNS, List.of("id"), List.of(
+                new Object[] { 1, "Betty", "Davis", "Same key as 2", "Sun Prairie", "6085551749" },
+                new Object[] { newId, "Betty", "Davis", "Also the same", "Sun Prairie", "6085551749" }), row -> row);
+
+        assertEquals(List.of(1, newId), ids);
+        assertEquals("Same key as 2", address(1));
+        assertEquals("Also the same", address(newId));
+        assertEquals(betty, jdbcTemplate.queryForMap("SELECT * FROM owners WHERE id = 2"));
+    }
+
+    /**
+     * Previous values are reported once per row that existed before the
+     * call, even when later chunks write it again
+     */
+    @Test
+    public void testPreviousValuesOfUpdatedRowsOnly() {
+
+        UpsertWriter writer = new UpsertWriter(jdbcTemplate, 1);
+        String address = address(1);
+        Map<Integer, Object[]> previous = new HashMap<>();
+
+        List<Integer> ids = writer.upsert("owners", OWNER_COLUMNS.subList(1, 6), OWNER_KEY, List.of(
+                new Object[] { "George", "Franklin", "First", "Madison", "6085551023" },
+                new Object[] { "Ana", "Quispe", "New", "Lima", "999111222" },
+                new Object[] { "George", "Franklin", "Second", "Madison", "6085551023" },
+                new Object[] { "Ana", "Quispe", "Newer", "Lima", "999111222" }), row -> row,
+                (id, row) -> assertNull(previous.put(id, row)));
+
+        assertEquals(Set.of(1), previous.keySet());
+        assertEquals(address, previous.get(1)[2]);
+        assertEquals("Second", address(1));
+        assertEquals("Newer", address(ids.get(1)));
+    }
+
+    /**
+     * Owners entered twice (not merged yet): the lowest id is the one updated
+     */
+    @Test
+    public void testDuplicateKeyUpdatesLowestId() {
+
+        UpsertWriter writer = new UpsertWriter(jdbcTemplate, 500);
+        jdbcTemplate.update("INSERT INTO owners (first_name, last_name, address, city, telephone) "
+                + "VALUES ('George', 'Franklin', 'Second copy', 'Madison', '6085551023')");
+        int copy = jdbcTemplate.queryForObject("SELECT MAX(id) FROM owners", Integer.class);
+
+        List<Integer> ids = writer.upsert("owners", OWNER_COLUMNS.subList(1, 6), OWNER_KEY, List.<Object[]>of(
+                new Object[] { "George", "Franklin", "Updated", "Madison", "6085551023" }), row -> row);
+
+        assertEquals(List.of(1), ids);
+        assertEquals("Updated", address(1));
+        assertEquals("Second copy", address(copy));
+    }
+
+    /**
+     * Integer keys compare with the values the driver returns
+     */
+    @Test
+    public void testPetsByOwnerAndName() {
+
+        UpsertWriter writer = new UpsertWriter(jdbcTemplate, 500);
+        String name = jdbcTemplate.queryForObject("SELECT name FROM pets WHERE id = 1", String.class);
+        int owner = jdbcTemplate.queryForObject("SELECT owner_id FROM pets WHERE id = 1", Integer.class);
+
+        List<Integer> ids = writer.upsert("pets", List.of("name", "type_id", "owner_id"), List.of("owner_id", "name"),
+                List.of(new Object[] { name, 2, owner }, new Object[] { "Upserted", 2, owner }), row -> row);
+
+        assertEquals(1, ids.get(0));
+        assertNotEquals(1, ids.get(1));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT type_id FROM pets WHERE id = 1", Integer.class));
+        assertEquals("Upserted", jdbcTemplate.queryForObject("SELECT name FROM pets WHERE id = ?", String.class,
+                ids.get(1)));
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private String address(int id) {
+        return jdbcTemplate.queryForObject("SELECT address FROM owners WHERE id = ?", String.class, id);
+    }
+}